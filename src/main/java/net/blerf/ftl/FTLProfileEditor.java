@@ -15,6 +15,9 @@ import javax.swing.LookAndFeel;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
@@ -27,9 +30,11 @@ import net.vhati.modmanager.core.FTLUtilities;
 
 import net.blerf.ftl.core.EditorConfig;
 import net.blerf.ftl.parser.DataManager;
+import net.blerf.ftl.parser.DatParser;
 import net.blerf.ftl.parser.DefaultDataManager;
 import net.blerf.ftl.ui.FTLFrame;
-import net.blerf.ftl.seedsearch.SeedSearch;
+import net.blerf.ftl.seedsearch.SeedLookupCommand;
+import net.blerf.ftl.seedsearch.SeedSearchCommand;
 
 
 public class FTLProfileEditor {
@@ -80,6 +85,14 @@ public class FTLProfileEditor {
 			}
 		});
 
+		// Build the XML models while the config is read and the user prompted.
+		DatParser.warmUpContexts();
+
+		// Any arguments select a headless command instead of the GUI.
+		if ( args.length > 0 ) {
+			System.exit( runCommand( args ) );
+		}
+
 		// Ensure all popups are triggered from the event dispatch thread.
 
 		SwingUtilities.invokeLater(new Runnable() {
@@ -265,7 +278,10 @@ public class FTLProfileEditor {
 
 			// Parse the dats.
 			try {
-				DefaultDataManager dataManager = new DefaultDataManager( datsDir );
+				// Parsed resources are saved for the next launch, until FTL's dats change.
+				File snapshotDir = new File( "ftl-editor-cache" );
+
+				DefaultDataManager dataManager = new DefaultDataManager( datsDir, snapshotDir );
 				DataManager.setInstance( dataManager );
 				dataManager.setDLCEnabledByDefault( true );
 			}
@@ -298,10 +314,6 @@ public class FTLProfileEditor {
 
 				throw new ExitException();
 			}
-
-			SeedSearch ss = new SeedSearch();
-			ss.search();
-
 		}
 		catch ( ExitException e ) {
 			System.gc();
@@ -311,6 +323,48 @@ public class FTLProfileEditor {
 
 	}
 
+	/**
+	 * Parses command-line arguments and runs a headless command.
+	 *
+	 * @return a process exit code
+	 */
+	private static int runCommand( String[] args ) {
+		SeedSearchCommand seedSearchCmd = new SeedSearchCommand();
+		SeedLookupCommand seedLookupCmd = new SeedLookupCommand();
+
+		JCommander jc = new JCommander();
+		jc.setProgramName( "FTLProfileEditor" );
+		jc.addCommand( SeedSearchCommand.NAME, seedSearchCmd );
+		jc.addCommand( SeedLookupCommand.NAME, seedLookupCmd );
+
+		try {
+			jc.parse( args );
+		}
+		catch ( ParameterException e ) {
+			System.err.println( e.getMessage() );
+			jc.usage();
+			return 2;
+		}
+
+		if ( SeedSearchCommand.NAME.equals( jc.getParsedCommand() ) ) {
+			if ( seedSearchCmd.isHelp() ) {
+				jc.usage( SeedSearchCommand.NAME );
+				return 0;
+			}
+			return seedSearchCmd.execute();
+		}
+		if ( SeedLookupCommand.NAME.equals( jc.getParsedCommand() ) ) {
+			if ( seedLookupCmd.isHelp() ) {
+				jc.usage( SeedLookupCommand.NAME );
+				return 0;
+			}
+			return seedLookupCmd.execute();
+		}
+
+		jc.usage();
+		return 2;
+	}
+
 	private static void showErrorDialog( String message ) {
 		JOptionPane.showMessageDialog( null, message, "Error", JOptionPane.ERROR_MESSAGE );
 	}
@@ -1,21 +1,32 @@
 package net.blerf.ftl.parser;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
-import java.util.LinkedHashMap;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.UnmarshalException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.jdom2.Document;
 import org.jdom2.JDOMException;
 import org.jdom2.output.DOMOutputter;
+import org.w3c.dom.Node;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import net.blerf.ftl.model.shiplayout.ShipLayout;
 import net.blerf.ftl.model.shiplayout.ShipLayoutDoor;
@@ -42,119 +53,200 @@ import net.blerf.ftl.xml.TextLookupUnmarshalListener;
 
 public class DatParser {
 
+	private static final Logger log = LoggerFactory.getLogger( DatParser.class );
+
 	private Pattern xmlDeclPtn = Pattern.compile( "<[?]xml [^>]*?[?]>\n*" );
 	private Pattern rootTagPtn = Pattern.compile( "</?FTL>\n*" );
 
 	private Pattern scrubPtn = Pattern.compile( xmlDeclPtn.pattern() +"|"+ rootTagPtn.pattern() );
 
 
+	/**
+	 * Root classes of the files this reads, for warmUpContexts().
+	 */
+	private static final Class<?>[] ROOT_CLASSES = new Class<?>[] {
+		NamedTexts.class, Achievements.class, Blueprints.class, Encounters.class,
+		ShipEvents.class, CrewNameLists.class, SectorData.class,
+		BackgroundImageLists.class, Animations.class, ShipChassis.class
+	};
+
+	/**
+	 * StAX factories aren't guaranteed to be thread-safe, so each thread
+	 * keeps its own.
+	 */
+	private static final ThreadLocal<XMLInputFactory> xmlInputFactory = new ThreadLocal<XMLInputFactory>() {
+		@Override
+		protected XMLInputFactory initialValue() {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty( XMLInputFactory.SUPPORT_DTD, Boolean.FALSE );
+			factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE );
+			return factory;
+		}
+	};
+
+
 	public DatParser() {
 	}
 
+	/**
+	 * Starts creating the JAXBContexts this needs, in the background.
+	 *
+	 * This is best called early at launch, so the contexts are ready by the
+	 * time the dats are read.
+	 */
+	public static void warmUpContexts() {
+		JAXBContextRegistry.warmUp( ROOT_CLASSES );
+	}
 
-	public List<NamedText> readNamedTextList( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
+	/**
+	 * Unmarshals one of FTL's rootless XML fragments.
+	 *
+	 * The fragment is decoded, wrapped in a root tag, and fed straight to
+	 * JAXB through a StAX reader, without building any intermediate copies
+	 * of the text or trees. If that fails (malformed XML, or bytes that
+	 * aren't valid in the detected encoding), it's read again the slow way:
+	 * guessing the encoding, then parsing strictly or sloppily into a
+	 * document.
+	 *
+	 * @param rootName the name of the root tag to wrap the fragment in
+	 * @param listener a listener for this call only, or null
+	 * @see TextUtilities#parseStrictOrSloppyXML(CharSequence, String)
+	 */
+	private <T> T readFragment( InputStream stream, String fileName, String rootName, Class<T> rootClass, Unmarshaller.Listener listener ) throws IOException, JAXBException, JDOMException {
+
+		// Both attempts need the bytes, and the stream can only be read once.
+		byte[] bytes = readBytes( stream );
+
+		try {
+			return readStrictFragment( bytes, rootName, rootClass, listener );
+		}
+		catch ( UnmarshalException e ) {
+			Throwable cause = ( e.getLinkedException() != null ? e.getLinkedException() : e );
+			log.debug( String.format( "Strict streaming parse of \"%s\" failed, falling back to a sloppy parse: %s", fileName, cause ) );
+		}
+		catch ( XMLStreamException e ) {
+			log.debug( String.format( "Strict streaming parse of \"%s\" failed, falling back to a sloppy parse: %s", fileName, e ) );
+		}
 
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
+		String streamText = TextUtilities.decodeText( new ByteArrayInputStream( bytes ), fileName ).text;
+		bytes = null;  // GC hint.
 
 		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<namedTexts>" );
+		streamBuf.append( "<" ).append( rootName ).append( ">" );
 		Matcher m = scrubPtn.matcher( streamText );
 		while ( m.find() ) {
 			m.appendReplacement( streamBuf, "" );
 		}
 		m.appendTail( streamBuf );
-		streamBuf.append( "</nameTexts>" );
+		streamBuf.append( "</" ).append( rootName ).append( ">" );
+		streamText = null;  // GC hint.
 
 		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		JAXBContext jc = JAXBContext.newInstance( NamedTexts.class );
-		Unmarshaller u = jc.createUnmarshaller();
+		streamBuf = null;  // GC hint.
 
-		NamedTexts nts = (NamedTexts)u.unmarshal( domOutputter.output( doc ) );
+		Node node = new DOMOutputter().output( doc );
+		doc = null;  // GC hint.
 
-		return nts.getNamedTexts();
+		Unmarshaller u = JAXBContextRegistry.getUnmarshaller( rootClass );
+		u.setListener( listener );
+		try {
+			return rootClass.cast( u.unmarshal( node ) );
+		}
+		finally {
+			u.setListener( null );
+		}
 	}
 
+	/**
+	 * Unmarshals a fragment in a single streaming pass, with a strict parser.
+	 *
+	 * Text is decoded as the BOM indicates, or as UTF-8 otherwise. Unlike
+	 * TextUtilities.decodeText(), this doesn't guess windows-1252 when
+	 * UTF-8 fails; the decoding error ends the parse instead.
+	 */
+	private <T> T readStrictFragment( byte[] bytes, String rootName, Class<T> rootClass, Unmarshaller.Listener listener ) throws JAXBException, XMLStreamException {
+		String encoding = "UTF-8";
+		int bomLength = 0;
+
+		if ( bytes.length >= 3 && bytes[0] == (byte)0xEF && bytes[1] == (byte)0xBB && bytes[2] == (byte)0xBF ) {
+			bomLength = 3;
+		}
+		else if ( bytes.length >= 2 && bytes[0] == (byte)0xFF && bytes[1] == (byte)0xFE ) {
+			encoding = "UTF-16LE";
+			bomLength = 2;
+		}
+		else if ( bytes.length >= 2 && bytes[0] == (byte)0xFE && bytes[1] == (byte)0xFF ) {
+			encoding = "UTF-16BE";
+			bomLength = 2;
+		}
 
-	public List<Achievement> readAchievements( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
+		// A decoder from newDecoder() reports malformed input, rather than
+		// silently replacing it.
+		Reader decodedReader = new InputStreamReader( new ByteArrayInputStream( bytes, bomLength, bytes.length - bomLength ), Charset.forName( encoding ).newDecoder() );
+		XMLStreamReader xsr = xmlInputFactory.get().createXMLStreamReader( new XMLFragmentReader( decodedReader, rootName ) );
 
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<achievements>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
+		Unmarshaller u = JAXBContextRegistry.getUnmarshaller( rootClass );
+		u.setListener( listener );
+		try {
+			return rootClass.cast( u.unmarshal( xsr ) );
 		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</achievements>" );
+		finally {
+			u.setListener( null );
+			xsr.close();
+		}
+	}
 
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
+	private byte[] readBytes( InputStream stream ) throws IOException {
+		ByteArrayOutputStream bytesOut = new ByteArrayOutputStream( Math.max( 4096, stream.available() ) );
+		byte[] buf = new byte[8192];
+		int len;
+		while ( (len = stream.read( buf )) >= 0 ) {
+			bytesOut.write( buf, 0, len );
+		}
+		return bytesOut.toByteArray();
+	}
 
+	private TextLookupUnmarshalListener createTextLookupListener( Map<String, String> textLookupMap ) {
 		TextLookupUnmarshalListener textLookupListener = new TextLookupUnmarshalListener();
 		textLookupListener.getLookupMap().putAll( textLookupMap );
+		return textLookupListener;
+	}
 
-		JAXBContext jc = JAXBContext.newInstance( Achievements.class );
-		Unmarshaller u = jc.createUnmarshaller();
-		u.setListener( textLookupListener );
 
-		Achievements ach = (Achievements)u.unmarshal( domOutputter.output( doc ) );
+	public List<NamedText> readNamedTextList( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
+		NamedTexts nts = readFragment( stream, fileName, "namedTexts", NamedTexts.class, null );
 
-		return ach.getAchievements();
+		return nts.getNamedTexts();
 	}
 
 
-	public Blueprints readBlueprints( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
+	public List<Achievement> readAchievements( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
+		Achievements ach = readFragment( stream, fileName, "achievements", Achievements.class, createTextLookupListener( textLookupMap ) );
 
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
+		return ach.getAchievements();
+	}
 
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<blueprints>" );
-		streamBuf.append( streamText );
-		streamBuf.append( "</blueprints>" );
 
-		// Edit the buffer in place.
-		// Note: The replacement will be inserted as-is, with no backreference substitution.
+	public Blueprints readBlueprints( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
+		Blueprints bps = readFragment( stream, fileName, "blueprints", Blueprints.class, createTextLookupListener( textLookupMap ) );
 
-		Map<Pattern, String> fixMap = new LinkedHashMap<Pattern, String>();
-		fixMap.put( xmlDeclPtn, "" );
-		fixMap.put( rootTagPtn, "" );
+		// Fix known typos in the unmarshalled objects, since the text is
+		// never buffered to edit in place.
 
 		if ( "blueprints.xml".equals( fileName ) ) {
 			// blueprints.xml: LONG_ELITE_MED shipBlueprint (FTL 1.03.1)
 			// blueprints.xml: LONG_ELITE_HARD shipBlueprint (FTL 1.03.1)
-			fixMap.put( Pattern.compile( " img=\"rebel_long_hard\"" ), " img=\"rebel_long_elite\"" );
+			for ( ShipBlueprint shipBlueprint : bps.getShipBlueprints() ) {
+				if ( "rebel_long_hard".equals( shipBlueprint.getGraphicsBaseName() ) ) {
+					shipBlueprint.setGraphicsBaseName( "rebel_long_elite" );
+				}
+			}
 
 			// blueprints.xml: SYSTEM_CASING augBlueprint (FTL 1.02.6)
-			String casingRegex = ""
-				+ "\\s*<title>Reinforced System Casing</title>"   // Two titles, scrub the first.
-				+ "(?=\\s*<title>Titanium System Casing</title>)";
-			fixMap.put( Pattern.compile( casingRegex ), "" );     // Used lookahead instead of group.
-		}
-
-		for ( Map.Entry<Pattern, String> entry : fixMap.entrySet() ) {
-			Matcher m = entry.getKey().matcher( streamBuf );
-			int start = 0;
-			while ( m.find( start ) ) {
-				streamBuf.replace( m.start(), m.end(), entry.getValue() );
-				start = m.start() + entry.getValue().length();  // Continue searching after the replacement.
-			}
+			// Two titles, "Reinforced" then "Titanium System Casing".
+			// JAXB keeps the last one, which is the one we want.
 		}
 
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		TextLookupUnmarshalListener textLookupListener = new TextLookupUnmarshalListener();
-		textLookupListener.getLookupMap().putAll( textLookupMap );
-
-		JAXBContext jc = JAXBContext.newInstance( Blueprints.class );
-		Unmarshaller u = jc.createUnmarshaller();
-		u.setListener( textLookupListener );
-
-		Blueprints bps = (Blueprints)u.unmarshal( domOutputter.output( doc ) );
-
 		return bps;
 	}
 
@@ -218,187 +310,41 @@ public class DatParser {
 
 
 	public ShipChassis readChassis( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<shipChassis>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</shipChassis>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		JAXBContext jc = JAXBContext.newInstance( ShipChassis.class );
-		Unmarshaller u = jc.createUnmarshaller();
-
-		ShipChassis sch = (ShipChassis)u.unmarshal( domOutputter.output( doc ) );
-
-		return sch;
+		return readFragment( stream, fileName, "shipChassis", ShipChassis.class, null );
 	}
 
 	public List<CrewNameList> readCrewNames( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<nameLists>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</nameLists>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		JAXBContext jc = JAXBContext.newInstance( CrewNameLists.class );
-		Unmarshaller u = jc.createUnmarshaller();
-
-		CrewNameLists cnl = (CrewNameLists)u.unmarshal( domOutputter.output( doc ) );
+		CrewNameLists cnl = readFragment( stream, fileName, "nameLists", CrewNameLists.class, null );
 
 		return cnl.getCrewNameLists();
 	}
 
 
 	public SectorData readSectorData( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<sectorData>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</sectorData>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		TextLookupUnmarshalListener textLookupListener = new TextLookupUnmarshalListener();
-		textLookupListener.getLookupMap().putAll( textLookupMap );
-
-		JAXBContext jc = JAXBContext.newInstance( SectorData.class );
-		Unmarshaller u = jc.createUnmarshaller();
-		u.setListener( textLookupListener );
-
-		SectorData sectorData = (SectorData)u.unmarshal( domOutputter.output( doc ) );
-
-		return sectorData;
+		return readFragment( stream, fileName, "sectorData", SectorData.class, createTextLookupListener( textLookupMap ) );
 	}
 
 
 	public Encounters readEvents( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<events>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</events>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		TextLookupUnmarshalListener textLookupListener = new TextLookupUnmarshalListener();
-		textLookupListener.getLookupMap().putAll( textLookupMap );
-
-		JAXBContext jc = JAXBContext.newInstance( Encounters.class );
-		Unmarshaller u = jc.createUnmarshaller();
-		u.setListener( textLookupListener );
-
-		Encounters evts = (Encounters)u.unmarshal( domOutputter.output( doc ) );
-
-		return evts;
+		return readFragment( stream, fileName, "events", Encounters.class, createTextLookupListener( textLookupMap ) );
 	}
 
 
 	public List<ShipEvent> readShipEvents( InputStream stream, String fileName, Map<String, String> textLookupMap ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<shipEvents>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</shipEvents>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		TextLookupUnmarshalListener textLookupListener = new TextLookupUnmarshalListener();
-		textLookupListener.getLookupMap().putAll( textLookupMap );
-
-		JAXBContext jc = JAXBContext.newInstance( ShipEvents.class );
-		Unmarshaller u = jc.createUnmarshaller();
-		u.setListener( textLookupListener );
-
-		ShipEvents shvts = (ShipEvents)u.unmarshal( domOutputter.output( doc ) );
+		ShipEvents shvts = readFragment( stream, fileName, "shipEvents", ShipEvents.class, createTextLookupListener( textLookupMap ) );
 
 		return shvts.getShipEvents();
 	}
 
 
 	public List<BackgroundImageList> readImageLists( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<imageLists>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</imageLists>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		JAXBContext jc = JAXBContext.newInstance( BackgroundImageLists.class );
-		Unmarshaller u = jc.createUnmarshaller();
-
-		BackgroundImageLists imgs = (BackgroundImageLists)u.unmarshal( domOutputter.output( doc ) );
+		BackgroundImageLists imgs = readFragment( stream, fileName, "imageLists", BackgroundImageLists.class, null );
 
 		return imgs.getImageLists();
 	}
 
 
 	public Animations readAnimations( InputStream stream, String fileName ) throws IOException, JAXBException, JDOMException {
-
-		String streamText = TextUtilities.decodeText( stream, fileName ).text;
-
-		StringBuffer streamBuf = new StringBuffer( streamText.length() + 50 );
-		streamBuf.append( "<animations>" );
-		Matcher m = scrubPtn.matcher( streamText );
-		while ( m.find() ) {
-			m.appendReplacement( streamBuf, "" );
-		}
-		m.appendTail( streamBuf );
-		streamBuf.append( "</animations>" );
-
-		Document doc = TextUtilities.parseStrictOrSloppyXML( streamBuf, fileName );
-		DOMOutputter domOutputter = new DOMOutputter();
-
-		JAXBContext jc = JAXBContext.newInstance( Animations.class );
-		Unmarshaller u = jc.createUnmarshaller();
-
-		Animations animations = (Animations)u.unmarshal( domOutputter.output( doc ) );
-
-		return animations;
+		return readFragment( stream, fileName, "animations", Animations.class, null );
 	}
 }
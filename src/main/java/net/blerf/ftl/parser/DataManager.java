@@ -302,6 +302,47 @@ public abstract class DataManager implements Closeable {
 		return getTextListById( id, dlcEnabledByDefault );
 	}
 
+	/**
+	 * Returns the dense index of an Event or EventList id, or -1.
+	 *
+	 * Events and EventLists share a namespace, and indices are the same
+	 * whether or not DLC is enabled.
+	 */
+	public int getEventIndex( String id ) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the Event at a dense index, or null if that id is an
+	 * EventList (or absent without DLC).
+	 *
+	 * @see #getEventIndex(String)
+	 */
+	public FTLEvent getEventByIndex( int index, boolean dlcEnabled ) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the EventList at a dense index, or null if that id is an
+	 * Event (or absent without DLC).
+	 *
+	 * @see #getEventIndex(String)
+	 */
+	public FTLEventList getEventListByIndex( int index, boolean dlcEnabled ) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the dense index of a TextList id, or -1.
+	 */
+	public int getTextListIndex( String id ) {
+		throw new UnsupportedOperationException();
+	}
+
+	public TextList getTextListByIndex( int index, boolean dlcEnabled ) {
+		throw new UnsupportedOperationException();
+	}
+
 	public Map<String, Encounters> getEncounters( boolean dlcEnabled ) {
 		throw new UnsupportedOperationException();
 	}
@@ -4,13 +4,23 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.TreeMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.bind.JAXBException;
@@ -35,6 +45,7 @@ import net.blerf.ftl.xml.AnimSheet;
 import net.blerf.ftl.xml.AugBlueprint;
 import net.blerf.ftl.xml.BackgroundImageList;
 import net.blerf.ftl.xml.Blueprints;
+import net.blerf.ftl.xml.Choice;
 import net.blerf.ftl.xml.CrewBlueprint;
 import net.blerf.ftl.xml.CrewNameList;
 import net.blerf.ftl.xml.DefaultDeferredText;
@@ -60,6 +71,8 @@ public class DefaultDataManager extends DataManager {
 
 	private static final Logger log = LoggerFactory.getLogger( DefaultDataManager.class );
 
+	private static final Pattern OVERRIDE_PTN = Pattern.compile( "^OVERRIDE_(.*)" );
+
 	private List<String> stdPlayerShipBaseIds;
 	private List<String> dlcPlayerShipBaseIds;
 	private List<String> stdPlayerShipIds;
@@ -82,6 +95,16 @@ public class DefaultDataManager extends DataManager {
 	private Map<String, TextList> stdTextListIdMap;
 	private Map<String, TextList> dlcTextListIdMap;
 
+	private IdDictionary eventIds;
+	private FTLEvent[] stdEventsByIndex;
+	private FTLEvent[] dlcEventsByIndex;
+	private FTLEventList[] stdEventListsByIndex;
+	private FTLEventList[] dlcEventListsByIndex;
+
+	private IdDictionary textListIds;
+	private TextList[] stdTextListsByIndex;
+	private TextList[] dlcTextListsByIndex;
+
 	private Map<String, AugBlueprint> stdAugmentIdMap;
 	private Map<String, AugBlueprint> dlcAugmentIdMap;
 
@@ -136,20 +159,87 @@ public class DefaultDataManager extends DataManager {
 	private PackContainer packContainer = null;
 	private	DatParser datParser = null;
 
+	private File snapshotDir = null;
+	private String snapshotKey = null;
+
+	private final ResourceCategory<CoreResources> coreCategory = new ResourceCategory<CoreResources>( "core", CoreResources.class ) {
+		@Override
+		protected CoreResources parse() throws IOException, JAXBException, JDOMException {
+			return parseCore();
+		}
+		@Override
+		protected void merge( CoreResources parsed ) {
+			mergeCore( parsed );
+		}
+	};
+
+	private final ResourceCategory<EventResources> eventsCategory = new ResourceCategory<EventResources>( "events", EventResources.class ) {
+		@Override
+		protected EventResources parse() throws IOException, JAXBException, JDOMException {
+			return parseEvents();
+		}
+		@Override
+		protected void merge( EventResources parsed ) {
+			mergeEvents( parsed );
+		}
+	};
+
+	private final ResourceCategory<SectorResources> sectorsCategory = new ResourceCategory<SectorResources>( "sectors", SectorResources.class ) {
+		@Override
+		protected SectorResources parse() throws IOException, JAXBException, JDOMException {
+			return parseSectors();
+		}
+		@Override
+		protected void merge( SectorResources parsed ) {
+			mergeSectors( parsed );
+		}
+	};
+
+	private final ResourceCategory<AnimationResources> animationsCategory = new ResourceCategory<AnimationResources>( "animations", AnimationResources.class ) {
+		@Override
+		protected AnimationResources parse() throws IOException, JAXBException, JDOMException {
+			return parseAnimations();
+		}
+		@Override
+		protected void merge( AnimationResources parsed ) {
+			mergeAnimations( parsed );
+		}
+	};
+
 
 	public DefaultDataManager( File datsDir ) throws IOException, JAXBException, JDOMException {
+		this( datsDir, null );
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * Only text, achievements, blueprints, and crew names are read up front.
+	 * Events, sectors, and animations are read the first time a getter
+	 * needs them.
+	 *
+	 * @param datsDir the directory containing FTL's dats
+	 * @param snapshotDir a directory to save parsed resources in and reuse
+	 *                    on later launches, while the dats are unchanged,
+	 *                    or null to always parse
+	 */
+	public DefaultDataManager( File datsDir, File snapshotDir ) throws IOException, JAXBException, JDOMException {
 
+		long startTime = System.currentTimeMillis();
 		boolean meltdown = false;
-		List<InputStream> streams = new ArrayList<InputStream>();
 
 		try {
 			File ftlDatFile = new File( datsDir, "ftl.dat" );
 			File dataDatFile = new File( datsDir, "data.dat" );
 			File resourceDatFile = new File( datsDir, "resource.dat" );
 
+			List<File> datFiles = new ArrayList<File>();
+			AbstractPack dataPack = null;
 			packContainer = new PackContainer();
 			if ( ftlDatFile.exists() ) {  // FTL 1.6.1.
+				datFiles.add( ftlDatFile );
 				AbstractPack ftlPack = new PkgPack( ftlDatFile, "r" );
+				dataPack = ftlPack;
 
 				packContainer.setPackFor( "audio/", ftlPack );
 				packContainer.setPackFor( "data/", ftlPack );
@@ -159,7 +249,9 @@ public class DefaultDataManager extends DataManager {
 				// Supposedly "exe_icon.png" has been observed at top-level?
 			}
 			else if ( dataDatFile.exists() && resourceDatFile.exists() ) {  // FTL 1.01-1.5.13.
-				AbstractPack dataPack = new FTLPack( dataDatFile, "r" );
+				datFiles.add( dataDatFile );
+				datFiles.add( resourceDatFile );
+				dataPack = new FTLPack( dataDatFile, "r" );
 				packContainer.setPackFor( "data/", dataPack );
 
 				AbstractPack resourcePack = new FTLPack( resourceDatFile, "r" );
@@ -173,6 +265,60 @@ public class DefaultDataManager extends DataManager {
 
 			datParser = new DatParser();
 
+			if ( snapshotDir != null ) {
+				this.snapshotDir = snapshotDir;
+				snapshotKey = ResourceSnapshot.createKey( datFiles, dataPack );
+			}
+
+			coreCategory.load();
+
+			log.info( String.format( "Finished reading FTL resources in %d ms.", System.currentTimeMillis() - startTime ) );
+		}
+		catch ( JDOMException e ) {
+			meltdown = true;
+			throw e;
+		}
+		catch ( JAXBException e ) {
+			meltdown = true;
+			throw e;
+		}
+		catch ( IOException e ) {
+			meltdown = true;
+			throw e;
+		}
+		finally {
+			if ( meltdown ) this.close();
+		}
+	}
+
+	private ExecutorService createLoaderExecutor() {
+		return Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new LoaderThreadFactory() );
+	}
+
+	/**
+	 * Cancels loader tasks that haven't started, and waits for the rest.
+	 *
+	 * Running tasks are never interrupted. Packs read through a FileChannel
+	 * shared by every task, which an interrupt mid-read would close.
+	 */
+	private static void stopLoaderExecutor( ExecutorService executor, List<Future<?>> submitted ) {
+		for ( Future<?> future : submitted ) {
+			future.cancel( false );
+		}
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private CoreResources parseCore() throws IOException, JAXBException, JDOMException {
+		ExecutorService executor = createLoaderExecutor();
+		List<Future<?>> submitted = new ArrayList<Future<?>>();
+		try {
 			// Central string lookups (FTL 1.6.1+).
 			// Blank tags elsewhere can have an "id" attribute.
 			//   Look up a text tag with that "name" attribute.
@@ -190,30 +336,42 @@ public class DefaultDataManager extends DataManager {
 			textLookupFileNames.add( "text_tooltips.xml" );
 			textLookupFileNames.add( "text_tutorial.xml" );
 
+			// Files are parsed concurrently on the executor. Everything else
+			// needs textLookupMap, so text comes first. Results are gathered
+			// in the original order, so later files still override earlier
+			// ones.
+
 			log.info( "Reading text..." );
 
-			textLookupMap = new HashMap<String, String>();
+			List<Future<List<NamedText>>> textFutures = new ArrayList<Future<List<NamedText>>>();
 			for ( String textLookupFileName : textLookupFileNames ) {
 				if ( !hasResourceInputStream( "data/"+ textLookupFileName ) ) continue;
 
-				log.debug( String.format( "Reading \"data/%s\"...", textLookupFileName ) );
-				InputStream tmpStream = getResourceInputStream( "data/"+ textLookupFileName );
-				streams.add( tmpStream );
-				List<NamedText> tmpNamedTextList = datParser.readNamedTextList( tmpStream, textLookupFileName );
-				for ( NamedText namedText : tmpNamedTextList ) {
+				textFutures.add( executor.submit( new ResourceTask<List<NamedText>>( textLookupFileName ) {
+					@Override
+					protected List<NamedText> read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+						return datParser.readNamedTextList( in, fileName );
+					}
+				}) );
+			}
+			submitted.addAll( textFutures );
+
+			textLookupMap = new HashMap<String, String>();
+			for ( Future<List<NamedText>> future : textFutures ) {
+				for ( NamedText namedText : await( future ) ) {
 					textLookupMap.put( namedText.getId(), namedText.getText() );
 				}
 			}
 
-			log.info( "Reading Achievements..." );
-
-			List<Achievement> achievements;
-			log.debug( "Reading \"data/achievements.xml\"..." );
-			InputStream achStream = getResourceInputStream( "data/achievements.xml" );
-			streams.add( achStream );
-			achievements = datParser.readAchievements( achStream, "achievements.xml", textLookupMap );
+			log.info( "Reading Achievements, Blueprints, and Crew Names..." );
 
-			log.info( "Reading Blueprints..." );
+			Future<List<Achievement>> achFuture = executor.submit( new ResourceTask<List<Achievement>>( "achievements.xml" ) {
+				@Override
+				protected List<Achievement> read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+					return datParser.readAchievements( in, fileName, textLookupMap );
+				}
+			});
+			submitted.add( achFuture );
 
 			List<String> stdBlueprintsFileNames = new ArrayList<String>();
 			stdBlueprintsFileNames.add( "blueprints.xml" );
@@ -225,31 +383,351 @@ public class DefaultDataManager extends DataManager {
 			dlcBlueprintsFileNames.add( "dlcBlueprintsOverwrite.xml" );
 			dlcBlueprintsFileNames.add( "dlcPirateBlueprints.xml" );
 
-			stdBlueprintsFileMap = new LinkedHashMap<String, Blueprints>( stdBlueprintsFileNames.size() );
-			dlcBlueprintsFileMap = new LinkedHashMap<String, Blueprints>( dlcBlueprintsFileNames.size() + stdBlueprintsFileNames.size() );
+			Map<String, Future<Blueprints>> stdBlueprintsFutures = new LinkedHashMap<String, Future<Blueprints>>();
 			for ( String blueprintsFileName : stdBlueprintsFileNames ) {
 				if ( !hasResourceInputStream( "data/"+ blueprintsFileName ) ) continue;
-
-				log.debug( String.format( "Reading \"data/%s\"...", blueprintsFileName ) );
-				InputStream tmpStream = getResourceInputStream( "data/"+ blueprintsFileName );
-				streams.add( tmpStream );
-				Blueprints tmpBlueprints = datParser.readBlueprints( tmpStream, blueprintsFileName, textLookupMap );
-				stdBlueprintsFileMap.put( blueprintsFileName, tmpBlueprints );
-				dlcBlueprintsFileMap.put( blueprintsFileName, tmpBlueprints );
+				stdBlueprintsFutures.put( blueprintsFileName, submitBlueprints( executor, blueprintsFileName ) );
 			}
+			submitted.addAll( stdBlueprintsFutures.values() );
 
+			Map<String, Future<Blueprints>> dlcBlueprintsFutures = new LinkedHashMap<String, Future<Blueprints>>();
 			for ( String blueprintsFileName : dlcBlueprintsFileNames ) {
 				if ( !hasResourceInputStream( "data/"+ blueprintsFileName ) ) continue;
+				dlcBlueprintsFutures.put( blueprintsFileName, submitBlueprints( executor, blueprintsFileName ) );
+			}
+			submitted.addAll( dlcBlueprintsFutures.values() );
 
-				log.debug( String.format( "Reading \"data/%s\"...", blueprintsFileName ) );
-				InputStream tmpStream = getResourceInputStream( "data/"+ blueprintsFileName );
-				streams.add( tmpStream );
-				Blueprints tmpBlueprints = datParser.readBlueprints( tmpStream, blueprintsFileName, textLookupMap );
-				dlcBlueprintsFileMap.put( blueprintsFileName, tmpBlueprints );
+			Future<List<CrewNameList>> crewNamesFuture = executor.submit( new ResourceTask<List<CrewNameList>>( "names.xml" ) {
+				@Override
+				protected List<CrewNameList> read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+					return datParser.readCrewNames( in, fileName );
+				}
+			});
+			submitted.add( crewNamesFuture );
+
+			CoreResources result = new CoreResources();
+			result.textLookupMap = textLookupMap;
+			result.achievements = await( achFuture );
+
+			result.stdBlueprintsFileMap = new LinkedHashMap<String, Blueprints>( stdBlueprintsFileNames.size() );
+			result.dlcBlueprintsFileMap = new LinkedHashMap<String, Blueprints>( dlcBlueprintsFileNames.size() + stdBlueprintsFileNames.size() );
+			for ( Map.Entry<String, Future<Blueprints>> entry : stdBlueprintsFutures.entrySet() ) {
+				Blueprints tmpBlueprints = await( entry.getValue() );
+				result.stdBlueprintsFileMap.put( entry.getKey(), tmpBlueprints );
+				result.dlcBlueprintsFileMap.put( entry.getKey(), tmpBlueprints );
+			}
+			for ( Map.Entry<String, Future<Blueprints>> entry : dlcBlueprintsFutures.entrySet() ) {
+				result.dlcBlueprintsFileMap.put( entry.getKey(), await( entry.getValue() ) );
 			}
 
-			log.info( "Reading Events..." );
+			result.crewNameLists = await( crewNamesFuture );
+
+			return result;
+		}
+		finally {
+			stopLoaderExecutor( executor, submitted );
+		}
+	}
+
+	private void mergeCore( CoreResources parsed ) {
+		textLookupMap = parsed.textLookupMap;
+		stdBlueprintsFileMap = parsed.stdBlueprintsFileMap;
+		dlcBlueprintsFileMap = parsed.dlcBlueprintsFileMap;
+
+		List<Achievement> achievements = parsed.achievements;
+		List<CrewNameList> crewNameLists = parsed.crewNameLists;
 
+		achievementIdMap = new LinkedHashMap<String, Achievement>();
+		for( Achievement ach : achievements ) {
+			achievementIdMap.put( ach.getId(), ach );
+		}
+
+		// Add hardcoded ship Quest and Victory achievements. (FTL 1.5.4+)
+		// TODO: Magic strings.
+
+		Map<String, String> questAchIds = new LinkedHashMap<String, String>();
+		// No Kestrel quest.
+		questAchIds.put( "PLAYER_SHIP_STEALTH", "PLAYER_SHIP_STEALTH_QUEST" );
+		questAchIds.put( "PLAYER_SHIP_MANTIS", "PLAYER_SHIP_MANTIS_QUEST" );
+		// No Engi quest.
+		questAchIds.put( "PLAYER_SHIP_FED", "PLAYER_SHIP_FED_QUEST" );
+		questAchIds.put( "PLAYER_SHIP_JELLY", "PLAYER_SHIP_JELLY_QUEST" );
+		questAchIds.put( "PLAYER_SHIP_ROCK", "PLAYER_SHIP_ROCK_QUEST" );
+		questAchIds.put( "PLAYER_SHIP_ENERGY", "PLAYER_SHIP_ENERGY_QUEST" );
+		questAchIds.put( "PLAYER_SHIP_CRYSTAL", "PLAYER_SHIP_CRYSTAL_QUEST" );
+		// No Anaerobic quest.
+
+		for ( Map.Entry<String, String> entry : questAchIds.entrySet() ) {
+			Achievement questAch = achievementIdMap.get( entry.getKey() );
+			if ( questAch == null ) {
+				questAch = new Achievement();
+				questAch.setId( entry.getValue() );
+				questAch.setName( new DefaultDeferredText( entry.getValue() ) );
+				questAch.setDescription( new DefaultDeferredText( "Dummy quest achievement." ) );
+				questAch.setImagePath( null );
+				questAch.setShipId( entry.getKey() );
+				achievementIdMap.put( questAch.getId(), questAch );
+			}
+			questAch.setQuest( true );
+		}
+
+		Map<String, String> victoryAchIds = new LinkedHashMap<String, String>();
+		victoryAchIds.put( "PLAYER_SHIP_HARD", "PLAYER_SHIP_HARD_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_STEALTH", "PLAYER_SHIP_STEALTH_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_MANTIS", "PLAYER_SHIP_MANTIS_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_CIRCLE", "PLAYER_SHIP_CIRCLE_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_FED", "PLAYER_SHIP_FED_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_JELLY", "PLAYER_SHIP_JELLY_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_ROCK", "PLAYER_SHIP_ROCK_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_ENERGY", "PLAYER_SHIP_ENERGY_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_CRYSTAL", "PLAYER_SHIP_CRYSTAL_VICTORY" );
+		victoryAchIds.put( "PLAYER_SHIP_ANAEROBIC", "PLAYER_SHIP_ANAEROBIC_VICTORY" );
+
+		for ( Map.Entry<String, String> entry : victoryAchIds.entrySet() ) {
+			Achievement victoryAch = achievementIdMap.get( entry.getKey() );
+			if ( victoryAch == null ) {
+				victoryAch = new Achievement();
+				victoryAch.setId( entry.getValue() );
+				victoryAch.setName( new DefaultDeferredText( entry.getValue() ) );
+				victoryAch.setDescription( new DefaultDeferredText( "Dummy victory achievement." ) );
+				victoryAch.setImagePath( null );
+				victoryAch.setShipId( entry.getKey() );
+				achievementIdMap.put( victoryAch.getId(), victoryAch );
+			}
+			victoryAch.setVictory( true );
+		}
+
+		generalAchievements = new ArrayList<Achievement>();
+		for( Achievement ach : achievementIdMap.values() ) {
+			if ( ach.getShipId() == null ) {
+				generalAchievements.add( ach );
+			}
+		}
+
+		stdAugmentIdMap = new TreeMap<String, AugBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( AugBlueprint augment : blueprints.getAugBlueprints() ) {
+				stdAugmentIdMap.put( augment.getId(), augment );
+			}
+		}
+		dlcAugmentIdMap = new TreeMap<String, AugBlueprint>( stdAugmentIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( AugBlueprint augment : blueprints.getAugBlueprints() ) {
+				dlcAugmentIdMap.put( augment.getId(), augment );
+			}
+		}
+
+		stdCrewIdMap = new TreeMap<String, CrewBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( CrewBlueprint crew : blueprints.getCrewBlueprints() ) {
+				stdCrewIdMap.put( crew.getId(), crew );
+			}
+		}
+		dlcCrewIdMap = new TreeMap<String, CrewBlueprint>( stdCrewIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( CrewBlueprint crew : blueprints.getCrewBlueprints() ) {
+				dlcCrewIdMap.put( crew.getId(), crew );
+			}
+		}
+
+		stdDroneIdMap = new TreeMap<String, DroneBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( DroneBlueprint drone : blueprints.getDroneBlueprints() ) {
+				stdDroneIdMap.put( drone.getId(), drone );
+			}
+		}
+		dlcDroneIdMap = new TreeMap<String, DroneBlueprint>( stdDroneIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( DroneBlueprint drone : blueprints.getDroneBlueprints() ) {
+				dlcDroneIdMap.put( drone.getId(), drone );
+			}
+		}
+
+		stdSystemIdMap = new LinkedHashMap<String, SystemBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( SystemBlueprint system : blueprints.getSystemBlueprints() ) {
+				stdSystemIdMap.put( system.getId(), system );
+			}
+		}
+		dlcSystemIdMap = new LinkedHashMap<String, SystemBlueprint>( stdSystemIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( SystemBlueprint system : blueprints.getSystemBlueprints() ) {
+				dlcSystemIdMap.put( system.getId(), system );
+			}
+		}
+
+		stdWeaponIdMap = new TreeMap<String, WeaponBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( WeaponBlueprint weapon : blueprints.getWeaponBlueprints() ) {
+				stdWeaponIdMap.put( weapon.getId(), weapon );
+			}
+		}
+		dlcWeaponIdMap = new TreeMap<String, WeaponBlueprint>( stdWeaponIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( WeaponBlueprint weapon : blueprints.getWeaponBlueprints() ) {
+				dlcWeaponIdMap.put( weapon.getId(), weapon );
+			}
+		}
+
+		stdShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
+		for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( ShipBlueprint ship : blueprints.getShipBlueprints() ) {
+				stdShipIdMap.put( ship.getId(), ship );
+			}
+		}
+		dlcShipIdMap = new LinkedHashMap<String, ShipBlueprint>( stdShipIdMap );
+		for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
+			Blueprints blueprints = entry.getValue();
+
+			for ( ShipBlueprint ship : blueprints.getShipBlueprints() ) {
+				dlcShipIdMap.put( ship.getId(), ship );
+			}
+		}
+
+		stdPlayerShipBaseIds = new ArrayList<String>();     // TODO: Magic strings.
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_HARD" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_STEALTH" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_MANTIS" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_CIRCLE" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_FED" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_JELLY" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_ROCK" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_ENERGY" );
+		stdPlayerShipBaseIds.add( "PLAYER_SHIP_CRYSTAL" );
+
+		dlcPlayerShipBaseIds = new ArrayList<String>( stdPlayerShipBaseIds );
+		dlcPlayerShipBaseIds.add( "PLAYER_SHIP_ANAEROBIC" );
+
+		stdPlayerShipIds = new ArrayList<String>();
+		stdPlayerShipVariantsMap = new LinkedHashMap<String, List<ShipBlueprint>>( stdPlayerShipBaseIds.size() );
+		for ( String baseId : stdPlayerShipBaseIds ) {
+			stdPlayerShipIds.add( baseId );
+
+			List<ShipBlueprint> variantList = new ArrayList<ShipBlueprint>( 2 );
+			stdPlayerShipVariantsMap.put( baseId, variantList );
+			variantList.add( stdShipIdMap.get( baseId ) );
+
+			// All ships have a Type-B layout.
+			String variantId = String.format( "%s_%d", baseId, 2 );
+			stdPlayerShipIds.add( variantId );
+			variantList.add( stdShipIdMap.get( variantId ) );
+		}
+		dlcPlayerShipIds = new ArrayList<String>();
+		dlcPlayerShipVariantsMap = new LinkedHashMap<String, List<ShipBlueprint>>( dlcPlayerShipBaseIds.size() );
+		for ( String baseId : dlcPlayerShipBaseIds ) {
+			dlcPlayerShipIds.add( baseId );
+
+			List<ShipBlueprint> variantList = new ArrayList<ShipBlueprint>( 3 );
+			dlcPlayerShipVariantsMap.put( baseId, variantList );
+			variantList.add( dlcShipIdMap.get( baseId ) );
+
+			// All ships have a Type-B layout.
+			String variantId = String.format( "%s_%d", baseId, 2 );
+			dlcPlayerShipIds.add( variantId );
+			variantList.add( dlcShipIdMap.get( variantId ) );
+
+			// Most ships have a Type-C layout.
+			if ( !baseId.equals( "PLAYER_SHIP_CRYSTAL" ) && !baseId.equals( "PLAYER_SHIP_ANAEROBIC" ) ) {
+				variantId = String.format( "%s_%d", baseId, 3 );
+				dlcPlayerShipIds.add( variantId );
+				variantList.add( dlcShipIdMap.get( variantId ) );
+			}
+			else {
+				variantList.add( null );
+			}
+		}
+
+		stdPlayerShipIdMap = new LinkedHashMap<String, ShipBlueprint>( stdPlayerShipIds.size() );
+		for ( String playerShipId : stdPlayerShipIds ) {
+			ShipBlueprint ship = stdShipIdMap.get( playerShipId );
+			if ( ship == null ) continue;
+			stdPlayerShipIdMap.put( playerShipId, ship );
+		}
+		dlcPlayerShipIdMap = new LinkedHashMap<String, ShipBlueprint>( dlcPlayerShipIds.size() );
+		for ( String playerShipId : dlcPlayerShipIds ) {
+			ShipBlueprint ship = dlcShipIdMap.get( playerShipId );
+			if ( ship == null ) continue;
+			dlcPlayerShipIdMap.put( playerShipId, ship );
+		}
+
+		stdAutoShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
+		for ( Map.Entry<String, ShipBlueprint> entry : stdShipIdMap.entrySet() ) {
+			if ( !stdPlayerShipIdMap.containsKey( entry.getKey() ) ) {
+				stdAutoShipIdMap.put( entry.getKey(), entry.getValue() );
+			}
+		}
+		dlcAutoShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
+		for ( Map.Entry<String, ShipBlueprint> entry : dlcShipIdMap.entrySet() ) {
+			if ( !dlcPlayerShipIdMap.containsKey( entry.getKey() ) ) {
+				dlcAutoShipIdMap.put( entry.getKey(), entry.getValue() );
+			}
+		}
+
+		// Ship achievements are only tied to "Type A" variants.
+		stdShipAchievementIdMap = new HashMap<ShipBlueprint, List<Achievement>>();
+		for ( Map.Entry<String, ShipBlueprint> entry : stdPlayerShipIdMap.entrySet() ) {
+			List<Achievement> shipAchs = new ArrayList<Achievement>();
+			for ( Achievement ach : achievementIdMap.values() ) {
+				if ( entry.getKey().equals( ach.getShipId() ) ) {
+					shipAchs.add( ach );
+				}
+			}
+			stdShipAchievementIdMap.put( entry.getValue(), shipAchs );
+		}
+		dlcShipAchievementIdMap = new HashMap<ShipBlueprint, List<Achievement>>( stdShipAchievementIdMap );
+		for ( Map.Entry<String, ShipBlueprint> entry : dlcPlayerShipIdMap.entrySet() ) {
+			List<Achievement> shipAchs = new ArrayList<Achievement>();
+			for ( Achievement ach : achievementIdMap.values() ) {
+				if ( entry.getKey().equals( ach.getShipId() ) ) {
+					shipAchs.add( ach );
+				}
+			}
+			dlcShipAchievementIdMap.put( entry.getValue(), shipAchs );
+		}
+
+		// These'll populate as files are requested.
+		shipLayoutIdMap = new HashMap<String, ShipLayout>();
+		shipChassisIdMap = new HashMap<String, ShipChassis>();
+
+		crewNamesMale = new ArrayList<CrewNameList.CrewName>();
+		crewNamesFemale = new ArrayList<CrewNameList.CrewName>();
+		for ( CrewNameList crewNameList : crewNameLists ) {
+			if ( "male".equals( crewNameList.getSex() ) ) {
+				crewNamesMale.addAll( crewNameList.getNames() );
+			} else {
+				crewNamesFemale.addAll( crewNameList.getNames() );
+			}
+		}
+	}
+
+	private EventResources parseEvents() throws IOException, JAXBException, JDOMException {
+		log.info( "Reading Events..." );
+
+		ExecutorService executor = createLoaderExecutor();
+		List<Future<?>> submitted = new ArrayList<Future<?>>();
+		try {
 			List<String> stdEventsFileNames = new ArrayList<String>();
 			stdEventsFileNames.add( "events.xml" );
 			stdEventsFileNames.add( "newEvents.xml" );
@@ -272,519 +750,343 @@ public class DefaultDataManager extends DataManager {
 			dlcEventsFileNames.add( "dlcEventsOverwrite.xml" );
 			dlcEventsFileNames.add( "dlcEvents_anaerobic.xml" );
 
-			stdEventsFileMap = new LinkedHashMap<String, Encounters>( stdEventsFileNames.size() );
-			dlcEventsFileMap = new LinkedHashMap<String, Encounters>( dlcEventsFileNames.size() + stdEventsFileNames.size() );
+			Map<String, Future<Encounters>> stdEventsFutures = new LinkedHashMap<String, Future<Encounters>>();
 			for ( String eventsFileName : stdEventsFileNames ) {
-				log.debug( String.format( "Reading \"data/%s\"...", eventsFileName ) );
-				InputStream tmpStream = getResourceInputStream( "data/"+ eventsFileName );
-				streams.add( tmpStream );
-				Encounters tmpEncounters = datParser.readEvents( tmpStream, eventsFileName, textLookupMap );
-				stdEventsFileMap.put( eventsFileName, tmpEncounters );
-				dlcEventsFileMap.put( eventsFileName, tmpEncounters );
+				stdEventsFutures.put( eventsFileName, submitEvents( executor, eventsFileName ) );
 			}
+			submitted.addAll( stdEventsFutures.values() );
 
+			Map<String, Future<Encounters>> dlcEventsFutures = new LinkedHashMap<String, Future<Encounters>>();
 			for ( String eventsFileName : dlcEventsFileNames ) {
 				if ( !hasResourceInputStream( "data/"+ eventsFileName ) ) continue;
-
-				log.debug( String.format( "Reading \"data/%s\"...", eventsFileName ) );
-				InputStream tmpStream = getResourceInputStream( "data/"+ eventsFileName );
-				streams.add( tmpStream );
-				Encounters tmpEncounters = datParser.readEvents( tmpStream, eventsFileName, textLookupMap );
-				dlcEventsFileMap.put( eventsFileName, tmpEncounters );
+				dlcEventsFutures.put( eventsFileName, submitEvents( executor, eventsFileName ) );
 			}
-
-			Pattern overridePtn = Pattern.compile( "^OVERRIDE_(.*)" );
-
-			stdEventIdMap = new LinkedHashMap<String, FTLEvent>();
-			stdEventListIdMap = new LinkedHashMap<String, FTLEventList>();
-			stdTextListIdMap = new LinkedHashMap<String, TextList>();
-
-			for ( Map.Entry<String, Encounters> entry : stdEventsFileMap.entrySet() ) {
-				Encounters tmpEncounters = entry.getValue();
-				List<FTLEvent> eventList = tmpEncounters.getEvents();
-				for ( FTLEvent event : eventList ) {
-					if ( overridePtn.matcher( event.getId() ).matches() ) continue;
-					stdEventIdMap.put( event.getId(), event );
-				}
-
-				List<FTLEventList> eventListsList = tmpEncounters.getEventLists();
-				for ( FTLEventList eventLists : eventListsList ) {
-					if ( overridePtn.matcher( eventLists.getId() ).matches() ) continue;
-					stdEventListIdMap.put( eventLists.getId(), eventLists );
-				}
-
-				List<TextList> textListsList = tmpEncounters.getTextLists();
-				for ( TextList textLists : textListsList ) {
-					if ( overridePtn.matcher( textLists.getId() ).matches() ) continue;
-					stdTextListIdMap.put( textLists.getId(), textLists );
-				}
+			submitted.addAll( dlcEventsFutures.values() );
+
+			EventResources result = new EventResources();
+			result.stdEventsFileMap = new LinkedHashMap<String, Encounters>( stdEventsFileNames.size() );
+			result.dlcEventsFileMap = new LinkedHashMap<String, Encounters>( dlcEventsFileNames.size() + stdEventsFileNames.size() );
+			for ( Map.Entry<String, Future<Encounters>> entry : stdEventsFutures.entrySet() ) {
+				Encounters tmpEncounters = await( entry.getValue() );
+				result.stdEventsFileMap.put( entry.getKey(), tmpEncounters );
+				result.dlcEventsFileMap.put( entry.getKey(), tmpEncounters );
 			}
-
-			dlcEventIdMap = new LinkedHashMap<String, FTLEvent>( stdEventIdMap );
-			dlcEventListIdMap = new LinkedHashMap<String, FTLEventList>( stdEventListIdMap );
-			dlcTextListIdMap = new LinkedHashMap<String, TextList>( stdTextListIdMap );
-
-			for ( Map.Entry<String, Encounters> entry : dlcEventsFileMap.entrySet() ) {
-				Encounters tmpEncounters = entry.getValue();
-				List<FTLEvent> eventList = tmpEncounters.getEvents();
-				for ( FTLEvent event : eventList ) {
-					Matcher m = overridePtn.matcher( event.getId() );
-					if ( m.matches() ) {
-						String baseId = m.group( 1 );
-						dlcEventIdMap.put( baseId, event );
-					}
-					else {
-						dlcEventIdMap.put( event.getId(), event );
-					}
-				}
-
-				List<FTLEventList> eventListsList = tmpEncounters.getEventLists();
-				for ( FTLEventList eventLists : eventListsList ) {
-					Matcher m = overridePtn.matcher( eventLists.getId() );
-					if ( m.matches() ) {
-						String baseId = m.group( 1 );
-						dlcEventListIdMap.put( baseId, eventLists );
-					}
-					else {
-						dlcEventListIdMap.put( eventLists.getId(), eventLists );
-					}
-				}
-
-				List<TextList> textListsList = tmpEncounters.getTextLists();
-				for ( TextList textLists : textListsList ) {
-					Matcher m = overridePtn.matcher( textLists.getId() );
-					if ( m.matches() ) {
-						String baseId = m.group( 1 );
-						dlcTextListIdMap.put( baseId, textLists );
-					}
-					else {
-						dlcTextListIdMap.put( textLists.getId(), textLists );
-					}
-				}
+			for ( Map.Entry<String, Future<Encounters>> entry : dlcEventsFutures.entrySet() ) {
+				result.dlcEventsFileMap.put( entry.getKey(), await( entry.getValue() ) );
 			}
 
-			log.info( "Reading Crew Names..." );
-
-			List<CrewNameList> crewNameLists;
-			log.debug( "Reading \"data/names.xml\"..." );
-			InputStream crewNamesStream = getResourceInputStream( "data/names.xml" );
-			streams.add( crewNamesStream );
-			crewNameLists = datParser.readCrewNames( crewNamesStream, "names.xml" );
+			return result;
+		}
+		finally {
+			stopLoaderExecutor( executor, submitted );
+		}
+	}
 
-			log.info( "Reading Sector Data..." );
+	private void mergeEvents( EventResources parsed ) {
+		stdEventsFileMap = parsed.stdEventsFileMap;
+		dlcEventsFileMap = parsed.dlcEventsFileMap;
 
-			SectorData tmpSectorData;
-			log.debug( "Reading \"data/sector_data.xml\"..." );
-			InputStream sectorDataStream = getResourceInputStream( "data/sector_data.xml" );
-			streams.add( sectorDataStream );
-			tmpSectorData = datParser.readSectorData( sectorDataStream, "sector_data.xml", textLookupMap );
+		stdEventIdMap = new LinkedHashMap<String, FTLEvent>();
+		stdEventListIdMap = new LinkedHashMap<String, FTLEventList>();
+		stdTextListIdMap = new LinkedHashMap<String, TextList>();
 
-			sectorDescriptionIdMap = new LinkedHashMap<String, SectorDescription>();
-			for ( SectorDescription tmpDesc : tmpSectorData.getSectorDescriptions() ) {
-				sectorDescriptionIdMap.put( tmpDesc.getId(), tmpDesc );
+		for ( Map.Entry<String, Encounters> entry : stdEventsFileMap.entrySet() ) {
+			Encounters tmpEncounters = entry.getValue();
+			List<FTLEvent> eventList = tmpEncounters.getEvents();
+			for ( FTLEvent event : eventList ) {
+				if ( OVERRIDE_PTN.matcher( event.getId() ).matches() ) continue;
+				stdEventIdMap.put( event.getId(), event );
 			}
 
-			stdSectorTypeIdMap = new LinkedHashMap<String, SectorType>();
-			for ( SectorType tmpType : tmpSectorData.getSectorTypes() ) {
-				if ( overridePtn.matcher( tmpType.getId() ).matches() ) continue;
+			List<FTLEventList> eventListsList = tmpEncounters.getEventLists();
+			for ( FTLEventList eventLists : eventListsList ) {
+				if ( OVERRIDE_PTN.matcher( eventLists.getId() ).matches() ) continue;
+				stdEventListIdMap.put( eventLists.getId(), eventLists );
+			}
 
-				stdSectorTypeIdMap.put( tmpType.getId(), tmpType );
+			List<TextList> textListsList = tmpEncounters.getTextLists();
+			for ( TextList textLists : textListsList ) {
+				if ( OVERRIDE_PTN.matcher( textLists.getId() ).matches() ) continue;
+				stdTextListIdMap.put( textLists.getId(), textLists );
 			}
+		}
+
+		dlcEventIdMap = new LinkedHashMap<String, FTLEvent>( stdEventIdMap );
+		dlcEventListIdMap = new LinkedHashMap<String, FTLEventList>( stdEventListIdMap );
+		dlcTextListIdMap = new LinkedHashMap<String, TextList>( stdTextListIdMap );
 
-			dlcSectorTypeIdMap = new LinkedHashMap<String, SectorType>( stdSectorTypeIdMap );
-			for ( SectorType tmpType : tmpSectorData.getSectorTypes() ) {
-				Matcher m = overridePtn.matcher( tmpType.getId() );
+		for ( Map.Entry<String, Encounters> entry : dlcEventsFileMap.entrySet() ) {
+			Encounters tmpEncounters = entry.getValue();
+			List<FTLEvent> eventList = tmpEncounters.getEvents();
+			for ( FTLEvent event : eventList ) {
+				Matcher m = OVERRIDE_PTN.matcher( event.getId() );
 				if ( m.matches() ) {
 					String baseId = m.group( 1 );
-					dlcSectorTypeIdMap.put( baseId, tmpType );
+					dlcEventIdMap.put( baseId, event );
+				}
+				else {
+					dlcEventIdMap.put( event.getId(), event );
 				}
 			}
 
-			log.info( "Reading Background Image Lists..." );
-
-			List<BackgroundImageList> tmpBgImageLists;
-			log.debug( "Reading \"data/events_imageList.xml\"..." );
-			InputStream imageListsStream = getResourceInputStream( "data/events_imageList.xml" );
-			streams.add( imageListsStream );
-			tmpBgImageLists = datParser.readImageLists( imageListsStream, "events_imageList.xml" );
-
-			log.info( "Reading Animations..." );
-
-			Animations stdAnimations;
-			log.debug( "Reading \"data/animations.xml\"..." );
-			InputStream stdAnimationsStream = getResourceInputStream( "data/animations.xml" );
-			streams.add( stdAnimationsStream );
-			stdAnimations = datParser.readAnimations( stdAnimationsStream, "animations.xml" );
-
-			Animations dlcAnimations = null;
-			if ( hasResourceInputStream( "data/dlcAnimations.xml" ) ) {
-				log.debug( "Reading \"data/dlcAnimations.xml\"..." );
-				InputStream dlcAnimationsStream = getResourceInputStream( "data/dlcAnimations.xml" );
-				streams.add( dlcAnimationsStream );
-				dlcAnimations = datParser.readAnimations( dlcAnimationsStream, "dlcAnimations.xml" );
-			}
-
-			log.info( "Finished reading FTL resources." );
-
-			achievementIdMap = new LinkedHashMap<String, Achievement>();
-			for( Achievement ach : achievements ) {
-				achievementIdMap.put( ach.getId(), ach );
-			}
-
-			// Add hardcoded ship Quest and Victory achievements. (FTL 1.5.4+)
-			// TODO: Magic strings.
-
-			Map<String, String> questAchIds = new LinkedHashMap<String, String>();
-			// No Kestrel quest.
-			questAchIds.put( "PLAYER_SHIP_STEALTH", "PLAYER_SHIP_STEALTH_QUEST" );
-			questAchIds.put( "PLAYER_SHIP_MANTIS", "PLAYER_SHIP_MANTIS_QUEST" );
-			// No Engi quest.
-			questAchIds.put( "PLAYER_SHIP_FED", "PLAYER_SHIP_FED_QUEST" );
-			questAchIds.put( "PLAYER_SHIP_JELLY", "PLAYER_SHIP_JELLY_QUEST" );
-			questAchIds.put( "PLAYER_SHIP_ROCK", "PLAYER_SHIP_ROCK_QUEST" );
-			questAchIds.put( "PLAYER_SHIP_ENERGY", "PLAYER_SHIP_ENERGY_QUEST" );
-			questAchIds.put( "PLAYER_SHIP_CRYSTAL", "PLAYER_SHIP_CRYSTAL_QUEST" );
-			// No Anaerobic quest.
-
-			for ( Map.Entry<String, String> entry : questAchIds.entrySet() ) {
-				Achievement questAch = achievementIdMap.get( entry.getKey() );
-				if ( questAch == null ) {
-					questAch = new Achievement();
-					questAch.setId( entry.getValue() );
-					questAch.setName( new DefaultDeferredText( entry.getValue() ) );
-					questAch.setDescription( new DefaultDeferredText( "Dummy quest achievement." ) );
-					questAch.setImagePath( null );
-					questAch.setShipId( entry.getKey() );
-					achievementIdMap.put( questAch.getId(), questAch );
+			List<FTLEventList> eventListsList = tmpEncounters.getEventLists();
+			for ( FTLEventList eventLists : eventListsList ) {
+				Matcher m = OVERRIDE_PTN.matcher( eventLists.getId() );
+				if ( m.matches() ) {
+					String baseId = m.group( 1 );
+					dlcEventListIdMap.put( baseId, eventLists );
 				}
-				questAch.setQuest( true );
-			}
-
-			Map<String, String> victoryAchIds = new LinkedHashMap<String, String>();
-			victoryAchIds.put( "PLAYER_SHIP_HARD", "PLAYER_SHIP_HARD_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_STEALTH", "PLAYER_SHIP_STEALTH_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_MANTIS", "PLAYER_SHIP_MANTIS_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_CIRCLE", "PLAYER_SHIP_CIRCLE_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_FED", "PLAYER_SHIP_FED_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_JELLY", "PLAYER_SHIP_JELLY_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_ROCK", "PLAYER_SHIP_ROCK_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_ENERGY", "PLAYER_SHIP_ENERGY_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_CRYSTAL", "PLAYER_SHIP_CRYSTAL_VICTORY" );
-			victoryAchIds.put( "PLAYER_SHIP_ANAEROBIC", "PLAYER_SHIP_ANAEROBIC_VICTORY" );
-
-			for ( Map.Entry<String, String> entry : victoryAchIds.entrySet() ) {
-				Achievement victoryAch = achievementIdMap.get( entry.getKey() );
-				if ( victoryAch == null ) {
-					victoryAch = new Achievement();
-					victoryAch.setId( entry.getValue() );
-					victoryAch.setName( new DefaultDeferredText( entry.getValue() ) );
-					victoryAch.setDescription( new DefaultDeferredText( "Dummy victory achievement." ) );
-					victoryAch.setImagePath( null );
-					victoryAch.setShipId( entry.getKey() );
-					achievementIdMap.put( victoryAch.getId(), victoryAch );
+				else {
+					dlcEventListIdMap.put( eventLists.getId(), eventLists );
 				}
-				victoryAch.setVictory( true );
 			}
 
-			generalAchievements = new ArrayList<Achievement>();
-			for( Achievement ach : achievementIdMap.values() ) {
-				if ( ach.getShipId() == null ) {
-					generalAchievements.add( ach );
+			List<TextList> textListsList = tmpEncounters.getTextLists();
+			for ( TextList textLists : textListsList ) {
+				Matcher m = OVERRIDE_PTN.matcher( textLists.getId() );
+				if ( m.matches() ) {
+					String baseId = m.group( 1 );
+					dlcTextListIdMap.put( baseId, textLists );
 				}
-			}
-
-			stdAugmentIdMap = new TreeMap<String, AugBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
-
-				for ( AugBlueprint augment : blueprints.getAugBlueprints() ) {
-					stdAugmentIdMap.put( augment.getId(), augment );
+				else {
+					dlcTextListIdMap.put( textLists.getId(), textLists );
 				}
 			}
-			dlcAugmentIdMap = new TreeMap<String, AugBlueprint>( stdAugmentIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		}
 
-				for ( AugBlueprint augment : blueprints.getAugBlueprints() ) {
-					dlcAugmentIdMap.put( augment.getId(), augment );
-				}
-			}
+		/* DLC maps include every standard id, so they cover all indices */
+		eventIds = new IdDictionary();
+		for ( String id : dlcEventIdMap.keySet() ) eventIds.add( id );
+		for ( String id : dlcEventListIdMap.keySet() ) eventIds.add( id );
+
+		stdEventsByIndex = new FTLEvent[eventIds.size()];
+		dlcEventsByIndex = new FTLEvent[eventIds.size()];
+		stdEventListsByIndex = new FTLEventList[eventIds.size()];
+		dlcEventListsByIndex = new FTLEventList[eventIds.size()];
+		for ( int i=0; i < eventIds.size(); i++ ) {
+			String id = eventIds.getId( i );
+			stdEventsByIndex[i] = stdEventIdMap.get( id );
+			dlcEventsByIndex[i] = dlcEventIdMap.get( id );
+			stdEventListsByIndex[i] = stdEventListIdMap.get( id );
+			dlcEventListsByIndex[i] = dlcEventListIdMap.get( id );
+		}
 
-			stdCrewIdMap = new TreeMap<String, CrewBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		/* Resolve load attributes now, so generating events needn't look
+		 * ids up. Events DLC overrides are only in the standard map.
+		 */
+		for ( FTLEvent event : stdEventIdMap.values() ) resolveEventLoads( event );
+		for ( FTLEvent event : dlcEventIdMap.values() ) resolveEventLoads( event );
+		for ( FTLEventList eventList : stdEventListIdMap.values() ) resolveEventLoads( eventList );
+		for ( FTLEventList eventList : dlcEventListIdMap.values() ) resolveEventLoads( eventList );
+
+		textListIds = new IdDictionary();
+		for ( String id : dlcTextListIdMap.keySet() ) textListIds.add( id );
+
+		stdTextListsByIndex = new TextList[textListIds.size()];
+		dlcTextListsByIndex = new TextList[textListIds.size()];
+		for ( int i=0; i < textListIds.size(); i++ ) {
+			String id = textListIds.getId( i );
+			stdTextListsByIndex[i] = stdTextListIdMap.get( id );
+			dlcTextListsByIndex[i] = dlcTextListIdMap.get( id );
+		}
 
-				for ( CrewBlueprint crew : blueprints.getCrewBlueprints() ) {
-					stdCrewIdMap.put( crew.getId(), crew );
-				}
+		stdShipEventIdMap = new LinkedHashMap<String, ShipEvent>();
+		for ( Map.Entry<String, Encounters> entry : stdEventsFileMap.entrySet() ) {
+			Encounters tmpEncounters = entry.getValue();
+			List<ShipEvent> shipEventList = tmpEncounters.getShipEvents();
+			for ( ShipEvent shipEvent : shipEventList ) {
+				stdShipEventIdMap.put( shipEvent.getId(), shipEvent );
 			}
-			dlcCrewIdMap = new TreeMap<String, CrewBlueprint>( stdCrewIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
-
-				for ( CrewBlueprint crew : blueprints.getCrewBlueprints() ) {
-					dlcCrewIdMap.put( crew.getId(), crew );
+		}
+		dlcShipEventIdMap = new LinkedHashMap<String, ShipEvent>( stdShipEventIdMap );
+		for ( Map.Entry<String, Encounters> entry : dlcEventsFileMap.entrySet() ) {
+			Encounters tmpEncounters = entry.getValue();
+			List<ShipEvent> shipEventList = tmpEncounters.getShipEvents();
+			for ( ShipEvent shipEvent : shipEventList ) {
+				Matcher m = OVERRIDE_PTN.matcher( shipEvent.getId() );
+				if ( m.matches() ) {
+					String baseId = m.group( 1 );
+					dlcShipEventIdMap.put( baseId, shipEvent );
 				}
 			}
+		}
+	}
 
-			stdDroneIdMap = new TreeMap<String, DroneBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+	private void resolveEventLoads( FTLEventList eventList ) {
+		if ( eventList.getEventList() == null ) return;
 
-				for ( DroneBlueprint drone : blueprints.getDroneBlueprints() ) {
-					stdDroneIdMap.put( drone.getId(), drone );
-				}
-			}
-			dlcDroneIdMap = new TreeMap<String, DroneBlueprint>( stdDroneIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		for ( FTLEvent event : eventList.getEventList() ) {
+			resolveEventLoads( event );
+		}
+	}
 
-				for ( DroneBlueprint drone : blueprints.getDroneBlueprints() ) {
-					dlcDroneIdMap.put( drone.getId(), drone );
-				}
-			}
+	/**
+	 * Sets load indices on an event and, recursively, its choices.
+	 *
+	 * Unknown ids are left at -1, to fail when the event is generated.
+	 */
+	private void resolveEventLoads( FTLEvent event ) {
+		event.setLoadIndex( event.getLoad() != null ? eventIds.indexOf( event.getLoad() ) : -1 );
 
-			stdSystemIdMap = new LinkedHashMap<String, SystemBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		if ( event.getChoiceList() == null ) return;
 
-				for ( SystemBlueprint system : blueprints.getSystemBlueprints() ) {
-					stdSystemIdMap.put( system.getId(), system );
-				}
-			}
-			dlcSystemIdMap = new LinkedHashMap<String, SystemBlueprint>( stdSystemIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		for ( Choice choice : event.getChoiceList() ) {
+			FTLEvent choiceEvent = choice.getEvent();
+			if ( choiceEvent == null ) continue;
 
-				for ( SystemBlueprint system : blueprints.getSystemBlueprints() ) {
-					dlcSystemIdMap.put( system.getId(), system );
-				}
-			}
+			String load = ( choiceEvent.getId() != null ? choiceEvent.getId() : choiceEvent.getLoad() );
+			choice.setLoadIndex( load != null ? eventIds.indexOf( load ) : -1 );
+			resolveEventLoads( choiceEvent );
+		}
+	}
 
-			stdWeaponIdMap = new TreeMap<String, WeaponBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+	private SectorResources parseSectors() throws IOException, JAXBException, JDOMException {
+		log.info( "Reading Sector Data and Background Image Lists..." );
 
-				for ( WeaponBlueprint weapon : blueprints.getWeaponBlueprints() ) {
-					stdWeaponIdMap.put( weapon.getId(), weapon );
-				}
+		SectorResources result = new SectorResources();
+
+		result.sectorData = new ResourceTask<SectorData>( "sector_data.xml" ) {
+			@Override
+			protected SectorData read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+				return datParser.readSectorData( in, fileName, textLookupMap );
 			}
-			dlcWeaponIdMap = new TreeMap<String, WeaponBlueprint>( stdWeaponIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		}.call();
 
-				for ( WeaponBlueprint weapon : blueprints.getWeaponBlueprints() ) {
-					dlcWeaponIdMap.put( weapon.getId(), weapon );
-				}
+		result.bgImageLists = new ResourceTask<List<BackgroundImageList>>( "events_imageList.xml" ) {
+			@Override
+			protected List<BackgroundImageList> read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+				return datParser.readImageLists( in, fileName );
 			}
+		}.call();
 
-			stdShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
-			for ( Map.Entry<String, Blueprints> entry : stdBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+		return result;
+	}
 
-				for ( ShipBlueprint ship : blueprints.getShipBlueprints() ) {
-					stdShipIdMap.put( ship.getId(), ship );
-				}
-			}
-			dlcShipIdMap = new LinkedHashMap<String, ShipBlueprint>( stdShipIdMap );
-			for ( Map.Entry<String, Blueprints> entry : dlcBlueprintsFileMap.entrySet() ) {
-				Blueprints blueprints = entry.getValue();
+	private void mergeSectors( SectorResources parsed ) {
+		SectorData tmpSectorData = parsed.sectorData;
+		List<BackgroundImageList> tmpBgImageLists = parsed.bgImageLists;
 
-				for ( ShipBlueprint ship : blueprints.getShipBlueprints() ) {
-					dlcShipIdMap.put( ship.getId(), ship );
-				}
-			}
+		sectorDescriptionIdMap = new LinkedHashMap<String, SectorDescription>();
+		for ( SectorDescription tmpDesc : tmpSectorData.getSectorDescriptions() ) {
+			sectorDescriptionIdMap.put( tmpDesc.getId(), tmpDesc );
+		}
 
-			stdPlayerShipBaseIds = new ArrayList<String>();     // TODO: Magic strings.
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_HARD" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_STEALTH" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_MANTIS" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_CIRCLE" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_FED" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_JELLY" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_ROCK" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_ENERGY" );
-			stdPlayerShipBaseIds.add( "PLAYER_SHIP_CRYSTAL" );
-
-			dlcPlayerShipBaseIds = new ArrayList<String>( stdPlayerShipBaseIds );
-			dlcPlayerShipBaseIds.add( "PLAYER_SHIP_ANAEROBIC" );
-
-			stdPlayerShipIds = new ArrayList<String>();
-			stdPlayerShipVariantsMap = new LinkedHashMap<String, List<ShipBlueprint>>( stdPlayerShipBaseIds.size() );
-			for ( String baseId : stdPlayerShipBaseIds ) {
-				stdPlayerShipIds.add( baseId );
-
-				List<ShipBlueprint> variantList = new ArrayList<ShipBlueprint>( 2 );
-				stdPlayerShipVariantsMap.put( baseId, variantList );
-				variantList.add( stdShipIdMap.get( baseId ) );
-
-				// All ships have a Type-B layout.
-				String variantId = String.format( "%s_%d", baseId, 2 );
-				stdPlayerShipIds.add( variantId );
-				variantList.add( stdShipIdMap.get( variantId ) );
-			}
-			dlcPlayerShipIds = new ArrayList<String>();
-			dlcPlayerShipVariantsMap = new LinkedHashMap<String, List<ShipBlueprint>>( dlcPlayerShipBaseIds.size() );
-			for ( String baseId : dlcPlayerShipBaseIds ) {
-				dlcPlayerShipIds.add( baseId );
-
-				List<ShipBlueprint> variantList = new ArrayList<ShipBlueprint>( 3 );
-				dlcPlayerShipVariantsMap.put( baseId, variantList );
-				variantList.add( dlcShipIdMap.get( baseId ) );
-
-				// All ships have a Type-B layout.
-				String variantId = String.format( "%s_%d", baseId, 2 );
-				dlcPlayerShipIds.add( variantId );
-				variantList.add( dlcShipIdMap.get( variantId ) );
+		stdSectorTypeIdMap = new LinkedHashMap<String, SectorType>();
+		for ( SectorType tmpType : tmpSectorData.getSectorTypes() ) {
+			if ( OVERRIDE_PTN.matcher( tmpType.getId() ).matches() ) continue;
 
-				// Most ships have a Type-C layout.
-				if ( !baseId.equals( "PLAYER_SHIP_CRYSTAL" ) && !baseId.equals( "PLAYER_SHIP_ANAEROBIC" ) ) {
-					variantId = String.format( "%s_%d", baseId, 3 );
-					dlcPlayerShipIds.add( variantId );
-					variantList.add( dlcShipIdMap.get( variantId ) );
-				}
-				else {
-					variantList.add( null );
-				}
-			}
+			stdSectorTypeIdMap.put( tmpType.getId(), tmpType );
+		}
 
-			stdPlayerShipIdMap = new LinkedHashMap<String, ShipBlueprint>( stdPlayerShipIds.size() );
-			for ( String playerShipId : stdPlayerShipIds ) {
-				ShipBlueprint ship = stdShipIdMap.get( playerShipId );
-				if ( ship == null ) continue;
-				stdPlayerShipIdMap.put( playerShipId, ship );
-			}
-			dlcPlayerShipIdMap = new LinkedHashMap<String, ShipBlueprint>( dlcPlayerShipIds.size() );
-			for ( String playerShipId : dlcPlayerShipIds ) {
-				ShipBlueprint ship = dlcShipIdMap.get( playerShipId );
-				if ( ship == null ) continue;
-				dlcPlayerShipIdMap.put( playerShipId, ship );
+		dlcSectorTypeIdMap = new LinkedHashMap<String, SectorType>( stdSectorTypeIdMap );
+		for ( SectorType tmpType : tmpSectorData.getSectorTypes() ) {
+			Matcher m = OVERRIDE_PTN.matcher( tmpType.getId() );
+			if ( m.matches() ) {
+				String baseId = m.group( 1 );
+				dlcSectorTypeIdMap.put( baseId, tmpType );
 			}
+		}
 
-			stdAutoShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
-			for ( Map.Entry<String, ShipBlueprint> entry : stdShipIdMap.entrySet() ) {
-				if ( !stdPlayerShipIdMap.containsKey( entry.getKey() ) ) {
-					stdAutoShipIdMap.put( entry.getKey(), entry.getValue() );
-				}
-			}
-			dlcAutoShipIdMap = new LinkedHashMap<String, ShipBlueprint>();
-			for ( Map.Entry<String, ShipBlueprint> entry : dlcShipIdMap.entrySet() ) {
-				if ( !dlcPlayerShipIdMap.containsKey( entry.getKey() ) ) {
-					dlcAutoShipIdMap.put( entry.getKey(), entry.getValue() );
-				}
-			}
+		backgroundImageListIdMap = new LinkedHashMap<String, BackgroundImageList>();
+		for ( BackgroundImageList imageList : tmpBgImageLists ) {
+			backgroundImageListIdMap.put( imageList.getId(), imageList );
+		}
+	}
 
-			// Ship achievements are only tied to "Type A" variants.
-			stdShipAchievementIdMap = new HashMap<ShipBlueprint, List<Achievement>>();
-			for ( Map.Entry<String, ShipBlueprint> entry : stdPlayerShipIdMap.entrySet() ) {
-				List<Achievement> shipAchs = new ArrayList<Achievement>();
-				for ( Achievement ach : achievementIdMap.values() ) {
-					if ( entry.getKey().equals( ach.getShipId() ) ) {
-						shipAchs.add( ach );
-					}
-				}
-				stdShipAchievementIdMap.put( entry.getValue(), shipAchs );
-			}
-			dlcShipAchievementIdMap = new HashMap<ShipBlueprint, List<Achievement>>( stdShipAchievementIdMap );
-			for ( Map.Entry<String, ShipBlueprint> entry : dlcPlayerShipIdMap.entrySet() ) {
-				List<Achievement> shipAchs = new ArrayList<Achievement>();
-				for ( Achievement ach : achievementIdMap.values() ) {
-					if ( entry.getKey().equals( ach.getShipId() ) ) {
-						shipAchs.add( ach );
-					}
-				}
-				dlcShipAchievementIdMap.put( entry.getValue(), shipAchs );
-			}
+	private AnimationResources parseAnimations() throws IOException, JAXBException, JDOMException {
+		log.info( "Reading Animations..." );
 
-			// These'll populate as files are requested.
-			shipLayoutIdMap = new HashMap<String, ShipLayout>();
-			shipChassisIdMap = new HashMap<String, ShipChassis>();
+		AnimationResources result = new AnimationResources();
 
-			crewNamesMale = new ArrayList<CrewNameList.CrewName>();
-			crewNamesFemale = new ArrayList<CrewNameList.CrewName>();
-			for ( CrewNameList crewNameList : crewNameLists ) {
-				if ( "male".equals( crewNameList.getSex() ) ) {
-					crewNamesMale.addAll( crewNameList.getNames() );
-				} else {
-					crewNamesFemale.addAll( crewNameList.getNames() );
-				}
-			}
+		result.stdAnimations = readAnimations( "animations.xml" );
+		if ( hasResourceInputStream( "data/dlcAnimations.xml" ) ) {
+			result.dlcAnimations = readAnimations( "dlcAnimations.xml" );
+		}
 
-			backgroundImageListIdMap = new LinkedHashMap<String, BackgroundImageList>();
-			for ( BackgroundImageList imageList : tmpBgImageLists ) {
-				backgroundImageListIdMap.put( imageList.getId(), imageList );
-			}
+		return result;
+	}
 
-			stdShipEventIdMap = new LinkedHashMap<String, ShipEvent>();
-			for ( Map.Entry<String, Encounters> entry : stdEventsFileMap.entrySet() ) {
-				Encounters tmpEncounters = entry.getValue();
-				List<ShipEvent> shipEventList = tmpEncounters.getShipEvents();
-				for ( ShipEvent shipEvent : shipEventList ) {
-					stdShipEventIdMap.put( shipEvent.getId(), shipEvent );
-				}
-			}
-			dlcShipEventIdMap = new LinkedHashMap<String, ShipEvent>( stdShipEventIdMap );
-			for ( Map.Entry<String, Encounters> entry : dlcEventsFileMap.entrySet() ) {
-				Encounters tmpEncounters = entry.getValue();
-				List<ShipEvent> shipEventList = tmpEncounters.getShipEvents();
-				for ( ShipEvent shipEvent : shipEventList ) {
-					Matcher m = overridePtn.matcher( shipEvent.getId() );
-					if ( m.matches() ) {
-						String baseId = m.group( 1 );
-						dlcShipEventIdMap.put( baseId, shipEvent );
-					}
-				}
+	private Animations readAnimations( String fileName ) throws IOException, JAXBException, JDOMException {
+		return new ResourceTask<Animations>( fileName ) {
+			@Override
+			protected Animations read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+				return datParser.readAnimations( in, fileName );
 			}
+		}.call();
+	}
+
+	private void mergeAnimations( AnimationResources parsed ) {
+		Animations stdAnimations = parsed.stdAnimations;
+		Animations dlcAnimations = parsed.dlcAnimations;
+
+		stdAnimSheetIdMap = new LinkedHashMap<String, AnimSheet>();
+		stdAnimIdMap = new LinkedHashMap<String, Anim>();
+		stdWeaponAnimIdMap = new LinkedHashMap<String, WeaponAnim>();
+
+		for ( AnimSheet sheet : stdAnimations.getSheets() ) {
+			stdAnimSheetIdMap.put( sheet.getId(), sheet );
+		}
+		for ( Anim anim : stdAnimations.getAnims() ) {
+			stdAnimIdMap.put( anim.getId(), anim );
+		}
+		for ( WeaponAnim weaponAnim : stdAnimations.getWeaponAnims() ) {
+			stdWeaponAnimIdMap.put( weaponAnim.getId(), weaponAnim );
+		}
 
-			stdAnimSheetIdMap = new LinkedHashMap<String, AnimSheet>();
-			stdAnimIdMap = new LinkedHashMap<String, Anim>();
-			stdWeaponAnimIdMap = new LinkedHashMap<String, WeaponAnim>();
+		dlcAnimSheetIdMap = new LinkedHashMap<String, AnimSheet>( stdAnimSheetIdMap );
+		dlcAnimIdMap = new LinkedHashMap<String, Anim>( stdAnimIdMap );
+		dlcWeaponAnimIdMap = new LinkedHashMap<String, WeaponAnim>( stdWeaponAnimIdMap );
 
-			for ( AnimSheet sheet : stdAnimations.getSheets() ) {
-				stdAnimSheetIdMap.put( sheet.getId(), sheet );
+		if ( dlcAnimations != null ) {
+			for ( AnimSheet sheet : dlcAnimations.getSheets() ) {
+				dlcAnimSheetIdMap.put( sheet.getId(), sheet );
 			}
-			for ( Anim anim : stdAnimations.getAnims() ) {
-				stdAnimIdMap.put( anim.getId(), anim );
+			for ( Anim anim : dlcAnimations.getAnims() ) {
+				dlcAnimIdMap.put( anim.getId(), anim );
 			}
-			for ( WeaponAnim weaponAnim : stdAnimations.getWeaponAnims() ) {
-				stdWeaponAnimIdMap.put( weaponAnim.getId(), weaponAnim );
+			for ( WeaponAnim weaponAnim : dlcAnimations.getWeaponAnims() ) {
+				dlcWeaponAnimIdMap.put( weaponAnim.getId(), weaponAnim );
 			}
+		}
+	}
 
-			dlcAnimSheetIdMap = new LinkedHashMap<String, AnimSheet>( stdAnimSheetIdMap );
-			dlcAnimIdMap = new LinkedHashMap<String, Anim>( stdAnimIdMap );
-			dlcWeaponAnimIdMap = new LinkedHashMap<String, WeaponAnim>( stdWeaponAnimIdMap );
+	private Future<Blueprints> submitBlueprints( ExecutorService executor, String fileName ) {
+		return executor.submit( new ResourceTask<Blueprints>( fileName ) {
+			@Override
+			protected Blueprints read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+				return datParser.readBlueprints( in, fileName, textLookupMap );
+			}
+		});
+	}
 
-			if ( dlcAnimations != null ) {
-				for ( AnimSheet sheet : dlcAnimations.getSheets() ) {
-					dlcAnimSheetIdMap.put( sheet.getId(), sheet );
-				}
-				for ( Anim anim : dlcAnimations.getAnims() ) {
-					dlcAnimIdMap.put( anim.getId(), anim );
-				}
-				for ( WeaponAnim weaponAnim : dlcAnimations.getWeaponAnims() ) {
-					dlcWeaponAnimIdMap.put( weaponAnim.getId(), weaponAnim );
-				}
+	private Future<Encounters> submitEvents( ExecutorService executor, String fileName ) {
+		return executor.submit( new ResourceTask<Encounters>( fileName ) {
+			@Override
+			protected Encounters read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException {
+				return datParser.readEvents( in, fileName, textLookupMap );
 			}
+		});
+	}
+
+	/**
+	 * Waits for a ResourceTask, rethrowing what it threw.
+	 */
+	private static <T> T await( Future<T> future ) throws IOException, JAXBException, JDOMException {
+		try {
+			return future.get();
 		}
-		catch ( JDOMException e ) {
-			meltdown = true;
-			throw e;
-		}
-		catch ( JAXBException e ) {
-			meltdown = true;
-			throw e;
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted while reading FTL resources" );
 		}
-		catch ( IOException e ) {
-			meltdown = true;
-			throw e;
-		}
-		finally {
-			for ( InputStream stream : streams ) {
-				try {if ( stream != null ) stream.close();}
-				catch ( IOException f ) {}
-			}
-
-			if ( meltdown ) this.close();
+		catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) throw (IOException)cause;
+			if ( cause instanceof JAXBException ) throw (JAXBException)cause;
+			if ( cause instanceof JDOMException ) throw (JDOMException)cause;
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new RuntimeException( cause );
 		}
 	}
 
@@ -1178,6 +1480,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public FTLEvent getEventById( String id, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, FTLEvent> events = null;
 		if ( dlcEnabled ) {
 			events = dlcEventIdMap;
@@ -1201,6 +1505,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public FTLEventList getEventListById( String id, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, FTLEventList> eventLists = null;
 		if ( dlcEnabled ) {
 			eventLists = dlcEventListIdMap;
@@ -1218,6 +1524,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public TextList getTextListById( String id, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, TextList> textLists = null;
 		if ( dlcEnabled ) {
 			textLists = dlcTextListIdMap;
@@ -1232,6 +1540,41 @@ public class DefaultDataManager extends DataManager {
 		return result;
 	}
 
+	@Override
+	public int getEventIndex( String id ) {
+		eventsCategory.ensureLoaded();
+
+		return eventIds.indexOf( id );
+	}
+
+	@Override
+	public FTLEvent getEventByIndex( int index, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
+		return ( dlcEnabled ? dlcEventsByIndex[index] : stdEventsByIndex[index] );
+	}
+
+	@Override
+	public FTLEventList getEventListByIndex( int index, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
+		return ( dlcEnabled ? dlcEventListsByIndex[index] : stdEventListsByIndex[index] );
+	}
+
+	@Override
+	public int getTextListIndex( String id ) {
+		eventsCategory.ensureLoaded();
+
+		return textListIds.indexOf( id );
+	}
+
+	@Override
+	public TextList getTextListByIndex( int index, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
+		return ( dlcEnabled ? dlcTextListsByIndex[index] : stdTextListsByIndex[index] );
+	}
+
 	/**
 	 * Returns all Encounters objects, mapped to xml file names.
 	 *
@@ -1239,6 +1582,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public Map<String, Encounters> getEncounters( boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, Encounters> events = null;
 		if ( dlcEnabled ) {
 			events = dlcEventsFileMap;
@@ -1251,6 +1596,8 @@ public class DefaultDataManager extends DataManager {
 
 	@Override
 	public ShipEvent getShipEventById( String id, boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, ShipEvent> shipEvents = null;
 		if ( dlcEnabled ) {
 			shipEvents = dlcShipEventIdMap;
@@ -1267,6 +1614,8 @@ public class DefaultDataManager extends DataManager {
 
 	@Override
 	public Map<String, ShipEvent> getShipEvents( boolean dlcEnabled ) {
+		eventsCategory.ensureLoaded();
+
 		Map<String, ShipEvent> shipEvents = null;
 		if ( dlcEnabled ) {
 			shipEvents = dlcShipEventIdMap;
@@ -1305,6 +1654,8 @@ public class DefaultDataManager extends DataManager {
 
 	@Override
 	public SectorType getSectorTypeById( String id, boolean dlcEnabled ) {
+		sectorsCategory.ensureLoaded();
+
 		Map<String, SectorType> sectorTypes = null;
 		if ( dlcEnabled ) {
 			sectorTypes = dlcSectorTypeIdMap;
@@ -1324,6 +1675,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public SectorDescription getSectorDescriptionById( String id ) {
+		sectorsCategory.ensureLoaded();
+
 		SectorDescription result = sectorDescriptionIdMap.get( id );
 		if ( result == null ) {
 			log.error( "No SectorDescription found for id: "+ id );
@@ -1339,6 +1692,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public Map<String, BackgroundImageList> getBackgroundImageLists() {
+		sectorsCategory.ensureLoaded();
+
 		return backgroundImageListIdMap;
 	}
 
@@ -1347,6 +1702,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public List<Anim> getAnimsBySheetId( String id, boolean dlcEnabled ) {
+		animationsCategory.ensureLoaded();
+
 		Map<String, Anim> anims;
 		if ( dlcEnabled ) {
 			anims = dlcAnimIdMap;
@@ -1370,6 +1727,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public Anim getAnim( String id, boolean dlcEnabled ) {
+		animationsCategory.ensureLoaded();
+
 		Map<String, Anim> anims;
 		if ( dlcEnabled ) {
 			anims = dlcAnimIdMap;
@@ -1389,6 +1748,8 @@ public class DefaultDataManager extends DataManager {
 	 */
 	@Override
 	public AnimSheet getAnimSheet( String id, boolean dlcEnabled ) {
+		animationsCategory.ensureLoaded();
+
 		Map<String, AnimSheet> sheets;
 		if ( dlcEnabled ) {
 			sheets = dlcAnimSheetIdMap;
@@ -1402,4 +1763,141 @@ public class DefaultDataManager extends DataManager {
 		}
 		return result;
 	}
+
+
+
+	/**
+	 * A group of resources that are read and merged together, once.
+	 *
+	 * The first call to load() reads the group's snapshot, or parses the
+	 * dats if there isn't a current one, then merges the result into this
+	 * DataManager's maps. Other threads calling meanwhile wait for it. If
+	 * loading fails, the next call tries again.
+	 */
+	private abstract class ResourceCategory<T extends Serializable> {
+		private final String name;
+		private final Class<T> parsedClass;
+		private volatile boolean loaded = false;
+
+		public ResourceCategory( String name, Class<T> parsedClass ) {
+			this.name = name;
+			this.parsedClass = parsedClass;
+		}
+
+		public void load() throws IOException, JAXBException, JDOMException {
+			if ( loaded ) return;
+
+			synchronized ( this ) {
+				if ( loaded ) return;
+
+				long startTime = System.currentTimeMillis();
+				File snapshotFile = ( snapshotDir != null ? new File( snapshotDir, name +".snapshot" ) : null );
+
+				T parsed = null;
+				if ( snapshotFile != null ) {
+					parsed = ResourceSnapshot.read( snapshotFile, snapshotKey, parsedClass );
+				}
+				if ( parsed == null ) {
+					parsed = parse();
+
+					// Save before merging modifies any of it.
+					if ( snapshotFile != null ) ResourceSnapshot.write( snapshotFile, snapshotKey, parsed );
+				}
+				merge( parsed );
+
+				log.debug( String.format( "Loaded %s resources in %d ms", name, System.currentTimeMillis() - startTime ) );
+				loaded = true;
+			}
+		}
+
+		/**
+		 * Loads, if necessary, for getters that can't throw checked exceptions.
+		 */
+		public void ensureLoaded() {
+			if ( loaded ) return;
+
+			try {
+				load();
+			}
+			catch ( RuntimeException e ) {
+				throw e;
+			}
+			catch ( Exception e ) {
+				log.error( String.format( "Error reading FTL %s resources", name ), e );
+				throw new RuntimeException( String.format( "Error reading FTL %s resources", name ), e );
+			}
+		}
+
+		protected abstract T parse() throws IOException, JAXBException, JDOMException;
+
+		protected abstract void merge( T parsed );
+	}
+
+
+
+	private static class CoreResources implements Serializable {
+		private Map<String, String> textLookupMap;
+		private List<Achievement> achievements;
+		private Map<String, Blueprints> stdBlueprintsFileMap;
+		private Map<String, Blueprints> dlcBlueprintsFileMap;
+		private List<CrewNameList> crewNameLists;
+	}
+
+	private static class EventResources implements Serializable {
+		private Map<String, Encounters> stdEventsFileMap;
+		private Map<String, Encounters> dlcEventsFileMap;
+	}
+
+	private static class SectorResources implements Serializable {
+		private SectorData sectorData;
+		private List<BackgroundImageList> bgImageLists;
+	}
+
+	private static class AnimationResources implements Serializable {
+		private Animations stdAnimations;
+		private Animations dlcAnimations;  // May be null.
+	}
+
+
+
+	/**
+	 * Reads one file from "data/", closing its stream afterward.
+	 */
+	private abstract class ResourceTask<T> implements Callable<T> {
+		private final String fileName;
+
+		public ResourceTask( String fileName ) {
+			this.fileName = fileName;
+		}
+
+		@Override
+		public T call() throws IOException, JAXBException, JDOMException {
+			log.debug( String.format( "Reading \"data/%s\"...", fileName ) );
+
+			InputStream in = null;
+			try {
+				in = getResourceInputStream( "data/"+ fileName );
+				return read( in, fileName );
+			}
+			finally {
+				try {if ( in != null ) in.close();}
+				catch ( IOException e ) {}
+			}
+		}
+
+		protected abstract T read( InputStream in, String fileName ) throws IOException, JAXBException, JDOMException;
+	}
+
+
+
+	private static class LoaderThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+		@Override
+		public Thread newThread( Runnable r ) {
+			Thread t = new Thread( r, "DataLoader-"+ threadNumber.getAndIncrement() );
+			t.setDaemon( true );
+			return t;
+		}
+	}
 }
@@ -0,0 +1,49 @@
+package net.blerf.ftl.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Assigns dense int indices to string ids, in the order they're added.
+ *
+ * DataManager builds these once at load time, so lookups can use arrays
+ * indexed by id instead of one map per DLC setting.
+ */
+public class IdDictionary {
+
+	private final Map<String, Integer> indexMap = new HashMap<String, Integer>();
+	private final List<String> idList = new ArrayList<String>();
+
+
+	/**
+	 * Returns an id's index, adding the id if it's new.
+	 */
+	public int add( String id ) {
+		Integer index = indexMap.get( id );
+		if ( index == null ) {
+			index = idList.size();
+			indexMap.put( id, index );
+			idList.add( id );
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Returns an id's index, or -1.
+	 */
+	public int indexOf( String id ) {
+		Integer index = indexMap.get( id );
+		return ( index != null ? index.intValue() : -1 );
+	}
+
+	public String getId( int index ) {
+		return idList.get( index );
+	}
+
+	public int size() {
+		return idList.size();
+	}
+}
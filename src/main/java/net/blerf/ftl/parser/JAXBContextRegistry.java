@@ -0,0 +1,130 @@
+package net.blerf.ftl.parser;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Process-wide JAXBContexts, one per root class.
+ *
+ * Creating a context reflects over the whole class model, which is slow, but
+ * contexts are thread-safe and can be shared forever. Each is created the
+ * first time it's asked for. A thread asking while another is creating it
+ * waits for that one instead of creating its own.
+ *
+ * Unmarshallers are cheap by comparison, but not thread-safe, so each thread
+ * keeps its own, one per root class.
+ */
+public final class JAXBContextRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger( JAXBContextRegistry.class );
+
+	private static final ConcurrentMap<Class<?>, FutureTask<JAXBContext>> contextMap = new ConcurrentHashMap<Class<?>, FutureTask<JAXBContext>>();
+
+	private static final ThreadLocal<Map<Class<?>, Unmarshaller>> unmarshallerPool = new ThreadLocal<Map<Class<?>, Unmarshaller>>() {
+		@Override
+		protected Map<Class<?>, Unmarshaller> initialValue() {
+			return new HashMap<Class<?>, Unmarshaller>();
+		}
+	};
+
+
+	private JAXBContextRegistry() {
+	}
+
+	/**
+	 * Returns the shared context for a root class, creating it if necessary.
+	 */
+	public static JAXBContext getContext( final Class<?> rootClass ) throws JAXBException {
+		FutureTask<JAXBContext> task = contextMap.get( rootClass );
+		if ( task == null ) {
+			FutureTask<JAXBContext> newTask = new FutureTask<JAXBContext>(new Callable<JAXBContext>() {
+				@Override
+				public JAXBContext call() throws JAXBException {
+					long startTime = System.currentTimeMillis();
+					JAXBContext context = JAXBContext.newInstance( rootClass );
+					log.debug( String.format( "Created JAXBContext for %s in %d ms", rootClass.getSimpleName(), System.currentTimeMillis() - startTime ) );
+					return context;
+				}
+			});
+			task = contextMap.putIfAbsent( rootClass, newTask );
+			if ( task == null ) {
+				task = newTask;
+				task.run();
+			}
+		}
+
+		try {
+			return task.get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new JAXBException( String.format( "Interrupted while waiting for the JAXBContext of %s", rootClass.getName() ), e );
+		}
+		catch ( ExecutionException e ) {
+			// Forget the failure, so a later call can try again.
+			contextMap.remove( rootClass, task );
+
+			Throwable cause = e.getCause();
+			if ( cause instanceof JAXBException ) throw (JAXBException)cause;
+			if ( cause instanceof RuntimeException ) throw (RuntimeException)cause;
+			if ( cause instanceof Error ) throw (Error)cause;
+			throw new JAXBException( cause );
+		}
+	}
+
+	/**
+	 * Returns this thread's unmarshaller for a root class.
+	 *
+	 * The same instance is returned on every call from the same thread, so
+	 * callers shouldn't leave a listener set on it, or nest calls for the
+	 * same root class.
+	 */
+	public static Unmarshaller getUnmarshaller( Class<?> rootClass ) throws JAXBException {
+		Map<Class<?>, Unmarshaller> pool = unmarshallerPool.get();
+
+		Unmarshaller u = pool.get( rootClass );
+		if ( u == null ) {
+			u = getContext( rootClass ).createUnmarshaller();
+			pool.put( rootClass, u );
+		}
+		return u;
+	}
+
+	/**
+	 * Creates contexts on a background thread, so they're ready when needed.
+	 *
+	 * Failures are only logged. A later getContext() will try again and
+	 * throw.
+	 */
+	public static void warmUp( final Class<?>... rootClasses ) {
+		Thread t = new Thread( "JAXBContext-WarmUp" ) {
+			@Override
+			public void run() {
+				long startTime = System.currentTimeMillis();
+				for ( Class<?> rootClass : rootClasses ) {
+					try {
+						getContext( rootClass );
+					}
+					catch ( Exception e ) {
+						log.warn( String.format( "Failed to create JAXBContext for %s in advance", rootClass.getName() ), e );
+					}
+				}
+				log.debug( String.format( "Warmed up %d JAXBContexts in %d ms", rootClasses.length, System.currentTimeMillis() - startTime ) );
+			}
+		};
+		t.setDaemon( true );
+		t.start();
+	}
+}
@@ -0,0 +1,178 @@
+package net.blerf.ftl.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.vhati.ftldat.AbstractPack;
+
+
+/**
+ * Saves and reads back resources DefaultDataManager has parsed.
+ *
+ * A snapshot lets a later launch skip parsing entirely. Each is only read
+ * back if its key matches the current dats. The key combines each dat's
+ * name, size, and modification time with a hash of the XML under "data/".
+ * Model classes deliberately don't declare a serialVersionUID, so changing
+ * any of them also invalidates old snapshots (as an InvalidClassException,
+ * treated like any other unreadable file).
+ */
+final class ResourceSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger( ResourceSnapshot.class );
+
+	/** Bump this if snapshots change in a way serialization wouldn't notice. */
+	private static final int FORMAT_VERSION = 2;
+
+	private static final String MAGIC = "FTLEditorResourceSnapshot";
+
+
+	private ResourceSnapshot() {
+	}
+
+	/**
+	 * Returns a key identifying the current content of some dats.
+	 *
+	 * @param datFiles the dat files that were opened
+	 * @param dataPack the pack holding "data/"
+	 */
+	public static String createKey( List<File> datFiles, AbstractPack dataPack ) throws IOException {
+		StringBuilder buf = new StringBuilder();
+		buf.append( "v" ).append( FORMAT_VERSION );
+		for ( File datFile : datFiles ) {
+			buf.append( String.format( ";%s:%d:%d", datFile.getName(), datFile.length(), datFile.lastModified() ) );
+		}
+
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance( "SHA-1" );
+		}
+		catch ( NoSuchAlgorithmException e ) {
+			throw new IOException( "SHA-1 is not available", e );
+		}
+
+		List<String> innerPaths = new ArrayList<String>();
+		for ( String innerPath : dataPack.list() ) {
+			if ( innerPath.startsWith( "data/" ) && innerPath.endsWith( ".xml" ) ) {
+				innerPaths.add( innerPath );
+			}
+		}
+		Collections.sort( innerPaths );
+
+		byte[] readBuf = new byte[8192];
+		for ( String innerPath : innerPaths ) {
+			md.update( innerPath.getBytes( "UTF-8" ) );
+			md.update( (byte)0 );
+
+			InputStream is = null;
+			try {
+				is = dataPack.getInputStream( innerPath );
+				int len;
+				while ( (len = is.read( readBuf )) >= 0 ) {
+					md.update( readBuf, 0, len );
+				}
+			}
+			finally {
+				try {if ( is != null ) is.close();}
+				catch ( IOException e ) {}
+			}
+		}
+
+		buf.append( ";sha1:" );
+		for ( byte b : md.digest() ) {
+			buf.append( String.format( "%02x", b ) );
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Reads a snapshot, if it exists and was saved under the given key.
+	 *
+	 * Unreadable or stale snapshots are only logged.
+	 *
+	 * @param type the class of the saved object
+	 * @return the saved object, or null
+	 */
+	public static <T extends Serializable> T read( File snapshotFile, String key, Class<T> type ) {
+		if ( !snapshotFile.exists() ) return null;
+
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream( new GZIPInputStream( new BufferedInputStream( new FileInputStream( snapshotFile ) ) ) );
+
+			if ( !MAGIC.equals( in.readUTF() ) ) {
+				log.info( String.format( "Ignoring unrecognized resource snapshot: %s", snapshotFile.getPath() ) );
+				return null;
+			}
+			if ( !key.equals( in.readUTF() ) ) {
+				log.info( "FTL resources have changed since the last snapshot" );
+				return null;
+			}
+			return type.cast( in.readObject() );
+		}
+		catch ( Exception e ) {
+			log.info( String.format( "Ignoring unreadable resource snapshot: %s (%s)", snapshotFile.getPath(), e ) );
+			return null;
+		}
+		finally {
+			try {if ( in != null ) in.close();}
+			catch ( IOException e ) {}
+		}
+	}
+
+	/**
+	 * Writes a snapshot under a key, replacing any existing file.
+	 *
+	 * The file is written under a temporary name first, so an interrupted
+	 * write never leaves a truncated snapshot behind. Failures are only
+	 * logged.
+	 */
+	public static void write( File snapshotFile, String key, Serializable data ) {
+		File parentDir = snapshotFile.getAbsoluteFile().getParentFile();
+		if ( parentDir != null && !parentDir.exists() ) parentDir.mkdirs();
+
+		File tmpFile = new File( snapshotFile.getPath() +".tmp" );
+
+		ObjectOutputStream out = null;
+		try {
+			out = new ObjectOutputStream( new GZIPOutputStream( new BufferedOutputStream( new FileOutputStream( tmpFile ) ) ) );
+			out.writeUTF( MAGIC );
+			out.writeUTF( key );
+			out.writeObject( data );
+			out.close();
+			out = null;
+
+			if ( snapshotFile.exists() && !snapshotFile.delete() ) {
+				throw new IOException( "Could not delete the old snapshot" );
+			}
+			if ( !tmpFile.renameTo( snapshotFile ) ) {
+				throw new IOException( "Could not rename "+ tmpFile.getName() );
+			}
+		}
+		catch ( IOException e ) {
+			log.warn( String.format( "Failed to write resource snapshot: %s", snapshotFile.getPath() ), e );
+			tmpFile.delete();
+		}
+		finally {
+			try {if ( out != null ) out.close();}
+			catch ( IOException e ) {}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package net.blerf.ftl.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * A Reader that turns one of FTL's rootless XML fragments into a document.
+ *
+ * The text is wrapped in a root tag as it's read. XML declarations and
+ * FTL's own "&lt;FTL&gt;" tags are dropped, along with any line breaks
+ * right after them, wherever they appear. This is the streaming equivalent
+ * of what DatParser used to do with regexes on a buffered copy.
+ *
+ * Like those regexes, this does not know about comments or CDATA.
+ */
+class XMLFragmentReader extends Reader {
+
+	private static final char[] FTL_START_TAG = "<FTL>".toCharArray();
+	private static final char[] FTL_END_TAG = "</FTL>".toCharArray();
+	private static final char[] XML_DECL_START = "<?xml ".toCharArray();
+
+	private final Reader in;
+	private final char[] head;
+	private final char[] tail;
+	private int headPos = 0;
+	private int tailPos = 0;
+
+	private char[] buf = new char[8192];
+	private int pos = 0;
+	private int limit = 0;
+	private boolean eof = false;
+	private boolean skippingNewlines = false;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in the fragment's text
+	 * @param rootName the name of the root tag to wrap it in
+	 */
+	public XMLFragmentReader( Reader in, String rootName ) {
+		this.in = in;
+		this.head = ("<"+ rootName +">").toCharArray();
+		this.tail = ("</"+ rootName +">").toCharArray();
+	}
+
+	@Override
+	public int read( char[] cbuf, int off, int len ) throws IOException {
+		if ( len == 0 ) return 0;
+
+		int n = 0;
+		while ( headPos < head.length && n < len ) {
+			cbuf[off + n++] = head[headPos++];
+		}
+
+		while ( n < len && ensure( 1 ) ) {
+			char c = buf[pos];
+
+			if ( skippingNewlines ) {
+				if ( c == '\n' || c == '\r' ) {
+					pos++;
+					continue;
+				}
+				skippingNewlines = false;
+			}
+
+			if ( c == '<' ) {
+				int skipLen = matchDroppedTag();
+				if ( skipLen > 0 ) {
+					pos += skipLen;
+					skippingNewlines = true;
+					continue;
+				}
+			}
+
+			cbuf[off + n++] = c;
+			pos++;
+		}
+
+		if ( pos == limit && eof ) {
+			while ( tailPos < tail.length && n < len ) {
+				cbuf[off + n++] = tail[tailPos++];
+			}
+		}
+
+		return ( n > 0 ? n : -1 );
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns the length of a tag to drop at the current position, or 0.
+	 */
+	private int matchDroppedTag() throws IOException {
+		if ( matches( FTL_START_TAG ) ) return FTL_START_TAG.length;
+		if ( matches( FTL_END_TAG ) ) return FTL_END_TAG.length;
+
+		if ( matches( XML_DECL_START ) ) {
+			// Find the first '>', which must close a "?>".
+			for ( int i = XML_DECL_START.length; ensure( i + 1 ); i++ ) {
+				if ( buf[pos + i] == '>' ) {
+					if ( i > XML_DECL_START.length && buf[pos + i - 1] == '?' ) {
+						return i + 1;
+					}
+					break;
+				}
+			}
+		}
+		return 0;
+	}
+
+	private boolean matches( char[] s ) throws IOException {
+		if ( !ensure( s.length ) ) return false;
+
+		for ( int i=0; i < s.length; i++ ) {
+			if ( buf[pos + i] != s[i] ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads ahead until at least n chars are buffered past the current
+	 * position, or the input ends.
+	 *
+	 * @return true if n chars are available, false otherwise
+	 */
+	private boolean ensure( int n ) throws IOException {
+		while ( limit - pos < n && !eof ) {
+			if ( pos > 0 ) {
+				System.arraycopy( buf, pos, buf, 0, limit - pos );
+				limit -= pos;
+				pos = 0;
+			}
+			if ( limit == buf.length ) {
+				char[] newBuf = new char[buf.length * 2];
+				System.arraycopy( buf, 0, newBuf, 0, limit );
+				buf = newBuf;
+			}
+
+			int count = in.read( buf, limit, buf.length - limit );
+			if ( count < 0 ) {
+				eof = true;
+			}
+			else {
+				limit += count;
+			}
+		}
+		return ( limit - pos >= n );
+	}
+}
@@ -1,7 +1,5 @@
 package net.blerf.ftl.parser.random;
 
-import java.math.BigInteger;
-
 import net.blerf.ftl.parser.random.RandRNG;
 
 
@@ -20,13 +18,12 @@ import net.blerf.ftl.parser.random.RandRNG;
  */
 public class FTL_1_6_Random implements RandRNG {
 
-	protected static final BigInteger UINT_MASK = new BigInteger( "ffffffff", 16 );
-	protected static final BigInteger HIGH_MASK = new BigInteger( "ffffffff00000000", 16 );
-	protected static final BigInteger LOW_MASK = new BigInteger( "00000000ffffffff", 16 );
-	protected static final BigInteger FULL_MASK = new BigInteger( "ffffffffffffffff", 16 );
+	// The original C code works on a 64bit unsigned long. Java's long wraps
+	// the same way on overflow, so plain multiplication is bit-identical.
+	protected static final long MULTIPLIER = 0x5851F42D4C957F2DL;  // (1481765933 << 32) | 1284865837
+	protected static final long INCREMENT = 1L;
 
-	// Math is gonna reach 64bit unsigned long territory.
-	protected BigInteger seed = new BigInteger( "1" );
+	protected long seed = 1L;
 
 	protected String name = null;
 
@@ -41,30 +38,59 @@ public class FTL_1_6_Random implements RandRNG {
 
 	@Override
 	public void srand( int newSeed ) {
-		seed = new BigInteger( Integer.toString( newSeed ) );
+		seed = newSeed;  // Sign-extended, as in the original.
 	}
 
 	@Override
 	public int rand() {
-		BigInteger seedHigh = seed.shiftRight( 32 ).and( UINT_MASK );
-		BigInteger seedLow = seed.and( UINT_MASK );
+		seed = seed * MULTIPLIER + INCREMENT;
 
-		// Isolate high bits, then mask and bitwise-or them back onto the var.
-		BigInteger z = new BigInteger( "1284865837" ).multiply( seedLow );
-		BigInteger zHigh = z.shiftRight( 32 ).and( UINT_MASK );
-		zHigh = zHigh.add( new BigInteger( "1481765933" ).multiply( seedLow ) );
-		zHigh = zHigh.add( new BigInteger( "1284865837" ).multiply( seedHigh ) );
+		// Unsigned shift of 33 bits leaves 31 bits, safe to hold in a 32bit
+		// signed int.
+		return (int)(seed >>> 33);
+	}
 
-		z = zHigh.shiftLeft( 32 ).and( HIGH_MASK ).or( z.and( LOW_MASK ) );
-		z = z.add( new BigInteger( "1" ) ).and( FULL_MASK );
+	/**
+	 * Advances the state as if rand() had been called n times.
+	 *
+	 * Each step is the affine map x -> a*x + c (mod 2^64). Composing the map
+	 * with itself by repeated squaring takes O(log n) steps.
+	 */
+	@Override
+	public void skip( long n ) {
+		if ( n < 0 ) throw new IllegalArgumentException( String.format( "Cannot skip a negative count: %d", n ) );
+
+		long accMul = 1L;
+		long accAdd = 0L;
+		long curMul = MULTIPLIER;
+		long curAdd = INCREMENT;
+
+		while ( n > 0 ) {
+			if ( (n & 1) != 0 ) {
+				accMul = accMul * curMul;
+				accAdd = accAdd * curMul + curAdd;
+			}
+			curAdd = (curMul + 1) * curAdd;
+			curMul = curMul * curMul;
+			n >>>= 1;
+		}
+
+		seed = seed * accMul + accAdd;
+	}
 
-		seed = z;
-		return z.shiftRight( 32 ).shiftRight( 1 ).intValue();
 
-		// After masking 64 bits, shifting 32, and shifting 1 bit more,
-		// return value should be 31 bits, safe to hold in a 32bit signed int.
+	@Override
+	public Snapshot snapshot() {
+		return new SeedSnapshot( seed );
 	}
 
+	@Override
+	public void restore( Snapshot snapshot ) {
+		if ( !(snapshot instanceof SeedSnapshot) ) {
+			throw new IllegalArgumentException( String.format( "Not a FTL_1_6_Random snapshot: %s", snapshot ) );
+		}
+		seed = ((SeedSnapshot)snapshot).seed;
+	}
 
 	@Override
 	public void setName( String newName ) {
@@ -75,4 +101,14 @@ public class FTL_1_6_Random implements RandRNG {
 	public String toString() {
 		return (name != null ? name : super.toString());
 	}
+
+
+
+	private static final class SeedSnapshot implements Snapshot {
+		private final long seed;
+
+		public SeedSnapshot( long seed ) {
+			this.seed = seed;
+		}
+	}
 }
@@ -76,6 +76,24 @@ public class GNULibCRandom implements RandRNG {
 		return random_r( unsafeState );
 	}
 
+	@Override
+	public void skip( long n ) {
+		skip_r( n, unsafeState );
+	}
+
+	@Override
+	public Snapshot snapshot() {
+		return new StateSnapshot( unsafeState );
+	}
+
+	@Override
+	public void restore( Snapshot snapshot ) {
+		if ( !(snapshot instanceof StateSnapshot) ) {
+			throw new IllegalArgumentException( String.format( "Not a GNULibCRandom snapshot: %s", snapshot ) );
+		}
+		unsafeState.copyFrom( ((StateSnapshot)snapshot).state );
+	}
+
 	@Override
 	public void setName( String newName ) {
 		name = newName;
@@ -187,6 +205,68 @@ public class GNULibCRandom implements RandRNG {
 	}
 
 
+	/**
+	 * Advances the state as if random_r() had been called n times.
+	 *
+	 * The trinomial generators have no cheap closed-form jump, so this
+	 * still takes a step per number, but unrolled into runs over the ring:
+	 * each run goes until either pointer reaches the end of the table, with
+	 * no wrap checks inside (two runs per cycle of randDeg steps). Within a
+	 * run, a slot the front pointer updated is read back by the rear
+	 * pointer in order, just as separate calls would.
+	 */
+	public void skip_r( long n, RandState buf ) {
+		if ( n < 0 ) throw new IllegalArgumentException( String.format( "Cannot skip a negative count: %d", n ) );
+
+		int statePtr = buf.getStatePtr();
+		int[] tbl = buf.randtbl;
+
+		if ( buf.randType == TYPE_0 ) {
+			int val = tbl[statePtr];
+			for ( long i=0; i < n; i++ ) {
+				val = ((val * 1103515245) + 12345) & 0x7fffffff;
+			}
+			tbl[statePtr] = val;
+			return;
+		}
+
+		int fPtr = buf.getFPtr();
+		int rPtr = buf.getRPtr();
+		int endPtr = buf.getEndPtr();
+
+		long remaining = n;
+		while ( remaining > 0 ) {
+			int run = endPtr - Math.max( fPtr, rPtr );
+			if ( run > remaining ) run = (int)remaining;
+
+			if ( fPtr - rPtr == 3 ) {
+				// TYPE_1 and TYPE_3: each sum feeds the one three steps
+				// later, so keep the last three in locals.
+				int x0 = tbl[rPtr], x1 = tbl[rPtr + 1], x2 = tbl[rPtr + 2];
+				for ( int k=0; k < run; k++ ) {
+					int x = tbl[fPtr + k] + x0;
+					tbl[fPtr + k] = x;
+					x0 = x1;
+					x1 = x2;
+					x2 = x;
+				}
+			}
+			else {
+				for ( int k=0; k < run; k++ ) {
+					tbl[fPtr + k] += tbl[rPtr + k];
+				}
+			}
+			fPtr += run;
+			rPtr += run;
+			remaining -= run;
+
+			if ( fPtr >= endPtr ) fPtr = statePtr;
+			if ( rPtr >= endPtr ) rPtr = statePtr;
+		}
+		buf.setFPtr( fPtr );
+		buf.setRPtr( rPtr );
+	}
+
 
 	public static class RandState {
 		protected int[] randtbl = new int[] {
@@ -215,6 +295,24 @@ public class GNULibCRandom implements RandRNG {
 		public RandState() {
 		}
 
+		/**
+		 * Overwrites this state with a copy of another.
+		 */
+		public void copyFrom( RandState other ) {
+			if ( randtbl.length != other.randtbl.length ) {
+				randtbl = new int[other.randtbl.length];
+			}
+			System.arraycopy( other.randtbl, 0, randtbl, 0, randtbl.length );
+
+			statePtr = other.statePtr;
+			fPtr = other.fPtr;
+			rPtr = other.rPtr;
+			randType = other.randType;
+			randDeg = other.randDeg;
+			randSep = other.randSep;
+			endPtr = other.endPtr;
+		}
+
 		public void setRandType( int type ) { randType = type; }
 		public int getRandType() { return randType; }
 
@@ -238,4 +336,17 @@ public class GNULibCRandom implements RandRNG {
 
 		public int getEndPtr() { return endPtr; }
 	}
+
+
+
+	/**
+	 * A private copy of a RandState, never handed out for mutation.
+	 */
+	private static final class StateSnapshot implements Snapshot {
+		private final RandState state = new RandState();
+
+		public StateSnapshot( RandState source ) {
+			state.copyFrom( source );
+		}
+	}
 }
@@ -0,0 +1,102 @@
+package net.blerf.ftl.parser.random;
+
+
+/**
+ * Receives what a random generator does, step by step.
+ *
+ * Generators report each random number they draw, tagged with what it was
+ * for, along with the decisions made from them. Comparing a recorded trace
+ * against the game (e.g. breakpoints in a debugger) shows where the two
+ * diverge.
+ *
+ * Generators default to NOP. Its methods are empty, and arguments are
+ * primitives or constant strings, so once the JIT inlines the calls nothing
+ * is left.
+ *
+ * @see RecordingGenerationTracer
+ */
+public interface GenerationTracer {
+
+	public static final GenerationTracer NOP = new NopGenerationTracer();
+
+
+	/**
+	 * A random number was drawn.
+	 *
+	 * @param tag a short constant describing the call site
+	 * @param value the raw value returned by rand()
+	 */
+	public void randConsumed( String tag, int value );
+
+	/**
+	 * A beacon was added to a sector map layout.
+	 */
+	public void beaconPlaced( int beacon, int col, int row, int x, int y );
+
+	/**
+	 * A grid cell was left empty.
+	 */
+	public void beaconSkipped( int col, int row );
+
+	/**
+	 * A beacon was chosen for a role, such as "start", "finish" or "flagship".
+	 */
+	public void beaconRole( String role, int beacon );
+
+	/**
+	 * An event was loaded.
+	 *
+	 * RandomEvent reports every id it loads, nested ones included, with no
+	 * beacon. The map generator reports each beacon's event again once it
+	 * is assigned.
+	 *
+	 * @param beacon the beacon it was assigned to, or -1
+	 * @param requestedId the event or event list id that was asked for
+	 * @param eventId the id of the event that came out of it, or null
+	 */
+	public void eventChosen( int beacon, String requestedId, String eventId );
+
+	/**
+	 * A generated result was rejected, and will be generated again.
+	 *
+	 * @param attempt the number of the rejected attempt, starting at 1
+	 */
+	public void reroll( String reason, int attempt );
+
+	/**
+	 * A derived value worth noting, such as a distance.
+	 */
+	public void value( String tag, int value );
+
+
+
+	/**
+	 * A tracer that ignores everything.
+	 */
+	public static final class NopGenerationTracer implements GenerationTracer {
+
+		private NopGenerationTracer() {
+		}
+
+		@Override
+		public void randConsumed( String tag, int value ) {}
+
+		@Override
+		public void beaconPlaced( int beacon, int col, int row, int x, int y ) {}
+
+		@Override
+		public void beaconSkipped( int col, int row ) {}
+
+		@Override
+		public void beaconRole( String role, int beacon ) {}
+
+		@Override
+		public void eventChosen( int beacon, String requestedId, String eventId ) {}
+
+		@Override
+		public void reroll( String reason, int attempt ) {}
+
+		@Override
+		public void value( String tag, int value ) {}
+	}
+}
@@ -38,6 +38,47 @@ public class MsRandom implements RandRNG {
 		return (seed = (seed * 214013 + 2531011) & RAND_MAX_32) >> 16;
 	}
 
+	/**
+	 * Advances n steps in O(log n) by composing the LCG's affine map.
+	 *
+	 * Arithmetic is mod 2^32, which agrees with the mod 2^31 state.
+	 */
+	@Override
+	public void skip( long n ) {
+		if ( n < 0 ) throw new IllegalArgumentException( String.format( "Cannot skip a negative count: %d", n ) );
+		if ( n == 0 ) return;
+
+		int accMul = 1;
+		int accAdd = 0;
+		int curMul = 214013;
+		int curAdd = 2531011;
+
+		while ( n > 0 ) {
+			if ( (n & 1) != 0 ) {
+				accMul = accMul * curMul;
+				accAdd = accAdd * curMul + curAdd;
+			}
+			curAdd = (curMul + 1) * curAdd;
+			curMul = curMul * curMul;
+			n >>>= 1;
+		}
+
+		seed = (seed * accMul + accAdd) & RAND_MAX_32;
+	}
+
+	@Override
+	public Snapshot snapshot() {
+		return new SeedSnapshot( seed );
+	}
+
+	@Override
+	public void restore( Snapshot snapshot ) {
+		if ( !(snapshot instanceof SeedSnapshot) ) {
+			throw new IllegalArgumentException( String.format( "Not a MsRandom snapshot: %s", snapshot ) );
+		}
+		seed = ((SeedSnapshot)snapshot).seed;
+	}
+
 	@Override
 	public void setName( String newName ) {
 		name = newName;
@@ -47,4 +88,14 @@ public class MsRandom implements RandRNG {
 	public String toString() {
 		return (name != null ? name : super.toString());
 	}
+
+
+
+	private static final class SeedSnapshot implements Snapshot {
+		private final int seed;
+
+		public SeedSnapshot( int seed ) {
+			this.seed = seed;
+		}
+	}
 }
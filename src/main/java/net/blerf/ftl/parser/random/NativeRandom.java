@@ -14,6 +14,15 @@ import net.blerf.ftl.parser.random.NativeRandomJNI;
  * The RNG state is global for the entire process, so multiple instances will
  * interfere with each other. Instances on different OSs will yield different
  * random results for a given seed.
+ *
+ * The C library's state can't be read back, so snapshots record the last
+ * seed and how many values have been drawn since, and restoring replays
+ * them. That costs one native_skip() per restore.
+ *
+ * Values are fetched from C in batches to avoid a JNI call per rand(), so
+ * the native state runs up to BUFFER_SIZE values ahead of what has been
+ * returned. Mixing this with other native rand() callers was never safe,
+ * but now even the order of their results will differ.
  */
 public class NativeRandom implements RandRNG {
 	// private static final Logger log = LoggerFactory.getLogger( NativeRandom.class );
@@ -23,6 +32,16 @@ public class NativeRandom implements RandRNG {
 
 	NativeRandomJNI nativeInterface;
 
+	public static final int BUFFER_SIZE = 1024;
+
+	protected int seed = 1;
+	protected long drawn = 0;
+
+	// Prefetched values: buffer[bufferPos] through buffer[bufferEnd-1].
+	protected final int[] buffer = new int[BUFFER_SIZE];
+	protected int bufferPos = 0;
+	protected int bufferEnd = 0;
+
 	public NativeRandom() {
 		this( null );
 		nativeInterface = new NativeRandomJNI();
@@ -36,18 +55,52 @@ public class NativeRandom implements RandRNG {
 	@Override
 	public void srand( int newSeed ) {
 		nativeInterface.native_srand( newSeed );
+		seed = newSeed;
+		drawn = 0;
+		bufferPos = 0;
+		bufferEnd = 0;
 	}
 
-	static int count = 0;
-
 	@Override
 	public int rand() {
-		int ret = nativeInterface.native_rand();
-		// if (log.isDebugEnabled()) {
-		// 	log.debug( String.format( "rng call %d: %d", count, ret ) );
-		// 	count++;
-		// }
-		return ret;
+		if ( bufferPos >= bufferEnd ) {
+			nativeInterface.native_fill( buffer, 0, BUFFER_SIZE );
+			bufferPos = 0;
+			bufferEnd = BUFFER_SIZE;
+		}
+		drawn++;
+		return buffer[bufferPos++];
+	}
+
+	/**
+	 * Discards prefetched values first, then advances the native state with
+	 * a single JNI call.
+	 */
+	@Override
+	public void skip( long n ) {
+		if ( n < 0 ) throw new IllegalArgumentException( String.format( "Cannot skip a negative count: %d", n ) );
+		drawn += n;
+
+		int buffered = (int)Math.min( n, bufferEnd - bufferPos );
+		bufferPos += buffered;
+		n -= buffered;
+
+		if ( n > 0 ) nativeInterface.native_skip( n );
+	}
+
+	@Override
+	public Snapshot snapshot() {
+		return new ReplaySnapshot( seed, drawn );
+	}
+
+	@Override
+	public void restore( Snapshot snapshot ) {
+		if ( !(snapshot instanceof ReplaySnapshot) ) {
+			throw new IllegalArgumentException( String.format( "Not a NativeRandom snapshot: %s", snapshot ) );
+		}
+		ReplaySnapshot replay = (ReplaySnapshot)snapshot;
+		srand( replay.seed );
+		skip( replay.drawn );
 	}
 
 	@Override
@@ -59,4 +112,16 @@ public class NativeRandom implements RandRNG {
 	public String toString() {
 		return (name != null ? name : super.toString());
 	}
+
+
+
+	private static final class ReplaySnapshot implements Snapshot {
+		private final int seed;
+		private final long drawn;
+
+		public ReplaySnapshot( int seed, long drawn ) {
+			this.seed = seed;
+			this.drawn = drawn;
+		}
+	}
 }
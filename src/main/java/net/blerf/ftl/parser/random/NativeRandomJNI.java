@@ -12,6 +12,14 @@ public class NativeRandomJNI {
 
 	public native int native_rand();
 
+	public native void native_skip( long n );
+
+	/**
+	 * Fills buf[offset] through buf[offset+len-1] with successive rand()
+	 * values.
+	 */
+	public native void native_fill( int[] buf, int offset, int len );
+
 	static {
 		System.loadLibrary("rand");
 	}
@@ -7,5 +7,33 @@ public interface RandRNG {
 
 	int rand();
 
+	/**
+	 * Advances the state as if rand() had been called n times.
+	 */
+	void skip( long n );
+
+	/**
+	 * Returns an immutable copy of the current state.
+	 */
+	Snapshot snapshot();
+
+	/**
+	 * Returns to a state previously captured by this class's snapshot().
+	 *
+	 * A snapshot may be restored any number of times, into any instance of
+	 * the same class.
+	 *
+	 * @throws IllegalArgumentException if the snapshot came from another class
+	 */
+	void restore( Snapshot snapshot );
+
 	void setName( String newName );
+
+
+
+	/**
+	 * Opaque RNG state.
+	 */
+	public interface Snapshot {
+	}
 }
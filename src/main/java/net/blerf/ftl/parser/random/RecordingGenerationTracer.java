@@ -0,0 +1,101 @@
+package net.blerf.ftl.parser.random;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A tracer that records everything as lines of text.
+ *
+ * Each line is a kind, followed by its values, e.g. "rand beacon_x 1804289383".
+ * Random draws are numbered, so the first divergent line between two traces
+ * tells how many numbers were drawn before things went wrong.
+ */
+public class RecordingGenerationTracer implements GenerationTracer {
+
+	private final List<String> entries = new ArrayList<String>();
+	private long randCount = 0;
+
+
+	@Override
+	public void randConsumed( String tag, int value ) {
+		entries.add( String.format( "rand #%d %s %d", randCount++, tag, value ) );
+	}
+
+	@Override
+	public void beaconPlaced( int beacon, int col, int row, int x, int y ) {
+		entries.add( String.format( "beacon %d at (%d,%d) %d,%d", beacon, col, row, x, y ) );
+	}
+
+	@Override
+	public void beaconSkipped( int col, int row ) {
+		entries.add( String.format( "skip (%d,%d)", col, row ) );
+	}
+
+	@Override
+	public void beaconRole( String role, int beacon ) {
+		entries.add( String.format( "role %s %d", role, beacon ) );
+	}
+
+	@Override
+	public void eventChosen( int beacon, String requestedId, String eventId ) {
+		entries.add( String.format( "event %d %s -> %s", beacon, requestedId, eventId ) );
+	}
+
+	@Override
+	public void reroll( String reason, int attempt ) {
+		entries.add( String.format( "reroll #%d %s", attempt, reason ) );
+	}
+
+	@Override
+	public void value( String tag, int value ) {
+		entries.add( String.format( "value %s %d", tag, value ) );
+	}
+
+	/**
+	 * Returns the recorded lines.
+	 */
+	public List<String> getEntries() {
+		return Collections.unmodifiableList( entries );
+	}
+
+	/**
+	 * Returns how many random numbers were drawn.
+	 */
+	public long getRandCount() {
+		return randCount;
+	}
+
+	public void clear() {
+		entries.clear();
+		randCount = 0;
+	}
+
+	/**
+	 * Writes the recorded lines, one per line.
+	 */
+	public void write( Writer out ) throws IOException {
+		for ( String entry : entries ) {
+			out.write( entry );
+			out.write( "\n" );
+		}
+		out.flush();
+	}
+
+	/**
+	 * Returns the index of the first line that differs between two traces,
+	 * or -1 if they're identical.
+	 *
+	 * If one trace is a prefix of the other, that's the shorter one's length.
+	 */
+	public static int findDivergence( List<String> a, List<String> b ) {
+		int common = Math.min( a.size(), b.size() );
+		for ( int i=0; i < common; i++ ) {
+			if ( !a.get( i ).equals( b.get( i ) ) ) return i;
+		}
+		return ( a.size() == b.size() ? -1 : common );
+	}
+}
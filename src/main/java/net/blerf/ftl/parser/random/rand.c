@@ -14,3 +14,26 @@ JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1
     srand(seed);
 }
 
+JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1skip
+  (JNIEnv *e, jobject o, jlong n)
+{
+    jlong i;
+    for (i = 0; i < n; i++) {
+        rand();
+    }
+}
+
+JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1fill
+  (JNIEnv *e, jobject o, jintArray buf, jint offset, jint len)
+{
+    jint i;
+    jint *elems = (*e)->GetPrimitiveArrayCritical(e, buf, NULL);
+    if (elems == NULL) {
+        return;  /* OutOfMemoryError already thrown */
+    }
+    for (i = 0; i < len; i++) {
+        elems[offset + i] = rand();
+    }
+    (*e)->ReleasePrimitiveArrayCritical(e, buf, elems, 0);
+}
+
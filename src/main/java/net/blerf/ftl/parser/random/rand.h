@@ -23,6 +23,22 @@ JNIEXPORT jint JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1
 JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1srand
   (JNIEnv *, jobject, jint);
 
+/*
+ * Class:     net_blerf_ftl_parser_random_NativeRandomJNI
+ * Method:    native_skip
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1skip
+  (JNIEnv *, jobject, jlong);
+
+/*
+ * Class:     net_blerf_ftl_parser_random_NativeRandomJNI
+ * Method:    native_fill
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_net_blerf_ftl_parser_random_NativeRandomJNI_native_1fill
+  (JNIEnv *, jobject, jintArray, jint, jint);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,468 @@
+package net.blerf.ftl.parser.sectormap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.blerf.ftl.parser.sectormap.GeneratedBeacon;
+
+
+/**
+ * Which beacons of a sector map are a jump apart.
+ *
+ * Two beacons are connected when they're in neighboring grid cells (including
+ * diagonals) and their locations are closer than
+ * RandomSectorMapGenerator.ISOLATION_THRESHOLD. A map has at most 6x4 beacons,
+ * so each beacon's neighbors are stored as a bitmask, and sets of beacons are
+ * int masks as well (bit n is the nth beacon).
+ *
+ * Path queries only consider shortest paths between two beacons, like
+ * RandomSectorMapGenerator.minDistanceMap() does. They work layer by layer
+ * over distances from the start, so their cost doesn't grow with the number
+ * of paths.
+ *
+ * A graph is a snapshot: it won't notice beacons that move afterward. It
+ * can be rebuilt in place with setBeacons(), and its queries don't allocate
+ * unless they return new arrays or lists.
+ *
+ * @see GeneratedSectorMap#getBeaconGraph()
+ */
+public class BeaconGraph {
+
+	public static final int MAX_BEACONS = 32;
+
+	/* Strict upper bound on the squared pixel distance of a jump */
+	public static final int JUMP_DISTANCE_SQ = (int)(RandomSectorMapGenerator.ISOLATION_THRESHOLD * RandomSectorMapGenerator.ISOLATION_THRESHOLD);
+
+	private int beaconCount = 0;
+	private final int[] cols = new int[MAX_BEACONS];
+	private final int[] rows = new int[MAX_BEACONS];
+	private final int[] xs = new int[MAX_BEACONS];
+	private final int[] ys = new int[MAX_BEACONS];
+	private final int[] neighborMasks = new int[MAX_BEACONS];
+
+	/* Grid buckets: the first beacon in each cell, and the next in its cell */
+	private int gridCols = 0;
+	private int[] cellHeads = new int[0];
+	private final int[] cellNext = new int[MAX_BEACONS];
+
+
+	/**
+	 * Scores individual beacons for bestPaths().
+	 */
+	public interface BeaconScorer {
+		public int score( int beacon );
+	}
+
+
+	/**
+	 * Constructs an empty graph, to be filled by setBeacons().
+	 */
+	public BeaconGraph() {
+	}
+
+	public BeaconGraph( List<GeneratedBeacon> beaconList ) {
+		setBeacons( beaconList );
+	}
+
+	/**
+	 * Rebuilds this graph in place for a new beacon layout.
+	 *
+	 * Beacons are bucketed by grid cell, so each is only compared against
+	 * the 3x3 block of cells around it.
+	 */
+	public void setBeacons( List<GeneratedBeacon> beaconList ) {
+		checkBeaconCount( beaconList.size() );
+
+		for ( int b=0; b < beaconCount; b++ ) {
+			GeneratedBeacon beacon = beaconList.get( b );
+			cols[b] = beacon.col;
+			rows[b] = beacon.row;
+			xs[b] = beacon.x;
+			ys[b] = beacon.y;
+		}
+		linkNeighbors();
+	}
+
+	/**
+	 * Rebuilds this graph in place from a map's beacons.
+	 */
+	public void setBeacons( GeneratedSectorMap genMap ) {
+		checkBeaconCount( genMap.getBeaconCount() );
+
+		for ( int b=0; b < beaconCount; b++ ) {
+			cols[b] = genMap.getBeaconCol( b );
+			rows[b] = genMap.getBeaconRow( b );
+			xs[b] = genMap.getBeaconX( b );
+			ys[b] = genMap.getBeaconY( b );
+		}
+		linkNeighbors();
+	}
+
+	private void checkBeaconCount( int count ) {
+		if ( count > MAX_BEACONS ) {
+			throw new IllegalArgumentException( String.format( "Too many beacons for a graph: %d", count ) );
+		}
+		beaconCount = count;
+	}
+
+	private void linkNeighbors() {
+		int maxCol = 0;
+		int maxRow = 0;
+		for ( int b=0; b < beaconCount; b++ ) {
+			neighborMasks[b] = 0;
+			maxCol = Math.max( maxCol, cols[b] );
+			maxRow = Math.max( maxRow, rows[b] );
+		}
+
+		gridCols = maxCol + 1;
+		int cellCount = gridCols * (maxRow + 1);
+		if ( cellHeads.length < cellCount ) cellHeads = new int[cellCount];
+		Arrays.fill( cellHeads, 0, cellCount, -1 );
+
+		// Link in reverse, so each cell lists its beacons in ascending order.
+		for ( int b = beaconCount-1; b >= 0; b-- ) {
+			int cell = rows[b] * gridCols + cols[b];
+			cellNext[b] = cellHeads[cell];
+			cellHeads[cell] = b;
+		}
+
+		for ( int a=0; a < beaconCount; a++ ) {
+			for ( int r = Math.max( 0, rows[a]-1 ); r <= Math.min( maxRow, rows[a]+1 ); r++ ) {
+				for ( int c = Math.max( 0, cols[a]-1 ); c <= Math.min( maxCol, cols[a]+1 ); c++ ) {
+
+					for ( int b = cellHeads[r * gridCols + c]; b != -1; b = cellNext[b] ) {
+						if ( b == a ) continue;
+						if ( getDistanceSq( a, b ) >= JUMP_DISTANCE_SQ ) continue;
+
+						neighborMasks[a] |= 1 << b;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the squared pixel distance between two beacons.
+	 */
+	public int getDistanceSq( int a, int b ) {
+		int dx = xs[a] - xs[b];
+		int dy = ys[a] - ys[b];
+		return dx*dx + dy*dy;
+	}
+
+	public int getBeaconCount() {
+		return beaconCount;
+	}
+
+	/**
+	 * Returns a mask with every beacon set.
+	 */
+	public int getAllMask() {
+		return ( beaconCount == 32 ? -1 : (1 << beaconCount) - 1 );
+	}
+
+	public int getNeighborMask( int beacon ) {
+		return neighborMasks[beacon];
+	}
+
+	public boolean isConnected( int a, int b ) {
+		return ( (neighborMasks[a] & (1 << b)) != 0 );
+	}
+
+	/**
+	 * Returns true if some beacon can't be reached from the first one.
+	 */
+	public boolean hasIsolatedBeacon() {
+		if ( beaconCount == 0 ) return false;
+
+		int seen = 1;
+		int frontier = 1;
+		while ( frontier != 0 ) {
+			int next = 0;
+			for ( int m = frontier; m != 0; m &= m - 1 ) {
+				next |= neighborMasks[Integer.numberOfTrailingZeros( m )];
+			}
+			frontier = next & ~seen;
+			seen |= next;
+		}
+		return ( seen != getAllMask() );
+	}
+
+	/**
+	 * Returns each beacon's jump count from a beacon, or -1 if unreachable.
+	 */
+	public int[] getDistances( int from ) {
+		int[] result = new int[beaconCount];
+		fillDistances( from, result );
+		return result;
+	}
+
+	/**
+	 * Stores each beacon's jump count from a beacon, or -1 if unreachable.
+	 *
+	 * @param result an array with at least getBeaconCount() elements
+	 */
+	public void fillDistances( int from, int[] result ) {
+		Arrays.fill( result, 0, beaconCount, -1 );
+
+		int seen = 1 << from;
+		int frontier = seen;
+		for ( int dist=0; frontier != 0; dist++ ) {
+			int next = 0;
+			for ( int m = frontier; m != 0; m &= m - 1 ) {
+				int b = Integer.numberOfTrailingZeros( m );
+				result[b] = dist;
+				next |= neighborMasks[b];
+			}
+			frontier = next & ~seen;
+			seen |= next;
+		}
+	}
+
+	/**
+	 * Stores jump counts from start, limited to beacons that might still
+	 * reach the finish within upperBound jumps.
+	 *
+	 * This reproduces RandomSectorMapGenerator.minDistanceMap() exactly,
+	 * including which beacons it leaves at -1: a beacon is skipped when its
+	 * grid offset or straight-line distance to the finish rules out the
+	 * remaining jumps, and the search stops as soon as the finish is found.
+	 *
+	 * @param result an array with at least getBeaconCount() elements
+	 * @return the finish's distance, or -1 if it's more than upperBound away
+	 */
+	public int fillBoundedDistances( int start, int end, int upperBound, int[] result ) {
+		Arrays.fill( result, 0, beaconCount, -1 );
+
+		if ( upperBound < 5 && cols[end] == 5 ) return -1;
+
+		long maxReach = (long)upperBound * upperBound * JUMP_DISTANCE_SQ;
+		if ( getDistanceSq( start, end ) > maxReach ) return -1;
+
+		result[start] = 0;
+		int marked = 1 << start;
+		int frontier = marked;
+
+		for ( int dist=0; dist < upperBound; dist++ ) {
+			int remaining = upperBound - (dist+1);
+			long remainingReach = (long)remaining * remaining * JUMP_DISTANCE_SQ;
+			int next = 0;
+
+			for ( int m = frontier; m != 0; m &= m - 1 ) {
+				int b = Integer.numberOfTrailingZeros( m );
+
+				for ( int n = neighborMasks[b] & ~marked; n != 0; n &= n - 1 ) {
+					int other = Integer.numberOfTrailingZeros( n );
+
+					if ( other == end ) {
+						result[end] = dist + 1;
+						return dist + 1;
+					}
+
+					if ( Math.abs( cols[other] - cols[end] ) > remaining ) continue;
+					if ( Math.abs( rows[other] - rows[end] ) > remaining ) continue;
+					if ( getDistanceSq( other, end ) >= remainingReach ) continue;
+
+					result[other] = dist + 1;
+					marked |= 1 << other;
+					next |= 1 << other;
+				}
+			}
+			frontier = next;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the beacons lying on allowed shortest paths, grouped by layer.
+	 *
+	 * Distances are measured over the whole graph, so a detour around a
+	 * forbidden beacon doesn't count as a path. Element d holds the beacons d
+	 * jumps from the start that lie on at least one shortest path made only
+	 * of allowed beacons. The first element is the start and the last is the
+	 * finish.
+	 *
+	 * @param allowedMask beacons a path may visit, including start and finish
+	 * @return the layers, or null if there's no such path
+	 */
+	public int[] getPathLayers( int start, int end, int allowedMask ) {
+		int startBit = 1 << start;
+		int endBit = 1 << end;
+
+		if ( (allowedMask & startBit) == 0 || (allowedMask & endBit) == 0 ) return null;
+
+		// Expand distance layers until the finish is reached.
+		List<Integer> layerList = new ArrayList<Integer>();
+		int seen = startBit;
+		int frontier = startBit;
+		while ( (frontier & endBit) == 0 ) {
+			if ( frontier == 0 ) return null;  // Unreachable.
+
+			layerList.add( frontier );
+
+			int next = 0;
+			for ( int m = frontier; m != 0; m &= m - 1 ) {
+				next |= neighborMasks[Integer.numberOfTrailingZeros( m )];
+			}
+			frontier = next & ~seen;
+			seen |= next;
+		}
+
+		// Walk back, keeping allowed beacons with a successor on a path.
+		int[] layers = new int[layerList.size() + 1];
+		layers[layers.length-1] = endBit;
+
+		for ( int d = layers.length-2; d >= 0; d-- ) {
+			int candidates = layerList.get( d ) & allowedMask;
+			int kept = 0;
+			for ( int m = candidates; m != 0; m &= m - 1 ) {
+				int b = Integer.numberOfTrailingZeros( m );
+				if ( (neighborMasks[b] & layers[d+1]) != 0 ) kept |= 1 << b;
+			}
+			if ( kept == 0 ) return null;
+			layers[d] = kept;
+		}
+		return layers;
+	}
+
+	/**
+	 * Returns true if an allowed shortest path exists.
+	 *
+	 * @see #getPathLayers(int, int, int)
+	 */
+	public boolean pathExists( int start, int end, int allowedMask ) {
+		return ( getPathLayers( start, end, allowedMask ) != null );
+	}
+
+	/**
+	 * Returns an allowed shortest path, or null.
+	 *
+	 * When several exist, each step picks the lowest-numbered beacon.
+	 *
+	 * @see #getPathLayers(int, int, int)
+	 */
+	public int[] findPath( int start, int end, int allowedMask ) {
+		int[] layers = getPathLayers( start, end, allowedMask );
+		if ( layers == null ) return null;
+
+		int[] path = new int[layers.length];
+		path[0] = start;
+		for ( int d=1; d < layers.length; d++ ) {
+			path[d] = Integer.numberOfTrailingZeros( layers[d] & neighborMasks[path[d-1]] );
+		}
+		return path;
+	}
+
+	/**
+	 * Returns the number of allowed shortest paths.
+	 *
+	 * @see #getPathLayers(int, int, int)
+	 */
+	public long countPaths( int start, int end, int allowedMask ) {
+		int[] layers = getPathLayers( start, end, allowedMask );
+		if ( layers == null ) return 0;
+
+		long[] counts = new long[beaconCount];
+		counts[end] = 1;
+
+		for ( int d = layers.length-2; d >= 0; d-- ) {
+			for ( int m = layers[d]; m != 0; m &= m - 1 ) {
+				int b = Integer.numberOfTrailingZeros( m );
+				long n = 0;
+				for ( int s = neighborMasks[b] & layers[d+1]; s != 0; s &= s - 1 ) {
+					n += counts[Integer.numberOfTrailingZeros( s )];
+				}
+				counts[b] = n;
+			}
+		}
+		return counts[start];
+	}
+
+	/**
+	 * Returns up to k allowed shortest paths with the highest total scores.
+	 *
+	 * Every beacon on a path is scored, including the start and finish.
+	 * Paths are sorted by descending score. Ties go to paths whose earliest
+	 * differing beacon is lower-numbered.
+	 *
+	 * @see #getPathLayers(int, int, int)
+	 */
+	public List<int[]> bestPaths( int start, int end, int allowedMask, int k, BeaconScorer scorer ) {
+		List<int[]> results = new ArrayList<int[]>();
+
+		int[] layers = ( k > 0 ? getPathLayers( start, end, allowedMask ) : null );
+		if ( layers == null ) return results;
+
+		// For each beacon, the best suffixes to the finish: their total
+		// scores, and the successor and its suffix rank they continue with.
+		int[][] suffixScores = new int[beaconCount][];
+		int[][] suffixNext = new int[beaconCount][];
+		int[][] suffixNextRank = new int[beaconCount][];
+
+		suffixScores[end] = new int[] { scorer.score( end ) };
+		suffixNext[end] = new int[] { -1 };
+		suffixNextRank[end] = new int[] { -1 };
+
+		int[] candScores = new int[k * beaconCount];
+		int[] candNext = new int[k * beaconCount];
+		int[] candRank = new int[k * beaconCount];
+
+		for ( int d = layers.length-2; d >= 0; d-- ) {
+			for ( int m = layers[d]; m != 0; m &= m - 1 ) {
+				int b = Integer.numberOfTrailingZeros( m );
+				int own = scorer.score( b );
+
+				// Gather every successor's suffixes, then keep the top k.
+				int candCount = 0;
+				for ( int s = neighborMasks[b] & layers[d+1]; s != 0; s &= s - 1 ) {
+					int next = Integer.numberOfTrailingZeros( s );
+					for ( int r=0; r < suffixScores[next].length; r++ ) {
+						candScores[candCount] = own + suffixScores[next][r];
+						candNext[candCount] = next;
+						candRank[candCount] = r;
+						candCount++;
+					}
+				}
+
+				int keep = Math.min( k, candCount );
+				suffixScores[b] = new int[keep];
+				suffixNext[b] = new int[keep];
+				suffixNextRank[b] = new int[keep];
+
+				// Selection, stable so lower-numbered successors win ties.
+				for ( int i=0; i < keep; i++ ) {
+					int best = i;
+					for ( int j=i+1; j < candCount; j++ ) {
+						if ( candScores[j] > candScores[best] ) best = j;
+					}
+					int tmpScore = candScores[best], tmpNext = candNext[best], tmpRank = candRank[best];
+					System.arraycopy( candScores, i, candScores, i+1, best-i );
+					System.arraycopy( candNext, i, candNext, i+1, best-i );
+					System.arraycopy( candRank, i, candRank, i+1, best-i );
+					candScores[i] = tmpScore;
+					candNext[i] = tmpNext;
+					candRank[i] = tmpRank;
+
+					suffixScores[b][i] = tmpScore;
+					suffixNext[b][i] = tmpNext;
+					suffixNextRank[b][i] = tmpRank;
+				}
+			}
+		}
+
+		for ( int r=0; r < suffixScores[start].length; r++ ) {
+			int[] path = new int[layers.length];
+			int b = start;
+			int rank = r;
+			for ( int d=0; d < layers.length; d++ ) {
+				path[d] = b;
+				int next = suffixNext[b][rank];
+				rank = suffixNextRank[b][rank];
+				b = next;
+			}
+			results.add( path );
+		}
+		return results;
+	}
+}
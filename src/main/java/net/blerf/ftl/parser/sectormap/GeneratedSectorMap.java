@@ -2,19 +2,47 @@ package net.blerf.ftl.parser.sectormap;
 
 import java.awt.Dimension;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import net.blerf.ftl.parser.sectormap.BeaconGraph;
 import net.blerf.ftl.parser.sectormap.GeneratedBeacon;
 
 
 /**
  * An object to communicate values FTL would generate at runtime.
+ *
+ * Beacons are stored as parallel int arrays, indexed by beacon, so a seed
+ * search can reset() and refill one map for each seed without creating
+ * garbage. Events are kept in a separate table, which beacons refer to by
+ * index. When a map was generated without resolving events, the table only
+ * has their ids.
+ *
+ * getGeneratedBeaconList() offers the same data as GeneratedBeacon objects,
+ * built on demand for the UI.
  */
 public class GeneratedSectorMap {
 
+	private static final int INITIAL_CAPACITY = 24;
+
 	protected Dimension preferredSize = null;
 	protected Integer rebelFleetFudge = null;
-	protected List<GeneratedBeacon> genBeaconList = new ArrayList<GeneratedBeacon>();
+
+	protected int beaconCount = 0;
+	protected int[] beaconCols = new int[INITIAL_CAPACITY];
+	protected int[] beaconRows = new int[INITIAL_CAPACITY];
+	protected int[] beaconXs = new int[INITIAL_CAPACITY];
+	protected int[] beaconYs = new int[INITIAL_CAPACITY];
+	protected int[] beaconThrobTicks = new int[INITIAL_CAPACITY];
+	protected int[] beaconDistances = new int[INITIAL_CAPACITY];
+	protected int[] beaconEventIndices = new int[INITIAL_CAPACITY];
+	protected List<String> eventIdTable = new ArrayList<String>();
+	protected List<ResolvedEvent> eventTable = new ArrayList<ResolvedEvent>();
+
+	protected List<GeneratedBeacon> genBeaconList = null;
+	protected BeaconGraph beaconGraph = new BeaconGraph();
+	protected boolean beaconGraphStale = true;
 
 	public int startBeacon = -1;
 	public int endBeacon = -1;
@@ -23,6 +51,17 @@ public class GeneratedSectorMap {
 	public GeneratedSectorMap() {
 	}
 
+	/**
+	 * Clears everything except the preferred size, keeping allocated arrays.
+	 */
+	public void reset() {
+		rebelFleetFudge = null;
+		clearBeacons();
+		startBeacon = -1;
+		endBeacon = -1;
+		flagshipBeacon = -1;
+	}
+
 	/**
 	 * Sets the size recommended to display the entire map, or null.
 	 *
@@ -54,16 +93,205 @@ public class GeneratedSectorMap {
 	}
 
 	/**
-	 * Sets the list of GeneratedBeacon objects, or null to clear it.
+	 * Removes all beacons and events.
+	 */
+	public void clearBeacons() {
+		beaconCount = 0;
+		eventIdTable.clear();
+		eventTable.clear();
+		beaconsChanged();
+	}
+
+	/**
+	 * Clears every beacon's event and distance, and the start, finish and
+	 * flagship beacons, keeping the layout.
+	 */
+	public void clearBeaconEvents() {
+		for ( int b=0; b < beaconCount; b++ ) {
+			beaconDistances[b] = -1;
+			beaconEventIndices[b] = -1;
+		}
+		eventIdTable.clear();
+		eventTable.clear();
+		startBeacon = -1;
+		endBeacon = -1;
+		flagshipBeacon = -1;
+		genBeaconList = null;
+	}
+
+	/**
+	 * Appends a beacon, with no distance or event.
+	 *
+	 * @return the new beacon's index
+	 */
+	public int addBeacon( int col, int row, int x, int y, int throbTicks ) {
+		if ( beaconCount == beaconCols.length ) {
+			int newCapacity = beaconCount * 2;
+			beaconCols = Arrays.copyOf( beaconCols, newCapacity );
+			beaconRows = Arrays.copyOf( beaconRows, newCapacity );
+			beaconXs = Arrays.copyOf( beaconXs, newCapacity );
+			beaconYs = Arrays.copyOf( beaconYs, newCapacity );
+			beaconThrobTicks = Arrays.copyOf( beaconThrobTicks, newCapacity );
+			beaconDistances = Arrays.copyOf( beaconDistances, newCapacity );
+			beaconEventIndices = Arrays.copyOf( beaconEventIndices, newCapacity );
+		}
+		int b = beaconCount++;
+		beaconCols[b] = col;
+		beaconRows[b] = row;
+		beaconXs[b] = x;
+		beaconYs[b] = y;
+		beaconThrobTicks[b] = throbTicks;
+		beaconDistances[b] = -1;
+		beaconEventIndices[b] = -1;
+
+		beaconsChanged();
+		return b;
+	}
+
+	public int getBeaconCount() { return beaconCount; }
+
+	public int getBeaconCol( int b ) { return beaconCols[b]; }
+	public int getBeaconRow( int b ) { return beaconRows[b]; }
+	public int getBeaconX( int b ) { return beaconXs[b]; }
+	public int getBeaconY( int b ) { return beaconYs[b]; }
+	public int getBeaconThrobTicks( int b ) { return beaconThrobTicks[b]; }
+
+	/**
+	 * Returns the index of the beacon in a grid cell, or -1.
+	 */
+	public int findBeacon( int col, int row ) {
+		for ( int b=0; b < beaconCount; b++ ) {
+			if ( beaconCols[b] == col && beaconRows[b] == row ) return b;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets a beacon's distance from the start, or -1.
+	 *
+	 * @see RandomSectorMapGenerator#minDistanceMap(GeneratedSectorMap, int)
+	 */
+	public void setBeaconDistance( int b, int distance ) {
+		beaconDistances[b] = distance;
+		genBeaconList = null;
+	}
+
+	public int getBeaconDistance( int b ) { return beaconDistances[b]; }
+
+	/**
+	 * Sets a beacon's event, or null.
+	 *
+	 * The event is appended to the event table.
+	 */
+	public void setBeaconEvent( int b, ResolvedEvent event ) {
+		if ( event == null ) {
+			beaconEventIndices[b] = -1;
+		}
+		else {
+			beaconEventIndices[b] = eventTable.size();
+			eventIdTable.add( event.getId() );
+			eventTable.add( event );
+		}
+		genBeaconList = null;
+	}
+
+	/**
+	 * Sets a beacon's event by id alone, leaving it unresolved, or null.
+	 *
+	 * A null id leaves the beacon without an event, as setBeaconEvent()
+	 * would, so both modes agree on which beacons are still empty.
+	 *
+	 * @see RandomSectorMapGenerator#resolveEvents
+	 */
+	public void setBeaconEventId( int b, String eventId ) {
+		if ( eventId == null ) {
+			beaconEventIndices[b] = -1;
+		}
+		else {
+			beaconEventIndices[b] = eventTable.size();
+			eventIdTable.add( eventId );
+			eventTable.add( null );
+		}
+		genBeaconList = null;
+	}
+
+	/**
+	 * Returns a beacon's index in the event table, or -1 if it has no event.
+	 */
+	public int getBeaconEventIndex( int b ) { return beaconEventIndices[b]; }
+
+	/**
+	 * Returns a beacon's event, or null if it has none or it's unresolved.
+	 */
+	public ResolvedEvent getBeaconEvent( int b ) {
+		int index = beaconEventIndices[b];
+		return ( index == -1 ? null : eventTable.get( index ) );
+	}
+
+	/**
+	 * Returns the id of a beacon's event, or null.
+	 *
+	 * This is available even when events weren't resolved.
+	 */
+	public String getBeaconEventId( int b ) {
+		int index = beaconEventIndices[b];
+		return ( index == -1 ? null : eventIdTable.get( index ) );
+	}
+
+	/**
+	 * Replaces all beacons with copies of GeneratedBeacon objects, or null to
+	 * clear them.
 	 */
 	public void setGeneratedBeaconList( List<GeneratedBeacon> newGenBeaconList ) {
-		genBeaconList.clear();
+		clearBeacons();
 		if ( newGenBeaconList != null ) {
-			genBeaconList.addAll( newGenBeaconList );
+			for ( GeneratedBeacon genBeacon : newGenBeaconList ) {
+				int b = addBeacon( genBeacon.col, genBeacon.row, genBeacon.x, genBeacon.y, genBeacon.getThrobTicks() );
+				beaconDistances[b] = genBeacon.distance;
+				setBeaconEvent( b, genBeacon.getEvent() );
+			}
 		}
 	}
 
+	/**
+	 * Returns the beacons as GeneratedBeacon objects.
+	 *
+	 * The list is built on first use, and rebuilt after the map changes. It
+	 * can't be modified, and changes to the beacons in it aren't stored.
+	 */
 	public List<GeneratedBeacon> getGeneratedBeaconList() {
+		if ( genBeaconList == null ) {
+			List<GeneratedBeacon> newList = new ArrayList<GeneratedBeacon>( beaconCount );
+			for ( int b=0; b < beaconCount; b++ ) {
+				GeneratedBeacon genBeacon = new GeneratedBeacon();
+				genBeacon.setGridPosition( beaconCols[b], beaconRows[b] );
+				genBeacon.setLocation( beaconXs[b], beaconYs[b] );
+				genBeacon.setThrobTicks( beaconThrobTicks[b] );
+				genBeacon.distance = beaconDistances[b];
+				genBeacon.setEvent( getBeaconEvent( b ) );
+				newList.add( genBeacon );
+			}
+			genBeaconList = Collections.unmodifiableList( newList );
+		}
 		return genBeaconList;
 	}
+
+	/**
+	 * Returns which beacons are connected, built on first use.
+	 *
+	 * The same graph object is rebuilt in place after beacons are added or
+	 * removed.
+	 */
+	public BeaconGraph getBeaconGraph() {
+		if ( beaconGraphStale ) {
+			beaconGraph.setBeacons( this );
+			beaconGraphStale = false;
+		}
+		return beaconGraph;
+	}
+
+	private void beaconsChanged() {
+		genBeaconList = null;
+		beaconGraphStale = true;
+	}
 }
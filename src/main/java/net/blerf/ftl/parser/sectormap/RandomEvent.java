@@ -1,15 +1,10 @@
 package net.blerf.ftl.parser.sectormap;
 
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Set;
 import java.util.HashSet;
-import java.util.Map;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.helpers.NOPLogger;
 
+import net.blerf.ftl.parser.random.GenerationTracer;
 import net.blerf.ftl.parser.random.RandRNG;
 import net.blerf.ftl.parser.DataManager;
 
@@ -17,7 +12,6 @@ import net.blerf.ftl.constants.Difficulty;
 
 import net.blerf.ftl.xml.FTLEvent;
 import net.blerf.ftl.xml.FTLEventList;
-import net.blerf.ftl.xml.SectorDescription;
 import net.blerf.ftl.xml.Choice;
 import net.blerf.ftl.xml.NamedText;
 import net.blerf.ftl.xml.TextList;
@@ -34,49 +28,101 @@ import net.blerf.ftl.xml.DroneBlueprint;
  */
 public final class RandomEvent {
 
-	private static final Logger log = LoggerFactory.getLogger( RandomEvent.class );
-	// private static final Logger log = NOPLogger.NOP_LOGGER;
-
 	private static boolean fast = true;
 
-	private static String sectorId = "STANDARD_SPACE";
-	private static int sectorNumber = 0; // between 0 and 7
-	private static Difficulty difficulty = Difficulty.EASY; // between 0 and 2
-	private static boolean dlcEnabled = true;
+	private final String sectorId;
+	private final int sectorNumber; // between 0 and 7
+	private final Difficulty difficulty;
+	private final boolean dlcEnabled;
 
-	private static Set<String> uniqueSectors = new HashSet<String>();
+	private GenerationTracer tracer = GenerationTracer.NOP;
 
-	private static Set<Integer> uniqueCrewNames = null;
+	private final Set<String> uniqueSectors = new HashSet<String>();
 
-	public static void setUniqueNames( Set<Integer> un ) {
-		uniqueCrewNames = un;
-	}
+	private final Set<Integer> uniqueCrewNames;
 
-	public static void setSectorId( String si ) {
-		sectorId = si;
-		crewRarities.clear();
-		weaponRarities.clear();
-		augRarities.clear();
-		droneRarities.clear();
+
+	/**
+	 * Constructs an event-resolution context for one sector map generation.
+	 *
+	 * Unique events are tracked per context, so a fresh instance should be
+	 * used for each generated map.
+	 *
+	 * @param uniqueCrewNames names already in use, shared with other
+	 *                        generators of the same game, or null
+	 */
+	public RandomEvent( String sectorId, int sectorNumber, Difficulty difficulty, boolean dlcEnabled, Set<Integer> uniqueCrewNames ) {
+		this.sectorId = sectorId;
+		this.sectorNumber = sectorNumber;
+		this.difficulty = difficulty;
+		this.dlcEnabled = dlcEnabled;
+		this.uniqueCrewNames = ( uniqueCrewNames != null ? uniqueCrewNames : new HashSet<Integer>() );
 	}
 
-	public static void setSectorNumber( int sn ) { sectorNumber = sn; }
-	public static void setDifficulty( Difficulty d ) { difficulty = d; }
-	public static void setDlc( boolean d ) { dlcEnabled = d; }
+	public String getSectorId() { return sectorId; }
+	public int getSectorNumber() { return sectorNumber; }
+	public Difficulty getDifficulty() { return difficulty; }
+	public boolean isDLCEnabled() { return dlcEnabled; }
 
-	public static void resetUniqueSectors() { uniqueSectors.clear(); }
+	/**
+	 * Sets a tracer to receive each random draw and loaded event.
+	 */
+	public void setTracer( GenerationTracer tracer ) {
+		this.tracer = ( tracer != null ? tracer : GenerationTracer.NOP );
+	}
 
 	/**
 	 * Load an event from an event id.
+	 *
+	 * @return the randomized event, or null if it was a unique event that
+	 *         had already been chosen
 	 */
-	public static FTLEvent loadEventId( String id, RandRNG rng ) {
+	public ResolvedEvent loadEventId( String id, RandRNG rng ) {
+		ResolvedEvent result = new ResolvedEvent();
+		return ( loadEventId( id, rng, result ) != null ? result : null );
+	}
 
-		if (log.isDebugEnabled())
-			log.debug( String.format( "Load event id %s", id ) );
+	/**
+	 * Draws the same random numbers as loadEventId(), without building the
+	 * event.
+	 *
+	 * Nothing is cloned or modified. Unique events and crew names are still
+	 * tracked, since they affect later draws.
+	 *
+	 * @return the id of the event loadEventId() would have returned, or
+	 *         null if it was a unique event that had already been chosen
+	 */
+	public String skipEventId( String id, RandRNG rng ) {
+		FTLEvent template = loadEventId( id, rng, null );
+		return ( template != null ? template.getId() : null );
+	}
 
+	/**
+	 * Load an event from an event id.
+	 *
+	 * @param target receives the randomized values, or null to only draw them
+	 * @return the template that was loaded, or null
+	 */
+	private FTLEvent loadEventId( String id, RandRNG rng, ResolvedEvent target ) {
+		int index = DataManager.getInstance().getEventIndex( id );
+		if (index == -1) {
+			throw new UnsupportedOperationException( String.format( "Could not find event %s", id ) );
+		}
+		return loadEventIndex( index, id, rng, target );
+	}
+
+	/**
+	 * Load an event from an event index.
+	 *
+	 * @param id the event's id, for tracing and errors
+	 * @param target receives the randomized values, or null to only draw them
+	 * @return the template that was loaded, or null
+	 * @see DataManager#getEventIndex(String)
+	 */
+	private FTLEvent loadEventIndex( int index, String id, RandRNG rng, ResolvedEvent target ) {
 		/* First, check if the id correspond to an event list */
 
-		FTLEventList list = DataManager.getInstance().getEventListById( id, dlcEnabled );
+		FTLEventList list = DataManager.getInstance().getEventListByIndex( index, dlcEnabled );
 		if (list != null) {
 			List<FTLEvent> eventList = list.getEventList();
 
@@ -86,19 +132,24 @@ public final class RandomEvent {
 			 * unique event that was already chosen.
 			 */
 			do {
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Choose random event from eventList" ) );
-				int e = rng.rand() % eventList.size();
-				ev = loadEvent((FTLEvent)eventList.get(e).clone(), rng);
+				int e = rand(rng, "event_list") % eventList.size();
+				FTLEvent listEvent = eventList.get(e);
+				ev = loadEvent(listEvent, null, rng, target);
 			}
 			while (ev == null);
+			tracer.eventChosen(-1, id, ev.getId());
 			return ev;
 		}
 
 		/* Get the event */
-		FTLEvent event = (FTLEvent)DataManager.getInstance().getEventById( id, dlcEnabled ).clone();
+		FTLEvent event = DataManager.getInstance().getEventByIndex( index, dlcEnabled );
+		if (event == null) {
+			throw new UnsupportedOperationException( String.format( "Could not find event %s", id ) );
+		}
 
-		return loadEvent(event, rng);
+		FTLEvent ev = loadEvent(event, null, rng, target);
+		tracer.eventChosen(-1, id, (ev != null ? ev.getId() : null));
+		return ev;
 	}
 
 	/**
@@ -111,9 +162,28 @@ public final class RandomEvent {
 	    cont
 	    end
 	 */
-	public static FTLEvent loadEvent( FTLEvent event, RandRNG rng ) {
-		if (log.isDebugEnabled())
-			log.debug( String.format( "Load event %s", event.toString() ) );
+	public ResolvedEvent loadEvent( FTLEvent event, RandRNG rng ) {
+		ResolvedEvent result = new ResolvedEvent();
+		return ( loadEvent( event, null, rng, result ) != null ? result : null );
+	}
+
+	/**
+	 * Load an event.
+	 *
+	 * The event is a template and is only read. Randomized values are stored
+	 * in the target, if any. Either way, every value is drawn from the RNG.
+	 *
+	 * Load attributes were resolved to event indices along with the data.
+	 * Ids are only looked up if that wasn't done.
+	 *
+	 * @param fromChoice the choice holding this event, whose load replaces
+	 *                   the event's own load attribute, or null
+	 * @param target receives the randomized values, or null to only draw them
+	 * @return the template that was loaded, after following load attributes,
+	 *         or null if it was a unique event that had already been chosen
+	 */
+	private FTLEvent loadEvent( FTLEvent event, Choice fromChoice, RandRNG rng, ResolvedEvent target ) {
+		boolean resolve = (target != null);
 
 		/* If unique, check if it was already chosen */
 		if (event.getUnique()) {
@@ -122,22 +192,40 @@ public final class RandomEvent {
 			uniqueSectors.add(event.getId());
 		}
 
-		/* If there's a load attribute, load the corresponding event */
-		String load = event.getLoad();
+		/* If there's a load attribute, load the corresponding event.
+		 * Fix: in the data file, at least one choice event has the field
+		 * 'name' filled, where it should be 'load' instead.
+		 */
+		String load;
+		int loadIndex;
+		if (fromChoice != null) {
+			load = (event.getId() != null ? event.getId() : event.getLoad());
+			loadIndex = fromChoice.getLoadIndex();
+		}
+		else {
+			load = event.getLoad();
+			loadIndex = event.getLoadIndex();
+		}
 		if (load != null) {
-			return loadEventId(load, rng);
+			if (loadIndex == -1)
+				return loadEventId(load, rng, target);
+			return loadEventIndex(loadIndex, load, rng, target);
 		}
 
+		if (resolve)
+			target.setTemplate(event);
+
 		/* Handle text */
 		NamedText text = event.getText();
 		if (text != null) {
 			load = text.getLoad();
 			if (load != null) {
 				if (fast) {
-					rng.rand();
+					rand(rng, "text");
 				}
 				else {
-					TextList list = DataManager.getInstance().getTextListById( load, dlcEnabled );
+					int listIndex = DataManager.getInstance().getTextListIndex( load );
+					TextList list = (listIndex != -1 ? DataManager.getInstance().getTextListByIndex( listIndex, dlcEnabled ) : null);
 					if (list == null) {
 						throw new UnsupportedOperationException( String.format( "Could not find text list %s", load ) );
 					}
@@ -147,10 +235,9 @@ public final class RandomEvent {
 						throw new UnsupportedOperationException( String.format( "No more text left in textlist %s", load ) );
 					}
 
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Choose random text from textList" ) );
-					int n = rng.rand() % textList.size();
-					event.setText(textList.get(n));
+					int n = rand(rng, "text") % textList.size();
+					if (resolve)
+						target.setText(textList.get(n));
 				}
 			}
 		}
@@ -163,41 +250,39 @@ public final class RandomEvent {
 			ivar12 = 5; // random range
 		}
 
-		if (log.isDebugEnabled())
-			log.debug( String.format( "Item offer four random values" ) );
 
 		// 0x4a3681
 		/* Randomize fuel quantity */
-		int n = rng.rand();
+		int n = rand(rng, "fuel_offer");
 		if ((n & 3) < ivar12) {
-			int p = itemOfferQuantity(event, rng, "fuel");
+			int p = itemOfferQuantity(event, rng, target, "fuel");
 			if (p > 0)
 				ivar12 -= 1;
 		}
 
 		// 0x4a36cb
 		/* Randomize drone quantity */
-		n = rng.rand();
+		n = rand(rng, "drones_offer");
 		if ((n % 3) < ivar12) {
-			int p = itemOfferQuantity(event, rng, "drones");
+			int p = itemOfferQuantity(event, rng, target, "drones");
 			if (p > 0)
 				ivar12 -= 1;
 		}
 
 		// 0x4a371d
 		/* Randomize missiles quantity */
-		n = rng.rand();
+		n = rand(rng, "missiles_offer");
 		if ((n & 1) < ivar12) {
-			int p = itemOfferQuantity(event, rng, "missiles");
+			int p = itemOfferQuantity(event, rng, target, "missiles");
 			if (p > 0)
 				ivar12 -= 1;
 		}
 
  		// 0x4a3764
 		/* Randomize scrap quantity */
-		rng.rand();
+		rand(rng, "scrap_offer");
 		if (0 < ivar12) {
-			int p = itemOfferQuantity(event, rng, "scrap");
+			int p = itemOfferQuantity(event, rng, target, "scrap");
 			if (p > 0)
 				ivar12 -= 1;
 		}
@@ -206,64 +291,58 @@ public final class RandomEvent {
 		FTLEvent.CrewMember crewMember = event.getCrewMember();
 		if ((crewMember != null) && (crewMember.amount > 0)) {
 
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Generating crewMember" ) );
 
-			if (crewMember.id == null)
-				crewMember.id = "random";
+			String crewId = crewMember.id;
+			if (crewId == null)
+				crewId = "random";
 
 			CrewBlueprint cb = null;
 
-			if (crewMember.id.equals("traitor")) {
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Traitor with crewMember.amount > 0 ???" ) );
+			if (crewId.equals("traitor")) {
+				/* Traitor with crewMember.amount > 0 ??? */
 			}
-			else if (crewMember.id.equals("random")) {
+			else if (crewId.equals("random")) {
 				/* Pick a random race (0x47f52c) */
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Generating crewMember race" ) );
 				cb = pickRandomCrew(rng);
 
-				crewMember.id = cb.getId();
-				if (log.isDebugEnabled())
-					log.debug( String.format( "   got %s", crewMember.id ) );
+				crewId = cb.getId();
 			}
 			else {
-				cb = DataManager.getInstance().getCrew(crewMember.id, dlcEnabled);
+				cb = DataManager.getInstance().getCrew(crewId, dlcEnabled);
 				/* Choose a random name here, that will be overwritten later? */
 
-				n = rng.rand() % 169; // TODO: Magic number, look at (sorted?) crew names
+				n = rand(rng, "crew_name") % 169; // TODO: Magic number, look at (sorted?) crew names
 
 				while (uniqueCrewNames.contains(n)) {
-					n = rng.rand() % 169;
+					n = rand(rng, "crew_name") % 169;
 				}
 				uniqueCrewNames.add(n);
 			}
 
+			if (resolve)
+				target.setCrewId(crewId);
+
 			/* Generate layer colors (0x4a3b82) */
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Generating crewMember layer color" ) );
 
 			List<CrewBlueprint.SpriteTintLayer> layers = cb.getSpriteTintLayerList();
 
 			/* Draw as many random numbers as layers */
 			if (layers != null) {
 				for (int ll = 0; ll < layers.size(); ll++)
-					rng.rand();
+					rand(rng, "crew_tint");
 			}
 
 			/* Pick a random name if not set (0x4a3bc4) */
 			if (crewMember.name.equals("")) {
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Generating crewMember name" ) );
-				n = rng.rand() % 169; // TODO: Magic number, look at (sorted?) crew names
+				n = rand(rng, "crew_name") % 169; // TODO: Magic number, look at (sorted?) crew names
 
 				while (uniqueCrewNames.contains(n)) {
-					n = rng.rand() % 169;
+					n = rand(rng, "crew_name") % 169;
 				}
 				uniqueCrewNames.add(n);
 
-				crewMember.name = "TODO";
+				if (resolve)
+					target.setCrewName("TODO");
 			}
 
 			/* If no skill is set, take two random ones */
@@ -280,22 +359,18 @@ public final class RandomEvent {
 				int skillMin = skillMins[sectorNumber];
 				int skillMax = skillMaxs[sectorNumber];
 
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Generating crewMember skill amount" ) );
-				int skillAmount = skillMin + (rng.rand() % (skillMax + 1 - skillMin));
+				int skillAmount = skillMin + (rand(rng, "skill_amount") % (skillMax + 1 - skillMin));
 
 				/* Pick two random different skills */
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Generating crewMember skill type" ) );
-				int skillOne = rng.rand() % 6;
-				int skillTwo = rng.rand() % 6;
+				int skillOne = rand(rng, "skill_one") % 6;
+				int skillTwo = rand(rng, "skill_two") % 6;
 				while (skillTwo == skillOne)
-					skillTwo = rng.rand() % 6;
+					skillTwo = rand(rng, "skill_two") % 6;
 
 				/* Raise skills */
 				for (int sk = 0; sk < skillAmount; sk++) {
 					/* Pick a random skill among the chosen two */
-					int s = rng.rand() % 1;
+					int s = rand(rng, "skill_pick") % 1;
 
 					/* Raise skillOne or skillTwo, somehow */
 				}
@@ -307,7 +382,8 @@ public final class RandomEvent {
 		if (weapon != null) {
 			if ((weapon.name != null) && weapon.name.equals("RANDOM")) {
 				WeaponBlueprint wb = pickRandomWeapon(rng);
-				weapon.name = wb.getId();
+				if (resolve)
+					target.setWeaponName(wb.getId());
 			}
 		}
 
@@ -316,7 +392,8 @@ public final class RandomEvent {
 		if (augment != null) {
 			if ((augment.name != null) && augment.name.equals("RANDOM")) {
 				AugBlueprint ab = pickRandomAugment(rng);
-				augment.name = ab.getId();
+				if (resolve)
+					target.setAugmentName(ab.getId());
 			}
 		}
 
@@ -325,16 +402,22 @@ public final class RandomEvent {
 		if (drone != null) {
 			if ((drone.name != null) && drone.name.equals("RANDOM")) {
 				DroneBlueprint db = pickRandomDrone(rng);
-				drone.name = db.getId();
+				if (resolve)
+					target.setDroneName(db.getId());
 			}
 		}
 
 		/* autoReward */
 		FTLEvent.AutoReward autoReward = event.getAutoReward();
 		if (autoReward != null) {
+			/* Results go to a new object, the template is left alone */
+			FTLEvent.AutoReward template = autoReward;
+			autoReward = new FTLEvent.AutoReward();
+			autoReward.level = template.level;
+			autoReward.reward = template.reward;
+			if (resolve)
+				target.setAutoReward(autoReward);
 
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Generating autoReward with level %s and type %s", autoReward.level, autoReward.reward ) );
 
 			/* Alter sector number based on difficulty */
 			int newSectorNumber = sectorNumber;
@@ -352,12 +435,12 @@ public final class RandomEvent {
 			else if (autoReward.level.equals("HIGH"))
 				rewardLevel = 2;
 			else if (autoReward.level.equals("RANDOM"))
-				rewardLevel = rng.rand() % 3;
+				rewardLevel = rand(rng, "reward_level") % 3;
 			else
 				/* If unknown reward, default to random.
 				 * This happens at least once with a typo (MEDIUM instead of MED)
 				 */
-				rewardLevel = rng.rand() % 3;
+				rewardLevel = rand(rng, "reward_level") % 3;
 
 			String resources[] = {"fuel", "missiles", "droneparts"};
 
@@ -366,28 +449,28 @@ public final class RandomEvent {
 			/* Standard reward */
 			if (autoReward.reward.equals("standard")) {
 				autoReward.scrap = autoRewardQuantity(rng, "scrap", rewardLevel, newSectorNumber);
-				int resourceOne = rng.rand() % 3;
-				int resourceTwo = rng.rand() % 3;
+				int resourceOne = rand(rng, "resource_one") % 3;
+				int resourceTwo = rand(rng, "resource_two") % 3;
 				while (resourceTwo == resourceOne)
-					resourceTwo = rng.rand() % 3;
+					resourceTwo = rand(rng, "resource_two") % 3;
 
 				autoReward.resources[resourceOne] = autoRewardQuantity(rng, resources[resourceOne], 0, 0);
 				autoReward.resources[resourceTwo] = autoRewardQuantity(rng, resources[resourceTwo], 0, 0);
 
-				if ((rng.rand() % 100) < 3)
+				if ((rand(rng, "extra_item") % 100) < 3)
 					extraItem = true;
 			}
 			else if (autoReward.reward.equals("stuff")) {
 				autoReward.scrap = autoRewardQuantity(rng, "scrap", 0, newSectorNumber);
-				int resourceOne = rng.rand() % 3;
-				int resourceTwo = rng.rand() % 3;
+				int resourceOne = rand(rng, "resource_one") % 3;
+				int resourceTwo = rand(rng, "resource_two") % 3;
 				while (resourceTwo == resourceOne)
-					resourceTwo = rng.rand() % 3;
+					resourceTwo = rand(rng, "resource_two") % 3;
 
 				autoReward.resources[resourceOne] = autoRewardQuantity(rng, resources[resourceOne], rewardLevel, 0);
 				autoReward.resources[resourceTwo] = autoRewardQuantity(rng, resources[resourceTwo], rewardLevel, 0);
 
-				if ((rng.rand() % 100) < 6)
+				if ((rand(rng, "extra_item") % 100) < 6)
 					extraItem = true;
 
 			}
@@ -418,7 +501,7 @@ public final class RandomEvent {
 
 			int extraItemType = -1;
 			if (extraItem) {
-				extraItemType = rng.rand() % 3;
+				extraItemType = rand(rng, "extra_item_type") % 3;
 			}
 
 			if ((extraItemType == 0) || autoReward.reward.equals("weapon")) {
@@ -441,9 +524,9 @@ public final class RandomEvent {
 		/* Ship event: generate the seed */
 		ShipEvent se = event.getShip();
 		if (se != null) {
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Ship seed value" ) );
-			se.setSeed(rng.rand());
+			int shipSeed = rand(rng, "ship_seed");
+			if (resolve)
+				target.setShipSeed(shipSeed);
 		}
 
 		/* Browse each choice, and load the corresponding event */
@@ -453,16 +536,11 @@ public final class RandomEvent {
 				Choice choice = choiceList.get(i);
 
 				FTLEvent choiceEvent = choice.getEvent();
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Will load choice %s", choiceEvent.toString() ) );
 
-				/* Fix: in the data file, at least one event has the field
-				 * 'name' filled, where it should be 'load' instead.
-				 */
-				if (choiceEvent.getId() != null)
-					choiceEvent.setLoad(choiceEvent.getId());
-
-				choice.setEvent(loadEvent(choiceEvent, rng));
+				ResolvedEvent choiceTarget = (resolve ? new ResolvedEvent() : null);
+				FTLEvent loadedEvent = loadEvent(choiceEvent, choice, rng, choiceTarget);
+				if (resolve && loadedEvent != null)
+					target.setChoiceEvent(i, choiceTarget);
 
 				/* Load text it any. It is done after loading the event */
 				NamedText cText = choice.getText();
@@ -470,10 +548,11 @@ public final class RandomEvent {
 					load = cText.getLoad();
 					if (load != null) {
 						if (fast) {
-							rng.rand();
+							rand(rng, "choice_text");
 						}
 						else {
-							TextList list = DataManager.getInstance().getTextListById( load, dlcEnabled );
+							int listIndex = DataManager.getInstance().getTextListIndex( load );
+							TextList list = (listIndex != -1 ? DataManager.getInstance().getTextListByIndex( listIndex, dlcEnabled ) : null);
 							if (list == null) {
 								throw new UnsupportedOperationException( String.format( "Could not find text list %s", load ) );
 							}
@@ -483,10 +562,9 @@ public final class RandomEvent {
 								throw new UnsupportedOperationException( String.format( "No more text left in textlist %s", load ) );
 							}
 
-							if (log.isDebugEnabled())
-								log.debug( String.format( "Choose random text from textList" ) );
-							n = rng.rand() % textList.size();
-							choice.setText(textList.get(n));
+							n = rand(rng, "choice_text") % textList.size();
+							if (resolve)
+								target.setChoiceText(i, textList.get(n));
 						}
 					}
 				}
@@ -495,9 +573,7 @@ public final class RandomEvent {
 
 		// 0x4a4751
 		if (true) { // some value == -1 (so uninitialized)
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Extra end random value" ) );
-			n = rng.rand();
+			n = rand(rng, "end");
 			int a = 1; // some value
 			int b = 5; // some value
 			int p = n % (b + 1 - a) + a;
@@ -509,7 +585,7 @@ public final class RandomEvent {
 	/**
 	 * Randomize an item quantity
 	 */
-	private static int itemOfferQuantity( FTLEvent event, RandRNG rng, String id ) {
+	private int itemOfferQuantity( FTLEvent event, RandRNG rng, ResolvedEvent target, String id ) {
 
 		FTLEvent.ItemList itemList = event.getItemList();
 		if (itemList == null)
@@ -520,12 +596,11 @@ public final class RandomEvent {
 			if (item.type.equals(id)) {
 				if (item.max != 0) {
 					int r = item.max + 1 - item.min;
-					item.value = (rng.rand() % r) + item.min;
-					itemList.items.set(i, item);
-					event.setItemList(itemList);
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Random quantity of %s is %d", id, item.value ) );
-					return item.value;
+					int value = (rand(rng, "item_quantity") % r) + item.min;
+					if (target != null)
+						target.setItemValue(i, value);
+					tracer.value("item_quantity", value);
+					return value;
 				}
 				return 0;
 			}
@@ -536,7 +611,7 @@ public final class RandomEvent {
 	/**
 	 * Compute autoReward quantity
 	 */
-	private static int autoRewardQuantity( RandRNG rng, String resource, int reward_level, int sector_level ) {
+	private int autoRewardQuantity( RandRNG rng, String resource, int reward_level, int sector_level ) {
 
 		final float scrap_min[] = {0.5f, 0.8f, 1.3f};
 		final float scrap_max[] = {0.7f, 1.3f, 1.55f};
@@ -555,11 +630,10 @@ public final class RandomEvent {
 			float max = scrap_max[reward_level];
 
 			int range = ((int)(max*1000.0f)) + 1 - (int)(min*1000.0f);
-			int qint = (int)(min*1000.0f) + (rng.rand() % range);
+			int qint = (int)(min*1000.0f) + (rand(rng, "scrap_quantity") % range);
 
 			int q = (int)(((float)qint / 1000.0f) * ((float) (sector_level * 6 + 0xf)));
-			if (log.isDebugEnabled())
-				log.debug( String.format( "autoReward scrap: %d", q ) );
+			tracer.value("reward_scrap", q);
 			return q;
 		}
 
@@ -577,255 +651,43 @@ public final class RandomEvent {
 			max = droneparts_max[reward_level];
 		}
 
-		int r = min + (rng.rand() % (max + 1 - min));
-		if (log.isDebugEnabled())
-			log.debug( String.format( "autoReward %s: %d", resource, r ) );
+		int r = min + (rand(rng, "resource_quantity") % (max + 1 - min));
+		tracer.value("reward_resource", r);
 
 		return r;
 	}
 
-	private static class ItemRarity {
-		public String id = null;
-		public int rarity = 0;
-		public int rarityChildren = 0;
+	private int rand( RandRNG rng, String tag ) {
+		int value = rng.rand();
+		tracer.randConsumed( tag, value );
+		return value;
 	}
 
-	private static List<ItemRarity> crewRarities = new ArrayList<ItemRarity>();
-
 	/**
-	 * Pick a random weapon, accounting for rarity
+	 * Pick a random crew race, accounting for rarity
 	 */
-	private static CrewBlueprint pickRandomCrew( RandRNG rng ) {
-		Map<String, CrewBlueprint> crews = DataManager.getInstance().getCrews(dlcEnabled);
-
-		/* Compute sum and binary tree of non-zero rarities */
-		if (crewRarities.isEmpty()) {
-
-			/* Use 1-based array */
-			crewRarities.add(new ItemRarity());
-
-			/* Sector data can overwrite rarities */
-			SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
-			SectorDescription.RarityList rarityList = tmpDesc.getRarityList();
-			List<SectorDescription.BlueprintRarity> blueprints = null;
-			if (rarityList != null)
-				blueprints = rarityList.blueprints;
-
-			for (Map.Entry<String, CrewBlueprint> entry : crews.entrySet()) {
-				int r = entry.getValue().getRarity();
-
-				/* Check if a new rarity value is specified by sector description */
-				if (blueprints != null) {
-					for (SectorDescription.BlueprintRarity b : blueprints) {
-						if (b.id.equals(entry.getKey())) {
-							r = b.rarity;
-							if (log.isDebugEnabled())
-								log.debug( String.format( "crew %s rarity %d override", b.id, b.rarity ) );
-						}
-					}
-				}
-
-				if (r != 0) {
-					ItemRarity dr = new ItemRarity();
-					dr.id = entry.getKey();
-					dr.rarity = 6 - r;
-					dr.rarityChildren = 6 - r;
-					crewRarities.add(dr);
-				}
-			}
-
-			/* Compute the binary tree */
-			for (int i = crewRarities.size()-1; i >= 1; i--) {
-				crewRarities.get(i>>1).rarityChildren += crewRarities.get(i).rarityChildren;
-			}
-		}
-
-		/* Pick a crew with rarity */
-		String id = pickRandomBinaryTree(rng, crewRarities);
-		return crews.get(id);
+	private CrewBlueprint pickRandomCrew( RandRNG rng ) {
+		return RarityTable.getCrewTable( sectorId, dlcEnabled ).pick( rand( rng, "rarity_pick" ) );
 	}
 
-
-	private static List<ItemRarity> weaponRarities = new ArrayList<ItemRarity>();
-
 	/**
 	 * Pick a random weapon, accounting for rarity
 	 */
-	private static WeaponBlueprint pickRandomWeapon( RandRNG rng ) {
-		Map<String, WeaponBlueprint> weapons = DataManager.getInstance().getWeapons(dlcEnabled);
-
-		/* Compute sum and binary tree of non-zero rarities */
-		if (weaponRarities.isEmpty()) {
-
-			/* Use 1-based array */
-			weaponRarities.add(new ItemRarity());
-
-			/* Sector data can overwrite rarities */
-			SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
-			SectorDescription.RarityList rarityList = tmpDesc.getRarityList();
-			List<SectorDescription.BlueprintRarity> blueprints = null;
-			if (rarityList != null)
-				blueprints = rarityList.blueprints;
-
-			for (Map.Entry<String, WeaponBlueprint> entry : weapons.entrySet()) {
-				int r = entry.getValue().getRarity();
-
-				/* Check if a new rarity value is specified by sector description */
-				if (blueprints != null) {
-					for (SectorDescription.BlueprintRarity b : blueprints) {
-						if (b.id.equals(entry.getKey())) {
-							r = b.rarity;
-						}
-					}
-				}
-
-				if (r != 0) {
-					ItemRarity dr = new ItemRarity();
-					dr.id = entry.getKey();
-					dr.rarity = 6 - r;
-					dr.rarityChildren = 6 - r;
-					weaponRarities.add(dr);
-				}
-			}
-
-			/* Compute the binary tree */
-			for (int i = weaponRarities.size()-1; i >= 1; i--) {
-				weaponRarities.get(i>>1).rarityChildren += weaponRarities.get(i).rarityChildren;
-			}
-		}
-
-		/* Pick a weapon with rarity */
-		String id = pickRandomBinaryTree(rng, weaponRarities);
-		return weapons.get(id);
+	private WeaponBlueprint pickRandomWeapon( RandRNG rng ) {
+		return RarityTable.getWeaponTable( sectorId, dlcEnabled ).pick( rand( rng, "rarity_pick" ) );
 	}
 
-
-	private static List<ItemRarity> augRarities = new ArrayList<ItemRarity>();
-
 	/**
 	 * Pick a random augment, accounting for rarity
 	 */
-	private static AugBlueprint pickRandomAugment( RandRNG rng ) {
-		Map<String, AugBlueprint> augs = DataManager.getInstance().getAugments(dlcEnabled);
-
-		/* Compute sum and binary tree of non-zero rarities */
-		if (augRarities.isEmpty()) {
-
-			/* Use 1-based array */
-			augRarities.add(new ItemRarity());
-
-			/* Sector data can overwrite rarities */
-			SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
-			SectorDescription.RarityList rarityList = tmpDesc.getRarityList();
-			List<SectorDescription.BlueprintRarity> blueprints = null;
-			if (rarityList != null)
-				blueprints = rarityList.blueprints;
-
-			for (Map.Entry<String, AugBlueprint> entry : augs.entrySet()) {
-				int r = entry.getValue().getRarity();
-
-				/* Check if a new rarity value is specified by sector description */
-				if (blueprints != null) {
-					for (SectorDescription.BlueprintRarity b : blueprints) {
-						if (b.id.equals(entry.getKey())) {
-							r = b.rarity;
-						}
-					}
-				}
-
-				if (r != 0) {
-					ItemRarity dr = new ItemRarity();
-					dr.id = entry.getKey();
-					dr.rarity = 6 - r;
-					dr.rarityChildren = 6 - r;
-					augRarities.add(dr);
-				}
-			}
-
-			/* Compute the binary tree */
-			for (int i = augRarities.size()-1; i >= 1; i--) {
-				augRarities.get(i>>1).rarityChildren += augRarities.get(i).rarityChildren;
-			}
-		}
-
-		/* Pick an augment with rarity */
-		String id = pickRandomBinaryTree(rng, augRarities);
-		return augs.get(id);
+	private AugBlueprint pickRandomAugment( RandRNG rng ) {
+		return RarityTable.getAugmentTable( sectorId, dlcEnabled ).pick( rand( rng, "rarity_pick" ) );
 	}
 
-	private static List<ItemRarity> droneRarities = new ArrayList<ItemRarity>();
-
 	/**
 	 * Pick a random drone, accounting for rarity
 	 */
-	private static DroneBlueprint pickRandomDrone( RandRNG rng ) {
-		Map<String, DroneBlueprint> drones = DataManager.getInstance().getDrones(dlcEnabled);
-
-		/* Compute sum and binary tree of non-zero rarities */
-		if (droneRarities.isEmpty()) {
-
-			/* Use 1-based array */
-			droneRarities.add(new ItemRarity());
-
-			/* Sector data can overwrite rarities */
-			SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
-			SectorDescription.RarityList rarityList = tmpDesc.getRarityList();
-			List<SectorDescription.BlueprintRarity> blueprints = null;
-			if (rarityList != null)
-				blueprints = rarityList.blueprints;
-
-			for (Map.Entry<String, DroneBlueprint> entry : drones.entrySet()) {
-				int r = entry.getValue().getRarity();
-
-				/* Check if a new rarity value is specified by sector description */
-				if (blueprints != null) {
-					for (SectorDescription.BlueprintRarity b : blueprints) {
-						if (b.id.equals(entry.getKey())) {
-							r = b.rarity;
-						}
-					}
-				}
-
-				if (r != 0) {
-					ItemRarity dr = new ItemRarity();
-					dr.id = entry.getKey();
-					dr.rarity = 6 - r;
-					dr.rarityChildren = 6 - r;
-					droneRarities.add(dr);
-				}
-			}
-
-			/* Compute the binary tree */
-			for (int i = droneRarities.size()-1; i >= 1; i--) {
-				droneRarities.get(i>>1).rarityChildren += droneRarities.get(i).rarityChildren;
-			}
-		}
-
-		/* Pick a drone with rarity */
-		String id = pickRandomBinaryTree(rng, droneRarities);
-		return drones.get(id);
-	}
-
-	/**
-	 * Pick a random item from a binary tree
-	 */
-	private static String pickRandomBinaryTree( RandRNG rng, List<ItemRarity> itemRarities ) {
-
-		/* Pick a value among sum of rarities */
-		int i = rng.rand() % itemRarities.get(1).rarityChildren;
-		int j = 1;
-
-		while (i >= itemRarities.get(j).rarity) {
-			i -= itemRarities.get(j).rarity;
-			j <<= 1;
-			if (i >= itemRarities.get(j).rarityChildren) {
-				i -= itemRarities.get(j).rarityChildren;
-				j++;
-			}
-		}
-
-		return itemRarities.get(j).id;
+	private DroneBlueprint pickRandomDrone( RandRNG rng ) {
+		return RarityTable.getDroneTable( sectorId, dlcEnabled ).pick( rand( rng, "rarity_pick" ) );
 	}
-
-
 }
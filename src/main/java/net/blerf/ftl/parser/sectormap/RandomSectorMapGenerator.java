@@ -1,17 +1,12 @@
 package net.blerf.ftl.parser.sectormap;
 
 import java.awt.Dimension;
-import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.helpers.NOPLogger;
-
 import net.blerf.ftl.parser.DataManager;
 import net.blerf.ftl.constants.Difficulty;
 import net.blerf.ftl.xml.FTLEvent;
@@ -21,9 +16,9 @@ import net.blerf.ftl.xml.Choice;
 import net.blerf.ftl.xml.NamedText;
 import net.blerf.ftl.xml.TextList;
 
-import net.blerf.ftl.parser.sectormap.GeneratedBeacon;
 import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
 import net.blerf.ftl.parser.sectormap.RandomEvent;
+import net.blerf.ftl.parser.random.GenerationTracer;
 import net.blerf.ftl.parser.random.RandRNG;
 
 
@@ -49,9 +44,6 @@ import net.blerf.ftl.parser.random.RandRNG;
  */
 public class RandomSectorMapGenerator {
 
-	private static final Logger log = LoggerFactory.getLogger( RandomSectorMapGenerator.class );
-	// private static final Logger log = NOPLogger.NOP_LOGGER;
-
 	/**
 	 * The threshold for re-rolling a map with disconnected beacons.
 	 *
@@ -72,17 +64,39 @@ public class RandomSectorMapGenerator {
 	public Difficulty difficulty = Difficulty.HARD;
 	public boolean dlcEnabled = true;
 
-	private static Set<Integer> uniqueCrewNames = null;
+	/**
+	 * Whether to build beacon events, or only record their ids.
+	 *
+	 * Either way, the RNG is advanced exactly as FTL would, so start, finish
+	 * and flagship beacons come out the same. Leaving this off is much
+	 * faster when only the layout matters.
+	 */
+	public boolean resolveEvents = true;
+
+	private Set<Integer> uniqueCrewNames = null;
+
+	private GenerationTracer tracer = GenerationTracer.NOP;
+
+	/* Scratch space for minDistanceMap() */
+	private final int[] distanceBuf = new int[BeaconGraph.MAX_BEACONS];
 
 	public void setUniqueNames( Set<Integer> un ) {
 		uniqueCrewNames = un;
 	}
 
+	/**
+	 * Sets a tracer to follow generation, including events' random draws.
+	 */
+	public void setTracer( GenerationTracer tracer ) {
+		this.tracer = ( tracer != null ? tracer : GenerationTracer.NOP );
+	}
+
 	public static class EmptyBeacon {
 		public int id;
 		public int x;
 		public int y;
-		public FTLEvent event;
+		public int eventIndex;
+		public String eventId;
 	}
 
 	public static class NebulaRect {
@@ -113,17 +127,16 @@ public class RandomSectorMapGenerator {
 
 			int n;
 
-			n = rng.rand();
+			n = rand( rng, "fleet_fudge" );
 			genMap.setRebelFleetFudge( n % 294 + 50 );
 
-			List<GeneratedBeacon> genBeaconList = new ArrayList<GeneratedBeacon>();
 			int skipInclusiveCount = 0;
 			int z = 0;
 
 			for ( int c=0; c < columns; c++ ) {
 
 				for ( int r=0; r < rows; r++ ) {
-					n = rng.rand();
+					n = rand( rng, "cell_skip" );
 					if ( n % 5 == 0 ) {
 						z++;
 
@@ -132,16 +145,13 @@ public class RandomSectorMapGenerator {
 							continue;
 						}
 					}
-					GeneratedBeacon genBeacon = new GeneratedBeacon();
-
-					genBeacon.setGridPosition( c, r );
 
-					n = rng.rand();
-					genBeacon.setThrobTicks( n % 2001 );
+					n = rand( rng, "throb_ticks" );
+					int throbTicks = n % 2001;
 
-					n = rng.rand();
+					n = rand( rng, "beacon_x" );
 					int locX = n % 66 + c*86 + 10;
-					n = rng.rand();
+					n = rand( rng, "beacon_y" );
 					int locY = n % 66 + r*86 + 10;
 
 					if ( c == 5 && locX > 450 ) {  // Yes, this really was FTL's logic.
@@ -151,665 +161,569 @@ public class RandomSectorMapGenerator {
 						locY -= 10;
 					}
 
-					genBeacon.setLocation( locX, locY );
-
-					genBeaconList.add( genBeacon );
+					int b = genMap.addBeacon( c, r, locX, locY, throbTicks );
+					tracer.beaconPlaced( b, c, r, locX, locY );
 					skipInclusiveCount++;
 				}
 			}
 
-			genMap.setGeneratedBeaconList( genBeaconList );
-
 			return genMap;
 		}
 		else if ( fileFormat == 7 || fileFormat == 8 || fileFormat == 9 || fileFormat == 11 ) {
 			// FTL 1.5.4-1.5.10, 1.5.12, 1.5.13, 1.6.1-1.6.2.
 
-			int columns = 6;  // TODO: Magic numbers.
-			int rows = 4;
+			GeneratedSectorMap genMap = createSectorMap( rng );
 
-			GeneratedSectorMap genMap = new GeneratedSectorMap();
-			genMap.setPreferredSize( new Dimension( 640, 488 ) );  // TODO: Magic numbers.
+			do {
+				generateBeaconLayout( rng, genMap );
+			}
+			while ( !populateSectorMap( rng, genMap ) );
 
-			int n;
+			// uniqueCrewNames.clear(); // TODO: should be kept between sectors?
 
-			n = rng.rand();
-			genMap.setRebelFleetFudge( n % 250 + 50 );
+			return genMap;
+		}
+		else {
+			throw new UnsupportedOperationException( String.format( "Random sector maps for fileFormat (%d) have not been implemented", fileFormat ) );
+		}
+	}
 
-			outer:
-			while(true) {
+	/**
+	 * Creates an empty sector map and rolls its rebel fleet fudge.
+	 *
+	 * This is the first step of generateSectorMap() for FTL 1.5.4+, exposed
+	 * (with the two below) so callers can inspect a map between stages.
+	 *
+	 * Note: The RNG needs to be seeded immediately before calling this method.
+	 */
+	public GeneratedSectorMap createSectorMap( RandRNG rng ) {
+		return createSectorMap( rng, new GeneratedSectorMap() );
+	}
 
-			int generations = 0;
+	/**
+	 * Resets an existing map and rolls its rebel fleet fudge.
+	 *
+	 * Searches can reuse one map this way, instead of creating one per seed.
+	 *
+	 * @return genMap
+	 * @see #createSectorMap(RandRNG)
+	 */
+	public GeneratedSectorMap createSectorMap( RandRNG rng, GeneratedSectorMap genMap ) {
+		genMap.reset();
+		genMap.setPreferredSize( new Dimension( 640, 488 ) );  // TODO: Magic numbers.
 
-			genMap.setGeneratedBeaconList(null);
+		int n = rand( rng, "fleet_fudge" );
+		genMap.setRebelFleetFudge( n % 250 + 50 );
 
-			while ( generations < 50 ) {
-				List<GeneratedBeacon> genBeaconList = new ArrayList<GeneratedBeacon>();
-				int skipInclusiveCount = 0;
-				int z = 0;
+		return genMap;
+	}
 
-				for ( int c=0; c < columns; c++ ) {
+	/**
+	 * Places beacons on the grid, re-rolling layouts with isolated beacons.
+	 *
+	 * Beacons get grid positions, locations and throbTicks, but no events.
+	 *
+	 * @throws IllegalStateException if a valid map isn't generated after 50 attempts
+	 */
+	public void generateBeaconLayout( RandRNG rng, GeneratedSectorMap genMap ) {
+		int columns = 6;  // TODO: Magic numbers.
+		int rows = 4;
 
-					for ( int r=0; r < rows; r++ ) {
-						n = rng.rand();
-						if ( n % 5 == 0 ) {
-							z++;
+		int n;
 
-							if ( skipInclusiveCount / z > 4 ) {  // Skip this cell.
-								skipInclusiveCount++;
-								log.debug( String.format( "Skip beacon (%d,%d)", c, r ) );
-								continue;
-							}
-						}
-						GeneratedBeacon genBeacon = new GeneratedBeacon();
+		int generations = 0;
+		boolean valid = false;
 
-						genBeacon.setGridPosition( c, r );
+		while ( generations < 50 ) {
+			genMap.clearBeacons();
+			int skipInclusiveCount = 0;
+			int z = 0;
 
-						n = rng.rand();
-						genBeacon.setThrobTicks( n % 2001 );
+			for ( int c=0; c < columns; c++ ) {
 
-						n = rng.rand();
-						int locX = n % 90 + c*110 + 10;
-						n = rng.rand();
-						int locY = n % 90 + r*110 + 10;
-						locY = Math.min( locY, 415 );
+				for ( int r=0; r < rows; r++ ) {
+					n = rand( rng, "cell_skip" );
+					if ( n % 5 == 0 ) {
+						z++;
 
-						if ( c > 3 && r == 0 ) {  // Yes, this really was FTL's logic.
-							locY = Math.max( locY, 30 );
+						if ( skipInclusiveCount / z > 4 ) {  // Skip this cell.
+							skipInclusiveCount++;
+							tracer.beaconSkipped( c, r );
+							continue;
 						}
+					}
 
-						genBeacon.setLocation( locX, locY );
+					n = rand( rng, "throb_ticks" );
+					int throbTicks = n % 2001;
 
-						genBeaconList.add( genBeacon );
-						skipInclusiveCount++;
-					}
-				}
+					n = rand( rng, "beacon_x" );
+					int locX = n % 90 + c*110 + 10;
+					n = rand( rng, "beacon_y" );
+					int locY = n % 90 + r*110 + 10;
+					locY = Math.min( locY, 415 );
 
-				genMap.setGeneratedBeaconList( genBeaconList );
-				generations++;
+					if ( c > 3 && r == 0 ) {  // Yes, this really was FTL's logic.
+						locY = Math.max( locY, 30 );
+					}
 
-				boolean isolation = calculateIsolation( genMap );
-				if ( isolation  ) {
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Re-rolling sector map because attempt #%d has isolated beacons ", generations ) );
-					genMap.setGeneratedBeaconList( null );
-					// return null;
-				}
-				else {
-					break;  // Success!
+					int b = genMap.addBeacon( c, r, locX, locY, throbTicks );
+					tracer.beaconPlaced( b, c, r, locX, locY );
+					skipInclusiveCount++;
 				}
 			}
 
-			if ( genMap.getGeneratedBeaconList() == null ) {
-				throw new IllegalStateException( String.format( "No valid map was produced after %d attempts!?", generations ) );
-			}
+			generations++;
 
-			RandomEvent.setSectorId(sectorId);
-			RandomEvent.setSectorNumber(sectorNumber);
-			RandomEvent.setDifficulty(difficulty);
-			RandomEvent.setDlc(dlcEnabled);
-			RandomEvent.resetUniqueSectors();
-			RandomEvent.setUniqueNames(uniqueCrewNames);
+			boolean isolation = calculateIsolation( genMap );
+			if ( isolation  ) {
+				tracer.reroll( "isolated beacons", generations );
+				genMap.clearBeacons();
+				// return null;
+			}
+			else {
+				valid = true;
+				break;  // Success!
+			}
+		}
 
-			// List<GeneratedBeacon> genBeaconList = genMap.getGeneratedBeaconList();
+		if ( !valid ) {
+			throw new IllegalStateException( String.format( "No valid map was produced after %d attempts!?", generations ) );
+		}
+	}
 
-			SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
-			if (tmpDesc == null) {
-				tmpDesc = DataManager.getInstance().getSectorDescriptionById( "STANDARD_SPACE" );
-			}
+	/**
+	 * Picks the start and finish beacons, and resolves every beacon's event.
+	 *
+	 * In sector 8, this also places the flagship. If no suitable flagship
+	 * beacon exists, the layout must be regenerated (continuing with the
+	 * same RNG), then populated again.
+	 *
+	 * Any events from an earlier call are cleared first.
+	 *
+	 * @return true if the map is finished, false if a new layout is needed
+	 */
+	public boolean populateSectorMap( RandRNG rng, GeneratedSectorMap genMap ) {
+		int n;
 
-			/* Generate starting beacon position: 0x4e7b95 */
-			int startingBeacon = rng.rand() & 3;
+		genMap.clearBeaconEvents();
 
-			/* Generate starting beacon event: 0x4e7f57 */
-			String startEvent = tmpDesc.getStartEvent();
-			if (startEvent == null) {
-				startEvent = "START_BEACON";
-			}
+		RandomEvent randomEvent = new RandomEvent( sectorId, sectorNumber, difficulty, dlcEnabled, uniqueCrewNames );
+		randomEvent.setTracer( tracer );
 
-			genMap.startBeacon = startingBeacon;
-			List<GeneratedBeacon> genBeaconList = genMap.getGeneratedBeaconList();
-			log.debug( String.format( "Start at beacon %d (%d,%d)", genMap.startBeacon, genBeaconList.get(startingBeacon).col, genBeaconList.get(startingBeacon).row ) );
-			genBeaconList.get(startingBeacon).event = RandomEvent.loadEventId(startEvent, rng);
+		SectorDescription tmpDesc = DataManager.getInstance().getSectorDescriptionById( sectorId );
+		if (tmpDesc == null) {
+			tmpDesc = DataManager.getInstance().getSectorDescriptionById( "STANDARD_SPACE" );
+		}
 
-			/* Generate ending beacon position: two rands at 0x4e8032 and 0x4e804d */
-			int r, c;
-			GeneratedBeacon endingGb = null;
+		/* Generate starting beacon position: 0x4e7b95 */
+		int startingBeacon = rand(rng, "start_beacon") & 3;
 
-			/* We have some contraints on the distance between start and end
-			 * beacons. Effectively, it is only relevent for sector 8.
-			 */
-			int minD = 4;
-			int maxD = 100;
+		/* Generate starting beacon event: 0x4e7f57 */
+		String startEvent = tmpDesc.getStartEvent();
+		if (startEvent == null) {
+			startEvent = "START_BEACON";
+		}
 
-			if ( sectorNumber == 7 ) {
-				if ( difficulty == Difficulty.HARD ) {
-					minD = 4;
-					maxD = 7;
-				}
-				else {
-					minD = 3;
-					maxD = 5;
-				}
+		genMap.startBeacon = startingBeacon;
+		int beaconCount = genMap.getBeaconCount();
+		tracer.beaconRole("start", startingBeacon);
+		loadBeaconEvent(genMap, startingBeacon, randomEvent, startEvent, rng);
+
+		/* Generate ending beacon position: two rands at 0x4e8032 and 0x4e804d */
+		int r, c;
+		int endingB = -1;
+
+		/* We have some contraints on the distance between start and end
+		 * beacons. Effectively, it is only relevent for sector 8.
+		 */
+		int minD = 4;
+		int maxD = 100;
+
+		if ( sectorNumber == 7 ) {
+			if ( difficulty == Difficulty.HARD ) {
+				minD = 4;
+				maxD = 7;
 			}
+			else {
+				minD = 3;
+				maxD = 5;
+			}
+		}
 
-			int tt = 0;
-			for (; tt<16; tt++) {
+		int tt = 0;
+		for (; tt<16; tt++) {
 
-				do {
-					r = rng.rand() & 3;
-					c = (rng.rand() & 1) + 4;
-					if ( sectorNumber == 7 ) {
-						if ( difficulty == Difficulty.HARD ) {
-							c = (rng.rand() & 1) + 3;
-						}
-						else {
-							c = (rng.rand() & 1) + 2;
-						}
+			do {
+				r = rand(rng, "finish_row") & 3;
+				c = (rand(rng, "finish_col") & 1) + 4;
+				if ( sectorNumber == 7 ) {
+					if ( difficulty == Difficulty.HARD ) {
+						c = (rand(rng, "finish_col") & 1) + 3;
 					}
-
-					/* Check that the position has a beacon in it, otherwise loop */
-					for (int g = genBeaconList.size() - 1; g >= 0; g--) {
-						GeneratedBeacon gb = genBeaconList.get(g);
-						Point gridLoc = gb.getGridPosition();
-						if ((gridLoc.x == c) && (gridLoc.y == r)) {
-							endingGb = gb;
-							genMap.endBeacon = g;
-
-							/* Compute distance table */
-							minDistanceMap(genMap, 20);
-							log.debug( String.format( "Beacon dist is %d", endingGb.distance ) );
-							break;
-						}
+					else {
+						c = (rand(rng, "finish_col") & 1) + 2;
 					}
-				} while (endingGb == null);
+				}
+
+				/* Check that the position has a beacon in it, otherwise loop */
+				int g = genMap.findBeacon(c, r);
+				if (g != -1) {
+					endingB = g;
+					genMap.endBeacon = g;
 
-				if (((endingGb.distance+1) > minD) && ((endingGb.distance+1) < maxD)) {
-					break;
+					/* Compute distance table */
+					minDistanceMap(genMap, 20);
+					tracer.value("finish_distance", genMap.getBeaconDistance(endingB));
 				}
+			} while (endingB == -1);
+
+			int endingDist = genMap.getBeaconDistance(endingB);
+			if (((endingDist+1) > minD) && ((endingDist+1) < maxD)) {
+				break;
 			}
+		}
 
-			if ((endingGb == null) || (tt == 16))
-				break outer;
+		if ((endingB == -1) || (tt == 16))
+			return true;  // Give up on the finish beacon, and on events.
 
-			log.debug( String.format( "End at beacon %d (%d,%d)", genMap.endBeacon, endingGb.col, endingGb.row ) );
+		tracer.beaconRole("finish", endingB);
 
-			/* If no path of four jumps possible, return */
-			// if (minDistanceMap(genMap, 4) == -1)
-			// 	return null;
-			// minDistanceMap(genMap, 10);
+		/* If no path of four jumps possible, return */
+		// if (minDistanceMap(genMap, 4) == -1)
+		// 	return null;
+		// minDistanceMap(genMap, 10);
 
-			/* Generate ending beacon event ("FINISH_BEACON") */
-			endingGb.event = RandomEvent.loadEventId("FINISH_BEACON", rng);
+		/* Generate ending beacon event ("FINISH_BEACON") */
+		loadBeaconEvent(genMap, endingB, randomEvent, "FINISH_BEACON", rng);
 
-			/* Place NEBULA beacons first */
-			List<SectorDescription.EventDistribution> eventDistribution = tmpDesc.getEventDistributions();
+		/* Place NEBULA beacons first */
+		List<SectorDescription.EventDistribution> eventDistribution = tmpDesc.getEventDistributions();
 
-			/* Build the list of all nebula beacons */
-			List<String> nebulaEvents = new ArrayList<String>();
+		/* Build the list of all nebula beacons */
+		List<String> nebulaEvents = new ArrayList<String>();
 
-			for (SectorDescription.EventDistribution ed : eventDistribution) {
-				if (ed.name.startsWith("NEBULA")) {
-					int m = (rng.rand() % (ed.max + 1 - ed.min)) + ed.min;
-					if (log.isDebugEnabled())
-						log.debug( String.format( "min %d max %d value %d", ed.min, ed.max, m ) );
+		for (SectorDescription.EventDistribution ed : eventDistribution) {
+			if (ed.name.startsWith("NEBULA")) {
+				int m = (rand(rng, "nebula_count") % (ed.max + 1 - ed.min)) + ed.min;
+				tracer.value("nebula_count", m);
 
-					for (int i=0; i<m; i++)
-						nebulaEvents.add(ed.name);
-				}
+				for (int i=0; i<m; i++)
+					nebulaEvents.add(ed.name);
 			}
+		}
 
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Generate %d nebula events", nebulaEvents.size() ) );
-
-			if (!nebulaEvents.isEmpty()) {
-
-				/* Build a list of empty beacons */
-				List<EmptyBeacon> emptyBeacons = new ArrayList<EmptyBeacon>();
+		tracer.value("nebula_events", nebulaEvents.size());
 
-				for (int bb = 0; bb < genBeaconList.size(); bb++) {
-					GeneratedBeacon curBeacon = genBeaconList.get(bb);
+		if (!nebulaEvents.isEmpty()) {
 
-					EmptyBeacon e = new EmptyBeacon();
-					e.id = bb;
-					e.x = curBeacon.x;
-					e.y = curBeacon.y;
-					e.event = curBeacon.event;
+			/* Build a list of empty beacons */
+			List<EmptyBeacon> emptyBeacons = new ArrayList<EmptyBeacon>();
 
-					emptyBeacons.add(e);
-				}
+			for (int bb = 0; bb < beaconCount; bb++) {
+				EmptyBeacon e = new EmptyBeacon();
+				e.id = bb;
+				e.x = genMap.getBeaconX(bb);
+				e.y = genMap.getBeaconY(bb);
+				e.eventIndex = genMap.getBeaconEventIndex(bb);
+				e.eventId = genMap.getBeaconEventId(bb);
 
-				/* Hardcoded list of nebula models */
-				List<Integer> nebulaModelListW;
-				List<Integer> nebulaModelListH;
+				emptyBeacons.add(e);
+			}
 
-				if (nebulaEvents.size() < 6) {
-					nebulaModelListW = Arrays.asList(119, 67, 89, 117);
-					nebulaModelListH = Arrays.asList(63, 110, 67, 108);
-				}
-				else {
-					nebulaModelListW = Arrays.asList(250, 200, 250);
-					nebulaModelListH = Arrays.asList(234, 250, 200);
-				}
+			/* Hardcoded list of nebula models */
+			List<Integer> nebulaModelListW;
+			List<Integer> nebulaModelListH;
 
-				/* Print nebula nebula models:
-				break *0x4d6b55
-				commands
-				silent
-				printf "rect x %d\n",*(int*)($rsp+0x40)
-				printf "rect y %d\n",*(int*)($rsp+0x44)
-				printf "rect w %d\n",*(int*)($rsp+0x38)
-				printf "rect h %d\n",*(int*)($rsp+0x3c)
-				cont
-				end
-				 */
-
-				/* Choose a random nebula model */
-				n = rng.rand() % nebulaModelListW.size();
-
-				/* If less than 4 non-nebula beacons, remove random nebulas */
-				while ((emptyBeacons.size() - nebulaEvents.size()) < 4) {
-					int k = rng.rand() % nebulaEvents.size();
-					nebulaEvents.remove(k);
-				}
-
-				/* Choose a random beacon */
-				int bId = rng.rand() % emptyBeacons.size();
-				EmptyBeacon beacon = emptyBeacons.get(bId);
+			if (nebulaEvents.size() < 6) {
+				nebulaModelListW = Arrays.asList(119, 67, 89, 117);
+				nebulaModelListH = Arrays.asList(63, 110, 67, 108);
+			}
+			else {
+				nebulaModelListW = Arrays.asList(250, 200, 250);
+				nebulaModelListH = Arrays.asList(234, 250, 200);
+			}
 
-				if (log.isDebugEnabled())
-					log.debug( String.format( "Starting nebula beacon: %d ", bId ) );
+			/* Print nebula nebula models:
+			break *0x4d6b55
+			commands
+			silent
+			printf "rect x %d\n",*(int*)($rsp+0x40)
+			printf "rect y %d\n",*(int*)($rsp+0x44)
+			printf "rect w %d\n",*(int*)($rsp+0x38)
+			printf "rect h %d\n",*(int*)($rsp+0x3c)
+			cont
+			end
+			 */
 
-				/* The nebula model is centered on the chosen beacon */
-				int modelW = nebulaModelListW.get(n);
-				int modelH = nebulaModelListH.get(n);
-				int modelX = beacon.x - modelW / 2;
-				int modelY = beacon.y - modelH / 2;
+			/* Choose a random nebula model */
+			n = rand(rng, "nebula_model") % nebulaModelListW.size();
 
+			/* If less than 4 non-nebula beacons, remove random nebulas */
+			while ((emptyBeacons.size() - nebulaEvents.size()) < 4) {
+				int k = rand(rng, "nebula_drop") % nebulaEvents.size();
+				nebulaEvents.remove(k);
+			}
 
-				/* Number of failed attemps */
-				int failedAttempts = 0;
+			/* Choose a random beacon */
+			int bId = rand(rng, "nebula_start") % emptyBeacons.size();
+			EmptyBeacon beacon = emptyBeacons.get(bId);
 
-				/* Build a list of empty beacons */
-				List<NebulaRect> nebulaRects = new ArrayList<NebulaRect>();
+			/* The nebula model is centered on the chosen beacon */
+			int modelW = nebulaModelListW.get(n);
+			int modelH = nebulaModelListH.get(n);
+			int modelX = beacon.x - modelW / 2;
+			int modelY = beacon.y - modelH / 2;
 
-				do {
-					boolean oneNewBeacon = false;
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Nebula rect is: (%d, %d, %d, %d) ", modelX, modelY, modelW, modelH ) );
 
-					/* Iterate over all empty beacons */
-					int be = 0;
-					while (be < emptyBeacons.size()) {
+			/* Number of failed attemps */
+			int failedAttempts = 0;
 
-						EmptyBeacon curBeacon = emptyBeacons.get(be);
+			/* Build a list of empty beacons */
+			List<NebulaRect> nebulaRects = new ArrayList<NebulaRect>();
 
-						/* Check if the beacon is inside the nebula model */
-						if ( (curBeacon.x > (modelX + 5)) &&
-							 (curBeacon.x < (modelX + modelW - 5)) &&
-						     (curBeacon.y > (modelY + 5)) &&
-							 (curBeacon.y < (modelY + modelH - 5))) {
+			do {
+				boolean oneNewBeacon = false;
+				tracer.value("nebula_rect_x", modelX);
+				tracer.value("nebula_rect_y", modelY);
 
-							/* Check the beacon event */
-							if (curBeacon.event == null) {
+				/* Iterate over all empty beacons */
+				int be = 0;
+				while (be < emptyBeacons.size()) {
 
-								/* No event in that beacon, load one nebula event */
+					EmptyBeacon curBeacon = emptyBeacons.get(be);
 
-								/* Default nebula event */
-								String nebulaEvent = "NEBULA";
+					/* Check if the beacon is inside the nebula model */
+					if ( (curBeacon.x > (modelX + 5)) &&
+						 (curBeacon.x < (modelX + modelW - 5)) &&
+					     (curBeacon.y > (modelY + 5)) &&
+						 (curBeacon.y < (modelY + modelH - 5))) {
 
-								if (!nebulaEvents.isEmpty()) {
-									/* Choose a random nebula from the list */
-				 					int ne = rng.rand() % nebulaEvents.size();
+						/* Check the beacon event */
+						if (curBeacon.eventIndex == -1) {
 
-									nebulaEvent = nebulaEvents.get(ne);
-									nebulaEvents.remove(ne);
-								}
+							/* No event in that beacon, load one nebula event */
 
-								/* Load the nebula event */
-								genBeaconList.get(curBeacon.id).event = RandomEvent.loadEventId(nebulaEvent, rng);
+							/* Default nebula event */
+							String nebulaEvent = "NEBULA";
 
-								if (log.isDebugEnabled())
-									log.debug( String.format( "Nebula event at beacon %d (%d,%d)", curBeacon.id, curBeacon.x, curBeacon.y ) );
-							}
+							if (!nebulaEvents.isEmpty()) {
+								/* Choose a random nebula from the list */
+			 					int ne = rand(rng, "nebula_event") % nebulaEvents.size();
 
-							/* If finish beacon, load the FINISH_BEACON_NEBULA event instead */
-							else if (curBeacon.event.getId().equals("FINISH_BEACON")) {
-								genBeaconList.get(curBeacon.id).event = RandomEvent.loadEventId("FINISH_BEACON_NEBULA", rng);
-								if (log.isDebugEnabled())
-									log.debug( String.format( "Nebula finish event at beacon %d (%d,%d)", curBeacon.id, curBeacon.x, curBeacon.y ) );
+								nebulaEvent = nebulaEvents.get(ne);
+								nebulaEvents.remove(ne);
 							}
 
-							/* Remove empty beacon from list */
-							emptyBeacons.remove(be);
-
-							/* We generated at least one new beacon */
-							oneNewBeacon = true;
+							/* Load the nebula event */
+							loadBeaconEvent(genMap, curBeacon.id, randomEvent, nebulaEvent, rng);
 						}
-						else {
-							/* Next beacon */
-							be++;
+
+						/* If finish beacon, load the FINISH_BEACON_NEBULA event instead */
+						else if ("FINISH_BEACON".equals(curBeacon.eventId)) {
+							loadBeaconEvent(genMap, curBeacon.id, randomEvent, "FINISH_BEACON_NEBULA", rng);
 						}
-					}
 
-					/* Update the number of failed attemps */
-					if (!oneNewBeacon)
-						failedAttempts++;
-					else {
-						/* Insert the nebula */
-						NebulaRect nr = new NebulaRect();
-						nr.x = modelX;
-						nr.y = modelY;
-						nr.w = modelW;
-						nr.h = modelH;
-
-						nebulaRects.add(nr);
-					}
+						/* Remove empty beacon from list */
+						emptyBeacons.remove(be);
 
-					if (failedAttempts < 0x15) {
-						/* Pick an existing nebula rect */
-						n = rng.rand() % nebulaRects.size();
-						NebulaRect oldnr = nebulaRects.get(n);
-
-						/* Pick a new nebula model */
-						n = rng.rand() % nebulaModelListW.size();
-
-						/* Build the new nebula rect so that it intersects with
-						 * the chosen existing nebula
-						 */
-						modelW = nebulaModelListW.get(n);
-						modelH = nebulaModelListH.get(n);
-						modelX = oldnr.x - modelW + rng.rand() % (oldnr.w + modelW);
-						modelY = oldnr.y - modelH + rng.rand() % (oldnr.h + modelH);
+						/* We generated at least one new beacon */
+						oneNewBeacon = true;
 					}
 					else {
-						/* Place the new nebula around an empty beacon,
-						 * keep the current model.
-						 */
-						bId = rng.rand() % emptyBeacons.size();
-						beacon = emptyBeacons.get(bId);
-
-						modelX = beacon.x - modelW / 2;
-						modelY = beacon.y - modelH / 2;
-
-						failedAttempts = 0;
+						/* Next beacon */
+						be++;
 					}
 				}
-				while (!nebulaEvents.isEmpty());
-			}
 
-			/* Build the other beacons */
+				/* Update the number of failed attemps */
+				if (!oneNewBeacon)
+					failedAttempts++;
+				else {
+					/* Insert the nebula */
+					NebulaRect nr = new NebulaRect();
+					nr.x = modelX;
+					nr.y = modelY;
+					nr.w = modelW;
+					nr.h = modelH;
+
+					nebulaRects.add(nr);
+				}
 
-			/* Build a list of beacon ids */
-			List<Integer> beaconIds = new ArrayList<Integer>();
-			for (int bb = 0; bb < genBeaconList.size(); bb++) {
-				beaconIds.add(bb);
-			}
+				if (failedAttempts < 0x15) {
+					/* Pick an existing nebula rect */
+					n = rand(rng, "nebula_rect") % nebulaRects.size();
+					NebulaRect oldnr = nebulaRects.get(n);
+
+					/* Pick a new nebula model */
+					n = rand(rng, "nebula_model") % nebulaModelListW.size();
+
+					/* Build the new nebula rect so that it intersects with
+					 * the chosen existing nebula
+					 */
+					modelW = nebulaModelListW.get(n);
+					modelH = nebulaModelListH.get(n);
+					modelX = oldnr.x - modelW + rand(rng, "nebula_x") % (oldnr.w + modelW);
+					modelY = oldnr.y - modelH + rand(rng, "nebula_y") % (oldnr.h + modelH);
+				}
+				else {
+					/* Place the new nebula around an empty beacon,
+					 * keep the current model.
+					 */
+					bId = rand(rng, "nebula_beacon") % emptyBeacons.size();
+					beacon = emptyBeacons.get(bId);
 
-			for (SectorDescription.EventDistribution ed : eventDistribution) {
-				/* Skip nebulas */
-				if (ed.name.startsWith("NEBULA"))
-					continue;
+					modelX = beacon.x - modelW / 2;
+					modelY = beacon.y - modelH / 2;
 
-				/* Pick a random number of events from the distribution */
-				int m = 0;
-				if (ed.max != 0) {
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Generate the number of events of distribution %s", ed.name ) );
-					m = (rng.rand() % (ed.max + 1 - ed.min)) + ed.min;
+					failedAttempts = 0;
 				}
+			}
+			while (!nebulaEvents.isEmpty());
+		}
 
-				int i = 0;
-				while ((i<m) && (!beaconIds.isEmpty())) {
-					/* Choose a random empty beacon */
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Choose the beacon to apply event" ) );
-					int b = rng.rand() % beaconIds.size();
-					GeneratedBeacon gb = genBeaconList.get(beaconIds.get(b));
-
-					/* Check if the beacon is empty */
-					if (gb.event == null) {
-						if (log.isDebugEnabled())
-							log.debug( String.format( "Generate event %s for beacon %d", ed.name, beaconIds.get(b) ) );
-						Point p = gb.getLocation();
-						if (log.isDebugEnabled())
-							log.debug( String.format( "Coords %d - %d", p.x, p.y ) );
-						gb.event = RandomEvent.loadEventId(ed.name, rng);
-						i++;
-					}
+		/* Build the other beacons */
 
-					/* Remove the beacon id from the list */
-					beaconIds.remove(b);
-				}
+		/* Build a list of beacon ids */
+		List<Integer> beaconIds = new ArrayList<Integer>();
+		for (int bb = 0; bb < beaconCount; bb++) {
+			beaconIds.add(bb);
+		}
 
-				if (beaconIds.isEmpty())
-					break;
+		for (SectorDescription.EventDistribution ed : eventDistribution) {
+			/* Skip nebulas */
+			if (ed.name.startsWith("NEBULA"))
+				continue;
 
+			/* Pick a random number of events from the distribution */
+			int m = 0;
+			if (ed.max != 0) {
+				m = (rand(rng, "event_count") % (ed.max + 1 - ed.min)) + ed.min;
 			}
 
-			/* Fill the remaining beacons with NEUTRAL */
-			for (int b = 0; b<beaconIds.size(); b++) {
-				GeneratedBeacon gb = genBeaconList.get(beaconIds.get(b));
+			int i = 0;
+			while ((i<m) && (!beaconIds.isEmpty())) {
+				/* Choose a random empty beacon */
+				int b = rand(rng, "event_beacon") % beaconIds.size();
+				int gb = beaconIds.get(b);
 
 				/* Check if the beacon is empty */
-				if (gb.event == null) {
-					if (log.isDebugEnabled())
-						log.debug( String.format( "Generate event NEUTRAL for beacon %d", beaconIds.get(b) ) );
-					gb.event = RandomEvent.loadEventId("NEUTRAL", rng);
+				if (genMap.getBeaconEventIndex(gb) == -1) {
+					loadBeaconEvent(genMap, gb, randomEvent, ed.name, rng);
+					i++;
 				}
+
+				/* Remove the beacon id from the list */
+				beaconIds.remove(b);
 			}
 
-			/* Sector 8 */
-			if (sectorNumber == 7) {
-				/* Pick a random beacon */
-				int y = rng.rand() % genBeaconList.size();
+			if (beaconIds.isEmpty())
+				break;
 
-				/* Save starting position */
-				int sb = genMap.startBeacon;
+		}
 
-				genMap.flagshipBeacon = -1;
+		/* Fill the remaining beacons with NEUTRAL */
+		for (int b = 0; b<beaconIds.size(); b++) {
+			int gb = beaconIds.get(b);
 
-				/* Choose flagship coords so that there are between 4 and 6 beacons to base */
-				while (tt < 15) { // Yes, the same tt used for finish beacon
-					/* Pick coordinates */
-					r = rng.rand() & 3;
-					c = (rng.rand() & 1) + 4;
+			/* Check if the beacon is empty */
+			if (genMap.getBeaconEventIndex(gb) == -1) {
+				loadBeaconEvent(genMap, gb, randomEvent, "NEUTRAL", rng);
+			}
+		}
 
-					log.debug( String.format( "Pick flasghip (%d, %d)", c, r ) );
+		/* Sector 8 */
+		if (sectorNumber == 7) {
+			/* Pick a random beacon */
+			int y = rand(rng, "flagship_unused") % beaconCount;
 
-					genMap.startBeacon = -1;
+			/* Save starting position */
+			int sb = genMap.startBeacon;
 
-					int gi = 0;
-					for (; gi < genBeaconList.size(); gi++) {
-						GeneratedBeacon gb = genBeaconList.get(gi);
-						if ((gb.col == c) && (gb.row == r)) {
-							genMap.startBeacon = gi;
-							break;
-						}
-					}
+			genMap.flagshipBeacon = -1;
 
-					if (genMap.startBeacon == -1)
-						continue;
+			/* Choose flagship coords so that there are between 4 and 6 beacons to base */
+			while (tt < 15) { // Yes, the same tt used for finish beacon
+				/* Pick coordinates */
+				r = rand(rng, "flagship_row") & 3;
+				c = (rand(rng, "flagship_col") & 1) + 4;
 
-					/* Compute distance to base */
-					int d = minDistanceMap(genMap, 6);
+				genMap.startBeacon = -1;
 
-					log.debug( String.format( "Distance to base: %d", d ) );
+				int gi = genMap.findBeacon(c, r);
+				genMap.startBeacon = gi;
 
-					if ((d >= 3) && (d <= 5)) {
-						genMap.startBeacon = sb;
-						genMap.flagshipBeacon = gi;
-						log.debug( String.format( "Flagship is: %d", gi ) );
-						return genMap;
-					}
-					tt++;
-				}
-			}
-			else {
-				return genMap;
-			}
+				if (genMap.startBeacon == -1)
+					continue;
+
+				/* Compute distance to base */
+				int d = minDistanceMap(genMap, 6);
 
+				tracer.value("flagship_distance", d);
+
+				if ((d >= 3) && (d <= 5)) {
+					genMap.startBeacon = sb;
+					genMap.flagshipBeacon = gi;
+					tracer.beaconRole("flagship", gi);
+					return true;
+				}
+				tt++;
 			}
+		}
+		else {
+			return true;
+		}
 
-			// uniqueCrewNames.clear(); // TODO: should be kept between sectors?
+		/* No flagship position worked, the layout must be regenerated */
+		return false;
+	}
 
-			return genMap;
+	/**
+	 * Loads or skips a beacon's event, depending on resolveEvents.
+	 */
+	private void loadBeaconEvent( GeneratedSectorMap genMap, int b, RandomEvent randomEvent, String eventId, RandRNG rng ) {
+		if ( resolveEvents ) {
+			genMap.setBeaconEvent( b, randomEvent.loadEventId( eventId, rng ) );
 		}
 		else {
-			throw new UnsupportedOperationException( String.format( "Random sector maps for fileFormat (%d) have not been implemented", fileFormat ) );
+			genMap.setBeaconEventId( b, randomEvent.skipEventId( eventId, rng ) );
 		}
+		tracer.eventChosen( b, eventId, genMap.getBeaconEventId( b ) );
+	}
+
+	private int rand( RandRNG rng, String tag ) {
+		int n = rng.rand();
+		tracer.randConsumed( tag, n );
+		return n;
 	}
 
 	/**
-	 * Returns the most isolated beacon's distance to its nearest neighbor.
+	 * Returns true if some beacons can't be reached from the others.
 	 *
 	 * FTL 1.5.4 introduced a check to re-generate invalid maps. The changelog
 	 * said, "Maps will no longer have disconnected beacons, everything will be
 	 * accessible."
 	 *
-	 * Try using a fast code, because this will be performed often.
+	 * This runs for every re-rolled layout, so it uses the map's BeaconGraph.
 	 */
 	public boolean calculateIsolation( GeneratedSectorMap genMap ) {
-		List<GeneratedBeacon> beaconList = genMap.getGeneratedBeaconList();
-
-		/* Reset all distances */
-		for (GeneratedBeacon curBec : beaconList) {
-			curBec.distance = -1;
-		}
-
-		GeneratedBeacon startBeacon = beaconList.get(0);
-
-		startBeacon.distance = 0;
-
-		boolean oneNewBeacon = true;
-		for (int currentDist = 0; oneNewBeacon; currentDist++) {
-			oneNewBeacon = false;
-
-			for (int bd = 0; bd < beaconList.size(); bd++) {
-				GeneratedBeacon curBec = beaconList.get(bd);
-
-				if (curBec.distance != currentDist)
-					continue;
-
-				int curRow = curBec.row;
-				int curCol = curBec.col;
-
-				for (int gb = 0; gb < beaconList.size(); gb++) {
-					if (bd == gb)
-						continue;
-
-					GeneratedBeacon otherBec = beaconList.get(gb);
-
-					/* Check if beacon already processed */
-					if (otherBec.distance != -1)
-						continue;
-
-					/* Check if the two beacons are connected */
-					if (Math.abs(otherBec.row - curRow) > 1)
-						continue;
-
-					if (Math.abs(otherBec.col - curCol) > 1)
-						continue;
-
-					if (distance(curBec, otherBec) >= ISOLATION_THRESHOLD)
-						continue;
-
-					otherBec.distance = currentDist + 1;
-					oneNewBeacon = true;
-				}
-			}
-		}
-
-		/* Check if all distances are not -1 */
-		for (GeneratedBeacon curBec : beaconList) {
-			if (curBec.distance == -1)
-				return true;
-		}
-
-		return false;
+		return genMap.getBeaconGraph().hasIsolatedBeacon();
 	}
 
 	/**
 	 * Computes the distance of each beacon to the start beacon, if on a path
 	 * of max upperBound jumps from start to finish.
 	 * If no path of upperBound jumps, the distance of the finish beacon will be -1
+	 *
+	 * @see BeaconGraph#fillBoundedDistances(int, int, int, int[])
 	 */
 	public int minDistanceMap(GeneratedSectorMap map, int upperBound) {
-		List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
+		int result = map.getBeaconGraph().fillBoundedDistances( map.startBeacon, map.endBeacon, upperBound, distanceBuf );
 
-		/* Reset all distances */
-		for (GeneratedBeacon curBec : beaconList) {
-			curBec.distance = -1;
+		for (int b = 0; b < map.getBeaconCount(); b++) {
+			map.setBeaconDistance(b, distanceBuf[b]);
 		}
 
-		GeneratedBeacon startBeacon = beaconList.get(map.startBeacon);
-		GeneratedBeacon endBeacon = beaconList.get(map.endBeacon);
-
-		if ((upperBound < 5) && (endBeacon.col == 5))
-			return -1;
-
-		if (distance(startBeacon, endBeacon) > (upperBound * ISOLATION_THRESHOLD))
-			return -1;
-
-		startBeacon.distance = 0;
-
-		for (int currentDist = 0; currentDist < upperBound; currentDist++) {
-			for (int bd = 0; bd < beaconList.size(); bd++) {
-				GeneratedBeacon curBec = beaconList.get(bd);
-
-				if (curBec.distance != currentDist)
-					continue;
-
-				int curRow = curBec.row;
-				int curCol = curBec.col;
-
-				for (int gb = 0; gb < beaconList.size(); gb++) {
-					if (bd == gb)
-						continue;
-
-					GeneratedBeacon otherBec = beaconList.get(gb);
-
-					/* Check if beacon already processed */
-					if (otherBec.distance != -1)
-						continue;
-
-					/* Check if the two beacons are connected */
-					if (Math.abs(otherBec.row - curRow) > 1)
-						continue;
-
-					if (Math.abs(otherBec.col - curCol) > 1)
-						continue;
-
-					if (distance(curBec, otherBec) >= ISOLATION_THRESHOLD)
-						continue;
-
-					/* Check if final beacon */
-					if (gb == map.endBeacon) {
-						otherBec.distance = currentDist + 1;
-						return currentDist + 1;
-					}
-
-					/* Some more pruning to skip beacons which are too far */
-					if (Math.abs(otherBec.col - endBeacon.col) > (upperBound - (currentDist+1)))
-						continue;
-
-					if (Math.abs(otherBec.row - endBeacon.row) > (upperBound - (currentDist+1)))
-						continue;
-
-					if (distance(otherBec, endBeacon) < ((upperBound - (currentDist+1))*ISOLATION_THRESHOLD)) {
-						otherBec.distance = currentDist + 1;
-					}
-				}
-			}
-		}
-
-		return -1;
-	}
-
-	private double distance(GeneratedBeacon b1, GeneratedBeacon b2) {
-		Point p1 = b1.getLocation();
-		Point p2 = b2.getLocation();
-		return Math.hypot( p1.x - p2.x, p1.y - p2.y );
+		return result;
 	}
 
 }
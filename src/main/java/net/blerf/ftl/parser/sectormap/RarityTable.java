@@ -0,0 +1,210 @@
+package net.blerf.ftl.parser.sectormap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.blerf.ftl.parser.DataManager;
+import net.blerf.ftl.xml.AugBlueprint;
+import net.blerf.ftl.xml.CrewBlueprint;
+import net.blerf.ftl.xml.DroneBlueprint;
+import net.blerf.ftl.xml.SectorDescription;
+import net.blerf.ftl.xml.WeaponBlueprint;
+
+
+/**
+ * Weighted item picks, the way FTL chooses a random crew race, weapon,
+ * augment or drone.
+ *
+ * Each item with a non-zero rarity gets a weight of (6 - rarity), after
+ * applying the sector's overrides. Items are stored as a 1-based binary
+ * tree in blueprint order: node j's children are 2j and 2j+1, and each node
+ * keeps its own weight plus the total weight under it.
+ *
+ * Tables hold the blueprints themselves, so a pick needs no id lookup.
+ * They're immutable, so they're built once per sector and DLC setting, then
+ * shared by every thread.
+ *
+ * @see RandomEvent
+ */
+final class RarityTable<T> {
+
+	private static final int CREW = 0;
+	private static final int WEAPON = 1;
+	private static final int AUGMENT = 2;
+	private static final int DRONE = 3;
+
+	private static volatile TableCache cache = null;
+
+	private final Object[] items;
+	private final int[] weights;
+	private final int[] totals;
+
+
+	private RarityTable( List<Object> itemList, List<Integer> weightList ) {
+		int n = itemList.size();
+		items = new Object[n+1];
+		weights = new int[n+1];
+		totals = new int[n+1];
+
+		for ( int j=1; j <= n; j++ ) {
+			items[j] = itemList.get( j-1 );
+			weights[j] = weightList.get( j-1 );
+			totals[j] = weights[j];
+		}
+		for ( int j=n; j > 1; j-- ) {
+			totals[j>>1] += totals[j];
+		}
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static RarityTable<CrewBlueprint> getCrewTable( String sectorId, boolean dlcEnabled ) {
+		return (RarityTable<CrewBlueprint>)get( sectorId, dlcEnabled, CREW );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static RarityTable<WeaponBlueprint> getWeaponTable( String sectorId, boolean dlcEnabled ) {
+		return (RarityTable<WeaponBlueprint>)get( sectorId, dlcEnabled, WEAPON );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static RarityTable<AugBlueprint> getAugmentTable( String sectorId, boolean dlcEnabled ) {
+		return (RarityTable<AugBlueprint>)get( sectorId, dlcEnabled, AUGMENT );
+	}
+
+	@SuppressWarnings( "unchecked" )
+	public static RarityTable<DroneBlueprint> getDroneTable( String sectorId, boolean dlcEnabled ) {
+		return (RarityTable<DroneBlueprint>)get( sectorId, dlcEnabled, DRONE );
+	}
+
+	/**
+	 * Returns a table of a sector, building them all on first use.
+	 *
+	 * Tables are cached for as long as the DataManager instance stays the
+	 * same.
+	 */
+	private static RarityTable<?> get( String sectorId, boolean dlcEnabled, int kind ) {
+		DataManager dataManager = DataManager.getInstance();
+
+		// A thread still holding an older cache only ever adds to that one.
+		TableCache c = cache;
+		if ( c == null || c.source != dataManager ) {
+			synchronized ( RarityTable.class ) {
+				c = cache;
+				if ( c == null || c.source != dataManager ) {
+					c = new TableCache( dataManager );
+					cache = c;
+				}
+			}
+		}
+
+		String key = sectorId + (dlcEnabled ? "|dlc" : "|base");
+		RarityTable<?>[] tables = c.tables.get( key );
+		if ( tables == null ) {
+			tables = buildTables( dataManager, sectorId, dlcEnabled );
+			RarityTable<?>[] prev = c.tables.putIfAbsent( key, tables );
+			if ( prev != null ) tables = prev;
+		}
+		return tables[kind];
+	}
+
+	private static RarityTable<?>[] buildTables( DataManager dataManager, String sectorId, boolean dlcEnabled ) {
+		/* Sector data can overwrite rarities, the last entry wins */
+		Map<String, Integer> overrides = new HashMap<String, Integer>();
+		SectorDescription desc = dataManager.getSectorDescriptionById( sectorId );
+		SectorDescription.RarityList rarityList = desc.getRarityList();
+		if ( rarityList != null && rarityList.blueprints != null ) {
+			for ( SectorDescription.BlueprintRarity b : rarityList.blueprints ) {
+				overrides.put( b.id, b.rarity );
+			}
+		}
+
+		RarityTable<?>[] tables = new RarityTable<?>[4];
+		List<Object> itemList = new ArrayList<Object>();
+		List<Integer> weightList = new ArrayList<Integer>();
+
+		for ( Map.Entry<String, CrewBlueprint> entry : dataManager.getCrews( dlcEnabled ).entrySet() ) {
+			addItem( itemList, weightList, overrides, entry.getKey(), entry.getValue(), entry.getValue().getRarity() );
+		}
+		tables[CREW] = flush( itemList, weightList );
+
+		for ( Map.Entry<String, WeaponBlueprint> entry : dataManager.getWeapons( dlcEnabled ).entrySet() ) {
+			addItem( itemList, weightList, overrides, entry.getKey(), entry.getValue(), entry.getValue().getRarity() );
+		}
+		tables[WEAPON] = flush( itemList, weightList );
+
+		for ( Map.Entry<String, AugBlueprint> entry : dataManager.getAugments( dlcEnabled ).entrySet() ) {
+			addItem( itemList, weightList, overrides, entry.getKey(), entry.getValue(), entry.getValue().getRarity() );
+		}
+		tables[AUGMENT] = flush( itemList, weightList );
+
+		for ( Map.Entry<String, DroneBlueprint> entry : dataManager.getDrones( dlcEnabled ).entrySet() ) {
+			addItem( itemList, weightList, overrides, entry.getKey(), entry.getValue(), entry.getValue().getRarity() );
+		}
+		tables[DRONE] = flush( itemList, weightList );
+
+		return tables;
+	}
+
+	private static void addItem( List<Object> itemList, List<Integer> weightList, Map<String, Integer> overrides, String id, Object item, int rarity ) {
+		Integer override = overrides.get( id );
+		if ( override != null ) rarity = override.intValue();
+
+		if ( rarity != 0 ) {
+			itemList.add( item );
+			weightList.add( 6 - rarity );
+		}
+	}
+
+	private static RarityTable<Object> flush( List<Object> itemList, List<Integer> weightList ) {
+		RarityTable<Object> table = new RarityTable<Object>( itemList, weightList );
+		itemList.clear();
+		weightList.clear();
+		return table;
+	}
+
+	/**
+	 * Returns the sum of all weights.
+	 */
+	public int getTotalWeight() {
+		return ( totals.length > 1 ? totals[1] : 0 );
+	}
+
+	/**
+	 * Returns the item a random value lands on.
+	 *
+	 * @param n a raw value from rand(), reduced modulo the total weight
+	 */
+	@SuppressWarnings( "unchecked" )
+	public T pick( int n ) {
+		int i = n % totals[1];
+		int j = 1;
+
+		while ( i >= weights[j] ) {
+			i -= weights[j];
+			j <<= 1;
+			if ( i >= totals[j] ) {
+				i -= totals[j];
+				j++;
+			}
+		}
+		return (T)items[j];
+	}
+
+
+
+	/**
+	 * Tables built from one DataManager instance.
+	 */
+	private static class TableCache {
+		public final DataManager source;
+		public final ConcurrentMap<String, RarityTable<?>[]> tables = new ConcurrentHashMap<String, RarityTable<?>[]>();
+
+		public TableCache( DataManager source ) {
+			this.source = source;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package net.blerf.ftl.parser.sectormap;
+
+import java.util.List;
+
+import net.blerf.ftl.xml.Choice;
+import net.blerf.ftl.xml.FTLEvent;
+import net.blerf.ftl.xml.NamedText;
+import net.blerf.ftl.xml.ShipEvent;
+
+
+/**
+ * An event as FTL would randomize it for one beacon.
+ *
+ * Event templates from the DataManager are shared and never modified. This
+ * holds the values RandomEvent drew for one occurrence (text, item
+ * quantities, names, rewards, ship seed), and falls back to the template
+ * for everything else.
+ *
+ * Choices are resolved too: each choice's event is another ResolvedEvent,
+ * whose template is the event that was actually loaded.
+ *
+ * @see RandomEvent#loadEventId(String, net.blerf.ftl.parser.random.RandRNG)
+ */
+public class ResolvedEvent {
+
+	private FTLEvent template = null;
+	private NamedText text = null;
+	private int[] itemValues = null;
+	private String crewId = null;
+	private String crewName = null;
+	private String weaponName = null;
+	private String augmentName = null;
+	private String droneName = null;
+	private FTLEvent.AutoReward autoReward = null;
+	private int shipSeed = 0;
+	private ResolvedEvent[] choiceEvents = null;
+	private NamedText[] choiceTexts = null;
+
+
+	public ResolvedEvent() {
+	}
+
+	/**
+	 * Starts over from a template, with none of its values randomized yet.
+	 */
+	void setTemplate( FTLEvent newTemplate ) {
+		template = newTemplate;
+		text = template.getText();
+
+		FTLEvent.ItemList itemList = template.getItemList();
+		itemValues = null;
+		if ( itemList != null && itemList.items != null ) {
+			itemValues = new int[itemList.items.size()];
+			for ( int i=0; i < itemValues.length; i++ ) {
+				itemValues[i] = itemList.items.get( i ).value;
+			}
+		}
+
+		FTLEvent.CrewMember crewMember = template.getCrewMember();
+		crewId = ( crewMember != null ? crewMember.id : null );
+		crewName = ( crewMember != null ? crewMember.name : null );
+
+		weaponName = ( template.getWeapon() != null ? template.getWeapon().name : null );
+		augmentName = ( template.getAugment() != null ? template.getAugment().name : null );
+		droneName = ( template.getDrone() != null ? template.getDrone().name : null );
+
+		autoReward = null;
+		shipSeed = ( template.getShip() != null ? template.getShip().getSeed() : 0 );
+
+		List<Choice> choiceList = template.getChoiceList();
+		choiceEvents = null;
+		choiceTexts = null;
+		if ( choiceList != null ) {
+			choiceEvents = new ResolvedEvent[choiceList.size()];
+			choiceTexts = new NamedText[choiceList.size()];
+			for ( int i=0; i < choiceTexts.length; i++ ) {
+				choiceTexts[i] = choiceList.get( i ).getText();
+			}
+		}
+	}
+
+	void setText( NamedText newText ) { text = newText; }
+	void setItemValue( int index, int value ) { itemValues[index] = value; }
+	void setCrewId( String id ) { crewId = id; }
+	void setCrewName( String name ) { crewName = name; }
+	void setWeaponName( String name ) { weaponName = name; }
+	void setAugmentName( String name ) { augmentName = name; }
+	void setDroneName( String name ) { droneName = name; }
+	void setAutoReward( FTLEvent.AutoReward newAutoReward ) { autoReward = newAutoReward; }
+	void setShipSeed( int seed ) { shipSeed = seed; }
+	void setChoiceEvent( int index, ResolvedEvent event ) { choiceEvents[index] = event; }
+	void setChoiceText( int index, NamedText newText ) { choiceTexts[index] = newText; }
+
+	/**
+	 * Returns the shared event this was resolved from.
+	 *
+	 * Randomized fields of the template (e.g. "RANDOM" item names) are
+	 * placeholders. Use this object's getters for those.
+	 */
+	public FTLEvent getTemplate() { return template; }
+
+	public String getId() { return template.getId(); }
+	public boolean getUnique() { return template.getUnique(); }
+	public NamedText getText() { return text; }
+
+	public FTLEvent.ItemList getItemList() { return template.getItemList(); }
+
+	/**
+	 * Returns the quantity of the nth item_modify entry.
+	 */
+	public int getItemValue( int index ) { return itemValues[index]; }
+	public int getItemCount() { return ( itemValues != null ? itemValues.length : 0 ); }
+
+	public FTLEvent.CrewMember getCrewMember() { return template.getCrewMember(); }
+	public String getCrewId() { return crewId; }
+	public String getCrewName() { return crewName; }
+
+	public FTLEvent.Item getWeapon() { return template.getWeapon(); }
+	public FTLEvent.Item getAugment() { return template.getAugment(); }
+	public FTLEvent.Item getDrone() { return template.getDrone(); }
+
+	public String getWeaponName() { return weaponName; }
+	public String getAugmentName() { return augmentName; }
+	public String getDroneName() { return droneName; }
+
+	/**
+	 * Returns the randomized autoReward, or null.
+	 *
+	 * Unlike the template's, its quantities and items are filled in.
+	 */
+	public FTLEvent.AutoReward getAutoReward() { return autoReward; }
+
+	public ShipEvent getShip() { return template.getShip(); }
+	public int getShipSeed() { return shipSeed; }
+
+	public FTLEvent.Boarders getBoarders() { return template.getBoarders(); }
+
+	public int getChoiceCount() { return ( choiceEvents != null ? choiceEvents.length : 0 ); }
+
+	/**
+	 * Returns the template of the nth choice, for its requirements.
+	 */
+	public Choice getChoice( int index ) { return template.getChoiceList().get( index ); }
+
+	/**
+	 * Returns the event loaded by the nth choice, or null if none could be.
+	 */
+	public ResolvedEvent getChoiceEvent( int index ) { return choiceEvents[index]; }
+	public NamedText getChoiceText( int index ) { return choiceTexts[index]; }
+
+	@Override
+	public String toString() {
+		return template.toString();
+	}
+
+	private StringBuilder indent( StringBuilder sb, int level ) {
+		for ( int i=0; i < level; i++ ) {
+			sb.append( "    " );
+		}
+		return sb;
+	}
+
+	/**
+	 * Returns a multiline summary, like FTLEvent.toDescription(), with the
+	 * resolved values.
+	 */
+	public String toDescription( int level ) {
+		StringBuilder sb = new StringBuilder();
+		appendDescription( sb, level );
+		return sb.toString();
+	}
+
+	private void appendDescription( StringBuilder sb, int level ) {
+		if ( template.getId() != null )
+			indent( sb, level ).append( "id: " ).append( template.getId() ).append( "\n" );
+
+		if ( template.getUnique() )
+			indent( sb, level ).append( "unique: true\n" );
+
+		if ( text != null )
+			indent( sb, level ).append( "text: " ).append( text.getText() ).append( "\n" );
+
+		ShipEvent ship = template.getShip();
+		if ( ship != null )
+			indent( sb, level ).append( "ship: " ).append( ship.toString() ).append( "\n" );
+
+		FTLEvent.ItemList itemList = template.getItemList();
+		if ( itemValues != null ) {
+			for ( int i=0; i < itemValues.length; i++ )
+				indent( sb, level ).append( "item_modify: " ).append( itemList.items.get( i ).type ).append( " with quantity " ).append( itemValues[i] ).append( "\n" );
+		}
+
+		if ( autoReward != null ) {
+			indent( sb, level ).append( "autoreward level " ).append( autoReward.level ).append( " and reward " ).append( autoReward.reward ).append( ":\n" );
+			indent( sb, level+1 ).append( "scrap: " ).append( autoReward.scrap ).append( "\n" );
+			indent( sb, level+1 ).append( "fuel: " ).append( autoReward.resources[0] ).append( "\n" );
+			indent( sb, level+1 ).append( "missiles: " ).append( autoReward.resources[1] ).append( "\n" );
+			indent( sb, level+1 ).append( "droneparts: " ).append( autoReward.resources[2] ).append( "\n" );
+			if ( autoReward.weapon != null )
+				indent( sb, level+1 ).append( "weapon: " ).append( autoReward.weapon ).append( "\n" );
+			if ( autoReward.augment != null )
+				indent( sb, level+1 ).append( "augment: " ).append( autoReward.augment ).append( "\n" );
+			if ( autoReward.drone != null )
+				indent( sb, level+1 ).append( "drone: " ).append( autoReward.drone ).append( "\n" );
+		}
+
+		if ( template.getWeapon() != null )
+			indent( sb, level ).append( "weapon: " ).append( weaponName ).append( "\n" );
+
+		if ( template.getAugment() != null )
+			indent( sb, level ).append( "augment: " ).append( augmentName ).append( "\n" );
+
+		if ( template.getDrone() != null )
+			indent( sb, level ).append( "drone: " ).append( droneName ).append( "\n" );
+
+		FTLEvent.Boarders boarders = template.getBoarders();
+		if ( boarders != null ) {
+			indent( sb, level ).append( "boarders: " ).append( "\n" );
+			indent( sb, level+1 ).append( "min: " ).append( boarders.min ).append( "\n" );
+			indent( sb, level+1 ).append( "max: " ).append( boarders.max ).append( "\n" );
+			indent( sb, level+1 ).append( "class: " ).append( boarders.name ).append( "\n" );
+		}
+
+		FTLEvent.CrewMember crewMember = template.getCrewMember();
+		if ( crewMember != null ) {
+			indent( sb, level ).append( "crew: " ).append( "\n" );
+			indent( sb, level+1 ).append( "amount: " ).append( crewMember.amount ).append( "\n" );
+			if ( crewId != null )
+				indent( sb, level+1 ).append( "id: " ).append( crewId ).append( "\n" );
+			indent( sb, level+1 ).append( "weapons: " ).append( crewMember.weapons ).append( "\n" );
+			indent( sb, level+1 ).append( "shields: " ).append( crewMember.shields ).append( "\n" );
+			indent( sb, level+1 ).append( "pilot: " ).append( crewMember.pilot ).append( "\n" );
+			indent( sb, level+1 ).append( "engines: " ).append( crewMember.engines ).append( "\n" );
+			indent( sb, level+1 ).append( "combat: " ).append( crewMember.combat ).append( "\n" );
+			indent( sb, level+1 ).append( "repair: " ).append( crewMember.repair ).append( "\n" );
+			indent( sb, level+1 ).append( "all_skills: " ).append( crewMember.all_skills ).append( "\n" );
+			if ( crewName != null )
+				indent( sb, level+1 ).append( "name: " ).append( crewName ).append( "\n" );
+		}
+
+		sb.append( "\n" );
+
+		for ( int i=0; i < getChoiceCount(); i++ ) {
+			indent( sb, level ).append( "choice:\n" );
+			if ( choiceTexts[i] != null )
+				indent( sb, level+1 ).append( "text: " ).append( choiceTexts[i].getText() ).append( "\n" );
+			if ( choiceEvents[i] != null ) {
+				indent( sb, level+1 ).append( "event: \n" );
+				choiceEvents[i].appendDescription( sb, level+2 );
+			}
+		}
+	}
+}
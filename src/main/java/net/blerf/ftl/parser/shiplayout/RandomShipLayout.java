@@ -6,11 +6,8 @@ import java.util.AbstractMap;
 import java.util.Set;
 import java.util.Arrays;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.helpers.NOPLogger;
-
 import net.blerf.ftl.parser.DataManager;
+import net.blerf.ftl.parser.random.GenerationTracer;
 import net.blerf.ftl.parser.random.RandRNG;
 import net.blerf.ftl.model.shiplayout.ShipLayout;
 import net.blerf.ftl.model.shiplayout.ShipLayoutRoom;
@@ -23,12 +20,11 @@ import net.blerf.ftl.model.shiplayout.ShipLayoutRoom;
  */
 public class RandomShipLayout {
 
-	// private static final Logger log = LoggerFactory.getLogger( RandomShipLayout.class );
-	private static final Logger log = NOPLogger.NOP_LOGGER;
-
 	protected RandRNG rng;
 
-	private static Set<Integer> uniqueCrewNames = null;
+	private GenerationTracer tracer = GenerationTracer.NOP;
+
+	private Set<Integer> uniqueCrewNames = null;
 
 	ShipLayout shipLayout = null;
 	List<RoomSquare> roomSquares = new ArrayList<RoomSquare>();
@@ -59,6 +55,20 @@ public class RandomShipLayout {
 		squarePairs = new boolean[roomCount*roomCount];
 	}
 
+	/**
+	 * Sets a tracer to receive each random number drawn.
+	 */
+	public void setTracer( GenerationTracer tracer ) {
+		this.tracer = ( tracer != null ? tracer : GenerationTracer.NOP );
+	}
+
+	/**
+	 * Returns one square per room, positioned by the last generateShipLayout().
+	 */
+	public List<RoomSquare> getRoomSquares() {
+		return roomSquares;
+	}
+
 	public class RoomSquare {
 		public int roomId;
 
@@ -80,7 +90,7 @@ public class RandomShipLayout {
 
 		for ( int r=0; r < roomCount; r++ ) {
 			RoomSquare square = roomSquares.get(r);
-			int squareId = rng.rand() % (square.roomW * square.roomH);
+			int squareId = rand(rng, "square") % (square.roomW * square.roomH);
 			square.x = square.roomX + squareId % square.roomW;
 			square.y = square.roomY + squareId / square.roomW;
 
@@ -88,8 +98,8 @@ public class RandomShipLayout {
 			square.x = square.x * 35 + 17;
 			square.y = square.y * 35 + 87;
 
-			if (log.isDebugEnabled())
-				log.debug( String.format( "Room %d has coords %d - %d", square.roomId, square.x, square.y ) );
+			tracer.value("square_x", square.x);
+			tracer.value("square_y", square.y);
 		}
 
 		Arrays.fill(squarePairs, false);
@@ -115,7 +125,7 @@ public class RandomShipLayout {
 					if (square2.roomId < square1.roomId) {
 						/* Pair is swapped, only call the rng if necessary */
 						if ((square1.x != square2.x) && (square1.y != square2.y)) {
-							rng.rand();
+							rand(rng, "room_pair_swapped");
 						}
 						continue;
 					}
@@ -124,9 +134,7 @@ public class RandomShipLayout {
 					 * generate a Square from coords of the two squares */
 					if ((square1.x != square2.x) && (square1.y != square2.y)) {
 						RoomSquare extraSquare = new RoomSquare();
-						int rr = rng.rand();
-						if (log.isDebugEnabled())
-							log.debug( String.format( "Rooms %d - %d value is %d", square1.roomId, square2.roomId, rr ) );
+						int rr = rand(rng, "room_pair");
 
 						if ((rr & 0x1) == 0) {
 							extraSquare.x = square1.x;
@@ -153,8 +161,7 @@ public class RandomShipLayout {
 						}
 
 						if (isPair) {
-							if (log.isDebugEnabled())
-								log.debug( String.format( "Found middle room" ) );
+							tracer.value("middle_room", square1.roomId);
 							continue;
 						}
 
@@ -165,41 +172,47 @@ public class RandomShipLayout {
 			}
 
 		for (int k = 0; k < 6; k++)
-			rng.rand();
+			rand(rng, "unknown");
 
 		/* Generate crew names */
 		if (uniqueCrewNames != null) {
 			/* Generate 3 names. TODO: get that from ship layout */
 			for (int k = 0; k < 3; k++) {
-				int n = rng.rand() % 169; // TODO: Magic number, look at (sorted?) crew names
+				int n = rand(rng, "crew_name") % 169; // TODO: Magic number, look at (sorted?) crew names
 
 				while (uniqueCrewNames.contains(n)) {
-					n = rng.rand() % 169;
+					n = rand(rng, "crew_name") % 169;
 				}
 				uniqueCrewNames.add(n);
 			}
 		}
 
 		for (int k = 0; k < 3; k++) {
-			rng.rand(); // 0x521559 -> 0x51d7e2
-			rng.rand(); // 0x5216c3
-			rng.rand(); // 0x5216c3
+			rand(rng, "skip"); // 0x521559 -> 0x51d7e2
+			rand(rng, "skip"); // 0x5216c3
+			rand(rng, "skip"); // 0x5216c3
 		}
 
 		for (int k = 0; k < 48; k++) {
-			rng.rand(); // 0x56e351 -> 0x52db6b
-			rng.rand();	// 0x56e351 -> 0x52de31
+			rand(rng, "skip"); // 0x56e351 -> 0x52db6b
+			rand(rng, "skip");	// 0x56e351 -> 0x52de31
 		}
 
 		for (int k = 0; k < 3; k++) {
-			rng.rand(); // 0x511116 -> 0x68a266 -> 0x689eea
-			rng.rand(); // 0x511116 -> 0x68a266 -> 0x689f03
-			rng.rand(); // 0x511116 -> 0x68a266 -> 0x689f7a
-			rng.rand(); // 0x511116 -> 0x68a266 -> 0x689f93
-			rng.rand(); // 0x511116 -> 0x68a266 -> 0x68a00c
+			rand(rng, "skip"); // 0x511116 -> 0x68a266 -> 0x689eea
+			rand(rng, "skip"); // 0x511116 -> 0x68a266 -> 0x689f03
+			rand(rng, "skip"); // 0x511116 -> 0x68a266 -> 0x689f7a
+			rand(rng, "skip"); // 0x511116 -> 0x68a266 -> 0x689f93
+			rand(rng, "skip"); // 0x511116 -> 0x68a266 -> 0x68a00c
 		}
 	}
 
+	private int rand(RandRNG rng, String tag) {
+		int n = rng.rand();
+		tracer.randConsumed(tag, n);
+		return n;
+	}
+
 	/* Returns if square3 is between square1 and square2 on a same axis */
 	private boolean middleSquare(RoomSquare square1, RoomSquare square2, RoomSquare square3) {
 		if ((square1.x == square3.x) && (square1.y == square3.y))
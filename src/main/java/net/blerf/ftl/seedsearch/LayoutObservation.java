@@ -0,0 +1,79 @@
+package net.blerf.ftl.seedsearch;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.blerf.ftl.parser.SavedGameParser.SavedGameState;
+
+
+/**
+ * What is known about a sector map, for looking up the seed that made it.
+ *
+ * Saved games store the rebel fleet fudge and the number of beacons, but
+ * not where the beacons are. Locations have to be supplied separately (e.g.
+ * read off the map in-game), in beacon order: column by column, top to
+ * bottom, starting at the left.
+ *
+ * Every part is optional, though the lookup will have little to go on
+ * without locations.
+ *
+ * @see LayoutSeedLookup
+ */
+public class LayoutObservation {
+
+	private int rebelFleetFudge = -1;
+	private int beaconCount = -1;
+	private final List<Point> beaconLocations = new ArrayList<Point>();
+
+
+	public LayoutObservation() {
+	}
+
+	/**
+	 * Takes the fudge and beacon count from a saved game.
+	 */
+	public static LayoutObservation fromGameState( SavedGameState gameState ) {
+		LayoutObservation result = new LayoutObservation();
+		result.setRebelFleetFudge( gameState.getRebelFleetFudge() );
+		result.setBeaconCount( gameState.getBeaconList().size() );
+		return result;
+	}
+
+	/**
+	 * Sets the rebel fleet fudge, or -1 if unknown.
+	 */
+	public void setRebelFleetFudge( int n ) { rebelFleetFudge = n; }
+	public int getRebelFleetFudge() { return rebelFleetFudge; }
+
+	/**
+	 * Sets the number of beacons, or -1 if unknown.
+	 */
+	public void setBeaconCount( int n ) { beaconCount = n; }
+	public int getBeaconCount() { return beaconCount; }
+
+	/**
+	 * Appends the location of the next beacon.
+	 */
+	public void addBeaconLocation( int x, int y ) {
+		beaconLocations.add( new Point( x, y ) );
+	}
+
+	public List<Point> getBeaconLocations() {
+		return Collections.unmodifiableList( beaconLocations );
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append( String.format( "fudge=%d, beacons=%d, locations=[", rebelFleetFudge, beaconCount ) );
+		for ( int i=0; i < beaconLocations.size(); i++ ) {
+			Point p = beaconLocations.get( i );
+			if ( i > 0 ) buf.append( ' ' );
+			buf.append( p.x ).append( ',' ).append( p.y );
+		}
+		buf.append( ']' );
+		return buf.toString();
+	}
+}
@@ -0,0 +1,629 @@
+package net.blerf.ftl.seedsearch;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.blerf.ftl.parser.random.BSDRandom;
+import net.blerf.ftl.parser.random.FTL_1_6_Random;
+import net.blerf.ftl.parser.random.GenerationTracer;
+import net.blerf.ftl.parser.random.MsRandom;
+import net.blerf.ftl.parser.random.NativeRandom;
+import net.blerf.ftl.parser.random.RandRNG;
+import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
+import net.blerf.ftl.parser.sectormap.RandomSectorMapGenerator;
+
+
+/**
+ * Finds the sector layout seeds that could have produced an observed map.
+ *
+ * Only the layout is generated (fudge, beacon placement), never events, so
+ * no DataManager is needed. Each candidate is first run through the layout
+ * generator until its beacons stop matching the observation, which is
+ * usually the first one. Candidates that get through are generated in full
+ * and compared against everything observed.
+ *
+ * For the linear congruential RNGs, most seeds never reach the generator.
+ * The layout's first few draws are fixed: the fudge is the 1st, the first
+ * beacon's x and y are the 4th and 5th (its cell is never skipped). Each
+ * gives the draw modulo some number.
+ *
+ * MsRandom and BSDRandom have 31 bits of state, of which rand() reveals the
+ * top 15 or all 31. Candidate states at the fudge's draw are enumerated
+ * from the allowed outputs and the unrevealed low bits, then stepped back
+ * to their seeds. FTL_1_6_Random hides 33 bits, more than there are seeds,
+ * so seeds are enumerated directly, jumping ahead to each observed draw
+ * without running the RNG. Either way, the other observed draws filter
+ * what's left before anything is generated.
+ *
+ * Other RNGs are searched by brute force, and NativeRandom only with a
+ * single thread.
+ *
+ * Layouts FTL re-rolled for isolated beacons are missed by the first-pass
+ * check unless setFollowRerolls() is enabled, which generates every
+ * candidate in full. Sector 8 layouts re-rolled for lack of a flagship
+ * beacon depend on events, and can't be found this way at all.
+ */
+public class LayoutSeedLookup {
+
+	private static final Logger log = LoggerFactory.getLogger( LayoutSeedLookup.class );
+
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	private final ParallelSeedSearch.RNGFactory rngFactory;
+	private final int fileFormat;
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private boolean followRerolls = false;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @throws IllegalArgumentException if fileFormat's maps can't be generated
+	 */
+	public LayoutSeedLookup( ParallelSeedSearch.RNGFactory rngFactory, int fileFormat ) {
+		if ( rngFactory == null ) throw new IllegalArgumentException( "An RNG factory is required" );
+		if ( fileFormat != 2 && fileFormat != 7 && fileFormat != 8 && fileFormat != 9 && fileFormat != 11 ) {
+			throw new IllegalArgumentException( String.format( "Random sector maps for fileFormat (%d) have not been implemented", fileFormat ) );
+		}
+
+		this.rngFactory = rngFactory;
+		this.fileFormat = fileFormat;
+	}
+
+	public void setThreadCount( int n ) {
+		if ( n < 1 ) throw new IllegalArgumentException( String.format( "Invalid thread count: %d", n ) );
+		threadCount = n;
+	}
+	public int getThreadCount() { return threadCount; }
+
+	/**
+	 * Sets whether to look past layouts FTL would have re-rolled.
+	 *
+	 * This skips the early exit, and (for LCGs) filters on the fudge alone.
+	 */
+	public void setFollowRerolls( boolean b ) { followRerolls = b; }
+	public boolean isFollowRerolls() { return followRerolls; }
+
+	/**
+	 * Returns every seed whose layout agrees with an observation.
+	 *
+	 * @return seeds, in ascending order
+	 */
+	public List<Integer> lookup( LayoutObservation obs ) throws InterruptedException {
+		long startTime = System.currentTimeMillis();
+
+		List<Constraint> constraints = createConstraints( obs );
+		if ( constraints == null ) {
+			log.info( String.format( "No seed can produce this layout: %s", obs ) );
+			return new ArrayList<Integer>();
+		}
+
+		RandRNG probeRNG = rngFactory.createRNG();
+		CandidateSource source = createSource( probeRNG, constraints );
+
+		int workerCount = threadCount;
+		if ( workerCount > 1 && probeRNG instanceof NativeRandom ) {
+			log.warn( "The native RNG is process-global, looking up with 1 thread" );
+			workerCount = 1;
+		}
+		workerCount = (int)Math.max( 1, Math.min( workerCount, (source.size() + CHUNK_SIZE - 1) / CHUNK_SIZE ) );
+
+		AtomicLong nextIndex = new AtomicLong( 0 );
+		List<Integer> results = new ArrayList<Integer>();
+
+		ExecutorService executor = Executors.newFixedThreadPool( workerCount, new LookupThreadFactory() );
+		try {
+			List<Future<List<Integer>>> futures = new ArrayList<Future<List<Integer>>>( workerCount );
+			for ( int i=0; i < workerCount; i++ ) {
+				RandRNG rng = ( i == 0 ? probeRNG : rngFactory.createRNG() );
+				futures.add( executor.submit( new Worker( source, rng, obs, nextIndex ) ) );
+			}
+			executor.shutdown();
+
+			for ( Future<List<Integer>> future : futures ) {
+				try {
+					results.addAll( future.get() );
+				}
+				catch ( ExecutionException e ) {
+					Throwable t = e.getCause();
+					if ( t instanceof RuntimeException ) throw (RuntimeException)t;
+					if ( t instanceof Error ) throw (Error)t;
+					throw new RuntimeException( t );
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		Collections.sort( results );
+
+		log.info( String.format( "Looked up %d candidate(s) via %s on %d thread(s) in %d ms: %d seed(s)", source.size(), source, workerCount, System.currentTimeMillis() - startTime, results.size() ) );
+
+		return results;
+	}
+
+	/**
+	 * Returns the draws an observation pins down, or null if it's impossible.
+	 *
+	 * The first layout attempt always puts beacon 0 in the top-left cell,
+	 * from the 4th and 5th draws. A re-rolled layout's beacon 0 comes later,
+	 * so locations only count when not following re-rolls.
+	 */
+	private List<Constraint> createConstraints( LayoutObservation obs ) {
+		int fudgeMod = ( fileFormat == 2 ? 294 : 250 );
+		int cellSpan = ( fileFormat == 2 ? 66 : 90 );
+
+		List<Constraint> result = new ArrayList<Constraint>();
+
+		if ( obs.getRebelFleetFudge() != -1 ) {
+			int residue = obs.getRebelFleetFudge() - 50;
+			if ( residue < 0 || residue >= fudgeMod ) return null;
+			result.add( new Constraint( 1, fudgeMod, residue ) );
+		}
+
+		if ( !followRerolls && !obs.getBeaconLocations().isEmpty() ) {
+			Point p = obs.getBeaconLocations().get( 0 );
+			if ( p.x - 10 < 0 || p.x - 10 >= cellSpan ) return null;
+			if ( p.y - 10 < 0 || p.y - 10 >= cellSpan ) return null;
+			result.add( new Constraint( 4, cellSpan, p.x - 10 ) );
+			result.add( new Constraint( 5, cellSpan, p.y - 10 ) );
+		}
+
+		return result;
+	}
+
+	private CandidateSource createSource( RandRNG rng, List<Constraint> constraints ) {
+		if ( !constraints.isEmpty() ) {
+			if ( rng instanceof MsRandom ) {
+				return new TruncatedLCGSource( "MsRandom state recovery", 214013, 2531011, 16, constraints );
+			}
+			if ( rng instanceof BSDRandom ) {
+				return new TruncatedLCGSource( "BSDRandom state recovery", 1103515245, 12345, 0, constraints );
+			}
+			if ( rng instanceof FTL_1_6_Random ) {
+				return new FTLSource( constraints );
+			}
+		}
+		return new AllSeedsSource();
+	}
+
+	/**
+	 * Runs the layout generator until the observation stops matching.
+	 *
+	 * @return true if every observed beacon was placed as observed
+	 */
+	private boolean matchesFirstAttempt( RandomSectorMapGenerator generator, PrefixTracer tracer, RandRNG rng, int seed ) {
+		tracer.reset();
+		rng.srand( seed );
+		try {
+			if ( fileFormat == 2 ) {
+				generator.generateSectorMap( rng, fileFormat );
+			} else {
+				GeneratedSectorMap genMap = generator.createSectorMap( rng, tracer.reusableMap );
+				generator.generateBeaconLayout( rng, genMap );
+			}
+		}
+		catch ( LayoutMismatchException e ) {
+			return false;
+		}
+		catch ( LayoutMatchException e ) {
+			return true;
+		}
+		catch ( IllegalStateException e ) {
+			return false;  // 50 isolated layouts in a row.
+		}
+		return tracer.isComplete();
+	}
+
+	/**
+	 * Generates a seed's final layout, and compares all of it.
+	 */
+	private boolean matchesLayout( RandomSectorMapGenerator generator, GeneratedSectorMap reusableMap, RandRNG rng, int seed, LayoutObservation obs ) {
+		GeneratedSectorMap genMap;
+		rng.srand( seed );
+		try {
+			if ( fileFormat == 2 ) {
+				genMap = generator.generateSectorMap( rng, fileFormat );
+			} else {
+				genMap = generator.createSectorMap( rng, reusableMap );
+				generator.generateBeaconLayout( rng, genMap );
+			}
+		}
+		catch ( IllegalStateException e ) {
+			return false;
+		}
+
+		if ( obs.getRebelFleetFudge() != -1 && genMap.getRebelFleetFudge().intValue() != obs.getRebelFleetFudge() ) return false;
+		if ( obs.getBeaconCount() != -1 && genMap.getBeaconCount() != obs.getBeaconCount() ) return false;
+
+		List<Point> locations = obs.getBeaconLocations();
+		if ( locations.size() > genMap.getBeaconCount() ) return false;
+
+		for ( int i=0; i < locations.size(); i++ ) {
+			Point p = locations.get( i );
+			if ( genMap.getBeaconX( i ) != p.x || genMap.getBeaconY( i ) != p.y ) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the affine map of n LCG steps, {mul, add}, mod 2^32.
+	 */
+	private static int[] jump( int mul, int add, int n ) {
+		int accMul = 1;
+		int accAdd = 0;
+		int curMul = mul;
+		int curAdd = add;
+
+		while ( n > 0 ) {
+			if ( (n & 1) != 0 ) {
+				accMul = accMul * curMul;
+				accAdd = accAdd * curMul + curAdd;
+			}
+			curAdd = (curMul + 1) * curAdd;
+			curMul = curMul * curMul;
+			n >>>= 1;
+		}
+		return new int[] {accMul, accAdd};
+	}
+
+	/**
+	 * Returns the affine map of n LCG steps, {mul, add}, mod 2^64.
+	 */
+	private static long[] jump( long mul, long add, int n ) {
+		long accMul = 1L;
+		long accAdd = 0L;
+		long curMul = mul;
+		long curAdd = add;
+
+		while ( n > 0 ) {
+			if ( (n & 1) != 0 ) {
+				accMul = accMul * curMul;
+				accAdd = accAdd * curMul + curAdd;
+			}
+			curAdd = (curMul + 1) * curAdd;
+			curMul = curMul * curMul;
+			n >>>= 1;
+		}
+		return new long[] {accMul, accAdd};
+	}
+
+
+
+	/**
+	 * The nth rand() after srand() must equal residue, modulo modulus.
+	 */
+	private static class Constraint {
+		public final int step;
+		public final int modulus;
+		public final int residue;
+
+		public Constraint( int step, int modulus, int residue ) {
+			this.step = step;
+			this.modulus = modulus;
+			this.residue = residue;
+		}
+	}
+
+
+
+	/**
+	 * Numbered candidates, which workers claim a chunk at a time.
+	 */
+	private interface CandidateSource {
+		public long size();
+
+		/**
+		 * Returns the seed for a candidate, or -1 if it can't match.
+		 */
+		public int candidate( long index );
+	}
+
+
+
+	private static class AllSeedsSource implements CandidateSource {
+		@Override
+		public long size() { return ParallelSeedSearch.SEED_LIMIT; }
+
+		@Override
+		public int candidate( long index ) { return (int)index; }
+
+		@Override
+		public String toString() { return "brute force"; }
+	}
+
+
+
+	/**
+	 * Recovers seeds of a 31-bit LCG whose rand() drops the low shift bits.
+	 *
+	 * Candidates are the states at the most selective constraint's draw:
+	 * each allowed output, with each possible low part. Stepping back
+	 * yields the seed, which the remaining constraints then check by
+	 * jumping forward. Arithmetic is mod 2^32, which agrees with the mod
+	 * 2^31 state.
+	 */
+	private static class TruncatedLCGSource implements CandidateSource {
+		private final String name;
+		private final int shift;
+		private final Constraint primary;
+		private final int backMul;
+		private final int backAdd;
+		private final Constraint[] others;
+		private final int[] otherMuls;
+		private final int[] otherAdds;
+		private final long size;
+
+		public TruncatedLCGSource( String name, int mul, int add, int shift, List<Constraint> constraints ) {
+			this.name = name;
+			this.shift = shift;
+
+			Constraint best = constraints.get( 0 );
+			for ( Constraint c : constraints ) {
+				if ( c.modulus > best.modulus ) best = c;
+			}
+			primary = best;
+
+			// The inverse of an odd number mod 2^32, by Newton's method.
+			int inv = mul;
+			for ( int i=0; i < 5; i++ ) {
+				inv *= 2 - mul * inv;
+			}
+			int[] back = jump( inv, -inv * add, primary.step );
+			backMul = back[0];
+			backAdd = back[1];
+
+			others = new Constraint[constraints.size()-1];
+			otherMuls = new int[others.length];
+			otherAdds = new int[others.length];
+			int k = 0;
+			for ( Constraint c : constraints ) {
+				if ( c == primary ) continue;
+				int[] fwd = jump( mul, add, c.step );
+				others[k] = c;
+				otherMuls[k] = fwd[0];
+				otherAdds[k] = fwd[1];
+				k++;
+			}
+
+			long outputCount = 1L << (31 - shift);
+			long allowedOutputs = ( outputCount - primary.residue + primary.modulus - 1 ) / primary.modulus;
+			size = allowedOutputs << shift;
+		}
+
+		@Override
+		public long size() { return size; }
+
+		@Override
+		public int candidate( long index ) {
+			long output = primary.residue + primary.modulus * (index >>> shift);
+			int state = (int)((output << shift) | (index & ((1L << shift) - 1)));
+			int seed = (backMul * state + backAdd) & 0x7fffffff;
+
+			for ( int i=0; i < others.length; i++ ) {
+				int n = ((otherMuls[i] * seed + otherAdds[i]) & 0x7fffffff) >>> shift;
+				if ( n % others[i].modulus != others[i].residue ) return -1;
+			}
+			return seed;
+		}
+
+		@Override
+		public String toString() { return name; }
+	}
+
+
+
+	/**
+	 * Filters seeds of FTL_1_6_Random by jumping ahead to each constraint.
+	 */
+	private static class FTLSource implements CandidateSource {
+		// Same as FTL_1_6_Random's.
+		private static final long MULTIPLIER = 0x5851F42D4C957F2DL;
+		private static final long INCREMENT = 1L;
+
+		private final Constraint[] constraints;
+		private final long[] muls;
+		private final long[] adds;
+
+		public FTLSource( List<Constraint> constraintList ) {
+			// Most selective first, to reject sooner.
+			List<Constraint> sorted = new ArrayList<Constraint>( constraintList );
+			Collections.sort( sorted, new Comparator<Constraint>() {
+				@Override
+				public int compare( Constraint a, Constraint b ) {
+					return b.modulus - a.modulus;
+				}
+			});
+
+			constraints = sorted.toArray( new Constraint[sorted.size()] );
+			muls = new long[constraints.length];
+			adds = new long[constraints.length];
+			for ( int i=0; i < constraints.length; i++ ) {
+				long[] fwd = jump( MULTIPLIER, INCREMENT, constraints[i].step );
+				muls[i] = fwd[0];
+				adds[i] = fwd[1];
+			}
+		}
+
+		@Override
+		public long size() { return ParallelSeedSearch.SEED_LIMIT; }
+
+		@Override
+		public int candidate( long index ) {
+			for ( int i=0; i < constraints.length; i++ ) {
+				int n = (int)((muls[i] * index + adds[i]) >>> 33);
+				if ( n % constraints[i].modulus != constraints[i].residue ) return -1;
+			}
+			return (int)index;
+		}
+
+		@Override
+		public String toString() { return "FTL_1_6_Random jump-ahead"; }
+	}
+
+
+
+	/**
+	 * Aborts generation as soon as a placed beacon disagrees.
+	 *
+	 * Once every observed beacon has been placed, or if there are none, it
+	 * aborts with a match instead.
+	 */
+	private class PrefixTracer implements GenerationTracer {
+		private final LayoutObservation obs;
+		private final int fudgeMod = ( fileFormat == 2 ? 294 : 250 );
+		public final GeneratedSectorMap reusableMap = new GeneratedSectorMap();
+		private int matched = 0;
+
+		public PrefixTracer( LayoutObservation obs ) {
+			this.obs = obs;
+		}
+
+		public void reset() {
+			matched = 0;
+		}
+
+		public boolean isComplete() {
+			return ( matched == obs.getBeaconLocations().size() );
+		}
+
+		@Override
+		public void randConsumed( String tag, int value ) {
+			if ( "fleet_fudge".equals( tag ) ) {
+				if ( obs.getRebelFleetFudge() != -1 && value % fudgeMod + 50 != obs.getRebelFleetFudge() ) {
+					throw LayoutMismatchException.INSTANCE;
+				}
+				if ( isComplete() ) throw LayoutMatchException.INSTANCE;
+			}
+		}
+
+		@Override
+		public void beaconPlaced( int beacon, int col, int row, int x, int y ) {
+			Point p = obs.getBeaconLocations().get( matched );
+			if ( p.x != x || p.y != y ) throw LayoutMismatchException.INSTANCE;
+			matched++;
+			if ( isComplete() ) throw LayoutMatchException.INSTANCE;
+		}
+
+		@Override
+		public void beaconSkipped( int col, int row ) {}
+
+		@Override
+		public void beaconRole( String role, int beacon ) {}
+
+		@Override
+		public void eventChosen( int beacon, String requestedId, String eventId ) {}
+
+		@Override
+		public void reroll( String reason, int attempt ) {
+			throw LayoutMismatchException.INSTANCE;  // Not the first attempt.
+		}
+
+		@Override
+		public void value( String tag, int value ) {}
+	}
+
+
+
+	/**
+	 * Thrown to stop generating, without the cost of a stack trace.
+	 */
+	private static class LayoutMismatchException extends RuntimeException {
+		public static final LayoutMismatchException INSTANCE = new LayoutMismatchException();
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+
+
+	private static class LayoutMatchException extends RuntimeException {
+		public static final LayoutMatchException INSTANCE = new LayoutMatchException();
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;
+		}
+	}
+
+
+
+	private class Worker implements Callable<List<Integer>> {
+		private final CandidateSource source;
+		private final RandRNG rng;
+		private final LayoutObservation obs;
+		private final AtomicLong nextIndex;
+
+		public Worker( CandidateSource source, RandRNG rng, LayoutObservation obs, AtomicLong nextIndex ) {
+			this.source = source;
+			this.rng = rng;
+			this.obs = obs;
+			this.nextIndex = nextIndex;
+		}
+
+		@Override
+		public List<Integer> call() throws Exception {
+			List<Integer> matches = new ArrayList<Integer>();
+
+			PrefixTracer tracer = new PrefixTracer( obs );
+			RandomSectorMapGenerator prefixGenerator = new RandomSectorMapGenerator();
+			prefixGenerator.setTracer( tracer );
+			RandomSectorMapGenerator generator = new RandomSectorMapGenerator();
+			GeneratedSectorMap reusableMap = new GeneratedSectorMap();
+
+			long size = source.size();
+			while ( true ) {
+				long chunkStart = nextIndex.getAndAdd( CHUNK_SIZE );
+				if ( chunkStart >= size ) break;
+				long chunkEnd = Math.min( chunkStart + CHUNK_SIZE, size );
+
+				if ( Thread.currentThread().isInterrupted() ) {
+					throw new InterruptedException();
+				}
+
+				for ( long i = chunkStart; i < chunkEnd; i++ ) {
+					int seed = source.candidate( i );
+					if ( seed < 0 ) continue;
+
+					if ( !followRerolls && !matchesFirstAttempt( prefixGenerator, tracer, rng, seed ) ) continue;
+
+					if ( matchesLayout( generator, reusableMap, rng, seed, obs ) ) {
+						matches.add( seed );
+					}
+				}
+			}
+			return matches;
+		}
+	}
+
+
+
+	private static class LookupThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+		@Override
+		public Thread newThread( Runnable r ) {
+			Thread t = new Thread( r, "SeedLookup-"+ threadNumber.getAndIncrement() );
+			t.setDaemon( true );
+			return t;
+		}
+	}
+}
@@ -0,0 +1,437 @@
+package net.blerf.ftl.seedsearch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.blerf.ftl.constants.Difficulty;
+import net.blerf.ftl.parser.random.NativeRandom;
+import net.blerf.ftl.parser.random.RandRNG;
+
+
+/**
+ * Searches a range of seeds on several threads.
+ *
+ * The range is cut into fixed-size shards, which workers claim one at a time
+ * until none remain. Each worker owns its own SeedSearch and RNG, so nothing
+ * mutable is shared between them.
+ *
+ * Matches are committed a shard at a time. Periodically, the thread that
+ * called search() saves which shards are done, if a checkpoint file was
+ * set, and only then hands newly committed matches to the listener. A later
+ * search over the same range and settings resumes from that file. It first
+ * rewinds the listener's output to where the last saved batch began, then
+ * reports that batch again, so a crash at any point neither loses nor
+ * duplicates output.
+ *
+ * NativeRandom keeps its state in the C library, global to the whole
+ * process, so it can only be searched with a single thread.
+ */
+public class ParallelSeedSearch {
+
+	private static final Logger log = LoggerFactory.getLogger( ParallelSeedSearch.class );
+
+	/** Seeds are non-negative ints. */
+	public static final long SEED_LIMIT = 1L << 31;
+
+	public static final int DEFAULT_SHARD_SIZE = 1 << 16;
+
+	public static final long DEFAULT_PROGRESS_INTERVAL = 10000;  // Milliseconds.
+
+	private static final Comparator<SeedMatch> SEED_ORDER = new Comparator<SeedMatch>() {
+		@Override
+		public int compare( SeedMatch a, SeedMatch b ) {
+			return (a.getSeed() < b.getSeed() ? -1 : (a.getSeed() == b.getSeed() ? 0 : 1));
+		}
+	};
+
+	private final RNGFactory rngFactory;
+	private final boolean dlcEnabled;
+	private final Difficulty difficulty;
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int shardSize = DEFAULT_SHARD_SIZE;
+	private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+	private List<SeedPredicate> predicates = Collections.<SeedPredicate>singletonList( new SafePathPredicate() );
+	private SeedSearchListener listener = null;
+	private File checkpointFile = null;
+
+
+	public ParallelSeedSearch( RNGFactory rngFactory, boolean dlcEnabled, Difficulty difficulty ) {
+		if ( rngFactory == null ) throw new IllegalArgumentException( "An RNG factory is required" );
+
+		this.rngFactory = rngFactory;
+		this.dlcEnabled = dlcEnabled;
+		this.difficulty = difficulty;
+	}
+
+	public void setThreadCount( int n ) {
+		if ( n < 1 ) throw new IllegalArgumentException( String.format( "Invalid thread count: %d", n ) );
+		threadCount = n;
+	}
+	public int getThreadCount() { return threadCount; }
+
+	public void setShardSize( int n ) {
+		if ( n < 1 ) throw new IllegalArgumentException( String.format( "Invalid shard size: %d", n ) );
+		shardSize = n;
+	}
+	public int getShardSize() { return shardSize; }
+
+	/**
+	 * Sets how often, in milliseconds, to report progress and checkpoint.
+	 */
+	public void setProgressInterval( long n ) {
+		if ( n < 1 ) throw new IllegalArgumentException( String.format( "Invalid progress interval: %d", n ) );
+		progressInterval = n;
+	}
+	public long getProgressInterval() { return progressInterval; }
+
+	/**
+	 * Sets the predicates seeds must pass (by default, a SafePathPredicate).
+	 *
+	 * Every worker shares these instances, so they must be thread-safe.
+	 */
+	public void setPredicates( List<SeedPredicate> predicates ) {
+		this.predicates = new ArrayList<SeedPredicate>( predicates );
+	}
+	public List<SeedPredicate> getPredicates() { return Collections.unmodifiableList( predicates ); }
+
+	public void setListener( SeedSearchListener l ) { listener = l; }
+	public SeedSearchListener getListener() { return listener; }
+
+	/**
+	 * Sets a file to save progress to, and to resume from if it exists.
+	 */
+	public void setCheckpointFile( File f ) { checkpointFile = f; }
+	public File getCheckpointFile() { return checkpointFile; }
+
+	/**
+	 * Tests every seed in [fromSeed, toSeed).
+	 *
+	 * Matches restored from a checkpoint are included in the result. Only
+	 * those the checkpoint marked pending are passed to the listener again,
+	 * after rewinding its output.
+	 *
+	 * @return matches, in ascending seed order
+	 * @throws IllegalArgumentException if the range is invalid, or the
+	 *                                  checkpoint is from a different search
+	 * @throws IOException if the checkpoint could not be read or written
+	 */
+	public List<SeedMatch> search( long fromSeed, long toSeed ) throws InterruptedException, IOException {
+		if ( fromSeed < 0 || toSeed > SEED_LIMIT || fromSeed > toSeed ) {
+			throw new IllegalArgumentException( String.format( "Invalid seed range: [%d, %d)", fromSeed, toSeed ) );
+		}
+
+		int shardCount = (int)((toSeed - fromSeed + shardSize - 1) / shardSize);
+		int workerCount = Math.max( 1, Math.min( threadCount, shardCount ) );
+
+		// Workers are built here, on the calling thread, because constructing
+		// them touches DataManager caches that aren't thread-safe.
+		SearchState state = null;
+		List<Worker> workers = new ArrayList<Worker>( workerCount );
+		for ( int i=0; i < workerCount; i++ ) {
+			RandRNG rng = rngFactory.createRNG();
+			if ( workerCount > 1 && rng instanceof NativeRandom ) {
+				throw new IllegalArgumentException( "NativeRandom has process-global state and cannot be searched in parallel" );
+			}
+			if ( state == null ) {
+				state = new SearchState( loadCheckpoint( fromSeed, toSeed, getSettings( rng ) ) );
+			}
+			workers.add( new Worker( new SeedSearch( dlcEnabled, difficulty, predicates ), rng, state ) );
+		}
+
+		// Rebuild the details of matches a previous run found.
+		List<SeedMatch> results = new ArrayList<SeedMatch>();
+		List<Integer> resumedSeeds;
+		Set<Integer> pendingSeeds;
+		long outputPosition;
+		int resumedShardCount;
+		synchronized ( state ) {
+			resumedSeeds = state.checkpoint.getMatchedSeeds();
+			pendingSeeds = new HashSet<Integer>( state.checkpoint.getPendingSeeds() );
+			outputPosition = state.checkpoint.getOutputPosition();
+			resumedShardCount = state.checkpoint.getCompletedShardCount();
+		}
+		List<SeedMatch> pendingMatches = new ArrayList<SeedMatch>();
+		for ( Integer seed : resumedSeeds ) {
+			SeedMatch match = workers.get( 0 ).seedSearch.testSeed( workers.get( 0 ).rng, seed );
+			if ( match == null ) continue;
+
+			results.add( match );
+			if ( pendingSeeds.contains( seed ) ) pendingMatches.add( match );
+		}
+		if ( resumedShardCount > 0 ) {
+			log.info( String.format( "Resuming seed search: %d of %d shards already searched", resumedShardCount, shardCount ) );
+		}
+
+		// The last checkpoint was saved before its batch was reported, which
+		// may not have been written in full. Replace whatever was.
+		if ( listener != null && !pendingMatches.isEmpty() ) {
+			if ( outputPosition >= 0 ) listener.rewindOutput( outputPosition );
+			for ( SeedMatch match : pendingMatches ) {
+				listener.seedMatched( match );
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool( workerCount, new SearchThreadFactory() );
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>( workerCount );
+			for ( Worker worker : workers ) {
+				futures.add( executor.submit( worker ) );
+			}
+			executor.shutdown();
+
+			while ( !executor.awaitTermination( progressInterval, TimeUnit.MILLISECONDS ) ) {
+				results.addAll( commit( state ) );
+				checkWorkers( futures, executor, state );
+			}
+
+			checkWorkers( futures, executor, state );
+			results.addAll( commit( state ) );
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		Collections.sort( results, SEED_ORDER );
+
+		log.info( String.format( "Searched seeds [%d, %d) on %d thread(s) in %d ms: %d match(es)", fromSeed, toSeed, workerCount, state.elapsedMillis(), results.size() ) );
+
+		return results;
+	}
+
+	/**
+	 * Rethrows the failure of any worker that has already stopped.
+	 *
+	 * The rest are interrupted right away, rather than left to search the
+	 * whole range a thread short, after committing what they finished.
+	 */
+	private void checkWorkers( List<Future<Object>> futures, ExecutorService executor, SearchState state ) throws InterruptedException, IOException {
+		for ( Future<Object> future : futures ) {
+			if ( !future.isDone() ) continue;
+
+			try {
+				future.get();
+			}
+			catch ( ExecutionException e ) {
+				commit( state );  // Keep what the other workers finished.
+				executor.shutdownNow();
+				throw rethrow( e.getCause() );
+			}
+		}
+	}
+
+	/**
+	 * Returns a description of everything besides the range that affects
+	 * which seeds match.
+	 */
+	private String getSettings( RandRNG rng ) {
+		StringBuilder buf = new StringBuilder();
+		for ( SeedPredicate p : predicates ) {
+			if ( buf.length() > 0 ) buf.append( ';' );
+			buf.append( p.getSettings() );
+		}
+		return String.format( "%s,%s,dlc=%b,predicates=[%s]", rng.getClass().getName(), difficulty, dlcEnabled, buf );
+	}
+
+	private SeedSearchCheckpoint loadCheckpoint( long fromSeed, long toSeed, String settings ) throws IOException {
+		if ( checkpointFile != null && checkpointFile.exists() ) {
+			SeedSearchCheckpoint checkpoint = SeedSearchCheckpoint.load( checkpointFile );
+			if ( !checkpoint.isCompatible( fromSeed, toSeed, shardSize, settings ) ) {
+				throw new IllegalArgumentException( String.format( "Checkpoint \"%s\" is from a different search", checkpointFile.getPath() ) );
+			}
+			return checkpoint;
+		}
+		return new SeedSearchCheckpoint( fromSeed, toSeed, shardSize, settings );
+	}
+
+	/**
+	 * Saves a checkpoint, then reports matches from newly finished shards.
+	 *
+	 * The checkpoint marks those matches pending, along with the output
+	 * position they'll be written at, for search() to redo on resume.
+	 *
+	 * @return the newly reported matches
+	 */
+	private List<SeedMatch> commit( SearchState state ) throws IOException {
+		List<SeedMatch> newMatches = state.drainMatches();
+		Collections.sort( newMatches, SEED_ORDER );
+
+		if ( checkpointFile != null ) {
+			List<Integer> newSeeds = new ArrayList<Integer>( newMatches.size() );
+			for ( SeedMatch match : newMatches ) {
+				newSeeds.add( match.getSeed() );
+			}
+			long outputPosition = ( listener != null ? listener.getOutputPosition() : -1 );
+			state.saveCheckpoint( checkpointFile, newSeeds, outputPosition );
+		}
+
+		if ( listener != null ) {
+			for ( SeedMatch match : newMatches ) {
+				listener.seedMatched( match );
+			}
+		}
+
+		if ( listener != null ) {
+			long seedsTotal = state.toSeed - state.fromSeed;
+			listener.searchProgress( state.seedsSearched.get(), seedsTotal, state.elapsedMillis() );
+		}
+
+		return newMatches;
+	}
+
+	private RuntimeException rethrow( Throwable t ) {
+		if ( t instanceof RuntimeException ) return (RuntimeException)t;
+		if ( t instanceof Error ) throw (Error)t;
+		return new RuntimeException( t );
+	}
+
+
+
+	/**
+	 * Creates a fresh, independent RNG for each worker.
+	 */
+	public interface RNGFactory {
+		public RandRNG createRNG();
+	}
+
+
+
+	/**
+	 * Bookkeeping shared by the workers and the committing thread.
+	 */
+	private static class SearchState {
+		public final SeedSearchCheckpoint checkpoint;  // Guarded by this.
+		public final long fromSeed;
+		public final long toSeed;
+		public final int shardCount;
+		public final BitSet resumedShards;  // Read-only.
+		public final AtomicInteger nextShard = new AtomicInteger( 0 );
+		public final AtomicLong seedsSearched;
+
+		private final long previousElapsed;
+		private final long startTime = System.currentTimeMillis();
+
+		// Finished but not yet committed. Guarded by this.
+		private final List<Integer> doneShards = new ArrayList<Integer>();
+		private final List<SeedMatch> doneMatches = new ArrayList<SeedMatch>();
+
+		public SearchState( SeedSearchCheckpoint checkpoint ) {
+			this.checkpoint = checkpoint;
+			this.fromSeed = checkpoint.getFromSeed();
+			this.toSeed = checkpoint.getToSeed();
+			this.shardCount = checkpoint.getShardCount();
+			this.resumedShards = checkpoint.getCompletedShards();
+			this.seedsSearched = new AtomicLong( checkpoint.getCompletedSeedCount() );
+			this.previousElapsed = checkpoint.getElapsedMillis();
+		}
+
+		public long elapsedMillis() {
+			return previousElapsed + (System.currentTimeMillis() - startTime);
+		}
+
+		public synchronized void shardFinished( int shard, List<SeedMatch> matches ) {
+			doneShards.add( shard );
+			doneMatches.addAll( matches );
+		}
+
+		/**
+		 * Moves finished shards into the checkpoint.
+		 *
+		 * @return matches from those shards
+		 */
+		public synchronized List<SeedMatch> drainMatches() {
+			for ( Integer shard : doneShards ) {
+				checkpoint.addCompletedShard( shard );
+			}
+			doneShards.clear();
+
+			List<SeedMatch> result = new ArrayList<SeedMatch>( doneMatches );
+			for ( SeedMatch match : result ) {
+				checkpoint.addMatchedSeed( match.getSeed() );
+			}
+			doneMatches.clear();
+
+			return result;
+		}
+
+		public synchronized void saveCheckpoint( File f, List<Integer> pendingSeeds, long outputPosition ) throws IOException {
+			checkpoint.setPendingSeeds( pendingSeeds, outputPosition );
+			checkpoint.setElapsedMillis( elapsedMillis() );
+			checkpoint.save( f );
+		}
+	}
+
+
+
+	private class Worker implements Callable<Object> {
+		private final SeedSearch seedSearch;
+		private final RandRNG rng;
+		private final SearchState state;
+
+		public Worker( SeedSearch seedSearch, RandRNG rng, SearchState state ) {
+			this.seedSearch = seedSearch;
+			this.rng = rng;
+			this.state = state;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			while ( true ) {
+				int shard = state.nextShard.getAndIncrement();
+				if ( shard >= state.shardCount ) break;
+				if ( state.resumedShards.get( shard ) ) continue;
+
+				long shardStart = state.fromSeed + (long)shard * shardSize;
+				long shardEnd = Math.min( shardStart + shardSize, state.toSeed );
+				List<SeedMatch> matches = new ArrayList<SeedMatch>();
+
+				for ( long seed = shardStart; seed < shardEnd; seed++ ) {
+					if ( Thread.currentThread().isInterrupted() ) {
+						throw new InterruptedException();
+					}
+
+					SeedMatch match = seedSearch.testSeed( rng, (int)seed );
+					if ( match != null ) matches.add( match );
+				}
+
+				state.seedsSearched.addAndGet( shardEnd - shardStart );
+				state.shardFinished( shard, matches );
+
+				if ( log.isDebugEnabled() ) log.debug( String.format( "Searched shard [%d, %d)", shardStart, shardEnd ) );
+			}
+			return null;
+		}
+	}
+
+
+
+	private static class SearchThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+		@Override
+		public Thread newThread( Runnable r ) {
+			Thread t = new Thread( r, "SeedSearch-"+ threadNumber.getAndIncrement() );
+			t.setDaemon( true );
+			return t;
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package net.blerf.ftl.seedsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.blerf.ftl.parser.sectormap.BeaconGraph;
+import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
+import net.blerf.ftl.parser.sectormap.ResolvedEvent;
+import net.blerf.ftl.xml.FTLEvent;
+import net.blerf.ftl.xml.Choice;
+import net.blerf.ftl.xml.ShipEvent;
+
+/**
+ * Accepts maps with a shortest path from start to finish without fights.
+ *
+ * A beacon is a fight if its event has boarders, or if every choice without
+ * requirements leads to a hostile ship.
+ *
+ * Optionally, items can be required along the path. Each item must be
+ * offered at a different beacon, without losing crew or resources.
+ */
+public class SafePathPredicate implements SeedPredicate {
+
+	/* Item sets are tracked as bits of a long */
+	public static final int MAX_REQUIRED_ITEMS = 6;
+
+	private List<String> requiredItems = new ArrayList<String>();
+
+
+	/**
+	 * Requires a weapon, augment or drone to be obtainable along the path.
+	 */
+	public void addRequiredItem( String item ) {
+		if ( requiredItems.size() >= MAX_REQUIRED_ITEMS ) {
+			throw new IllegalArgumentException( String.format( "No more than %d items can be required", MAX_REQUIRED_ITEMS ) );
+		}
+		requiredItems.add(item);
+	}
+
+	@Override
+	public Stage getStage() {
+		return Stage.RESOLVED_EVENTS;
+	}
+
+	@Override
+	public String getSettings() {
+		return String.format( "safe_path%s", requiredItems );
+	}
+
+	@Override
+	public boolean accept( SeedCandidate candidate ) {
+		List<Integer> path = findPath(candidate.getSectorMap());
+		if (path == null)
+			return false;
+
+		candidate.setPath(path);
+		return true;
+	}
+
+	/**
+	 * Returns the first acceptable path's beacon indices, or null.
+	 *
+	 * Only shortest paths from start to finish are considered. Paths are
+	 * searched over the map's BeaconGraph, one distance layer at a time.
+	 */
+	public List<Integer> findPath(GeneratedSectorMap map) {
+		if (map.startBeacon < 0 || map.endBeacon < 0)
+			return null;
+
+		BeaconGraph graph = map.getBeaconGraph();
+
+		/* Beacons without a fight, plus the finish */
+		int allowed = 1 << map.endBeacon;
+		for (int b = 0; b < map.getBeaconCount(); b++) {
+			ResolvedEvent event = map.getBeaconEvent(b);
+			if (b != map.endBeacon && event != null && !eventHostile(event, false))
+				allowed |= 1 << b;
+		}
+
+		int[] path;
+		if (requiredItems.isEmpty())
+			path = graph.findPath(map.startBeacon, map.endBeacon, allowed);
+		else
+			path = findItemPath(map, graph, allowed);
+
+		if (path == null)
+			return null;
+
+		List<Integer> result = new ArrayList<Integer>(path.length);
+		for (int b : path)
+			result.add(b);
+		return result;
+	}
+
+	/* Like BeaconGraph.findPath(), but every required item must be claimed
+	 * from a distinct beacon before the finish.
+	 *
+	 * For each beacon, this tracks which sets of items could have been
+	 * claimed on arrival, as a bitmask over item masks.
+	 */
+	private int[] findItemPath(GeneratedSectorMap map, BeaconGraph graph, int allowed) {
+		int[] layers = graph.getPathLayers(map.startBeacon, map.endBeacon, allowed);
+		if (layers == null)
+			return null;
+
+		int fullMask = (1 << requiredItems.size()) - 1;
+
+		/* Items offered by each beacon on a path, except the finish */
+		int[] offered = new int[map.getBeaconCount()];
+		for (int d = 0; d < layers.length-1; d++) {
+			for (int m = layers[d]; m != 0; m &= m - 1) {
+				int b = Integer.numberOfTrailingZeros(m);
+				ResolvedEvent event = map.getBeaconEvent(b);
+				for (int i = 0; i < requiredItems.size(); i++) {
+					if (eventItem(event, requiredItems.get(i)))
+						offered[b] |= 1 << i;
+				}
+			}
+		}
+
+		long[] states = new long[map.getBeaconCount()];
+		states[map.startBeacon] = claimItem(1L, offered[map.startBeacon]);
+
+		for (int d = 1; d < layers.length; d++) {
+			for (int m = layers[d]; m != 0; m &= m - 1) {
+				int b = Integer.numberOfTrailingZeros(m);
+				long arriving = 0;
+				for (int p = layers[d-1] & graph.getNeighborMask(b); p != 0; p &= p - 1)
+					arriving |= states[Integer.numberOfTrailingZeros(p)];
+				states[b] = claimItem(arriving, offered[b]);
+			}
+		}
+
+		if ((states[map.endBeacon] & (1L << fullMask)) == 0)
+			return null;
+
+		/* Walk back, picking the lowest predecessor that had a usable set */
+		int[] path = new int[layers.length];
+		path[layers.length-1] = map.endBeacon;
+		int itemMask = fullMask;
+
+		for (int d = layers.length-2; d >= 0; d--) {
+			int b = path[d+1];
+			int before = -1;
+			int pred = -1;
+
+			for (int p = layers[d] & graph.getNeighborMask(b); p != 0 && pred == -1; p &= p - 1) {
+				int candidate = Integer.numberOfTrailingZeros(p);
+
+				if ((states[candidate] & (1L << itemMask)) != 0) {
+					before = itemMask;
+				}
+				else {
+					for (int i = offered[b] & itemMask; i != 0; i &= i - 1) {
+						int without = itemMask & ~Integer.lowestOneBit(i);
+						if ((states[candidate] & (1L << without)) != 0) {
+							before = without;
+							break;
+						}
+					}
+				}
+				if (before != -1)
+					pred = candidate;
+			}
+			path[d] = pred;
+			itemMask = before;
+		}
+
+		return path;
+	}
+
+	/* Adds the sets reachable by claiming one more offered item */
+	private long claimItem(long sets, int offered) {
+		long result = sets;
+		for (long s = sets; s != 0; s &= s - 1) {
+			int itemMask = Long.numberOfTrailingZeros(s);
+			for (int i = offered & ~itemMask; i != 0; i &= i - 1)
+				result |= 1L << (itemMask | Integer.lowestOneBit(i));
+		}
+		return result;
+	}
+
+	private boolean eventHostile(ResolvedEvent event, boolean hostile) {
+		if (event.getBoarders() != null)
+			return true;
+
+		ShipEvent se = event.getShip();
+		if (se != null)
+			hostile = se.getHostile();
+
+		/* Browse each choice, and the corresponding loaded event */
+		if (event.getChoiceCount() == 0)
+			return hostile;
+
+		boolean childHostile = true;
+		for ( int i=0; i < event.getChoiceCount(); i++ ) {
+			Choice choice = event.getChoice(i);
+			/* We skip if any requirement, we probably don't meet any */
+			if (choice.getReq() != null)
+				continue;
+
+			ResolvedEvent choiceEvent = event.getChoiceEvent(i);
+			if (choiceEvent == null)
+				continue;
+			childHostile = childHostile && eventHostile(choiceEvent, hostile);
+		}
+
+		return childHostile;
+	}
+
+	private boolean eventItem(ResolvedEvent event, String item) {
+		boolean gotItem = false;
+
+		if (event.getWeapon() != null && item.equals(event.getWeaponName()))
+			gotItem = true;
+
+		if (event.getAugment() != null && item.equals(event.getAugmentName()))
+			gotItem = true;
+
+		if (event.getDrone() != null && item.equals(event.getDroneName()))
+			gotItem = true;
+
+		FTLEvent.AutoReward autoReward = event.getAutoReward();
+		if (autoReward != null) {
+			if (autoReward.weapon != null && autoReward.weapon.equals(item))
+				gotItem = true;
+
+			if (autoReward.augment != null && autoReward.augment.equals(item))
+				gotItem = true;
+
+			if (autoReward.drone != null && autoReward.drone.equals(item))
+				gotItem = true;
+		}
+
+		if (gotItem) {
+			/* Check if loosing crew */
+			FTLEvent.CrewMember cm = event.getCrewMember();
+			if ((cm != null) && (cm.amount < 0))
+				gotItem = false;
+
+			/* Check if loosing stuff */
+			for (int i = 0; i < event.getItemCount(); i++) {
+				if (event.getItemValue(i) < 0)
+					gotItem = false;
+			}
+		}
+
+		if (gotItem)
+			return true;
+
+		/* Browse each choice, and the corresponding loaded event */
+		for ( int i=0; i < event.getChoiceCount(); i++ ) {
+			Choice choice = event.getChoice(i);
+			/* We skip if any requirement, we probably don't meet any */
+			if (choice.getReq() != null)
+				continue;
+
+			ResolvedEvent choiceEvent = event.getChoiceEvent(i);
+			if (choiceEvent != null && eventItem(choiceEvent, item))
+				return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,53 @@
+package net.blerf.ftl.seedsearch;
+
+import java.util.List;
+
+import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
+import net.blerf.ftl.model.sectortree.SectorDot;
+import net.blerf.ftl.parser.shiplayout.RandomShipLayout;
+
+
+/**
+ * The generated parts of a seed that SeedPredicates examine.
+ *
+ * Fields are filled in stage by stage, so later ones may still be null.
+ * During the BEACON_GEOMETRY and BEACON_ROLES stages, the sector map's
+ * layout is final and its start/finish beacons are set, but events have
+ * only been walked, so getBeaconEvent() may return null. Built events are
+ * only present at RESOLVED_EVENTS.
+ */
+public class SeedCandidate {
+
+	private final int seed;
+
+	private RandomShipLayout shipLayout = null;
+	private List<List<SectorDot>> sectorTree = null;
+	private GeneratedSectorMap sectorMap = null;
+	private List<Integer> path = null;
+
+
+	public SeedCandidate( int seed ) {
+		this.seed = seed;
+	}
+
+	public int getSeed() { return seed; }
+
+	public void setShipLayout( RandomShipLayout layout ) { shipLayout = layout; }
+	public RandomShipLayout getShipLayout() { return shipLayout; }
+
+	public void setSectorTree( List<List<SectorDot>> tree ) { sectorTree = tree; }
+	public List<List<SectorDot>> getSectorTree() { return sectorTree; }
+
+	public void setSectorMap( GeneratedSectorMap map ) { sectorMap = map; }
+	public GeneratedSectorMap getSectorMap() { return sectorMap; }
+
+	/**
+	 * Sets the beacon indices of a path a predicate found, from start to
+	 * finish.
+	 *
+	 * This path is reported with the match, and later predicates can
+	 * examine it.
+	 */
+	public void setPath( List<Integer> path ) { this.path = path; }
+	public List<Integer> getPath() { return path; }
+}
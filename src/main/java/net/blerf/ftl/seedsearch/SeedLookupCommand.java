@@ -0,0 +1,155 @@
+package net.blerf.ftl.seedsearch;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.blerf.ftl.parser.DataManager;
+import net.blerf.ftl.parser.DefaultDataManager;
+import net.blerf.ftl.parser.SavedGameParser;
+
+
+/**
+ * The "seedlookup" command-line mode.
+ *
+ * Prints every sector layout seed that agrees with what was observed, one
+ * per line. A saved game supplies the fudge, beacon count, and file format,
+ * but beacon locations must be given with --beacons. Reading a saved game
+ * needs FTL's resources; a lookup without one does not.
+ *
+ * @see LayoutSeedLookup
+ */
+@Parameters( commandDescription = "Find the sector layout seeds that produce an observed map" )
+public class SeedLookupCommand {
+
+	private static final Logger log = LoggerFactory.getLogger( SeedLookupCommand.class );
+
+	public static final String NAME = "seedlookup";
+
+	@Parameter( names = "--save", description = "Saved game to take the fudge, beacon count, and format from" )
+	private String savePath = null;
+
+	@Parameter( names = "--fudge", description = "Rebel fleet fudge (overrides --save)" )
+	private int fleetFudge = -1;
+
+	@Parameter( names = "--count", description = "Number of beacons (overrides --save)" )
+	private int beaconCount = -1;
+
+	@Parameter( names = "--beacons", description = "Locations of the first beacons, in order, as \"x,y x,y ...\"" )
+	private String beaconsArg = null;
+
+	@Parameter( names = "--format", description = "Saved game file format: 2, 7, 8, 9, or 11 (overrides --save)" )
+	private int fileFormat = -1;
+
+	@Parameter( names = "--rng", description = "RNG algorithm: ftl (1.6+), native, gnu, bsd, or ms" )
+	private String rngName = SeedSearchCommand.RNG_FTL_1_6;
+
+	@Parameter( names = "--threads", description = "Worker threads" )
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	@Parameter( names = "--follow-rerolls", description = "Also find layouts FTL re-rolled for isolated beacons (slower)" )
+	private boolean followRerolls = false;
+
+	@Parameter( names = "--dats", description = "FTL resources dir, for reading --save (default: from ftl-editor.cfg, or autodetect)" )
+	private String datsPath = null;
+
+	@Parameter( names = { "-h", "--help" }, help = true, description = "Show usage" )
+	private boolean help = false;
+
+
+	public boolean isHelp() { return help; }
+
+	/**
+	 * Runs the lookup.
+	 *
+	 * @return a process exit code
+	 */
+	public int execute() {
+		ParallelSeedSearch.RNGFactory rngFactory = SeedSearchCommand.createRNGFactory( rngName );
+		if ( rngFactory == null ) {
+			log.error( String.format( "Unknown RNG: %s", rngName ) );
+			return 2;
+		}
+
+		LayoutObservation obs = new LayoutObservation();
+		int format = 11;
+
+		if ( savePath != null ) {
+			File datsDir = SeedSearchCommand.findDatsDir( datsPath );
+			if ( datsDir == null ) {
+				log.error( "FTL resources were not found, use --dats to specify their location" );
+				return 1;
+			}
+
+			try {
+				DataManager.setInstance( new DefaultDataManager( datsDir ) );
+			}
+			catch ( Exception e ) {
+				log.error( "Error parsing FTL resources", e );
+				return 1;
+			}
+
+			try {
+				SavedGameParser.SavedGameState gameState = new SavedGameParser().readSavedGame( new File( savePath ) );
+				obs = LayoutObservation.fromGameState( gameState );
+				format = gameState.getFileFormat();
+				log.info( String.format( "Saved game's sector layout seed: %d", gameState.getSectorLayoutSeed() ) );
+			}
+			catch ( IOException e ) {
+				log.error( String.format( "Error reading saved game: %s", savePath ), e );
+				return 1;
+			}
+		}
+
+		if ( fleetFudge != -1 ) obs.setRebelFleetFudge( fleetFudge );
+		if ( beaconCount != -1 ) obs.setBeaconCount( beaconCount );
+		if ( fileFormat != -1 ) format = fileFormat;
+
+		if ( beaconsArg != null ) {
+			for ( String pair : beaconsArg.trim().split( "[\\s;]+" ) ) {
+				if ( pair.length() == 0 ) continue;
+
+				String[] xy = pair.split( "," );
+				try {
+					if ( xy.length != 2 ) throw new NumberFormatException();
+					obs.addBeaconLocation( Integer.parseInt( xy[0].trim() ), Integer.parseInt( xy[1].trim() ) );
+				}
+				catch ( NumberFormatException e ) {
+					log.error( String.format( "Invalid beacon location: %s", pair ) );
+					return 2;
+				}
+			}
+		}
+
+		if ( obs.getBeaconLocations().isEmpty() ) {
+			log.warn( "No beacon locations were given, expect many seeds" );
+		}
+
+		try {
+			LayoutSeedLookup lookup = new LayoutSeedLookup( rngFactory, format );
+			lookup.setThreadCount( threadCount );
+			lookup.setFollowRerolls( followRerolls );
+
+			log.info( String.format( "Looking up seeds for fileFormat %d: %s", format, obs ) );
+
+			for ( Integer seed : lookup.lookup( obs ) ) {
+				System.out.println( seed );
+			}
+			System.out.flush();
+			return 0;
+		}
+		catch ( IllegalArgumentException e ) {
+			log.error( e.getMessage() );
+			return 2;
+		}
+		catch ( InterruptedException e ) {
+			log.error( "Seed lookup was interrupted" );
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package net.blerf.ftl.seedsearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A seed that satisfied a SeedSearch, with the path that was found.
+ *
+ * This holds plain values only, so it stays valid after the generated map
+ * it came from is discarded.
+ */
+public class SeedMatch {
+
+	private final int seed;
+	private final List<MatchBeacon> path;
+
+
+	public SeedMatch( int seed, List<MatchBeacon> path ) {
+		this.seed = seed;
+		this.path = Collections.unmodifiableList( new ArrayList<MatchBeacon>( path ) );
+	}
+
+	public int getSeed() { return seed; }
+
+	/**
+	 * Returns the beacons along the path, from start to finish.
+	 */
+	public List<MatchBeacon> getPath() { return path; }
+
+
+
+	public static class MatchBeacon {
+		private final int index;
+		private final int col;
+		private final int row;
+		private final String eventId;
+		private final String description;
+
+		public MatchBeacon( int index, int col, int row, String eventId, String description ) {
+			this.index = index;
+			this.col = col;
+			this.row = row;
+			this.eventId = eventId;
+			this.description = description;
+		}
+
+		/** Returns the beacon's index in the sector map. */
+		public int getIndex() { return index; }
+		public int getCol() { return col; }
+		public int getRow() { return row; }
+
+		/** Returns the beacon event's id, or null. */
+		public String getEventId() { return eventId; }
+
+		/** Returns a human-readable summary of the beacon event, or null. */
+		public String getDescription() { return description; }
+	}
+}
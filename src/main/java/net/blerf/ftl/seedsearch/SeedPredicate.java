@@ -0,0 +1,60 @@
+package net.blerf.ftl.seedsearch;
+
+
+/**
+ * A test a seed must pass to be reported by SeedSearch.
+ *
+ * Each predicate declares the earliest generation stage it needs. SeedSearch
+ * generates stages in order, running each predicate as soon as its stage is
+ * ready, and abandons the seed at the first rejection. Predicates on cheap
+ * stages should reject as much as possible, so fewer seeds pay for event
+ * resolution.
+ */
+public interface SeedPredicate {
+
+	/**
+	 * Generation stages, in the order FTL consumes random numbers for them.
+	 */
+	public enum Stage {
+		/** The player ship's random crew positions. */
+		SHIP_LAYOUT,
+
+		/** The sector tree. */
+		SECTOR_TREE,
+
+		/**
+		 * Sector 1's beacon grid and locations, once the layout is final
+		 * (populating the map can reject a layout). Events should be
+		 * ignored, as they may not be built.
+		 */
+		BEACON_GEOMETRY,
+
+		/**
+		 * Sector 1's start, finish, distances and event ids. Events are
+		 * walked without being built, so getBeaconEvent() returns null.
+		 */
+		BEACON_ROLES,
+
+		/** Sector 1's start, finish and beacon events. */
+		RESOLVED_EVENTS
+	}
+
+	public Stage getStage();
+
+	/**
+	 * Returns a description of this predicate and its configuration.
+	 *
+	 * This is saved with search checkpoints, so a search is only resumed
+	 * with predicates that would accept the same seeds. It should not vary
+	 * between runs (no identity hash codes).
+	 */
+	public String getSettings();
+
+	/**
+	 * Returns true if the seed should be kept.
+	 *
+	 * Only the parts of the candidate up to this predicate's stage are
+	 * available.
+	 */
+	public boolean accept( SeedCandidate candidate );
+}
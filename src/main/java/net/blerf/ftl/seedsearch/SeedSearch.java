@@ -1,31 +1,23 @@
 package net.blerf.ftl.seedsearch;
 
-import java.awt.Point;
-
 import java.util.ArrayList;
 import java.util.List;
-import java.util.AbstractMap;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.Collections;
+import java.util.Comparator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.blerf.ftl.constants.Difficulty;
-import net.blerf.ftl.parser.DataManager;
 import net.blerf.ftl.parser.random.RandRNG;
 import net.blerf.ftl.parser.random.NativeRandom;
 import net.blerf.ftl.parser.shiplayout.RandomShipLayout;
 import net.blerf.ftl.parser.sectormap.RandomSectorMapGenerator;
 import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
-import net.blerf.ftl.parser.sectormap.GeneratedBeacon;
+import net.blerf.ftl.parser.sectormap.ResolvedEvent;
 import net.blerf.ftl.parser.sectortree.RandomSectorTreeGenerator;
-import net.blerf.ftl.model.shiplayout.ShipLayout;
-import net.blerf.ftl.model.shiplayout.ShipLayoutRoom;
-import net.blerf.ftl.xml.FTLEvent;
-import net.blerf.ftl.xml.Choice;
-import net.blerf.ftl.xml.ShipEvent;
 
 /**
  * Finding good seeds
@@ -38,32 +30,138 @@ public class SeedSearch {
 	boolean dlcEnabled = true;
 	Difficulty difficulty = Difficulty.HARD;
 
-	private static Set<Integer> uniqueCrewNames = new HashSet<Integer>();
+	/*
+	 * Per-instance state: a SeedSearch must only be used by one thread at a
+	 * time. Parallel searches create one instance per worker.
+	 */
+	private Set<Integer> uniqueCrewNames = new HashSet<Integer>();
 
 	RandomShipLayout ship = new RandomShipLayout("kestral", uniqueCrewNames);
 
-	/* Generate a whole seed, and look at the sector map for a valid path.
-	 * Returns if one was found.
+	/* Refilled for each seed; only valid until the next one */
+	private GeneratedSectorMap reusableMap = new GeneratedSectorMap();
+
+	/* Predicates, sorted by stage */
+	private List<SeedPredicate> predicates = new ArrayList<SeedPredicate>();
+
+	/* Generation stops after this stage, or null to generate nothing */
+	private SeedPredicate.Stage lastStage = null;
+
+
+	/**
+	 * Constructs a search for maps with a safe path to the first exit.
+	 */
+	public SeedSearch() {
+		this( true, Difficulty.HARD );
+	}
+
+	public SeedSearch( boolean dlcEnabled, Difficulty difficulty ) {
+		this( dlcEnabled, difficulty, Collections.<SeedPredicate>singletonList( new SafePathPredicate() ) );
+	}
+
+	public SeedSearch( boolean dlcEnabled, Difficulty difficulty, List<SeedPredicate> predicates ) {
+		this.dlcEnabled = dlcEnabled;
+		this.difficulty = difficulty;
+
+		for ( SeedPredicate p : predicates ) {
+			addPredicate( p );
+		}
+	}
+
+	public boolean isDLCEnabled() { return dlcEnabled; }
+	public Difficulty getDifficulty() { return difficulty; }
+
+	/**
+	 * Adds a predicate.
+	 *
+	 * Predicates run in stage order. Within a stage, they run in the order
+	 * they were added.
+	 */
+	public void addPredicate( SeedPredicate p ) {
+		predicates.add( p );
+		Collections.sort( predicates, new Comparator<SeedPredicate>() {
+			@Override
+			public int compare( SeedPredicate a, SeedPredicate b ) {
+				return a.getStage().compareTo( b.getStage() );
+			}
+		});
+
+		if ( lastStage == null || p.getStage().compareTo( lastStage ) > 0 ) {
+			lastStage = p.getStage();
+		}
+	}
+
+	public List<SeedPredicate> getPredicates() {
+		return Collections.unmodifiableList( predicates );
+	}
+
+	/**
+	 * Seeds an RNG and tests whether the resulting game is a match.
+	 *
+	 * Maps that fail to generate are treated as non-matching.
+	 *
+	 * @return the match, or null
+	 */
+	public SeedMatch testSeed( RandRNG rng, int seed ) {
+		rng.srand( seed );
+
+		SeedCandidate candidate = new SeedCandidate( seed );
+		try {
+			if ( generateAll( rng, candidate ) ) {
+				return createMatch( candidate );
+			}
+		}
+		catch ( IllegalStateException e ) {
+			log.debug( String.format( "Seed %d failed to generate: %s", seed, e.getMessage() ) );
+		}
+		return null;
+	}
+
+	/**
+	 * Tests every seed in [fromSeed, toSeed) sequentially.
+	 *
+	 * @return matches, in ascending seed order
+	 */
+	public List<SeedMatch> searchRange( RandRNG rng, long fromSeed, long toSeed ) {
+		List<SeedMatch> results = new ArrayList<SeedMatch>();
+
+		for ( long seed = fromSeed; seed < toSeed; seed++ ) {
+			SeedMatch match = testSeed( rng, (int)seed );
+			if ( match != null ) {
+				results.add( match );
+			}
+		}
+		return results;
+	}
+
+	/* Generate a seed stage by stage, stopping as soon as a predicate
+	 * rejects it, or once no predicate needs later stages.
+	 * Returns if all predicates accepted it.
 	 */
-	public boolean generateAll(RandRNG rng) {
+	protected boolean generateAll(RandRNG rng, SeedCandidate candidate) {
 
 		uniqueCrewNames.clear();
 
+		if (lastStage == null)
+			return true;
+
 		/* Game startup */
-		for (int i=0; i<101; i++) {
-			rng.rand();
-		}
+		rng.skip(101);
 
 		/* New Game */
-		for (int i=0; i<68; i++) {
-			rng.rand();
-		}
+		rng.skip(68);
 
 		/* Random ship generation */
 		int seed = rng.rand();
 		// log.info( String.format( "Ship generation, seed: %d", seed ) );
 
 		ship.generateShipLayout(rng, seed);
+		candidate.setShipLayout(ship);
+
+		if (!acceptStage(SeedPredicate.Stage.SHIP_LAYOUT, candidate))
+			return false;
+		if (lastStage == SeedPredicate.Stage.SHIP_LAYOUT)
+			return true;
 
 		/* Sector tree generation */
 		rng.rand();
@@ -73,7 +171,12 @@ public class SeedSearch {
 		RandomSectorTreeGenerator expandedTreeGen = new RandomSectorTreeGenerator( rng );
 		seed = rng.rand();
 		// log.info( String.format( "Sector tree generation, seed: %d", seed ) );
-		expandedTreeGen.generateSectorTree(seed, dlcEnabled);
+		candidate.setSectorTree(expandedTreeGen.generateSectorTree(seed, dlcEnabled));
+
+		if (!acceptStage(SeedPredicate.Stage.SECTOR_TREE, candidate))
+			return false;
+		if (lastStage == SeedPredicate.Stage.SECTOR_TREE)
+			return true;
 
 		/* Sector map generation */
 		RandomSectorMapGenerator sectorMapGen = new RandomSectorMapGenerator();
@@ -85,23 +188,99 @@ public class SeedSearch {
 
 		seed = rng.rand();
 		rng.srand(seed);
-		log.info( String.format( "Sector map generation, seed: %d", seed ) );
+		if ( log.isDebugEnabled() ) log.debug( String.format( "Sector map generation, seed: %d", seed ) );
+
+		GeneratedSectorMap map = sectorMapGen.createSectorMap(rng, reusableMap);
+		candidate.setSectorMap(map);
+
+		/* A layout can be rejected while populating, so it's only final once
+		 * populateSectorMap() accepts it. If earlier stages have predicates,
+		 * events are walked without being built, and only built (from the
+		 * same RNG state) if those predicates accept the map.
+		 */
+		boolean checkEarly = usesStage(SeedPredicate.Stage.BEACON_GEOMETRY) || usesStage(SeedPredicate.Stage.BEACON_ROLES);
+		boolean rebuildEvents = checkEarly && lastStage.compareTo(SeedPredicate.Stage.BEACON_ROLES) > 0;
+		RandRNG.Snapshot beforeEvents = null;
+		Set<Integer> namesBeforeEvents = null;
+
+		sectorMapGen.resolveEvents = !checkEarly;
+		do {
+			sectorMapGen.generateBeaconLayout(rng, map);
+
+			if (rebuildEvents) {
+				beforeEvents = rng.snapshot();
+				namesBeforeEvents = new HashSet<Integer>(uniqueCrewNames);
+			}
+		}
+		while (!sectorMapGen.populateSectorMap(rng, map));
 
-		GeneratedSectorMap map = sectorMapGen.generateSectorMap(rng, 9);
+		if (!acceptStage(SeedPredicate.Stage.BEACON_GEOMETRY, candidate))
+			return false;
+		if (lastStage == SeedPredicate.Stage.BEACON_GEOMETRY)
+			return true;
 
-		/* Check if generation finished early */
-		if (map == null)
+		if (!acceptStage(SeedPredicate.Stage.BEACON_ROLES, candidate))
 			return false;
+		if (lastStage == SeedPredicate.Stage.BEACON_ROLES)
+			return true;
 
-		List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
+		if (rebuildEvents) {
+			rng.restore(beforeEvents);
+			uniqueCrewNames.clear();
+			uniqueCrewNames.addAll(namesBeforeEvents);
+
+			/* Same draws as before, so the layout is accepted again */
+			sectorMapGen.resolveEvents = true;
+			sectorMapGen.populateSectorMap(rng, map);
+		}
 
-		return bfsStart(map);
+		return acceptStage(SeedPredicate.Stage.RESOLVED_EVENTS, candidate);
+	}
+
+	private boolean usesStage(SeedPredicate.Stage stage) {
+		for (SeedPredicate p : predicates) {
+			if (p.getStage() == stage)
+				return true;
+		}
+		return false;
+	}
+
+	private boolean acceptStage(SeedPredicate.Stage stage, SeedCandidate candidate) {
+		for (SeedPredicate p : predicates) {
+			if (p.getStage() != stage)
+				continue;
+			if (!p.accept(candidate))
+				return false;
+		}
+		return true;
+	}
+
+	private SeedMatch createMatch(SeedCandidate candidate) {
+		List<SeedMatch.MatchBeacon> matchPath = new ArrayList<SeedMatch.MatchBeacon>();
+
+		GeneratedSectorMap map = candidate.getSectorMap();
+		if (map != null && candidate.getPath() != null) {
+			for (int b : candidate.getPath()) {
+				ResolvedEvent event = map.getBeaconEvent(b);
+				String eventId = (event != null ? event.getId() : null);
+				String description = (event != null ? event.toDescription(0) : null);
+
+				if (log.isDebugEnabled()) {
+					log.debug( String.format( "Got beacon %d", b ) );
+					log.debug( description );
+				}
+				matchPath.add(new SeedMatch.MatchBeacon(b, map.getBeaconCol(b), map.getBeaconRow(b), eventId, description));
+			}
+		}
+
+		return new SeedMatch(candidate.getSeed(), matchPath);
 	}
 
 	/* Iterate for each seed value and look at a valid path */
 	public void search() {
 
 		RandRNG rng = new NativeRandom( "Native" );
+		SafePathPredicate safePath = new SafePathPredicate();
 
 		/* 20677891
 		 * 40823384
@@ -114,17 +293,8 @@ public class SeedSearch {
 		 * 492539968
 		 */
 
-		for (int seed = 250410660; seed < 250410661; seed++) {
-			if (0 == (seed & 0xfff))
-				log.info( String.format( "Seed %d", seed ) );
-
-			rng.srand( seed );
-
-			boolean res = generateAll( rng );
-			if (res) {
-				log.info( String.format( "Seed %d", seed ) );
-				// break;
-			}
+		for (SeedMatch match : searchRange( rng, 250410660L, 250410661L )) {
+			log.info( String.format( "Seed %d", match.getSeed() ) );
 		}
 
 
@@ -140,9 +310,7 @@ public class SeedSearch {
 
 		rng.srand( 1351785981 );
 
-		for (int k=0; k<694+24; k++) {
-			rng.rand();
-		}
+		rng.skip(694+24);
 
 		int seed2 = rng.rand();
 		rng.srand( seed2 );
@@ -152,9 +320,7 @@ public class SeedSearch {
 		sectorMapGen.sectorNumber = 1;
 		sectorMapGen.generateSectorMap(rng, 9);
 
-		for (int k=0; k<1256-16; k++) {
-			rng.rand();
-		}
+		rng.skip(1256-16);
 
 		int seed3 = rng.rand();
 
@@ -187,12 +353,17 @@ public class SeedSearch {
 		sectorMapGen.sectorNumber = 5;
 		sectorMapGen.generateSectorMap(rng, 9);
 
-		// rng.srand( 1866532180 );
-		// log.info( String.format( "Sector 7 map generation, seed: 1866532180" ) );
-		//
-		// sectorMapGen.sectorId = "REBEL_SECTOR";
-		// sectorMapGen.sectorNumber = 6;
-		// sectorMapGen.generateSectorMap(rng, 9);
+		/* Sector 7 is the same for every candidate, so generate it once and
+		 * branch from the resulting RNG state.
+		 */
+		rng.srand( 1866532180 );
+		log.info( String.format( "Sector 7 map generation, seed: 1866532180" ) );
+
+		sectorMapGen.sectorId = "REBEL_SECTOR";
+		sectorMapGen.sectorNumber = 6;
+		sectorMapGen.generateSectorMap(rng, 9);
+
+		RandRNG.Snapshot sector7Snapshot = rng.snapshot();
 
 		Set<Integer> backCrewNames = new HashSet<Integer>();
 		backCrewNames.addAll(uniqueCrewNames);
@@ -202,16 +373,8 @@ public class SeedSearch {
 			uniqueCrewNames.clear();
 			uniqueCrewNames.addAll(backCrewNames);
 
-			rng.srand( 1866532180 );
-			// log.info( String.format( "Sector 7 map generation, seed: 1866532180" ) );
-
-			sectorMapGen.sectorId = "REBEL_SECTOR";
-			sectorMapGen.sectorNumber = 6;
-			sectorMapGen.generateSectorMap(rng, 9);
-
-			for (int k=0; k<1000+l; k++) {
-				rng.rand();
-			}
+			rng.restore( sector7Snapshot );
+			rng.skip(1000+l);
 
 			int seed8 = rng.rand();
 
@@ -228,9 +391,6 @@ public class SeedSearch {
 			if (map.flagshipBeacon == -1)
 				continue;
 
-			List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
-			GeneratedBeacon endBeacon = beaconList.get(map.endBeacon);
-
 			int begB = map.startBeacon;
 			int endB = map.endBeacon;
 			int flagB = map.flagshipBeacon;
@@ -239,11 +399,11 @@ public class SeedSearch {
 			map.endBeacon = map.flagshipBeacon;
 			sectorMapGen.minDistanceMap(map, 4);
 
-			if (beaconList.get(flagB).distance != 4)
+			if (map.getBeaconDistance(flagB) != 4)
 				continue;
 
 			/* There should be one path without fights for the first two beacons */
-			if (!bfsStart(map))
+			if (safePath.findPath(map) == null)
 				continue;
 
 			/* We must check if there is a beacon:
@@ -254,9 +414,8 @@ public class SeedSearch {
 
 			/* Find all beacons at distance 3 from start to flagship */
 			Set<Integer> d3s = new HashSet<Integer>();
-			for (int m = 0; m<beaconList.size(); m++) {
-				GeneratedBeacon gg = beaconList.get(m);
-				if (gg.distance == 3)
+			for (int m = 0; m<map.getBeaconCount(); m++) {
+				if (map.getBeaconDistance(m) == 3)
 					d3s.add(m);
 			}
 
@@ -264,12 +423,11 @@ public class SeedSearch {
 			map.startBeacon = flagB;
 			map.endBeacon = endB;
 			sectorMapGen.minDistanceMap(map, 20);
-			int ss = beaconList.get(endB).distance;
+			int ss = map.getBeaconDistance(endB);
 
 			Set<Integer> d1f = new HashSet<Integer>();
-			for (int m = 0; m<beaconList.size(); m++) {
-				GeneratedBeacon gg = beaconList.get(m);
-				if (gg.distance == 1) {
+			for (int m = 0; m<map.getBeaconCount(); m++) {
+				if (map.getBeaconDistance(m) == 1) {
 					d1f.add(m);
 					log.info( String.format( "Beacon at dist 1 from flagship: %d", m) );
 				}
@@ -281,9 +439,8 @@ public class SeedSearch {
 			sectorMapGen.minDistanceMap(map, 20);
 
 			Set<Integer> dnb = new HashSet<Integer>();
-			for (int m = 0; m<beaconList.size(); m++) {
-				GeneratedBeacon gg = beaconList.get(m);
-				if (gg.distance == (ss-1)) {
+			for (int m = 0; m<map.getBeaconCount(); m++) {
+				if (map.getBeaconDistance(m) == (ss-1)) {
 					dnb.add(m);
 					log.info( String.format( "Beacon at dist %d from end: %d", ss-1, m) );
 				}
@@ -303,7 +460,7 @@ public class SeedSearch {
 					map.startBeacon = begB;
 					map.endBeacon = ii;
 					sectorMapGen.minDistanceMap(map, 20);
-					if (bfsStart(map))
+					if (safePath.findPath(map) != null)
 						log.info( String.format( "Found!" ) );
 
 				}
@@ -313,207 +470,4 @@ public class SeedSearch {
 		}
 
 	}
-
-	public static final double ISOLATION_THRESHOLD = 165d;
-
-	private double distance(GeneratedBeacon b1, GeneratedBeacon b2) {
-		Point p1 = b1.getLocation();
-		Point p2 = b2.getLocation();
-		return Math.hypot( p1.x - p2.x, p1.y - p2.y );
-	}
-
-	private boolean bfsStart(GeneratedSectorMap map) {
-		List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
-
-		List<Integer> beaconPath = new ArrayList<Integer>(5);
-
-		return bfs(map, map.startBeacon, beaconPath);
-	}
-
-	private boolean bfs(GeneratedSectorMap map, int currentBeacon, List<Integer> beaconPath) {
-		List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
-
-		GeneratedBeacon endBeacon = beaconList.get(map.endBeacon);
-
-		/* Examine current beacon event */
-		GeneratedBeacon gb = beaconList.get(currentBeacon);
-		FTLEvent event = gb.getEvent();
-
-		/* Check if finish beacon */
-		if (currentBeacon == map.endBeacon) {
-			return validatePath(map, beaconPath);
-		}
-
-		/* Is ship hostile */
-		if (eventHostile(event, false))
-			return false;
-
-		/* Register the beacon in the list */
-		int currentDist = gb.distance;
-		if (beaconPath.size() == currentDist)
-			beaconPath.add(currentBeacon);
-		else
-			beaconPath.set(currentDist, currentBeacon);
-
-		int curRow = gb.row;
-		int curCol = gb.col;
-
-		boolean res = false;
-		for (int bd = 0; bd < beaconList.size(); bd++) {
-			GeneratedBeacon otherBec = beaconList.get(bd);
-
-			if (otherBec.distance != (currentDist+1))
-				continue;
-
-			/* Check if the two beacons are connected */
-			if (Math.abs(otherBec.row - curRow) > 1)
-				continue;
-
-			if (Math.abs(otherBec.col - curCol) > 1)
-				continue;
-
-			if (distance(gb, otherBec) >= ISOLATION_THRESHOLD)
-				continue;
-
-			res = res || bfs(map, bd, beaconPath);
-		}
-		return res;
-	}
-
-	private boolean validatePath(GeneratedSectorMap map, List<Integer> beaconPath) {
-		List<GeneratedBeacon> beaconList = map.getGeneratedBeaconList();
-
-		// boolean ret = false;
-		// int w = -1;
-		// for (int b : beaconPath) {
-		// 	GeneratedBeacon bec = beaconList.get(b);
-		// 	FTLEvent event = bec.getEvent();
-		// 	if (eventItem(event, "BEAM_HULL")) {
-		// 		ret = true;
-		// 		w = b;
-		// 		break;
-		// 	}
-		// }
-		//
-		// if (! ret)
-		// 	return false;
-
-		// ret = false;
-		// for (int b : beaconPath) {
-		// 	if (b == w)
-		// 		continue;
-		// 	GeneratedBeacon bec = beaconList.get(b);
-		// 	FTLEvent event = bec.getEvent();
-		// 	if (eventItem(event, "SHOTGUN_2")) {
-		// 		ret = true;
-		// 		break;
-		// 	}
-		// }
-		//
-		// if (! ret)
-		// 	return false;
-
-		for (int b : beaconPath) {
-			GeneratedBeacon bec = beaconList.get(b);
-			FTLEvent event = bec.getEvent();
-			log.info( String.format( "Got beacon %d", b ) );
-			log.info( event.toDescription(0) );
-		}
-
-		return true;
-	}
-
-	private boolean eventHostile(FTLEvent event, boolean hostile) {
-		if (event.getBoarders() != null)
-			return true;
-
-		ShipEvent se = event.getShip();
-		if (se != null)
-			hostile = se.getHostile();
-
-		/* Browse each choice, and load the corresponding event */
-		List<Choice> choiceList = event.getChoiceList();
-
-		if (choiceList == null)
-			return hostile;
-
-		boolean childHostile = true;
-		for ( int i=0; i < choiceList.size(); i++ ) {
-			Choice choice = choiceList.get(i);
-			/* We skip if any requirement, we probably don't meet any */
-			if (choice.getReq() != null)
-				continue;
-
-			FTLEvent choiceEvent = choice.getEvent();
-			childHostile = childHostile && eventHostile(choiceEvent, hostile);
-		}
-
-		return childHostile;
-	}
-
-	private boolean eventItem(FTLEvent event, String item) {
-		boolean gotItem = false;
-
-		FTLEvent.Item weapon = event.getWeapon();
-		if (weapon != null && weapon.name.equals(item))
-			gotItem = true;
-
-		FTLEvent.Item augment = event.getAugment();
-		if (augment != null && augment.name.equals(item))
-			gotItem = true;
-
-		FTLEvent.Item drone = event.getDrone();
-		if (drone != null && drone.name.equals(item))
-			gotItem = true;
-
-		FTLEvent.AutoReward autoReward = event.getAutoReward();
-		if (autoReward != null) {
-			if (autoReward.weapon != null && autoReward.weapon.equals(item))
-				gotItem = true;
-
-			if (autoReward.augment != null && autoReward.augment.equals(item))
-				gotItem = true;
-
-			if (autoReward.drone != null && autoReward.drone.equals(item))
-				gotItem = true;
-		}
-
-		if (gotItem) {
-			/* Check if loosing crew */
-			FTLEvent.CrewMember cm = event.getCrewMember();
-			if ((cm != null) && (cm.amount < 0))
-				gotItem = false;
-
-			/* Check if loosing stuff */
-			FTLEvent.ItemList il = event.getItemList();
-			if (il != null) {
-				for (FTLEvent.Reward r : il.items) {
-					if (r.value < 0)
-						gotItem = false;
-				}
-			}
-		}
-
-		if (gotItem)
-			return true;
-
-		/* Browse each choice, and load the corresponding event */
-		List<Choice> choiceList = event.getChoiceList();
-
-		if (choiceList == null)
-			return false;
-
-		for ( int i=0; i < choiceList.size(); i++ ) {
-			Choice choice = choiceList.get(i);
-			/* We skip if any requirement, we probably don't meet any */
-			if (choice.getReq() != null)
-				continue;
-
-			FTLEvent choiceEvent = choice.getEvent();
-			if (eventItem(choiceEvent, item))
-				return true;
-		}
-
-		return false;
-	}
 }
@@ -0,0 +1,265 @@
+package net.blerf.ftl.seedsearch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Progress of a ParallelSeedSearch, saved so an interrupted scan can resume.
+ *
+ * Shards are numbered from the start of the range. Only fully searched
+ * shards are recorded, along with the seeds that matched in them, so
+ * resuming never rescans a finished shard.
+ *
+ * A checkpoint is saved before its newest matches are reported. Those are
+ * kept as pending seeds, with the listener's output position from before
+ * they were written. A resumed search rewinds the output to that position
+ * and reports the pending seeds again, so every match appears exactly once
+ * however the previous run ended.
+ *
+ * The file is a Properties file, written to a temporary file first and then
+ * renamed over the old one.
+ */
+public class SeedSearchCheckpoint {
+
+	private static final String FROM_SEED = "from_seed";
+	private static final String TO_SEED = "to_seed";
+	private static final String SHARD_SIZE = "shard_size";
+	private static final String SETTINGS = "settings";
+	private static final String COMPLETED_SHARDS = "completed_shards";
+	private static final String MATCHED_SEEDS = "matched_seeds";
+	private static final String PENDING_SEEDS = "pending_seeds";
+	private static final String OUTPUT_POSITION = "output_position";
+	private static final String SEEDS_SEARCHED = "seeds_searched";
+	private static final String ELAPSED_MILLIS = "elapsed_millis";
+
+	private final long fromSeed;
+	private final long toSeed;
+	private final int shardSize;
+	private final String settings;
+
+	private final BitSet completedShards = new BitSet();
+	private final List<Integer> matchedSeeds = new ArrayList<Integer>();
+	private final List<Integer> pendingSeeds = new ArrayList<Integer>();
+	private long outputPosition = -1;
+	private long elapsedMillis = 0;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param settings a description of everything else that affects results
+	 *                 (RNG, difficulty, etc), which must match to resume
+	 */
+	public SeedSearchCheckpoint( long fromSeed, long toSeed, int shardSize, String settings ) {
+		this.fromSeed = fromSeed;
+		this.toSeed = toSeed;
+		this.shardSize = shardSize;
+		this.settings = settings;
+	}
+
+	public long getFromSeed() { return fromSeed; }
+	public long getToSeed() { return toSeed; }
+	public int getShardSize() { return shardSize; }
+	public String getSettings() { return settings; }
+
+	public int getShardCount() {
+		return (int)((toSeed - fromSeed + shardSize - 1) / shardSize);
+	}
+
+	/**
+	 * Returns true if this checkpoint can resume the described search.
+	 */
+	public boolean isCompatible( long fromSeed, long toSeed, int shardSize, String settings ) {
+		return ( this.fromSeed == fromSeed && this.toSeed == toSeed && this.shardSize == shardSize && this.settings.equals( settings ) );
+	}
+
+	public void addCompletedShard( int shard ) { completedShards.set( shard ); }
+	public boolean isShardCompleted( int shard ) { return completedShards.get( shard ); }
+
+	/**
+	 * Returns a copy of the set of completed shards.
+	 */
+	public BitSet getCompletedShards() { return (BitSet)completedShards.clone(); }
+
+	public int getCompletedShardCount() { return completedShards.cardinality(); }
+
+	/**
+	 * Returns how many seeds the completed shards cover.
+	 */
+	public long getCompletedSeedCount() {
+		long result = 0;
+		for ( int shard = completedShards.nextSetBit( 0 ); shard >= 0; shard = completedShards.nextSetBit( shard + 1 ) ) {
+			long shardStart = fromSeed + (long)shard * shardSize;
+			result += Math.min( shardStart + shardSize, toSeed ) - shardStart;
+		}
+		return result;
+	}
+
+	public void addMatchedSeed( int seed ) { matchedSeeds.add( seed ); }
+
+	public List<Integer> getMatchedSeeds() {
+		List<Integer> result = new ArrayList<Integer>( matchedSeeds );
+		Collections.sort( result );
+		return result;
+	}
+
+	/**
+	 * Sets the matches that will be reported after this checkpoint is saved.
+	 *
+	 * @param seeds matched seeds, already added with addMatchedSeed()
+	 * @param outputPosition the listener's output position before reporting
+	 *                       them, or -1 if unknown
+	 * @see SeedSearchListener#getOutputPosition()
+	 */
+	public void setPendingSeeds( List<Integer> seeds, long outputPosition ) {
+		pendingSeeds.clear();
+		pendingSeeds.addAll( seeds );
+		this.outputPosition = outputPosition;
+	}
+
+	public List<Integer> getPendingSeeds() {
+		List<Integer> result = new ArrayList<Integer>( pendingSeeds );
+		Collections.sort( result );
+		return result;
+	}
+
+	/**
+	 * Returns the output position to rewind to before reporting pending
+	 * seeds again, or -1 if unknown.
+	 */
+	public long getOutputPosition() { return outputPosition; }
+
+	/**
+	 * Sets the total search time, across all runs.
+	 */
+	public void setElapsedMillis( long n ) { elapsedMillis = n; }
+	public long getElapsedMillis() { return elapsedMillis; }
+
+
+	public void save( File f ) throws IOException {
+		Properties props = new Properties();
+		props.setProperty( FROM_SEED, Long.toString( fromSeed ) );
+		props.setProperty( TO_SEED, Long.toString( toSeed ) );
+		props.setProperty( SHARD_SIZE, Integer.toString( shardSize ) );
+		props.setProperty( SETTINGS, settings );
+		props.setProperty( COMPLETED_SHARDS, encodeRanges( completedShards ) );
+		props.setProperty( MATCHED_SEEDS, joinInts( getMatchedSeeds() ) );
+		props.setProperty( PENDING_SEEDS, joinInts( getPendingSeeds() ) );
+		props.setProperty( OUTPUT_POSITION, Long.toString( outputPosition ) );
+		props.setProperty( SEEDS_SEARCHED, Long.toString( getCompletedSeedCount() ) );  // Informational.
+		props.setProperty( ELAPSED_MILLIS, Long.toString( elapsedMillis ) );
+
+		File tmpFile = new File( f.getPath() +".tmp" );
+		OutputStream out = null;
+		try {
+			out = new FileOutputStream( tmpFile );
+			props.store( new OutputStreamWriter( out, "UTF-8" ), "Seed search checkpoint" );
+		}
+		finally {
+			try {if ( out != null ) out.close();}
+			catch ( IOException e ) {}
+		}
+
+		if ( !tmpFile.renameTo( f ) ) {
+			// Windows won't rename over an existing file.
+			f.delete();
+			if ( !tmpFile.renameTo( f ) ) {
+				throw new IOException( String.format( "Could not rename \"%s\" to \"%s\"", tmpFile.getPath(), f.getPath() ) );
+			}
+		}
+	}
+
+	public static SeedSearchCheckpoint load( File f ) throws IOException {
+		Properties props = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream( f );
+			props.load( new InputStreamReader( in, "UTF-8" ) );
+		}
+		finally {
+			try {if ( in != null ) in.close();}
+			catch ( IOException e ) {}
+		}
+
+		try {
+			long fromSeed = Long.parseLong( props.getProperty( FROM_SEED ) );
+			long toSeed = Long.parseLong( props.getProperty( TO_SEED ) );
+			int shardSize = Integer.parseInt( props.getProperty( SHARD_SIZE ) );
+			String settings = props.getProperty( SETTINGS, "" );
+
+			SeedSearchCheckpoint result = new SeedSearchCheckpoint( fromSeed, toSeed, shardSize, settings );
+			decodeRanges( props.getProperty( COMPLETED_SHARDS, "" ), result.completedShards );
+			result.matchedSeeds.addAll( splitInts( props.getProperty( MATCHED_SEEDS, "" ) ) );
+			result.pendingSeeds.addAll( splitInts( props.getProperty( PENDING_SEEDS, "" ) ) );
+			result.outputPosition = Long.parseLong( props.getProperty( OUTPUT_POSITION, "-1" ) );
+			result.elapsedMillis = Long.parseLong( props.getProperty( ELAPSED_MILLIS, "0" ) );
+			return result;
+		}
+		catch ( NumberFormatException e ) {
+			throw new IOException( String.format( "Malformed checkpoint: %s", f.getPath() ), e );
+		}
+	}
+
+
+	/**
+	 * Encodes set bits as comma-separated runs, like "0-15,18,20-21".
+	 */
+	private static String encodeRanges( BitSet bits ) {
+		StringBuilder buf = new StringBuilder();
+		int start = bits.nextSetBit( 0 );
+		while ( start >= 0 ) {
+			int end = bits.nextClearBit( start ) - 1;
+
+			if ( buf.length() > 0 ) buf.append( ',' );
+			buf.append( start );
+			if ( end > start ) buf.append( '-' ).append( end );
+
+			start = bits.nextSetBit( end + 1 );
+		}
+		return buf.toString();
+	}
+
+	private static void decodeRanges( String s, BitSet bits ) {
+		for ( String chunk : s.split( "," ) ) {
+			chunk = chunk.trim();
+			if ( chunk.length() == 0 ) continue;
+
+			int dash = chunk.indexOf( '-' );
+			if ( dash == -1 ) {
+				bits.set( Integer.parseInt( chunk ) );
+			} else {
+				bits.set( Integer.parseInt( chunk.substring( 0, dash ) ), Integer.parseInt( chunk.substring( dash + 1 ) ) + 1 );
+			}
+		}
+	}
+
+	private static String joinInts( List<Integer> values ) {
+		StringBuilder buf = new StringBuilder();
+		for ( Integer n : values ) {
+			if ( buf.length() > 0 ) buf.append( ',' );
+			buf.append( n );
+		}
+		return buf.toString();
+	}
+
+	private static List<Integer> splitInts( String s ) {
+		List<Integer> result = new ArrayList<Integer>();
+		for ( String chunk : s.split( "," ) ) {
+			chunk = chunk.trim();
+			if ( chunk.length() > 0 ) result.add( Integer.parseInt( chunk ) );
+		}
+		return result;
+	}
+}
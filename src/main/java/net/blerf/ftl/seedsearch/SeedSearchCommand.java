@@ -0,0 +1,359 @@
+package net.blerf.ftl.seedsearch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.Properties;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.vhati.modmanager.core.FTLUtilities;
+
+import net.blerf.ftl.constants.Difficulty;
+import net.blerf.ftl.core.EditorConfig;
+import net.blerf.ftl.parser.DataManager;
+import net.blerf.ftl.parser.DefaultDataManager;
+import net.blerf.ftl.parser.random.BSDRandom;
+import net.blerf.ftl.parser.random.FTL_1_6_Random;
+import net.blerf.ftl.parser.random.GNULibCRandom;
+import net.blerf.ftl.parser.random.MsRandom;
+import net.blerf.ftl.parser.random.NativeRandom;
+import net.blerf.ftl.parser.random.RandRNG;
+
+
+/**
+ * The "seedsearch" command-line mode.
+ *
+ * Matches are written as JSON Lines, one object per seed, in batches as
+ * shards finish (so not strictly in seed order). Progress goes to the log,
+ * which prints on stderr, so stdout stays machine-readable.
+ *
+ * With a checkpoint file, an interrupted search can be resumed by running
+ * the same command again. An existing output file is cut back to where the
+ * checkpoint was saved, then appended to, so it ends up as if the search
+ * had never stopped. Matches on stdout can't be taken back, so the batch
+ * being reported at the time may be printed again.
+ */
+@Parameters( commandDescription = "Search a range of seeds headlessly, printing matches as JSON Lines" )
+public class SeedSearchCommand {
+
+	private static final Logger log = LoggerFactory.getLogger( SeedSearchCommand.class );
+
+	public static final String NAME = "seedsearch";
+
+	public static final String RNG_FTL_1_6 = "ftl";
+	public static final String RNG_NATIVE = "native";
+	public static final String RNG_GNU = "gnu";
+	public static final String RNG_BSD = "bsd";
+	public static final String RNG_MS = "ms";
+
+	@Parameter( names = "--from", description = "First seed to test" )
+	private long fromSeed = 0;
+
+	@Parameter( names = "--to", description = "Seed to stop at (exclusive)" )
+	private long toSeed = ParallelSeedSearch.SEED_LIMIT;
+
+	@Parameter( names = "--threads", description = "Worker threads" )
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	@Parameter( names = "--rng", description = "RNG algorithm: ftl (1.6+), native, gnu, bsd, or ms" )
+	private String rngName = RNG_FTL_1_6;
+
+	@Parameter( names = "--difficulty", description = "EASY, NORMAL, or HARD" )
+	private String difficultyName = Difficulty.HARD.toString();
+
+	@Parameter( names = "--dlc", arity = 1, description = "Whether Advanced Edition content is enabled" )
+	private boolean dlcEnabled = true;
+
+	@Parameter( names = "--dats", description = "FTL resources dir (default: from ftl-editor.cfg, or autodetect)" )
+	private String datsPath = null;
+
+	@Parameter( names = "--output", description = "File to write matches to (default: stdout)" )
+	private String outputPath = null;
+
+	@Parameter( names = "--checkpoint", description = "File to save progress in, and resume from if it exists" )
+	private String checkpointPath = null;
+
+	@Parameter( names = "--progress", description = "Seconds between progress lines and checkpoints" )
+	private int progressSeconds = 10;
+
+	@Parameter( names = { "-h", "--help" }, help = true, description = "Show usage" )
+	private boolean help = false;
+
+
+	public boolean isHelp() { return help; }
+
+	/**
+	 * Runs the search.
+	 *
+	 * @return a process exit code
+	 */
+	public int execute() {
+		final Difficulty difficulty;
+		try {
+			difficulty = Difficulty.valueOf( difficultyName.toUpperCase( Locale.ENGLISH ) );
+		}
+		catch ( IllegalArgumentException e ) {
+			log.error( String.format( "Unknown difficulty: %s", difficultyName ) );
+			return 2;
+		}
+
+		ParallelSeedSearch.RNGFactory rngFactory = createRNGFactory( rngName );
+		if ( rngFactory == null ) {
+			log.error( String.format( "Unknown RNG: %s", rngName ) );
+			return 2;
+		}
+		if ( RNG_NATIVE.equalsIgnoreCase( rngName ) && threadCount > 1 ) {
+			log.warn( "The native RNG is process-global, searching with 1 thread" );
+			threadCount = 1;
+		}
+
+		File datsDir = findDatsDir( datsPath );
+		if ( datsDir == null ) {
+			log.error( "FTL resources were not found, use --dats to specify their location" );
+			return 1;
+		}
+
+		try {
+			DefaultDataManager dataManager = new DefaultDataManager( datsDir );
+			DataManager.setInstance( dataManager );
+			dataManager.setDLCEnabledByDefault( dlcEnabled );
+		}
+		catch ( Exception e ) {
+			log.error( "Error parsing FTL resources", e );
+			return 1;
+		}
+
+		OutputStream os = null;
+		try {
+			boolean resuming = ( checkpointPath != null && new File( checkpointPath ).exists() );
+			FileChannel outChannel = null;
+			if ( outputPath != null ) {
+				FileOutputStream fos = new FileOutputStream( outputPath, resuming );
+				outChannel = fos.getChannel();
+				os = fos;
+			}
+			else {
+				os = System.out;
+			}
+			PrintWriter out = new PrintWriter( new OutputStreamWriter( os, "UTF-8" ) );
+
+			ParallelSeedSearch search;
+			try {
+				search = new ParallelSeedSearch( rngFactory, dlcEnabled, difficulty );
+				search.setThreadCount( threadCount );
+				search.setProgressInterval( Math.max( 1, progressSeconds ) * 1000L );
+				if ( checkpointPath != null ) search.setCheckpointFile( new File( checkpointPath ) );
+			}
+			catch ( IllegalArgumentException e ) {
+				log.error( e.getMessage() );
+				return 2;
+			}
+			search.setListener( new JSONLinesListener( out, outChannel ) );
+
+			search.search( fromSeed, toSeed );
+			out.flush();
+
+			if ( out.checkError() ) {
+				log.error( "Error writing matches" );
+				return 1;
+			}
+			return 0;
+		}
+		catch ( IllegalArgumentException e ) {
+			log.error( e.getMessage() );
+			return 2;
+		}
+		catch ( InterruptedException e ) {
+			log.error( "Seed search was interrupted" );
+			return 1;
+		}
+		catch ( IOException e ) {
+			log.error( "Seed search failed", e );
+			return 1;
+		}
+		finally {
+			if ( outputPath != null ) {
+				try {if ( os != null ) os.close();}
+				catch ( IOException e ) {}
+			}
+		}
+	}
+
+	/**
+	 * Returns a factory for a named RNG algorithm, or null.
+	 */
+	public static ParallelSeedSearch.RNGFactory createRNGFactory( String name ) {
+		final String rngName = name.toLowerCase( Locale.ENGLISH );
+
+		if ( !RNG_FTL_1_6.equals( rngName ) && !RNG_NATIVE.equals( rngName ) && !RNG_GNU.equals( rngName ) && !RNG_BSD.equals( rngName ) && !RNG_MS.equals( rngName ) ) {
+			return null;
+		}
+
+		return new ParallelSeedSearch.RNGFactory() {
+			@Override
+			public RandRNG createRNG() {
+				if ( RNG_FTL_1_6.equals( rngName ) ) return new FTL_1_6_Random( "FTL 1.6+" );
+				if ( RNG_NATIVE.equals( rngName ) ) return new NativeRandom( "Native" );
+				if ( RNG_GNU.equals( rngName ) ) return new GNULibCRandom( "GLibC" );
+				if ( RNG_BSD.equals( rngName ) ) return new BSDRandom( "BSD" );
+				return new MsRandom( "Microsoft" );
+			}
+		};
+	}
+
+	/**
+	 * Returns the FTL resources dir: the given path, the configured one, or
+	 * an autodetected one. Returns null if none is valid.
+	 */
+	static File findDatsDir( String datsPath ) {
+		if ( datsPath != null ) {
+			File datsDir = new File( datsPath );
+			return ( FTLUtilities.isDatsDirValid( datsDir ) ? datsDir : null );
+		}
+
+		File configFile = new File( "ftl-editor.cfg" );
+		if ( configFile.exists() ) {
+			Properties props = new Properties();
+			InputStream in = null;
+			try {
+				in = new FileInputStream( configFile );
+				props.load( new InputStreamReader( in, "UTF-8" ) );
+
+				String configPath = props.getProperty( EditorConfig.FTL_DATS_PATH, "" );
+				if ( configPath.length() > 0 && FTLUtilities.isDatsDirValid( new File( configPath ) ) ) {
+					log.info( "Using FTL dats path from config: "+ configPath );
+					return new File( configPath );
+				}
+			}
+			catch ( IOException e ) {
+				log.error( "Error loading config", e );
+			}
+			finally {
+				try {if ( in != null ) in.close();}
+				catch ( IOException e ) {}
+			}
+		}
+
+		return FTLUtilities.findDatsDir();
+	}
+
+	/**
+	 * Quotes and escapes a string for JSON.
+	 */
+	public static String jsonString( String s ) {
+		if ( s == null ) return "null";
+
+		StringBuilder buf = new StringBuilder( s.length() + 2 );
+		buf.append( '"' );
+		for ( int i=0; i < s.length(); i++ ) {
+			char c = s.charAt( i );
+			switch ( c ) {
+				case '"':  buf.append( "\\\"" ); break;
+				case '\\': buf.append( "\\\\" ); break;
+				case '\n': buf.append( "\\n" ); break;
+				case '\r': buf.append( "\\r" ); break;
+				case '\t': buf.append( "\\t" ); break;
+				default:
+					if ( c < 0x20 ) {
+						buf.append( String.format( "\\u%04x", (int)c ) );
+					} else {
+						buf.append( c );
+					}
+			}
+		}
+		buf.append( '"' );
+		return buf.toString();
+	}
+
+	/**
+	 * Formats a match as a single line of JSON.
+	 */
+	public static String toJSON( SeedMatch match ) {
+		StringBuilder buf = new StringBuilder();
+		buf.append( "{\"seed\":" ).append( match.getSeed() );
+		buf.append( ",\"path\":[" );
+
+		boolean first = true;
+		for ( SeedMatch.MatchBeacon b : match.getPath() ) {
+			if ( !first ) buf.append( ',' );
+			first = false;
+
+			buf.append( "{\"beacon\":" ).append( b.getIndex() );
+			buf.append( ",\"col\":" ).append( b.getCol() );
+			buf.append( ",\"row\":" ).append( b.getRow() );
+			buf.append( ",\"event\":" ).append( jsonString( b.getEventId() ) );
+			buf.append( ",\"description\":" ).append( jsonString( b.getDescription() ) );
+			buf.append( '}' );
+		}
+		buf.append( "]}" );
+		return buf.toString();
+	}
+
+
+
+	private static class JSONLinesListener implements SeedSearchListener {
+		private final PrintWriter out;
+		private final FileChannel channel;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param channel the output file's channel, or null if output can't
+		 *                be rewound
+		 */
+		public JSONLinesListener( PrintWriter out, FileChannel channel ) {
+			this.out = out;
+			this.channel = channel;
+		}
+
+		@Override
+		public void seedMatched( SeedMatch match ) {
+			String line = toJSON( match );
+			synchronized ( out ) {
+				out.println( line );
+				out.flush();
+			}
+		}
+
+		@Override
+		public void searchProgress( long seedsSearched, long seedsTotal, long elapsedMillis ) {
+			double rate = ( elapsedMillis > 0 ? seedsSearched * 1000d / elapsedMillis : 0d );
+			double percent = ( seedsTotal > 0 ? seedsSearched * 100d / seedsTotal : 100d );
+
+			log.info( String.format( "Progress: %d/%d seeds (%.2f%%), %.0f seeds/sec", seedsSearched, seedsTotal, percent, rate ) );
+		}
+
+		@Override
+		public long getOutputPosition() throws IOException {
+			if ( channel == null ) return -1;
+
+			synchronized ( out ) {
+				if ( out.checkError() ) throw new IOException( "Error writing matches" );
+				return channel.size();
+			}
+		}
+
+		@Override
+		public void rewindOutput( long position ) throws IOException {
+			if ( channel == null ) return;
+
+			synchronized ( out ) {
+				out.flush();
+				channel.truncate( position );
+			}
+		}
+	}
+}
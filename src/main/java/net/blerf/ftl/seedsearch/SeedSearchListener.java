@@ -0,0 +1,44 @@
+package net.blerf.ftl.seedsearch;
+
+import java.io.IOException;
+
+/**
+ * Receives results from a ParallelSeedSearch while it runs.
+ */
+public interface SeedSearchListener {
+
+	/**
+	 * Called for each match, once the shard containing it is fully searched
+	 * (and, with a checkpoint file, once that has been saved).
+	 *
+	 * This is called on the thread that started the search, in batches.
+	 * Seeds are ascending within a batch, but not across batches.
+	 */
+	public void seedMatched( SeedMatch match );
+
+	/**
+	 * Called periodically on the thread that started the search.
+	 *
+	 * @param seedsSearched seeds tested so far
+	 * @param seedsTotal seeds in the whole range
+	 * @param elapsedMillis time since the search began
+	 */
+	public void searchProgress( long seedsSearched, long seedsTotal, long elapsedMillis );
+
+	/**
+	 * Returns how much output has been written so far, or -1 if that can't
+	 * be known (e.g., stdout).
+	 *
+	 * This is saved with each checkpoint, just before the next batch of
+	 * matches is reported.
+	 */
+	public long getOutputPosition() throws IOException;
+
+	/**
+	 * Discards output written after a position from getOutputPosition().
+	 *
+	 * A resumed search calls this before reporting the last checkpoint's
+	 * pending matches again. It is not called if the position was -1.
+	 */
+	public void rewindOutput( long position ) throws IOException;
+}
@@ -27,6 +27,8 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
@@ -38,6 +40,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
 import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -47,6 +50,7 @@ import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
+import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
 import javax.swing.JOptionPane;
@@ -60,6 +64,7 @@ import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.MouseInputAdapter;
@@ -90,12 +95,16 @@ import net.blerf.ftl.parser.sectormap.GeneratedBeacon;
 import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
 import net.blerf.ftl.parser.sectormap.GridSectorMapGenerator;
 import net.blerf.ftl.parser.sectormap.RandomSectorMapGenerator;
+import net.blerf.ftl.parser.sectormap.ResolvedEvent;
+import net.blerf.ftl.seedsearch.ParallelSeedSearch;
+import net.blerf.ftl.seedsearch.SeedSearchCommand;
 import net.blerf.ftl.ui.FieldEditorPanel;
 import net.blerf.ftl.ui.FTLFrame;
 import net.blerf.ftl.ui.ImageUtilities;
 import net.blerf.ftl.ui.RegexDocument;
 import net.blerf.ftl.ui.SectorMapLayout;
 import net.blerf.ftl.ui.SectorMapLayout.SectorMapConstraints;
+import net.blerf.ftl.ui.SeedBrowserPanel;
 import net.blerf.ftl.ui.SpriteReference;
 import net.blerf.ftl.ui.StoreShelfPanel;
 import net.blerf.ftl.ui.StatusbarMouseListener;
@@ -151,6 +160,8 @@ public class SavedGameSectorMapPanel extends JPanel {
 	private RandRNG forcedRNG = null;
 	private int sectorLayoutSeed = 1;
 
+	private MapGenerationWorker mapWorker = null;
+
 	private int rebelFleetOffset = -750;  // Arbitrary default.
 	private int rebelFleetFudge = 100;    // Arbitrary default.
 	private int rebelPursuitMod = 0;
@@ -420,6 +431,7 @@ public class SavedGameSectorMapPanel extends JPanel {
 	}
 
 	public void setGameState( SavedGameParser.SavedGameState gameState ) {
+		cancelMapGeneration();
 		mapPanel.removeAll();
 		mapLayout.setBeaconLocations( null );
 		mapLayout.setBeaconRegionSize( null );
@@ -680,6 +692,79 @@ public class SavedGameSectorMapPanel extends JPanel {
 		miscSelector.setSize( desiredWidth, desiredHeight );
 	}
 
+	/**
+	 * Opens a non-modal window with a SeedBrowserPanel for the current sector.
+	 *
+	 * Other RNGs get an instance per worker thread. NativeRandom's state is
+	 * global to the process, so the selected instance itself is shared by a
+	 * single worker, locked like MapGenerationWorker does.
+	 */
+	private void showSeedBrowser( final RandRNG selectedRNG, SeedBrowserPanel.SeedSelectionListener selectionListener ) {
+		ParallelSeedSearch.RNGFactory rngFactory;
+		int threadCount = Runtime.getRuntime().availableProcessors();
+
+		if ( selectedRNG instanceof FTL_1_6_Random ) {
+			rngFactory = SeedSearchCommand.createRNGFactory( SeedSearchCommand.RNG_FTL_1_6 );
+		}
+		else if ( selectedRNG instanceof GNULibCRandom ) {
+			rngFactory = SeedSearchCommand.createRNGFactory( SeedSearchCommand.RNG_GNU );
+		}
+		else if ( selectedRNG instanceof MsRandom ) {
+			rngFactory = SeedSearchCommand.createRNGFactory( SeedSearchCommand.RNG_MS );
+		}
+		else {
+			rngFactory = new ParallelSeedSearch.RNGFactory() {
+				@Override
+				public RandRNG createRNG() {
+					return selectedRNG;
+				}
+			};
+			threadCount = 1;
+		}
+
+		final SeedBrowserPanel browserPanel = new SeedBrowserPanel( rngFactory, threadCount, fileFormat, sectorNumber, difficulty, dlcEnabled );
+		browserPanel.setSeedSelectionListener( selectionListener );
+
+		JDialog browserDlg = new JDialog( frame, String.format( "Seed Browser (%s)", selectedRNG ), false );
+		browserDlg.setDefaultCloseOperation( JDialog.DISPOSE_ON_CLOSE );
+		browserDlg.addWindowListener(new WindowAdapter() {
+			@Override
+			public void windowClosed( WindowEvent e ) {
+				browserPanel.dispose();
+			}
+		});
+		browserDlg.setContentPane( browserPanel );
+		browserDlg.pack();
+		browserDlg.setLocationRelativeTo( frame );
+		browserDlg.setVisible( true );
+	}
+
+	/**
+	 * Runs a map generation in the background, superseding any pending one.
+	 *
+	 * The viewport shows a notice until the result is applied.
+	 */
+	private void startMapGeneration( MapGenerationWorker worker ) {
+		cancelMapGeneration();
+
+		mapWorker = worker;
+		mapViewport.setStatusString( "Generating sector map..." );
+		worker.execute();
+	}
+
+	/**
+	 * Discards the pending map generation, if any.
+	 *
+	 * A worker can't be stopped midway, but its result will be ignored.
+	 */
+	private void cancelMapGeneration() {
+		if ( mapWorker != null ) {
+			mapWorker.cancel( false );
+			mapWorker = null;
+			mapViewport.setStatusString( null );
+		}
+	}
+
 	public void selectBeacon() {
 		miscSelector.clearSpriteLists();
 		miscSelector.addSpriteList( beaconSprites );
@@ -1129,68 +1214,46 @@ public class SavedGameSectorMapPanel extends JPanel {
 			public void run() {
 				int newSeed = editorPanel.parseInt( LAYOUT_SEED );
 
-				GeneratedSectorMap newGenMap = null;
+				RandRNG selectedRNG = null;
 
-				if ( LAYOUT_GRID.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
-
-					GridSectorMapGenerator gridMapGen = new GridSectorMapGenerator();
-					newGenMap = gridMapGen.generateSectorMap( GRID_GEN_COLS, GRID_GEN_ROWS, GRID_GEN_COL_W, GRID_GEN_ROW_H );
-
-				}
-				else if ( LAYOUT_SEEDED.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
-
-					Object selectedRNGObj = editorPanel.getCombo( ALGORITHM ).getSelectedItem();
-					if ( selectedRNGObj == null ) {
+				if ( LAYOUT_SEEDED.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
+					selectedRNG = (RandRNG)editorPanel.getCombo( ALGORITHM ).getSelectedItem();
+					if ( selectedRNG == null ) {
 						log.warn( "No RNG selected to generate a sector map!?" );
 						return;
 					}
-
-					@SuppressWarnings( "unchecked" )
-					RandRNG selectedRNG = (RandRNG)selectedRNGObj;
-
-					synchronized ( selectedRNG ) {
-						selectedRNG.srand( newSeed );
-
-						RandomSectorMapGenerator randomMapGen = new RandomSectorMapGenerator();
-						try {
-							randomMapGen.sectorNumber = sectorNumber;
-							randomMapGen.difficulty = difficulty;
-							randomMapGen.dlcEnabled = dlcEnabled;
-
-							newGenMap = randomMapGen.generateSectorMap( selectedRNG, fileFormat );
-						}
-						catch ( IllegalStateException e ) {
-							log.error( "Map generation failed", e );
-							JOptionPane.showMessageDialog( frame, "Map generation failed:\n"+ e.toString(), "Map generation failed", JOptionPane.ERROR_MESSAGE );
-						}
-					}
 				}
 
-				if ( newGenMap != null ) {
-					sectorLayoutSeed = newSeed;
+				startMapGeneration( new MapGenerationWorker( selectedRNG, newSeed ) {
+					@Override
+					protected void applyMap( GeneratedSectorMap newGenMap ) {
+						if ( newGenMap != null ) {
+							sectorLayoutSeed = getSeed();
+
+							List<GeneratedBeacon> genBeacons = newGenMap.getGeneratedBeaconList();
+							List<Point> newLocations = new ArrayList<Point>( genBeacons.size() );
+							List<String> newDescriptions = new ArrayList<String>( genBeacons.size() );
+
+							for ( GeneratedBeacon genBeacon : genBeacons ) {
+								newLocations.add( genBeacon.getLocation() );
+								ResolvedEvent e = genBeacon.getEvent();
+								if (e != null)
+									newDescriptions.add( e.toDescription(0) );
+								else
+									newDescriptions.add( "" );
+							}
+							mapLayout.setBeaconLocations( newLocations );
+							mapLayout.setBeaconDescriptions( newDescriptions );
+							mapLayout.setBeaconRegionSize( newGenMap.getPreferredSize() );
 
-					List<GeneratedBeacon> genBeacons = newGenMap.getGeneratedBeaconList();
-					List<Point> newLocations = new ArrayList<Point>( genBeacons.size() );
-					List<String> newDescriptions = new ArrayList<String>( genBeacons.size() );
+							mapPanel.revalidate();
+							fitViewToViewport();
+							mapViewport.repaint();
+						}
 
-					for ( GeneratedBeacon genBeacon : genBeacons ) {
-						newLocations.add( genBeacon.getLocation() );
-						FTLEvent e = genBeacon.getEvent();
-						if (e != null)
-							newDescriptions.add( e.toDescription(0) );
-						else
-							newDescriptions.add( "" );
+						editorPanel.getInt( LAYOUT_SEED ).setText( ""+ sectorLayoutSeed );
 					}
-					mapLayout.setBeaconLocations( newLocations );
-					mapLayout.setBeaconDescriptions( newDescriptions );
-					mapLayout.setBeaconRegionSize( newGenMap.getPreferredSize() );
-
-					mapPanel.revalidate();
-					fitViewToViewport();
-					mapViewport.repaint();
-				}
-
-				editorPanel.getInt( LAYOUT_SEED ).setText( ""+ sectorLayoutSeed );
+				});
 			}
 		};
 		createSidePanel( title, editorPanel, null, applyCallback );
@@ -1209,46 +1272,53 @@ public class SavedGameSectorMapPanel extends JPanel {
 
 				editorPanel.getInt( LAYOUT_SEED ).setText( ""+ newSeed );
 
-				GeneratedSectorMap newGenMap = null;
+				RandRNG selectedRNG = null;
 
-				if ( LAYOUT_GRID.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
-
-					GridSectorMapGenerator gridMapGen = new GridSectorMapGenerator();
-					newGenMap = gridMapGen.generateSectorMap( GRID_GEN_COLS, GRID_GEN_ROWS, GRID_GEN_COL_W, GRID_GEN_ROW_H );
-
-				}
-				else if ( LAYOUT_SEEDED.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
-
-					Object selectedRNGObj = editorPanel.getCombo( ALGORITHM ).getSelectedItem();
-					if ( selectedRNGObj == null ) {
+				if ( LAYOUT_SEEDED.equals( editorPanel.getCombo( LAYOUT ).getSelectedItem() ) ) {
+					selectedRNG = (RandRNG)editorPanel.getCombo( ALGORITHM ).getSelectedItem();
+					if ( selectedRNG == null ) {
 						log.warn( "No RNG selected to generate a sector map!?" );
 						return;
 					}
+				}
 
-					@SuppressWarnings( "unchecked" )
-					RandRNG selectedRNG = (RandRNG)selectedRNGObj;
-
-					synchronized ( selectedRNG ) {
-						selectedRNG.srand( newSeed );
+				startMapGeneration( new MapGenerationWorker( selectedRNG, newSeed ) {
+					@Override
+					protected void applyMap( GeneratedSectorMap newGenMap ) {
+						if ( newGenMap != null ) {
+							sectorLayoutSeed = getSeed();
 
-						RandomSectorMapGenerator randomMapGen = new RandomSectorMapGenerator();
-						try {
-							newGenMap = randomMapGen.generateSectorMap( selectedRNG, fileFormat );
-						}
-						catch ( IllegalStateException f ) {
-							log.error( "Map generation failed", f );
-							JOptionPane.showMessageDialog( frame, "Map generation failed:\n"+ f.toString(), "Map generation failed", JOptionPane.ERROR_MESSAGE );
+							replaceMap( newGenMap, false );
 						}
+
+						editorPanel.getInt( LAYOUT_SEED ).setText( ""+ sectorLayoutSeed );
 					}
-				}
+				});
+			}
+		});
 
-				if ( newGenMap != null ) {
-					sectorLayoutSeed = newSeed;
+		JButton browseSeedsBtn = new JButton( "Browse Seeds..." );
+		browseSeedsBtn.setAlignmentX( Component.CENTER_ALIGNMENT );
+		browseSeedsBtn.addMouseListener( new StatusbarMouseListener( frame, "Compare thumbnails of many seeded maps. Double-click one to preview it." ) );
+		sidePanel.add( browseSeedsBtn );
 
-					replaceMap( newGenMap, false );
+		browseSeedsBtn.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed( ActionEvent e ) {
+				RandRNG selectedRNG = (RandRNG)editorPanel.getCombo( ALGORITHM ).getSelectedItem();
+				if ( selectedRNG == null ) {
+					log.warn( "No RNG selected to browse sector maps!?" );
+					return;
 				}
 
-				editorPanel.getInt( LAYOUT_SEED ).setText( ""+ sectorLayoutSeed );
+				showSeedBrowser( selectedRNG, new SeedBrowserPanel.SeedSelectionListener() {
+					@Override
+					public void seedSelected( int seed ) {
+						editorPanel.getCombo( LAYOUT ).setSelectedItem( LAYOUT_SEEDED );
+						editorPanel.getInt( LAYOUT_SEED ).setText( ""+ seed );
+						applyCallback.run();
+					}
+				});
 			}
 		});
 
@@ -2141,6 +2211,90 @@ public class SavedGameSectorMapPanel extends JPanel {
 
 
 
+	/**
+	 * Generates a sector map off the event thread.
+	 *
+	 * Generation can take a while when events are resolved, or when the map
+	 * gets re-rolled, so the UI stays responsive meanwhile. Only the latest
+	 * worker's result is applied, on the event thread.
+	 *
+	 * RandRNG objects are shared by the algorithm combo, so each is locked
+	 * while it generates.
+	 */
+	private abstract class MapGenerationWorker extends SwingWorker<GeneratedSectorMap, Void> {
+		private final RandRNG rng;
+		private final int seed;
+		private final int genFileFormat = fileFormat;
+		private final int genSectorNumber = sectorNumber;
+		private final Difficulty genDifficulty = difficulty;
+		private final boolean genDlcEnabled = dlcEnabled;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param rng an RNG to seed, or null for a grid layout
+		 */
+		public MapGenerationWorker( RandRNG rng, int seed ) {
+			this.rng = rng;
+			this.seed = seed;
+		}
+
+		public int getSeed() { return seed; }
+
+		@Override
+		protected GeneratedSectorMap doInBackground() {
+			if ( rng == null ) {
+				GridSectorMapGenerator gridMapGen = new GridSectorMapGenerator();
+				return gridMapGen.generateSectorMap( GRID_GEN_COLS, GRID_GEN_ROWS, GRID_GEN_COL_W, GRID_GEN_ROW_H );
+			}
+
+			synchronized ( rng ) {
+				if ( isCancelled() ) return null;  // Superseded while waiting.
+
+				rng.srand( seed );
+
+				RandomSectorMapGenerator randomMapGen = new RandomSectorMapGenerator();
+				randomMapGen.sectorNumber = genSectorNumber;
+				randomMapGen.difficulty = genDifficulty;
+				randomMapGen.dlcEnabled = genDlcEnabled;
+
+				return randomMapGen.generateSectorMap( rng, genFileFormat );
+			}
+		}
+
+		@Override
+		protected void done() {
+			if ( isCancelled() || mapWorker != this ) return;
+
+			mapWorker = null;
+			mapViewport.setStatusString( null );
+
+			GeneratedSectorMap newGenMap = null;
+			try {
+				newGenMap = get();
+			}
+			catch ( InterruptedException e ) {
+				log.error( "Map generation was interrupted", e );
+			}
+			catch ( ExecutionException e ) {
+				Throwable cause = e.getCause();
+				log.error( "Map generation failed", cause );
+				JOptionPane.showMessageDialog( frame, "Map generation failed:\n"+ cause.toString(), "Map generation failed", JOptionPane.ERROR_MESSAGE );
+			}
+
+			applyMap( newGenMap );
+		}
+
+		/**
+		 * Uses the generated map, or null if generation failed.
+		 *
+		 * This is called on the event thread.
+		 */
+		protected abstract void applyMap( GeneratedSectorMap newGenMap );
+	}
+
+
+
 	/**
 	 * Reticle-bordered text, with an arrow in the south-west corner.
 	 *
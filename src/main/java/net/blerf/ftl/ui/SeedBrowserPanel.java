@@ -0,0 +1,503 @@
+package net.blerf.ftl.ui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.blerf.ftl.constants.Difficulty;
+import net.blerf.ftl.parser.random.RandRNG;
+import net.blerf.ftl.parser.sectormap.GeneratedSectorMap;
+import net.blerf.ftl.parser.sectormap.RandomSectorMapGenerator;
+import net.blerf.ftl.seedsearch.ParallelSeedSearch;
+import net.blerf.ftl.ui.SectorMapLayout.SectorMapConstraints;
+
+
+/**
+ * A scrollable grid of sector map thumbnails, one per seed.
+ *
+ * Cells are rendered by a JList, so only visible ones are painted. Painting
+ * a cell whose map isn't cached queues it on a worker pool, and queued seeds
+ * that have scrolled out of view are skipped. Generated maps are kept in a
+ * size-bounded LRU cache, so scrolling back is instant.
+ *
+ * Thumbnails are laid out with a SectorMapLayout, like the full map, then
+ * painted at reduced scale.
+ *
+ * Double-clicking a thumbnail notifies a SeedSelectionListener.
+ */
+public class SeedBrowserPanel extends JPanel {
+
+	private static final Logger log = LoggerFactory.getLogger( SeedBrowserPanel.class );
+
+	public static final int DEFAULT_CACHE_SIZE = 500;
+
+	private static final int SEED_COUNT = 10000;
+	private static final double THUMBNAIL_SCALE = 0.25;
+	private static final int BEACON_DIAMETER = 28;
+
+	private final ParallelSeedSearch.RNGFactory rngFactory;
+	private final int fileFormat;
+	private final int sectorNumber;
+	private final Difficulty difficulty;
+	private final boolean dlcEnabled;
+
+	private final ExecutorService executor;
+	private final ThreadLocal<RandRNG> threadRNG;
+
+	private final MapCache cache = new MapCache( DEFAULT_CACHE_SIZE );
+	private final Set<Integer> pendingSeeds = new HashSet<Integer>();
+
+	// Visible seeds, updated on the EDT and read by workers.
+	private volatile int visibleFirstSeed = 0;
+	private volatile int visibleLastSeed = -1;
+
+	private Random javaRandom = new Random();
+	private int firstSeed = 0;
+
+	private SeedListModel seedModel = new SeedListModel();
+	@SuppressWarnings("rawtypes")
+	private JList seedList;
+	private JTextField firstSeedField;
+	private SeedSelectionListener selectionListener = null;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param rngFactory creates an RNG for each worker thread
+	 * @param threadCount the number of workers, 1 for an RNG with global state
+	 */
+	public SeedBrowserPanel( ParallelSeedSearch.RNGFactory rngFactory, int threadCount, int fileFormat, int sectorNumber, Difficulty difficulty, boolean dlcEnabled ) {
+		super( new BorderLayout() );
+		this.rngFactory = rngFactory;
+		this.fileFormat = fileFormat;
+		this.sectorNumber = sectorNumber;
+		this.difficulty = difficulty;
+		this.dlcEnabled = dlcEnabled;
+
+		executor = Executors.newFixedThreadPool( Math.max( 1, threadCount ), new BrowserThreadFactory() );
+
+		threadRNG = new ThreadLocal<RandRNG>() {
+			@Override
+			protected RandRNG initialValue() {
+				return SeedBrowserPanel.this.rngFactory.createRNG();
+			}
+		};
+
+		JPanel topPanel = new JPanel( new FlowLayout( FlowLayout.LEFT ) );
+		topPanel.add( new JLabel( "First Seed:" ) );
+		firstSeedField = new JTextField( 10 );
+		firstSeedField.setDocument( new RegexDocument( "[0-9]*" ) );
+		topPanel.add( firstSeedField );
+
+		JButton goBtn = new JButton( "Go" );
+		topPanel.add( goBtn );
+		JButton randomBtn = new JButton( "Random" );
+		topPanel.add( randomBtn );
+		this.add( topPanel, BorderLayout.NORTH );
+
+		seedList = createSeedList();
+
+		Dimension thumbSize = getThumbnailSize();
+		final JScrollPane seedScroll = new JScrollPane( seedList );
+		seedScroll.getVerticalScrollBar().setUnitIncrement( 20 );
+		seedScroll.setPreferredSize( new Dimension( (thumbSize.width+8)*4 + 24, (thumbSize.height+24)*3 + 4 ) );
+		this.add( seedScroll, BorderLayout.CENTER );
+
+		seedScroll.getViewport().addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged( ChangeEvent e ) {
+				updateVisibleRange();
+			}
+		});
+
+		goBtn.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed( ActionEvent e ) {
+				String s = firstSeedField.getText();
+				try {
+					setFirstSeed( s.length() > 0 ? Integer.parseInt( s ) : 0 );
+				}
+				catch ( NumberFormatException f ) {
+					setFirstSeed( firstSeed );
+				}
+			}
+		});
+
+		randomBtn.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed( ActionEvent e ) {
+				setFirstSeed( javaRandom.nextInt( Integer.MAX_VALUE - SEED_COUNT ) );
+			}
+		});
+
+		seedList.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked( MouseEvent e ) {
+				if ( e.getClickCount() != 2 || selectionListener == null ) return;
+
+				int index = seedList.locationToIndex( e.getPoint() );
+				if ( index != -1 && seedList.getCellBounds( index, index ).contains( e.getPoint() ) ) {
+					selectionListener.seedSelected( firstSeed + index );
+				}
+			}
+		});
+
+		setFirstSeed( 0 );
+	}
+
+	public void setSeedSelectionListener( SeedSelectionListener l ) {
+		selectionListener = l;
+	}
+
+	/**
+	 * Shows consecutive seeds, starting from a given one.
+	 */
+	public void setFirstSeed( int seed ) {
+		firstSeed = Math.max( 0, Math.min( seed, Integer.MAX_VALUE - SEED_COUNT ) );
+		firstSeedField.setText( ""+ firstSeed );
+
+		synchronized ( pendingSeeds ) {
+			pendingSeeds.clear();
+		}
+		seedModel.fireReset();
+		seedList.ensureIndexIsVisible( 0 );
+		updateVisibleRange();
+	}
+
+	/**
+	 * Stops the workers. Call this once the panel is no longer shown.
+	 */
+	public void dispose() {
+		executor.shutdownNow();
+	}
+
+	private void updateVisibleRange() {
+		int first = seedList.getFirstVisibleIndex();
+		int last = seedList.getLastVisibleIndex();
+		if ( first == -1 ) {
+			visibleFirstSeed = 0;
+			visibleLastSeed = -1;
+		} else {
+			visibleFirstSeed = firstSeed + first;
+			visibleLastSeed = firstSeed + last;
+		}
+		// Cells skipped under a stale range will be requested again.
+		seedList.repaint();
+	}
+
+	private Dimension getThumbnailSize() {
+		SectorMapLayout layout = new SectorMapLayout();
+		Dimension full = layout.preferredLayoutSize( null );
+		return new Dimension( (int)(full.width * THUMBNAIL_SCALE), (int)(full.height * THUMBNAIL_SCALE) );
+	}
+
+	/**
+	 * Queues a seed's map for generation, unless it's cached or queued.
+	 */
+	private void requestMap( final int seed ) {
+		if ( executor.isShutdown() ) return;
+
+		synchronized ( pendingSeeds ) {
+			if ( !pendingSeeds.add( seed ) ) return;
+		}
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				// Skip seeds that scrolled away while queued.
+				if ( seed < visibleFirstSeed || seed > visibleLastSeed ) {
+					synchronized ( pendingSeeds ) {
+						pendingSeeds.remove( seed );
+					}
+					return;
+				}
+
+				GeneratedSectorMap genMap = null;
+				try {
+					genMap = generateMap( seed );
+				}
+				catch ( RuntimeException e ) {
+					log.error( String.format( "Map generation failed for seed %d", seed ), e );
+				}
+				final GeneratedSectorMap finalMap = genMap;
+
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						synchronized ( pendingSeeds ) {
+							pendingSeeds.remove( seed );
+						}
+						cache.put( seed, new CachedMap( finalMap ) );
+
+						int index = seed - firstSeed;
+						if ( index >= 0 && index < seedModel.getSize() ) {
+							Rectangle bounds = seedList.getCellBounds( index, index );
+							if ( bounds != null ) seedList.repaint( bounds );
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Creates the list of thumbnails.
+	 *
+	 * JList is raw before Java 7, which this still builds for.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private JList createSeedList() {
+		JList result = new JList( seedModel );
+		result.setLayoutOrientation( JList.HORIZONTAL_WRAP );
+		result.setVisibleRowCount( -1 );
+		result.setCellRenderer( new ThumbnailRenderer() );
+
+		Dimension thumbSize = getThumbnailSize();
+		result.setFixedCellWidth( thumbSize.width + 8 );
+		result.setFixedCellHeight( thumbSize.height + 24 );
+		result.setBackground( Color.BLACK );
+
+		return result;
+	}
+
+	/**
+	 * Generates a map with this thread's RNG.
+	 *
+	 * The RNG is locked, in case the factory hands out an instance that's
+	 * shared with other code (e.g. for NativeRandom's global state).
+	 */
+	private GeneratedSectorMap generateMap( int seed ) {
+		RandRNG rng = threadRNG.get();
+
+		synchronized ( rng ) {
+			rng.srand( seed );
+
+			RandomSectorMapGenerator randomMapGen = new RandomSectorMapGenerator();
+			randomMapGen.sectorNumber = sectorNumber;
+			randomMapGen.difficulty = difficulty;
+			randomMapGen.dlcEnabled = dlcEnabled;
+			randomMapGen.resolveEvents = false;  // Thumbnails only show beacons.
+
+			return randomMapGen.generateSectorMap( rng, fileFormat );
+		}
+	}
+
+	/**
+	 * Paints a map at reduced scale, positioned by a SectorMapLayout.
+	 *
+	 * This is called on the EDT.
+	 */
+	private BufferedImage renderThumbnail( GeneratedSectorMap genMap ) {
+		SectorMapLayout layout = new SectorMapLayout();
+		JPanel mapPanel = new JPanel( layout );
+		mapPanel.setBackground( Color.BLACK );
+
+		List<Point> locations = new ArrayList<Point>( genMap.getBeaconCount() );
+		for ( int b=0; b < genMap.getBeaconCount(); b++ ) {
+			locations.add( new Point( genMap.getBeaconX( b ), genMap.getBeaconY( b ) ) );
+
+			Color c = Color.YELLOW;
+			if ( b == genMap.startBeacon ) c = Color.GREEN;
+			else if ( b == genMap.endBeacon ) c = Color.RED;
+			mapPanel.add( new BeaconDot( c ), new SectorMapConstraints( SectorMapConstraints.BEACON ) );
+		}
+		layout.setBeaconLocations( locations );
+		layout.setBeaconRegionSize( genMap.getPreferredSize() );
+
+		mapPanel.setSize( layout.preferredLayoutSize( mapPanel ) );
+		mapPanel.doLayout();
+
+		Dimension thumbSize = getThumbnailSize();
+		BufferedImage image = new BufferedImage( thumbSize.width, thumbSize.height, BufferedImage.TYPE_INT_RGB );
+		Graphics2D g2d = image.createGraphics();
+		g2d.setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON );
+		g2d.scale( (double)thumbSize.width / mapPanel.getWidth(), (double)thumbSize.height / mapPanel.getHeight() );
+		mapPanel.paint( g2d );
+		g2d.dispose();
+
+		return image;
+	}
+
+
+
+	/**
+	 * Receives seeds picked in a SeedBrowserPanel.
+	 */
+	public interface SeedSelectionListener {
+		public void seedSelected( int seed );
+	}
+
+
+
+	@SuppressWarnings("rawtypes")
+	private class SeedListModel extends AbstractListModel {
+		@Override
+		public int getSize() {
+			return SEED_COUNT;
+		}
+
+		@Override
+		public Object getElementAt( int index ) {
+			return Integer.valueOf( firstSeed + index );
+		}
+
+		public void fireReset() {
+			fireContentsChanged( this, 0, SEED_COUNT-1 );
+		}
+	}
+
+
+
+	private class ThumbnailRenderer extends DefaultListCellRenderer {
+		public ThumbnailRenderer() {
+			this.setVerticalTextPosition( SwingConstants.BOTTOM );
+			this.setHorizontalTextPosition( SwingConstants.CENTER );
+			this.setHorizontalAlignment( SwingConstants.CENTER );
+		}
+
+		@Override
+		@SuppressWarnings("rawtypes")
+		public Component getListCellRendererComponent( JList list, Object value, int index, boolean isSelected, boolean cellHasFocus ) {
+			super.getListCellRendererComponent( list, value, index, isSelected, cellHasFocus );
+
+			int seed = ((Integer)value).intValue();
+			CachedMap cached = cache.get( seed );
+
+			if ( cached == null ) {
+				this.setIcon( null );
+				this.setText( seed +" ..." );
+				requestMap( seed );
+			}
+			else if ( cached.genMap == null ) {
+				this.setIcon( null );
+				this.setText( seed +" (failed)" );
+			}
+			else {
+				if ( cached.image == null ) {
+					cached.image = renderThumbnail( cached.genMap );
+				}
+				this.setIcon( new ImageIcon( cached.image ) );
+				this.setText( ""+ seed );
+			}
+
+			if ( !isSelected ) {
+				this.setBackground( Color.BLACK );
+				this.setForeground( Color.WHITE );
+			}
+			this.setBorder( BorderFactory.createEmptyBorder( 2, 2, 2, 2 ) );
+			return this;
+		}
+	}
+
+
+
+	private static class CachedMap {
+		public final GeneratedSectorMap genMap;
+		public BufferedImage image = null;  // Rendered on first paint.
+
+		public CachedMap( GeneratedSectorMap genMap ) {
+			this.genMap = genMap;
+		}
+	}
+
+
+
+	/**
+	 * A size-bounded map of seeds to generated maps, evicting the least
+	 * recently used.
+	 */
+	private static class MapCache {
+		private final Map<Integer, CachedMap> entries;
+
+		public MapCache( final int capacity ) {
+			entries = new LinkedHashMap<Integer, CachedMap>( 16, 0.75f, true ) {
+				@Override
+				protected boolean removeEldestEntry( Map.Entry<Integer, CachedMap> eldest ) {
+					return size() > capacity;
+				}
+			};
+		}
+
+		public synchronized CachedMap get( int seed ) {
+			return entries.get( seed );
+		}
+
+		public synchronized void put( int seed, CachedMap cached ) {
+			entries.put( seed, cached );
+		}
+	}
+
+
+
+	private static class BeaconDot extends JComponent {
+		private final Color color;
+
+		public BeaconDot( Color color ) {
+			this.color = color;
+			this.setPreferredSize( new Dimension( BEACON_DIAMETER, BEACON_DIAMETER ) );
+		}
+
+		@Override
+		public void paintComponent( Graphics g ) {
+			Graphics2D g2d = (Graphics2D)g;
+			g2d.setColor( color );
+			g2d.fill( new Ellipse2D.Double( 0, 0, this.getWidth(), this.getHeight() ) );
+		}
+	}
+
+
+
+	private static class BrowserThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+		@Override
+		public Thread newThread( Runnable r ) {
+			Thread t = new Thread( r, "SeedBrowser-"+ threadNumber.getAndIncrement() );
+			t.setDaemon( true );
+			return t;
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -12,7 +13,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "achievement" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class Achievement {
+public class Achievement implements Serializable {
 
 	@XmlAttribute
 	private String id;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -11,7 +12,7 @@ import javax.xml.bind.annotation.XmlValue;
 
 @XmlRootElement(name = "animSheet")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class AnimSheet {
+public class AnimSheet implements Serializable {
 
 	@XmlAttribute(name = "name")
 	private String id;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -21,7 +22,7 @@ import javax.xml.bind.annotation.XmlRootElement;
  */
 @XmlRootElement( name = "desc" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class AnimSpec {
+public class AnimSpec implements Serializable {
 
 	@XmlAttribute( name = "length" )
 	public int frameCount;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +16,7 @@ import net.blerf.ftl.xml.WeaponAnim;
 
 @XmlRootElement( name = "animations" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class Animations {
+public class Animations implements Serializable {
 
 	@XmlElement( name = "animSheet", required = false )
 	private List<AnimSheet> sheets = new ArrayList<AnimSheet>();
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -11,7 +12,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "augBlueprint" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class AugBlueprint {
+public class AugBlueprint implements Serializable {
 	
 	@XmlAttribute( name = "name" )
 	private String id;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -12,7 +13,7 @@ import javax.xml.bind.annotation.XmlValue;
 
 @XmlRootElement(name = "img")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class BackgroundImage {
+public class BackgroundImage implements Serializable {
 
 	@XmlAttribute(name = "w")
 	private int width;
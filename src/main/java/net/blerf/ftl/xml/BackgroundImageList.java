@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -13,7 +14,7 @@ import net.blerf.ftl.xml.BackgroundImage;
 
 @XmlRootElement( name = "imageList" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class BackgroundImageList {
+public class BackgroundImageList implements Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
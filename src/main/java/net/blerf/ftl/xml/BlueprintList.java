@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -11,7 +12,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement(name = "blueprintList")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class BlueprintList {
+public class BlueprintList implements Serializable {
 	
 	@XmlAttribute
 	private String name;
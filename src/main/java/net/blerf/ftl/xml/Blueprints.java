@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,7 +12,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement( name = "blueprints" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class Blueprints {
+public class Blueprints implements Serializable {
 
 	@XmlElement( name = "blueprintList", required = false )
 	private List<BlueprintList> blueprintLists = new ArrayList<BlueprintList>();
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +9,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import net.blerf.ftl.xml.DefaultDeferredText;
 import net.blerf.ftl.xml.FTLEvent;
@@ -17,7 +19,7 @@ import net.blerf.ftl.xml.BackgroundImage;
 
 @XmlRootElement( name = "choice" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class Choice {
+public class Choice implements Serializable {
 	@XmlAttribute( name = "hidden", required = false )
 	private boolean hidden;
 
@@ -33,6 +35,10 @@ public class Choice {
 	@XmlElement(name = "event", required = false)
 	private FTLEvent event;
 
+	// The loaded event's index, filled in by the DataManager.
+	@XmlTransient
+	private int loadIndex = -1;
+
 	public boolean getHidden() {
 		return hidden;
 	}
@@ -73,6 +79,23 @@ public class Choice {
 		this.event = event;
 	}
 
+	/**
+	 * Returns the event index this choice loads, or -1 if there is none,
+	 * or it hasn't been resolved.
+	 *
+	 * A choice's event is loaded by its name, if any, rather than by its
+	 * load attribute. Some events in the data files use one for the other.
+	 *
+	 * @see net.blerf.ftl.parser.DataManager#getEventIndex(String)
+	 */
+	public int getLoadIndex() {
+		return loadIndex;
+	}
+
+	public void setLoadIndex( int loadIndex ) {
+		this.loadIndex = loadIndex;
+	}
+
 	private StringBuilder indent(StringBuilder sb, int level) {
 		sb.append(new String(new char[level]).replaceAll("\0", "    "));
 		return sb;
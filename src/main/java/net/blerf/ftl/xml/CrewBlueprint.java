@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -14,7 +15,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "crewBlueprint" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class CrewBlueprint {
+public class CrewBlueprint implements Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
@@ -41,13 +42,13 @@ public class CrewBlueprint {
 	private List<SpriteTintLayer> spriteTintLayerList;  // FTL 1.5.4 introduced sprite tinting.
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class SpriteTintLayer {
+	public static class SpriteTintLayer implements Serializable {
 
 		@XmlElement( name="color" )
 		public List<SpriteTintColor> tintList;
 
 		@XmlAccessorType( XmlAccessType.FIELD )
-		public static class SpriteTintColor {
+		public static class SpriteTintColor implements Serializable {
 			@XmlAttribute
 			public int r, g, b;
 			@XmlAttribute
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -12,7 +13,7 @@ import javax.xml.bind.annotation.XmlValue;
 
 @XmlRootElement(name = "nameList")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class CrewNameList {
+public class CrewNameList implements Serializable {
 
 	@XmlAttribute
 	private String race;  // FTL ignores race.
@@ -24,7 +25,7 @@ public class CrewNameList {
 	private List<CrewName> names;
 
 	@XmlAccessorType(XmlAccessType.FIELD)
-	public static class CrewName {
+	public static class CrewName implements Serializable {
 
 		@XmlAttribute(required = false)
 		public String shortName;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -10,7 +11,7 @@ import net.blerf.ftl.xml.DeferredText;
 
 
 @XmlAccessorType( XmlAccessType.FIELD )
-public class DefaultDeferredText implements DeferredText {
+public class DefaultDeferredText implements DeferredText, Serializable {
 
 	@XmlValue
 	private String ownText;
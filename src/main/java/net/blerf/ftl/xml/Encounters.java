@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +16,7 @@ import net.blerf.ftl.xml.TextList;
 
 @XmlRootElement( name = "events" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class Encounters {
+public class Encounters implements Serializable {
 
 	@XmlElement( name = "event", required = false )
 	private List<FTLEvent> events = new ArrayList<FTLEvent>();
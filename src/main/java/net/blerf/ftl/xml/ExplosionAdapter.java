@@ -14,6 +14,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import net.blerf.ftl.parser.JAXBContextRegistry;
 import net.blerf.ftl.xml.ShipChassis;
 
 
@@ -50,11 +51,18 @@ public class ExplosionAdapter extends XmlAdapter<Object, ShipChassis.Explosion>
 
 	private JAXBContext getJAXBContext( Class<?> type ) throws Exception {
 		if ( jaxbContext == null ) {
-			return JAXBContext.newInstance( type );
+			return JAXBContextRegistry.getContext( type );
 		}
 		return jaxbContext;
 	}
 
+	private Unmarshaller getUnmarshaller( Class<?> type ) throws Exception {
+		if ( jaxbContext == null ) {
+			return JAXBContextRegistry.getUnmarshaller( type );
+		}
+		return jaxbContext.createUnmarshaller();
+	}
+
 	@Override
 	public Object marshal( ShipChassis.Explosion explosion ) throws Exception {
 		if ( explosion == null ) return null;
@@ -98,7 +106,7 @@ public class ExplosionAdapter extends XmlAdapter<Object, ShipChassis.Explosion>
 				if ( childElement.getLocalName().matches( "^gib[0-9]*$" ) ) {
 
 					DOMSource source = new DOMSource( childElement );
-					Unmarshaller unmarshaller = getJAXBContext( ShipChassis.Gib.class ).createUnmarshaller();
+					Unmarshaller unmarshaller = getUnmarshaller( ShipChassis.Gib.class );
 					JAXBElement<ShipChassis.Gib> jaxbElement = unmarshaller.unmarshal( source, ShipChassis.Gib.class );
 
 					explosion.gibs.add( jaxbElement.getValue() );
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +9,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlValue;
 
 import net.blerf.ftl.xml.DefaultDeferredText;
@@ -20,13 +22,17 @@ import net.blerf.ftl.xml.ShipEvent;
 
 @XmlRootElement( name = "event" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class FTLEvent implements Cloneable {
+public class FTLEvent implements Cloneable, Serializable {
 	@XmlAttribute( name = "name", required = false )
 	private String id;
 
 	@XmlAttribute
 	private String load;
 
+	// The load attribute's event index, filled in by the DataManager.
+	@XmlTransient
+	private int loadIndex = -1;
+
 	@XmlAttribute
 	private boolean unique;
 
@@ -45,7 +51,7 @@ public class FTLEvent implements Cloneable {
 	@XmlElement(name = "item_modify", required = false)
 	private ItemList itemList;
 
-	public static class Reward {
+	public static class Reward implements Serializable {
 		@XmlAttribute
 		public String type;
 
@@ -59,7 +65,7 @@ public class FTLEvent implements Cloneable {
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class ItemList {
+	public static class ItemList implements Serializable {
 		@XmlElement( name = "item" )
 		public List<Reward> items;
 	}
@@ -68,7 +74,7 @@ public class FTLEvent implements Cloneable {
 	private AutoReward autoReward;
 
 	@XmlAccessorType( XmlAccessType.NONE )
-	public static class AutoReward {
+	public static class AutoReward implements Serializable {
 		@XmlAttribute( name = "level", required = false )
 		public String level;
 
@@ -86,7 +92,7 @@ public class FTLEvent implements Cloneable {
 	private CrewMember crewMember;
 
 	@XmlAccessorType( XmlAccessType.NONE )
-	public static class CrewMember {
+	public static class CrewMember implements Serializable {
 		@XmlAttribute
 		public int amount = 0;
 
@@ -128,7 +134,7 @@ public class FTLEvent implements Cloneable {
 	private Item drone = null;
 
 	@XmlAccessorType( XmlAccessType.NONE )
-	public static class Item {
+	public static class Item implements Serializable {
 		@XmlAttribute
 		public String name = null;
 	}
@@ -137,7 +143,7 @@ public class FTLEvent implements Cloneable {
 	private Boarders boarders = null;
 
 	@XmlAccessorType( XmlAccessType.NONE )
-	public static class Boarders {
+	public static class Boarders implements Serializable {
 		@XmlAttribute
 		public int min = 0;
 
@@ -172,6 +178,7 @@ public class FTLEvent implements Cloneable {
 				newC.setHidden(c.getHidden());
 				newC.setReq(c.getReq());
 				newC.setLevel(c.getLevel());
+				newC.setLoadIndex(c.getLoadIndex());
 				if (c.getText() != null)
 					newC.setText((NamedText)c.getText().clone());
 				if (c.getEvent() != null)
@@ -263,6 +270,20 @@ public class FTLEvent implements Cloneable {
 		this.load = load;
 	}
 
+	/**
+	 * Returns the event index of the load attribute, or -1 if there is
+	 * none, or it hasn't been resolved.
+	 *
+	 * @see net.blerf.ftl.parser.DataManager#getEventIndex(String)
+	 */
+	public int getLoadIndex() {
+		return loadIndex;
+	}
+
+	public void setLoadIndex( int loadIndex ) {
+		this.loadIndex = loadIndex;
+	}
+
 	public NamedText getText() {
 		return text;
 	}
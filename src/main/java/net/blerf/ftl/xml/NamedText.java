@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -14,7 +15,7 @@ import javax.xml.bind.annotation.XmlValue;
  */
 @XmlRootElement( name = "text" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class NamedText implements Cloneable {
+public class NamedText implements Cloneable, Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -12,7 +13,7 @@ import javax.xml.bind.annotation.XmlAttribute;
  * @see net.blerf.ftl.xml.WeaponAnim
  */
 @XmlAccessorType(XmlAccessType.FIELD)
-public class Offset {
+public class Offset implements Serializable {
 
 	@XmlAttribute
 	public int x, y;
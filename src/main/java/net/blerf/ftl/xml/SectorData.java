@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -13,7 +14,7 @@ import net.blerf.ftl.xml.FTLEventList;
 
 @XmlRootElement(name = "sectorData")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class SectorData {
+public class SectorData implements Serializable {
 	@XmlElement(name = "sectorType")
 	private List<SectorType> sectorTypes;
 
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -13,7 +14,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "sectorDescription" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class SectorDescription {
+public class SectorDescription implements Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
@@ -37,25 +38,25 @@ public class SectorDescription {
 	private List<EventDistribution> eventDistributions;
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class NameList {
+	public static class NameList implements Serializable {
 		@XmlElement(name = "name")
 		public List<DefaultDeferredText> names;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class TrackList {
+	public static class TrackList implements Serializable {
 		@XmlElement( name = "track" )
 		public List<String> tracks;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class RarityList {
+	public static class RarityList implements Serializable {
 		@XmlElement( name = "blueprint" )
 		public List<BlueprintRarity> blueprints;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class BlueprintRarity {
+	public static class BlueprintRarity implements Serializable {
 		@XmlAttribute( name = "name" )
 		public String id;
 
@@ -64,7 +65,7 @@ public class SectorDescription {
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class EventDistribution {
+	public static class EventDistribution implements Serializable {
 		@XmlAttribute
 		public String name;
 
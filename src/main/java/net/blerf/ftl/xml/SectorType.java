@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -11,7 +12,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 @XmlRootElement(name = "sectorType")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class SectorType {
+public class SectorType implements Serializable {
 
 	@XmlAttribute(name = "name")
 	private String id;
@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,7 +16,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "shipBlueprint" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class ShipBlueprint {
+public class ShipBlueprint implements Serializable {
 	
 	@XmlAttribute( name = "name" )
 	private String id;
@@ -60,10 +61,10 @@ public class ShipBlueprint {
 	private String boardingAI;  // Only present in autoBlueprints.xml.
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class SystemList {
+	public static class SystemList implements Serializable {
 
 		@XmlAccessorType( XmlAccessType.FIELD )
-		public static class RoomSlot {
+		public static class RoomSlot implements Serializable {
 
 			/**
 			 * The direction crew will face when standing at the terminal.
@@ -88,7 +89,7 @@ public class ShipBlueprint {
 		}
 		
 		@XmlAccessorType( XmlAccessType.FIELD )
-		public static class SystemRoom {
+		public static class SystemRoom implements Serializable {
 
 			/**
 			 * Minimum random system capacity.
@@ -392,7 +393,7 @@ public class ShipBlueprint {
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class WeaponList {
+	public static class WeaponList implements Serializable {
 
 		// 'count' isn't an independent field; a getter/setter calc's it (See below).
 
@@ -406,7 +407,7 @@ public class ShipBlueprint {
 		private List<WeaponId> weaponIds;
 
 		@XmlAccessorType( XmlAccessType.FIELD )
-		public static class WeaponId {
+		public static class WeaponId implements Serializable {
 			@XmlAttribute
 			public String name;
 		}
@@ -429,13 +430,13 @@ public class ShipBlueprint {
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class AugmentId {
+	public static class AugmentId implements Serializable {
 		@XmlAttribute
 		public String name;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class DroneList {
+	public static class DroneList implements Serializable {
 
 		// 'count' isn't an independent field; a getter/setter calc's it (See below).
 
@@ -449,7 +450,7 @@ public class ShipBlueprint {
 		private List<DroneId> droneIds;
 
 		@XmlAccessorType( XmlAccessType.FIELD )
-		public static class DroneId {
+		public static class DroneId implements Serializable {
 			@XmlAttribute
 			public String name;
 		}
@@ -472,19 +473,19 @@ public class ShipBlueprint {
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class Health {
+	public static class Health implements Serializable {
 		@XmlAttribute
 		public int amount;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class MaxPower {
+	public static class MaxPower implements Serializable {
 		@XmlAttribute
 		public int amount;
 	}
 
 	@XmlAccessorType( XmlAccessType.FIELD )
-	public static class CrewCount {
+	public static class CrewCount implements Serializable {
 		@XmlAttribute
 		public int amount;
 
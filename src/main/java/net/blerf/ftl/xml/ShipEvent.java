@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -13,7 +14,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "ship" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class ShipEvent {
+public class ShipEvent implements Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
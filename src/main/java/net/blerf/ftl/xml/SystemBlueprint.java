@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -14,7 +15,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "systemBlueprint" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class SystemBlueprint {
+public class SystemBlueprint implements Serializable {
 
 	@XmlAttribute( name = "name" )
 	private String id;
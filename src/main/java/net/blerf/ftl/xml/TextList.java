@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,7 +15,7 @@ import net.blerf.ftl.xml.NamedText;
 
 @XmlRootElement(name = "textList")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class TextList {
+public class TextList implements Serializable {
 	@XmlAttribute(name = "name")
 	private String id;
 
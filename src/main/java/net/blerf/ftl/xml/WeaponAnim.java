@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -13,7 +14,7 @@ import net.blerf.ftl.xml.Offset;
 
 @XmlRootElement(name = "weaponAnim")
 @XmlAccessorType(XmlAccessType.FIELD)
-public class WeaponAnim {
+public class WeaponAnim implements Serializable {
 
 	@XmlAttribute(name = "name")
 	private String id;
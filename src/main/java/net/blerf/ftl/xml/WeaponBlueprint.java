@@ -1,5 +1,6 @@
 package net.blerf.ftl.xml;
 
+import java.io.Serializable;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -14,7 +15,7 @@ import net.blerf.ftl.xml.DefaultDeferredText;
 
 @XmlRootElement( name = "weaponBlueprint" )
 @XmlAccessorType( XmlAccessType.FIELD )
-public class WeaponBlueprint {
+public class WeaponBlueprint implements Serializable {
 	
 	@XmlAttribute( name = "name" )
 	private String id;